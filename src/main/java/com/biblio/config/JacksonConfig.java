@@ -0,0 +1,20 @@
+package com.biblio.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tools.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Réglages du {@code JsonMapper} partagé (réponses MVC, {@link com.biblio.services.CacheCatalogue}).
+ * Blackbird remplace les appels réflexifs aux accesseurs des DTO par des lambdas générées à la volée,
+ * ce qui compte sur les listes de plusieurs milliers de lignes.
+ */
+@Configuration
+public class JacksonConfig {
+
+    // Enregistré par l'auto-configuration Jackson comme tout bean JacksonModule
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
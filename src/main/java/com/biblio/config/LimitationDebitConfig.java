@@ -0,0 +1,35 @@
+package com.biblio.config;
+
+import com.biblio.security.SeauxJetons;
+import com.biblio.security.SeauxJetonsJdbc;
+import com.biblio.security.SeauxJetonsMemoire;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Stockage des seaux de la limitation de débit : "memoire" (par instance, sans aucun aller-retour)
+ * ou "jdbc" (table limitation_debit, limite commune à toutes les instances derrière le répartiteur).
+ */
+@Configuration
+public class LimitationDebitConfig {
+
+    public static final String STOCKAGE_MEMOIRE = "memoire";
+    public static final String STOCKAGE_JDBC = "jdbc";
+
+    @Value("${app.limitation.stockage:memoire}")
+    private String stockage;
+
+    @Bean
+    public SeauxJetons seauxJetons(ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        if (STOCKAGE_JDBC.equalsIgnoreCase(stockage)) {
+            return new SeauxJetonsJdbc(jdbcTemplate.getObject());
+        }
+        if (!STOCKAGE_MEMOIRE.equalsIgnoreCase(stockage)) {
+            throw new IllegalStateException("Stockage de limitation de débit inconnu: " + stockage);
+        }
+        return new SeauxJetonsMemoire();
+    }
+}
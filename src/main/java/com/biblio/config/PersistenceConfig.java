@@ -0,0 +1,39 @@
+package com.biblio.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.flyway.autoconfigure.FlywayConfigurationCustomizer;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Migrations Flyway ({@code db/migration}, écrites pour MySQL ; sous H2, utiliser {@code MODE=MySQL}) et
+ * regroupement des écritures Hibernate en batch JDBC. Les identifiants étant attribués par blocs
+ * (voir {@link com.biblio.entities.Identifiants}), les INSERT sont différés jusqu'au flush puis triés
+ * par entité pour former des lots. Sous MySQL, ajouter {@code rewriteBatchedStatements=true} à l'URL JDBC
+ * pour que le driver envoie chaque lot en une seule requête multi-lignes.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer batchHibernatePropertiesCustomizer(
+            @Value("${app.jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.put(AvailableSettings.ORDER_INSERTS, true);
+            properties.put(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+
+    /**
+     * Une base existante créée par Hibernate (ddl-auto) et sans historique Flyway est marquée à la version 1,
+     * le schéma de référence ; seules les migrations suivantes y sont appliquées.
+     */
+    @Bean
+    public FlywayConfigurationCustomizer baselineFlywayConfigurationCustomizer(
+            @Value("${app.flyway.baseline-version:1}") String baselineVersion) {
+        return configuration -> configuration.baselineOnMigrate(true).baselineVersion(baselineVersion);
+    }
+}
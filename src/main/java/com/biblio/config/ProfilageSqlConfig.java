@@ -0,0 +1,110 @@
+package com.biblio.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.lifecycle.JdbcLifecycleEventListenerAdapter;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Profilage SQL par requête HTTP : un écouteur est ajouté à l'enveloppe datasource-proxy ({@link ProxyJdbcConfig})
+ * et chaque exécution (requête, mise à jour, lot) ainsi que chaque ligne lue est imputée au {@link Profil} actif
+ * sur le thread, ouvert par {@link ProfilageSqlFilter}. En dehors d'une requête HTTP (jobs, démarrage), rien n'est compté.
+ * Désactivable avec app.sql.profilage.enabled=false.
+ */
+@Configuration
+@ConditionalOnBooleanProperty(name = "app.sql.profilage.enabled", matchIfMissing = true)
+public class ProfilageSqlConfig {
+
+    private static final ThreadLocal<Profil> PROFIL_COURANT = new ThreadLocal<>();
+    private static final String DEBUT = "profilage.debut";
+
+    @Bean
+    public static ProxyJdbcConfig.Personnalisation profilageSqlProxyJdbc() {
+        return ProfilageSqlConfig::compter;
+    }
+
+    // Le proxy des ResultSet sert au comptage des lignes lues
+    static void compter(ProxyDataSourceBuilder builder) {
+        builder.listener(new CompteurJdbc()).proxyResultSet();
+    }
+
+    static DataSource envelopper(DataSource dataSource) {
+        return ProxyJdbcConfig.envelopper(dataSource, List.of(ProfilageSqlConfig::compter));
+    }
+
+    /**
+     * Ouvre un profil sur le thread courant. Retourne null si un profil est déjà ouvert (dispatch imbriqué) :
+     * les requêtes restent alors imputées au profil englobant.
+     */
+    public static Profil ouvrir() {
+        if (PROFIL_COURANT.get() != null) {
+            return null;
+        }
+        Profil profil = new Profil();
+        PROFIL_COURANT.set(profil);
+        return profil;
+    }
+
+    public static void fermer(Profil profil) {
+        if (profil != null && PROFIL_COURANT.get() == profil) {
+            PROFIL_COURANT.remove();
+        }
+    }
+
+    /**
+     * Compteurs d'une requête HTTP. Mis à jour par le seul thread de la requête.
+     */
+    public static final class Profil {
+        private int requetes;
+        private long lignes;
+        private long dureeNanos;
+
+        public int getRequetes() {
+            return requetes;
+        }
+
+        public long getLignes() {
+            return lignes;
+        }
+
+        public long getDureeNanos() {
+            return dureeNanos;
+        }
+    }
+
+    private static final class CompteurJdbc extends JdbcLifecycleEventListenerAdapter {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (PROFIL_COURANT.get() != null) {
+                execInfo.addCustomValue(DEBUT, System.nanoTime());
+            }
+        }
+
+        // Un aller-retour vers la base par exécution, y compris pour un lot (executeBatch)
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            Profil profil = PROFIL_COURANT.get();
+            Long debut = execInfo.getCustomValue(DEBUT, Long.class);
+            if (profil != null && debut != null) {
+                profil.requetes++;
+                profil.dureeNanos += System.nanoTime() - debut;
+            }
+        }
+
+        @Override
+        public void afterNext(MethodExecutionContext executionContext) {
+            Profil profil = PROFIL_COURANT.get();
+            if (profil != null && Boolean.TRUE.equals(executionContext.getResult())) {
+                profil.lignes++;
+            }
+        }
+    }
+}
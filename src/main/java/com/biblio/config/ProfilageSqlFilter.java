@@ -0,0 +1,155 @@
+package com.biblio.config;
+
+import com.biblio.config.ProfilageSqlConfig.Profil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Impute à chaque endpoint (méthode + motif de route) le nombre de requêtes SQL, les lignes lues et le temps
+ * passé en base, sécurité comprise (chargement de l'utilisateur du JWT).
+ * <ul>
+ *   <li>Métriques biblio.sql.requetes, biblio.sql.lignes (par requête HTTP) et biblio.sql.duree ;</li>
+ *   <li>en-tête X-Query-Count si app.sql.entete-debug=true ;</li>
+ *   <li>budgets par endpoint (app.sql.budgets, ex. {@code POST /api/reservations=12,GET /api/prets=3}) :
+ *       un dépassement est journalisé et compté, et lève une exception si app.sql.budget-strict=true
+ *       (à activer dans les tests pour qu'une régression N+1 les fasse échouer).</li>
+ * </ul>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnBooleanProperty(name = "app.sql.profilage.enabled", matchIfMissing = true)
+public class ProfilageSqlFilter extends OncePerRequestFilter {
+    public static final String ENTETE_NOMBRE_REQUETES = "X-Query-Count";
+    static final String ENDPOINT_INCONNU = "AUTRE";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Integer> budgets;
+    private final boolean enteteDebug;
+    private final boolean budgetStrict;
+
+    public ProfilageSqlFilter(MeterRegistry meterRegistry,
+                              @Value("${app.sql.budgets:}") String budgets,
+                              @Value("${app.sql.entete-debug:false}") boolean enteteDebug,
+                              @Value("${app.sql.budget-strict:false}") boolean budgetStrict) {
+        this.meterRegistry = meterRegistry;
+        this.budgets = lireBudgets(budgets);
+        this.enteteDebug = enteteDebug;
+        this.budgetStrict = budgetStrict;
+    }
+
+    static Map<String, Integer> lireBudgets(String budgets) {
+        Map<String, Integer> resultat = new HashMap<>();
+        for (String entree : budgets.split(",")) {
+            if (entree.isBlank()) {
+                continue;
+            }
+            int egal = entree.lastIndexOf('=');
+            if (egal < 0) {
+                throw new IllegalArgumentException("Budget SQL invalide (attendu \"METHODE /motif=n\"): " + entree);
+            }
+            resultat.put(entree.substring(0, egal).trim(), Integer.parseInt(entree.substring(egal + 1).trim()));
+        }
+        return resultat;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Profil profil = ProfilageSqlConfig.ouvrir();
+        if (profil == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        boolean termine = false;
+        try {
+            filterChain.doFilter(request, enteteDebug ? new EnteteNombreRequetes(response, profil) : response);
+            if (enteteDebug && !response.isCommitted()) {
+                response.setHeader(ENTETE_NOMBRE_REQUETES, String.valueOf(profil.getRequetes()));
+            }
+            termine = true;
+        } finally {
+            ProfilageSqlConfig.fermer(profil);
+            // Requête asynchrone : la suite s'exécute sur d'autres threads, les compteurs seraient partiels
+            if (!request.isAsyncStarted()) {
+                String depassement = enregistrer(request, profil);
+                // Sans masquer une éventuelle exception du traitement
+                if (depassement != null && budgetStrict && termine) {
+                    throw new IllegalStateException(depassement);
+                }
+            }
+        }
+    }
+
+    /**
+     * Enregistre les métriques de la requête. Retourne le message de dépassement de budget, ou null.
+     */
+    private String enregistrer(HttpServletRequest request, Profil profil) {
+        Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (motif != null ? motif : ENDPOINT_INCONNU);
+        Tags tags = Tags.of("methode", request.getMethod(), "endpoint", motif != null ? motif.toString() : ENDPOINT_INCONNU);
+
+        DistributionSummary.builder("biblio.sql.requetes")
+                .description("Requêtes SQL par requête HTTP")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(profil.getRequetes());
+        DistributionSummary.builder("biblio.sql.lignes")
+                .description("Lignes lues en base par requête HTTP")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(profil.getLignes());
+        Timer.builder("biblio.sql.duree")
+                .description("Temps passé en base par requête HTTP")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(profil.getDureeNanos(), TimeUnit.NANOSECONDS);
+
+        Integer budget = budgets.get(endpoint);
+        if (budget != null && profil.getRequetes() > budget) {
+            Counter.builder("biblio.sql.budget.depasse").tags(tags).register(meterRegistry).increment();
+            String message = String.format("Budget SQL dépassé pour %s : %d requêtes (budget %d)",
+                    endpoint, profil.getRequetes(), budget);
+            logger.warn(message);
+            return message;
+        }
+        return null;
+    }
+
+    /**
+     * Ajoute X-Query-Count au moment où la réponse part : le nombre couvre tout ce qui a été exécuté jusque-là.
+     */
+    private static final class EnteteNombreRequetes extends OnCommittedResponseWrapper {
+        private final Profil profil;
+
+        EnteteNombreRequetes(HttpServletResponse response, Profil profil) {
+            super(response);
+            this.profil = profil;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            setHeader(ENTETE_NOMBRE_REQUETES, String.valueOf(profil.getRequetes()));
+        }
+    }
+}
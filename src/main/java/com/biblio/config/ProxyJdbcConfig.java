@@ -0,0 +1,49 @@
+package com.biblio.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Enveloppe datasource-proxy unique autour de la DataSource : les traces ({@link TracingConfig}) et le profilage
+ * SQL ({@link ProfilageSqlConfig}) y déclarent leurs écouteurs par un bean {@link Personnalisation}, de sorte que
+ * chaque appel JDBC ne traverse qu'un seul proxy. Sans personnalisation, la DataSource est laissée telle quelle.
+ */
+@Configuration
+public class ProxyJdbcConfig {
+
+    /**
+     * Ajoute des écouteurs (ou le proxy des ResultSet) à l'enveloppe de la DataSource.
+     */
+    @FunctionalInterface
+    public interface Personnalisation {
+        void personnaliser(ProxyDataSourceBuilder builder);
+    }
+
+    @Bean
+    public static BeanPostProcessor proxyJdbcDataSourcePostProcessor(ObjectProvider<Personnalisation> personnalisations) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return envelopper(dataSource, personnalisations.orderedStream().toList());
+                }
+                return bean;
+            }
+        };
+    }
+
+    static DataSource envelopper(DataSource dataSource, List<Personnalisation> personnalisations) {
+        if (personnalisations.isEmpty()) {
+            return dataSource;
+        }
+        ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create("biblio", dataSource);
+        personnalisations.forEach(personnalisation -> personnalisation.personnaliser(builder));
+        return builder.build();
+    }
+}
@@ -1,9 +1,52 @@
 package com.biblio.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
+/**
+ * Planificateur des tâches @Scheduled, distinct de celui du broker STOMP (heartbeats).
+ * Avec spring.threads.virtual.enabled=true sous Java 21, chaque exécution part sur un thread virtuel :
+ * les jobs qui attendent JDBC ou SMTP n'occupent plus de thread du pool.
+ */
 @Configuration
 @EnableScheduling
-public class SchedulingConfig {
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final Environment environment;
+
+    // Ignoré en mode threads virtuels
+    @Value("${app.scheduling.threads:2}")
+    private int threads;
+
+    public SchedulingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Bean
+    public TaskScheduler taskScheduler() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setVirtualThreads(true);
+            scheduler.setThreadNamePrefix("jobs-");
+            return scheduler;
+        }
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(threads);
+        scheduler.setThreadNamePrefix("jobs-");
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(taskScheduler());
+    }
 }
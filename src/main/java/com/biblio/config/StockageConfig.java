@@ -0,0 +1,94 @@
+package com.biblio.config;
+
+import com.biblio.services.LocalStorageBackend;
+import com.biblio.services.S3StorageBackend;
+import com.biblio.services.StorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+/**
+ * Stockage des fichiers envoyés : "local" (répertoire, un seul nœud ou volume partagé)
+ * ou "s3" (bucket compatible S3, partagé par tous les nœuds).
+ */
+@Configuration
+public class StockageConfig {
+
+    public static final String STOCKAGE_LOCAL = "local";
+    public static final String STOCKAGE_S3 = "s3";
+
+    @Value("${app.stockage.type:local}")
+    private String type;
+
+    @Value("${app.stockage.local.racine:uploads}")
+    private String racineLocale;
+
+    // Adresse d'un service compatible S3 (MinIO...), vide pour AWS
+    @Value("${app.stockage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.stockage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.stockage.s3.bucket:biblio-uploads}")
+    private String bucket;
+
+    // Vides : chaîne d'identification par défaut du SDK (variables d'environnement, rôle IAM...)
+    @Value("${app.stockage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.stockage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${app.stockage.s3.taille-partie:8MB}")
+    private DataSize taillePartie;
+
+    @Bean
+    public StorageBackend storageBackend() {
+        if (STOCKAGE_S3.equalsIgnoreCase(type)) {
+            return s3();
+        }
+        if (!STOCKAGE_LOCAL.equalsIgnoreCase(type)) {
+            throw new IllegalStateException("Type de stockage inconnu: " + type);
+        }
+        return new LocalStorageBackend(Paths.get(racineLocale));
+    }
+
+    private S3StorageBackend s3() {
+        AwsCredentialsProvider identifiants = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        // Les services compatibles S3 n'ont en général pas de DNS par bucket
+        S3Configuration configuration = S3Configuration.builder()
+                .pathStyleAccessEnabled(!endpoint.isBlank())
+                .build();
+
+        S3ClientBuilder client = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(identifiants)
+                .serviceConfiguration(configuration);
+        S3Presigner.Builder presigner = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(identifiants)
+                .serviceConfiguration(configuration);
+        if (!endpoint.isBlank()) {
+            client.endpointOverride(URI.create(endpoint));
+            presigner.endpointOverride(URI.create(endpoint));
+        }
+        int partie = (int) Math.max(S3StorageBackend.TAILLE_PARTIE_MIN, taillePartie.toBytes());
+        return new S3StorageBackend(client.build(), presigner.build(), bucket, partie);
+    }
+}
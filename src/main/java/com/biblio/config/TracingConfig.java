@@ -0,0 +1,97 @@
+package com.biblio.config;
+
+import com.biblio.services.ReservationsEnAttentePublisher;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationPredicate;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import net.ttddyy.observation.tracing.DataSourceObservationListener;
+import net.ttddyy.observation.tracing.JdbcObservationDocumentation;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.scheduling.support.ScheduledTaskObservationContext;
+
+import javax.sql.DataSource;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Traces OpenTelemetry : requête HTTP → service (@Observed) → DAO → JDBC, plus les envois mail et STOMP.
+ * <ul>
+ *   <li>spans DAO : un span par appel de repository Spring Data (biblio.dao, ex. « ReservationDAO.findById ») ;</li>
+ *   <li>spans JDBC : connexion et requête SQL via datasource-proxy, sans valeurs de paramètres ;</li>
+ *   <li>export : OTLP vers un collecteur si management.opentelemetry.tracing.export.otlp.endpoint est défini
+ *       (ex. http://localhost:4318/v1/traces), et/ou dans les logs avec app.tracing.exporteur=logging ;</li>
+ *   <li>échantillonnage : management.tracing.sampling.probability (10 % par défaut), décision du parent
+ *       respectée pour garder des traces complètes entre services.</li>
+ * </ul>
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.tracing.exporteur", havingValue = "logging")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+
+    /**
+     * Le flush STOMP tourne chaque seconde et ne fait rien la plupart du temps : seules ses diffusions
+     * effectives sont tracées (biblio.stomp.diffusion).
+     */
+    @Bean
+    public ObservationPredicate ignorerFlushStomp() {
+        return (name, context) -> !(context instanceof ScheduledTaskObservationContext tache
+                && tache.getTargetClass() == ReservationsEnAttentePublisher.class);
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDaoPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                // Le repository est créé dans afterPropertiesSet : le customizer doit être posé avant
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(
+                                    observerDao(information.getRepositoryInterface().getSimpleName(),
+                                            observationRegistry::getObject))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public static ProxyJdbcConfig.Personnalisation tracingProxyJdbc(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return builder -> observerJdbc(builder, observationRegistry::getObject);
+    }
+
+    static MethodInterceptor observerDao(String dao, Supplier<ObservationRegistry> observationRegistry) {
+        return invocation -> Observation.createNotStarted("biblio.dao", observationRegistry.get())
+                .contextualName(dao + "." + invocation.getMethod().getName())
+                .lowCardinalityKeyValue("dao", dao)
+                .lowCardinalityKeyValue("methode", invocation.getMethod().getName())
+                .observeChecked(invocation::proceed);
+    }
+
+    static void observerJdbc(ProxyDataSourceBuilder builder, Supplier<ObservationRegistry> observationRegistry) {
+        DataSourceObservationListener listener = new DataSourceObservationListener(observationRegistry);
+        // Pas de span par ResultSet (un par lecture) ni de valeurs de paramètres (données personnelles)
+        listener.setSupportedTypes(EnumSet.of(JdbcObservationDocumentation.CONNECTION, JdbcObservationDocumentation.QUERY));
+        listener.setIncludeParameterValues(false);
+        builder.listener(listener).methodListener(listener);
+    }
+
+    static DataSource observerJdbc(DataSource dataSource, Supplier<ObservationRegistry> observationRegistry) {
+        return ProxyJdbcConfig.envelopper(dataSource, List.of(builder -> observerJdbc(builder, observationRegistry)));
+    }
+}
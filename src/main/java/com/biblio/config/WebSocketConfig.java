@@ -1,14 +1,67 @@
 package com.biblio.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+/**
+ * Broker STOMP : "simple" (en mémoire, un seul nœud) ou "relay" vers un broker externe
+ * (ActiveMQ Artemis, RabbitMQ...) pour que les messages atteignent les clients de tous les nœuds.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
-public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, EnvironmentAware {
+
+    public static final String BROKER_SIMPLE = "simple";
+    public static final String BROKER_RELAY = "relay";
+
+    @Value("${app.websocket.broker:simple}")
+    private String brokerMode;
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${app.websocket.relay.passcode:guest}")
+    private String relayPasscode;
+
+    // Intervalle de heartbeat STOMP (envoi et réception) en ms, 0 pour désactiver
+    @Value("${app.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    // Messages traités en parallèle par canal en mode threads virtuels ; au-delà, l'émetteur attend
+    @Value("${app.websocket.concurrence-max:256}")
+    private int concurrenceMax;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
@@ -17,10 +70,49 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .withSockJS();
     }
 
+    // En mode threads virtuels, les messages entrants (@MessageMapping, accès JDBC) et sortants ne sont plus
+    // limités par les pools de taille fixe des canaux, mais par un nombre maximal de threads actifs : un client
+    // lent ou une rafale de diffusions ne crée pas un thread par message sans limite
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            registration.executor(executeurVirtuel("ws-entrant-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            registration.executor(executeurVirtuel("ws-sortant-"));
+        }
+    }
+
+    private SimpleAsyncTaskExecutor executeurVirtuel(String prefixe) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(prefixe);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrenceMax);
+        return executor;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        if (BROKER_RELAY.equalsIgnoreCase(brokerMode)) {
+            registry.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMs);
+        } else if (BROKER_SIMPLE.equalsIgnoreCase(brokerMode)) {
+            registry.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        } else {
+            throw new IllegalStateException("Mode de broker WebSocket inconnu: " + brokerMode);
+        }
         registry.setApplicationDestinationPrefixes("/app");
     }
 }
-
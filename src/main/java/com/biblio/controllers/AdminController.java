@@ -3,11 +3,14 @@ package com.biblio.controllers;
 import com.biblio.dao.UserDAO;
 import com.biblio.dto.CreateBibliothequeRequest;
 import com.biblio.dto.CreateUserRequest;
+import com.biblio.dto.UserLogResponse;
+import com.biblio.dto.UserResponse;
 import com.biblio.entities.Bibliotheque;
 import com.biblio.entities.User;
 import com.biblio.enums.Role;
 import com.biblio.services.AdminService;
 import com.biblio.services.BibliothequeService;
+import com.biblio.services.CacheCatalogue;
 import com.biblio.services.UserLogService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -16,6 +19,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -30,12 +34,15 @@ public class AdminController {
     private final BibliothequeService bibliothequeService;
     private final UserDAO userDAO;
     private final UserLogService userLogService;
+    private final CacheCatalogue cacheCatalogue;
 
-    public AdminController(AdminService adminService, BibliothequeService bibliothequeService, UserDAO userDAO, UserLogService userLogService) {
+    public AdminController(AdminService adminService, BibliothequeService bibliothequeService, UserDAO userDAO,
+                           UserLogService userLogService, CacheCatalogue cacheCatalogue) {
         this.adminService = adminService;
         this.bibliothequeService = bibliothequeService;
         this.userDAO = userDAO;
         this.userLogService = userLogService;
+        this.cacheCatalogue = cacheCatalogue;
     }
 
     /**
@@ -48,7 +55,7 @@ public class AdminController {
             @RequestParam(required = false, defaultValue = "10") Integer size) {
         try {
             var paged = adminService.getUsersPage(page, size);
-            List<Map<String, Object>> users = paged.getContent().stream().map(this::userToMap).collect(Collectors.toList());
+            List<UserResponse> users = paged.getContent().stream().map(UserResponse::of).toList();
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("users", users);
@@ -79,7 +86,7 @@ public class AdminController {
             User user = adminService.getUserById(id);
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("user", userToMap(user));
+            result.put("user", UserResponse.of(user));
             return ResponseEntity.ok(result);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
@@ -127,7 +134,7 @@ public class AdminController {
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("message", "Utilisateur créé avec succès");
-            result.put("user", userToMap(user));
+            result.put("user", UserResponse.of(user));
             return ResponseEntity.status(HttpStatus.CREATED).body(result);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
@@ -217,7 +224,7 @@ public class AdminController {
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("message", "Statut de l'utilisateur modifié avec succès");
-            result.put("user", userToMap(user));
+            result.put("user", UserResponse.of(user));
             return ResponseEntity.ok(result);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
@@ -237,7 +244,7 @@ public class AdminController {
             @RequestParam(required = false, defaultValue = "100") int limit,
             @RequestParam(required = false) Long userId) {
         try {
-            List<Map<String, Object>> logs = userLogService.getRecentLogs(limit, userId);
+            List<UserLogResponse> logs = userLogService.getRecentLogs(limit, userId);
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("logs", logs);
@@ -356,20 +363,22 @@ public class AdminController {
 
     /**
      * GET /api/admin/bibliotheques/actives
-     * Liste toutes les bibliothèques actives
+     * Liste toutes les bibliothèques actives (en cache avec ETag, 304 si inchangée)
      */
     @GetMapping("/bibliotheques/actives")
-    public ResponseEntity<Map<String, Object>> getActiveBibliotheques() {
+    public ResponseEntity<?> getActiveBibliotheques(WebRequest webRequest) {
         try {
-            List<Map<String, Object>> bibliotheques = bibliothequeService.getAllActives().stream()
-                    .map(this::bibliothequeToMap)
-                    .collect(Collectors.toList());
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("bibliotheques", bibliotheques);
-            result.put("total", bibliotheques.size());
-            return ResponseEntity.ok(result);
+            return cacheCatalogue.repondre(webRequest, "bibliotheques:actives", () -> {
+                List<Map<String, Object>> bibliotheques = bibliothequeService.getAllActives().stream()
+                        .map(this::bibliothequeToMap)
+                        .collect(Collectors.toList());
+
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", true);
+                result.put("bibliotheques", bibliotheques);
+                result.put("total", bibliotheques.size());
+                return result;
+            });
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -445,26 +454,6 @@ public class AdminController {
         }
     }
 
-    private Map<String, Object> userToMap(User user) {
-        Map<String, Object> userMap = new HashMap<>();
-        userMap.put("id", user.getId());
-        userMap.put("nom", user.getNom());
-        userMap.put("prenom", user.getPrenom());
-        userMap.put("email", user.getEmail());
-        userMap.put("role", user.getRole().name());
-        userMap.put("roleDisplay", user.getRole().getDisplayName());
-        userMap.put("actif", user.getActif());
-        userMap.put("emailVerifie", user.getEmailVerifie());
-        userMap.put("dateInscription", user.getDateInscription());
-        if (user.getBibliotheque() != null) {
-            userMap.put("bibliotheque", Map.of(
-                    "id", user.getBibliotheque().getId(),
-                    "nom", user.getBibliotheque().getNom()
-            ));
-        }
-        return userMap;
-    }
-
     private Map<String, Object> bibliothequeToMap(Bibliotheque bibliotheque) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", bibliotheque.getId());
@@ -4,8 +4,10 @@ import com.biblio.dto.AuthResponse;
 import com.biblio.dto.LoginRequest;
 import com.biblio.dto.RefreshTokenRequest;
 import com.biblio.dto.RegisterRequest;
+import com.biblio.security.HachageSatureException;
 import com.biblio.services.AuthService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -53,6 +55,8 @@ public class AuthController {
             error.put("error", "Account disabled");
             error.put("message", "Votre compte est désactivé ou votre email n'est pas vérifié. Veuillez vérifier votre email.");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+        } catch (HachageSatureException e) {
+            return surcharge(e);
         } catch (org.springframework.security.authentication.LockedException e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -91,6 +95,8 @@ public class AuthController {
             result.put("user", response.user());
             result.put("message", "Compte créé avec succès ! Veuillez vérifier votre email pour activer votre compte.");
             return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (HachageSatureException e) {
+            return surcharge(e);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -171,13 +177,33 @@ public class AuthController {
 
     /**
      * POST /api/auth/logout
-     * Logout (stateless - le client doit simplement supprimer les tokens)
+     * Révoque la session : famille du refresh token fourni dans le corps, à défaut de l'access token (Authorization).
+     * Le refresh token et les access tokens de la famille sont refusés ensuite ; le client supprime ses tokens.
      */
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, Object>> logout() {
+    public ResponseEntity<Map<String, Object>> logout(
+            @RequestBody(required = false) RefreshTokenRequest request,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String jeton = request != null ? request.refreshToken() : null;
+        if ((jeton == null || jeton.isBlank()) && authorization != null && authorization.startsWith("Bearer ")) {
+            jeton = authorization.substring("Bearer ".length());
+        }
+        boolean revoquee = authService.logout(jeton);
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
+        result.put("revoked", revoquee);
         result.put("message", "Déconnexion réussie. Veuillez supprimer les tokens côté client.");
         return ResponseEntity.ok(result);
     }
+
+    /**
+     * Pool de hachage saturé : 503 avec Retry-After, le client peut réessayer
+     */
+    private ResponseEntity<Map<String, Object>> surcharge(HachageSatureException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", "Service unavailable");
+        error.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "2").body(error);
+    }
 }
@@ -3,6 +3,7 @@ package com.biblio.controllers;
 import com.biblio.dao.UserDAO;
 import com.biblio.dao.RessourceDAO;
 import com.biblio.dto.CreateUserRequest;
+import com.biblio.dto.UserResponse;
 import com.biblio.entities.Bibliotheque;
 import com.biblio.entities.User;
 import com.biblio.enums.Role;
@@ -145,9 +146,9 @@ public class BibliothequeAdminController {
             );
             var paged = userDAO.findByBibliotheque_IdAndRole(bibliothequeId, Role.BIBLIOTHECAIRE, pageable);
 
-            List<Map<String, Object>> utilisateursList = paged.getContent().stream()
-                    .map(this::userToMap)
-                    .collect(Collectors.toList());
+            List<UserResponse> utilisateursList = paged.getContent().stream()
+                    .map(UserResponse::of)
+                    .toList();
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -197,9 +198,9 @@ public class BibliothequeAdminController {
                     )
                     .collect(Collectors.toList());
 
-            List<Map<String, Object>> bibliothecairesList = bibliothecaires.stream()
-                    .map(this::userToMap)
-                    .collect(Collectors.toList());
+            List<UserResponse> bibliothecairesList = bibliothecaires.stream()
+                    .map(UserResponse::of)
+                    .toList();
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -258,7 +259,7 @@ public class BibliothequeAdminController {
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("message", "Utilisateur créé avec succès");
-            result.put("user", userToMap(user));
+            result.put("user", UserResponse.of(user));
             return ResponseEntity.status(HttpStatus.CREATED).body(result);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
@@ -410,7 +411,7 @@ public class BibliothequeAdminController {
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("message", "Statut de l'utilisateur modifié avec succès");
-            result.put("user", userToMap(updated));
+            result.put("user", UserResponse.of(updated));
             return ResponseEntity.ok(result);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
@@ -432,26 +433,6 @@ public class BibliothequeAdminController {
         return toggleUtilisateurStatus(id, currentUser);
     }
 
-    private Map<String, Object> userToMap(User user) {
-        Map<String, Object> userMap = new HashMap<>();
-        userMap.put("id", user.getId());
-        userMap.put("nom", user.getNom());
-        userMap.put("prenom", user.getPrenom());
-        userMap.put("email", user.getEmail());
-        userMap.put("role", user.getRole().name());
-        userMap.put("roleDisplay", user.getRole().getDisplayName());
-        userMap.put("actif", user.getActif());
-        userMap.put("emailVerifie", user.getEmailVerifie());
-        userMap.put("dateInscription", user.getDateInscription());
-        if (user.getBibliotheque() != null) {
-            userMap.put("bibliotheque", Map.of(
-                    "id", user.getBibliotheque().getId(),
-                    "nom", user.getBibliotheque().getNom()
-            ));
-        }
-        return userMap;
-    }
-
     private Map<String, Object> bibliothequeToMap(Bibliotheque bibliotheque) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", bibliotheque.getId());
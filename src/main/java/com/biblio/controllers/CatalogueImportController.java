@@ -0,0 +1,118 @@
+package com.biblio.controllers;
+
+import com.biblio.enums.Categorie;
+import com.biblio.enums.TypeRessource;
+import com.biblio.services.CatalogueImportService;
+import com.biblio.services.CatalogueImportService.ImportJob;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ressources/import")
+@PreAuthorize("hasRole('BIBLIOTHECAIRE')")
+public class CatalogueImportController {
+    private final CatalogueImportService catalogueImportService;
+
+    public CatalogueImportController(CatalogueImportService catalogueImportService) {
+        this.catalogueImportService = catalogueImportService;
+    }
+
+    /**
+     * POST /api/ressources/import
+     * Lance l'import en masse d'un fichier CSV ou MARC dans la bibliothèque du bibliothécaire.
+     * Le format est déduit de l'extension (.mrc/.marc) s'il n'est pas précisé.
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> demarrerImport(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "categorie", required = false) Categorie categorie,
+            @RequestParam(value = "typeRessource", required = false) TypeRessource typeRessource,
+            @AuthenticationPrincipal UserDetails currentUser) {
+        try {
+            ImportJob job = catalogueImportService.demarrerImport(file, detecterFormat(format, file.getOriginalFilename()),
+                    categorie, typeRessource, currentUser.getUsername());
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Import démarré");
+            result.put("import", jobToMap(job));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to start import");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to start import");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    /**
+     * GET /api/ressources/import/{id}
+     * Progression et erreurs ligne par ligne d'un import
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getImport(@PathVariable String id,
+                                                         @AuthenticationPrincipal UserDetails currentUser) {
+        try {
+            ImportJob job = catalogueImportService.getJob(id);
+            if (!job.getBibliothecaireEmail().equals(currentUser.getUsername())) {
+                throw new IllegalArgumentException("Import introuvable: " + id);
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("import", jobToMap(job));
+            result.put("erreurs", job.getErreurs());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Import not found");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
+    private static CatalogueImportService.Format detecterFormat(String format, String nomFichier) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return CatalogueImportService.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Format d'import non supporté: " + format);
+            }
+        }
+        String nom = nomFichier != null ? nomFichier.toLowerCase(Locale.ROOT) : "";
+        return nom.endsWith(".mrc") || nom.endsWith(".marc")
+                ? CatalogueImportService.Format.MARC
+                : CatalogueImportService.Format.CSV;
+    }
+
+    private Map<String, Object> jobToMap(ImportJob job) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", job.getId());
+        map.put("format", job.getFormat().name());
+        map.put("statut", job.getStatut().name());
+        map.put("lignesLues", job.getLignesLues());
+        map.put("importees", job.getImportees());
+        map.put("rejetees", job.getRejetees());
+        map.put("debut", job.getDebut());
+        map.put("fin", job.getFin());
+        map.put("message", job.getMessage());
+        return map;
+    }
+}
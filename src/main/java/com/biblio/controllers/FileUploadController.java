@@ -1,30 +1,196 @@
 package com.biblio.controllers;
 
+import com.biblio.services.EnvoiFichierService;
+import com.biblio.services.EnvoiFichierService.Envoi;
 import com.biblio.services.FileStorageService;
+import com.biblio.services.MiniatureService;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/upload")
 public class FileUploadController {
 
     private final FileStorageService fileStorageService;
+    private final MiniatureService miniatureService;
+    private final EnvoiFichierService envoiFichierService;
+    private final Duration delaiEnvoi;
+    private final JsonMapper jsonMapper;
 
-    public FileUploadController(FileStorageService fileStorageService) {
+    public FileUploadController(FileStorageService fileStorageService, MiniatureService miniatureService,
+                                EnvoiFichierService envoiFichierService, JsonMapper jsonMapper,
+                                @Value("${app.uploads.delai-envoi:PT30M}") Duration delaiEnvoi) {
         this.fileStorageService = fileStorageService;
+        this.miniatureService = miniatureService;
+        this.envoiFichierService = envoiFichierService;
+        this.jsonMapper = jsonMapper;
+        this.delaiEnvoi = delaiEnvoi;
     }
 
     @PostMapping
     public ResponseEntity<Map<String, String>> uploadFile(@RequestParam("file") MultipartFile file) {
         try {
             String filename = fileStorageService.store(file);
+            if (file.getContentType() != null && file.getContentType().startsWith("image/")) {
+                miniatureService.genererDerives(filename);
+            }
             String fileUrl = "/uploads/" + filename;
             return ResponseEntity.ok(Map.of("url", fileUrl));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * POST /api/upload/flux?taille=...
+     * Réserve un envoi en flux (taille en octets) ; le contenu est ensuite envoyé par PUT sur l'envoi.
+     */
+    @PostMapping("/flux")
+    public ResponseEntity<Map<String, Object>> ouvrirEnvoi(@RequestParam("taille") long taille,
+                                                           @AuthenticationPrincipal UserDetails currentUser) {
+        try {
+            Envoi envoi = envoiFichierService.ouvrir(currentUser.getUsername(), taille);
+            return ResponseEntity.status(HttpStatus.CREATED).body(envoiToMap(envoi));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(erreur(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(erreur(e.getMessage()));
+        }
+    }
+
+    /**
+     * PUT /api/upload/flux/{id}
+     * Corps brut du fichier. Lu sans bloquer de thread du serveur ; la réponse part une fois le fichier stocké.
+     */
+    @PutMapping("/flux/{id}")
+    public void envoyer(@PathVariable String id, HttpServletRequest request, HttpServletResponse response,
+                        @AuthenticationPrincipal UserDetails currentUser) throws IOException {
+        Envoi envoi;
+        try {
+            envoi = envoiFichierService.getEnvoi(id, currentUser.getUsername());
+        } catch (IllegalArgumentException e) {
+            ecrire(response, HttpStatus.NOT_FOUND, erreur(e.getMessage()));
+            return;
+        }
+        if (request.getContentLengthLong() > envoi.getTaille()) {
+            ecrire(response, HttpStatus.PAYLOAD_TOO_LARGE, erreur("Le fichier dépasse la taille annoncée"));
+            return;
+        }
+
+        AsyncContext contexte = request.startAsync();
+        contexte.setTimeout(delaiEnvoi.toMillis());
+        AtomicBoolean repondu = new AtomicBoolean();
+        contexte.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                envoiFichierService.abandonner(envoi, "Délai d'envoi dépassé");
+                repondre(contexte, repondu, HttpStatus.REQUEST_TIMEOUT, erreur("Délai d'envoi dépassé"));
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                envoiFichierService.abandonner(envoi, "Connexion interrompue");
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        try {
+            envoiFichierService.recevoir(envoi, request.getInputStream()).whenComplete((termine, echec) -> {
+                Throwable cause = echec instanceof CompletionException ? echec.getCause() : echec;
+                if (cause == null) {
+                    repondre(contexte, repondu, HttpStatus.OK, envoiToMap(termine));
+                } else if (cause instanceof IllegalArgumentException) {
+                    // Type non autorisé, taille différente de celle annoncée
+                    repondre(contexte, repondu, HttpStatus.BAD_REQUEST, erreur(cause.getMessage()));
+                } else {
+                    repondre(contexte, repondu, HttpStatus.INTERNAL_SERVER_ERROR, erreur("Failed to store file."));
+                }
+            });
+        } catch (IllegalStateException e) {
+            repondre(contexte, repondu, HttpStatus.CONFLICT, erreur(e.getMessage()));
+        } catch (IOException e) {
+            repondre(contexte, repondu, HttpStatus.INTERNAL_SERVER_ERROR, erreur("Failed to store file."));
+        }
+    }
+
+    /**
+     * GET /api/upload/flux/{id}
+     * Progression d'un envoi en flux
+     */
+    @GetMapping("/flux/{id}")
+    public ResponseEntity<Map<String, Object>> getEnvoi(@PathVariable String id,
+                                                        @AuthenticationPrincipal UserDetails currentUser) {
+        try {
+            return ResponseEntity.ok(envoiToMap(envoiFichierService.getEnvoi(id, currentUser.getUsername())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(erreur(e.getMessage()));
+        }
+    }
+
+    private void repondre(AsyncContext contexte, AtomicBoolean repondu, HttpStatus statut, Map<String, Object> corps) {
+        if (!repondu.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ecrire((HttpServletResponse) contexte.getResponse(), statut, corps);
+        } catch (IOException | IllegalStateException | JacksonException e) {
+            // Client déjà parti
+        } finally {
+            contexte.complete();
+        }
+    }
+
+    private void ecrire(HttpServletResponse response, HttpStatus statut, Map<String, Object> corps) throws IOException {
+        response.setStatus(statut.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        jsonMapper.writeValue(response.getOutputStream(), corps);
+    }
+
+    private static Map<String, Object> erreur(String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", message);
+        return error;
+    }
+
+    private static Map<String, Object> envoiToMap(Envoi envoi) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", envoi.getId());
+        map.put("statut", envoi.getStatut().name());
+        map.put("taille", envoi.getTaille());
+        map.put("recus", envoi.getRecus());
+        map.put("pourcentage", envoi.getPourcentage());
+        map.put("type", envoi.getType() != null ? envoi.getType().getTypeContenu() : null);
+        map.put("url", envoi.getUrl());
+        map.put("message", envoi.getMessage());
+        return map;
+    }
 }
@@ -6,28 +6,39 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import com.biblio.security.JetonsRafraichissementService;
+import com.biblio.security.JwtAuthFilter;
 import com.biblio.security.JwtService;
+import jakarta.servlet.http.HttpServletRequest;
 
 import com.biblio.services.BibliothequeService;
 import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.User;
 import java.util.List;
 
 @Controller
 public class HomeController {
     private final JwtService jwtService;
+    private final JetonsRafraichissementService jetonsService;
     private final BibliothequeService bibliothequeService;
 
-    public HomeController(JwtService jwtService, BibliothequeService bibliothequeService) {
+    public HomeController(JwtService jwtService, JetonsRafraichissementService jetonsService,
+                          BibliothequeService bibliothequeService) {
         this.jwtService = jwtService;
+        this.jetonsService = jetonsService;
         this.bibliothequeService = bibliothequeService;
     }
 
     @GetMapping("/")
-    public String index(@AuthenticationPrincipal UserDetails user, Model model) {
+    public String index(@AuthenticationPrincipal UserDetails user, HttpServletRequest request, Model model) {
         if (user != null) {
             model.addAttribute("username", user.getUsername());
-            // Utiliser generateAccessToken() au lieu de generateToken()
-            model.addAttribute("token", jwtService.generateAccessToken(user));
+            // Access token de la même famille que le jeton de la requête (révoqué avec elle) ; à défaut, nouvelle famille
+            String famille = (String) request.getAttribute(JwtAuthFilter.ATTRIBUT_FAMILLE);
+            String token = famille != null
+                    ? jwtService.generateAccessToken(user, famille)
+                    : jetonsService.emettre((User) user).accessToken();
+            model.addAttribute("token", token);
         } else {
             // Pour les utilisateurs non authentifiés (internautes)
             List<Bibliotheque> bibliotheques = bibliothequeService.getAllActives();
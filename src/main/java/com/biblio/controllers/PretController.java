@@ -1,21 +1,25 @@
 package com.biblio.controllers;
 
 import com.biblio.dao.UserDAO;
+import com.biblio.dto.PretResponse;
 import com.biblio.entities.Pret;
 import com.biblio.entities.User;
+import com.biblio.enums.StatutPret;
+import com.biblio.services.FluxJsonService;
 import com.biblio.services.PretService;
 import com.biblio.services.EmailService;
 import com.biblio.services.ReservationService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/prets")
@@ -25,77 +29,50 @@ public class PretController {
     private final UserDAO userDAO;
     private final EmailService emailService;
     private final ReservationService reservationService;
+    private final FluxJsonService fluxJsonService;
 
-    public PretController(PretService pretService, UserDAO userDAO, EmailService emailService, ReservationService reservationService) {
+    public PretController(PretService pretService, UserDAO userDAO, EmailService emailService,
+                          ReservationService reservationService, FluxJsonService fluxJsonService) {
         this.pretService = pretService;
         this.userDAO = userDAO;
         this.emailService = emailService;
         this.reservationService = reservationService;
+        this.fluxJsonService = fluxJsonService;
     }
 
     @GetMapping("/mes-prets")
     @PreAuthorize("hasRole('USAGER')")
-    public ResponseEntity<Map<String, Object>> mesPrets(@AuthenticationPrincipal UserDetails user) {
-        List<Pret> prets = pretService.getPretsForUser(user.getUsername());
-        List<Map<String, Object>> items = prets.stream().map(this::toDto).collect(Collectors.toList());
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("items", items);
-        result.put("total", items.size());
-        return ResponseEntity.ok(result);
+    public void mesPrets(@AuthenticationPrincipal UserDetails user, HttpServletResponse response) throws IOException {
+        fluxJsonService.ecrireListe(response, "items", pretService.pagesPretsForUser(user.getUsername()),
+                Pret::getId, PretResponse::of);
     }
 
     @GetMapping("/a-retirer")
     @PreAuthorize("hasRole('BIBLIOTHECAIRE')")
-    public ResponseEntity<Map<String, Object>> pretsARetirer(@AuthenticationPrincipal UserDetails currentUser) {
-        User bibliothecaire = userDAO.findByEmail(currentUser.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Utilisateur non trouvé"));
-        if (bibliothecaire.getBibliotheque() == null) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("success", false);
-            error.put("error", "Pas de bibliothèque associée");
-            error.put("message", "Aucune bibliothèque n'est associée à votre compte");
-            error.put("items", List.of());
-            error.put("total", 0);
-            return ResponseEntity.ok(error);
-        }
-        Long bibliothequeId = bibliothecaire.getBibliotheque().getId();
-        List<Pret> prets = pretService.getEmpruntePourBibliotheque(bibliothequeId);
-        List<Map<String, Object>> items = prets.stream().map(this::toDto).collect(Collectors.toList());
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("items", items);
-        result.put("total", items.size());
-        return ResponseEntity.ok(result);
+    public void pretsARetirer(@AuthenticationPrincipal UserDetails currentUser, HttpServletResponse response)
+            throws IOException {
+        listerPourBibliotheque(currentUser, StatutPret.EMPRUNTE, response);
     }
 
     @GetMapping("/en-cours")
     @PreAuthorize("hasRole('BIBLIOTHECAIRE')")
-    public ResponseEntity<Map<String, Object>> pretsEnCours(@AuthenticationPrincipal UserDetails currentUser) {
-        User bibliothecaire = userDAO.findByEmail(currentUser.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("Utilisateur non trouvé"));
-        if (bibliothecaire.getBibliotheque() == null) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("success", false);
-            error.put("error", "Pas de bibliothèque associée");
-            error.put("message", "Aucune bibliothèque n'est associée à votre compte");
-            error.put("items", List.of());
-            error.put("total", 0);
-            return ResponseEntity.ok(error);
-        }
-        Long bibliothequeId = bibliothecaire.getBibliotheque().getId();
-        List<Pret> prets = pretService.getEnCoursPourBibliotheque(bibliothequeId);
-        List<Map<String, Object>> items = prets.stream().map(this::toDto).collect(Collectors.toList());
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("items", items);
-        result.put("total", items.size());
-        return ResponseEntity.ok(result);
+    public void pretsEnCours(@AuthenticationPrincipal UserDetails currentUser, HttpServletResponse response)
+            throws IOException {
+        listerPourBibliotheque(currentUser, StatutPret.EN_COURS, response);
     }
 
     @GetMapping("/bloques")
     @PreAuthorize("hasRole('BIBLIOTHECAIRE')")
-    public ResponseEntity<Map<String, Object>> pretsBloques(@AuthenticationPrincipal UserDetails currentUser) {
+    public void pretsBloques(@AuthenticationPrincipal UserDetails currentUser, HttpServletResponse response)
+            throws IOException {
+        listerPourBibliotheque(currentUser, StatutPret.BLOQUE, response);
+    }
+
+    /**
+     * Prêts de la bibliothèque du bibliothécaire dans le statut donné, écrits en flux
+     */
+    private void listerPourBibliotheque(UserDetails currentUser, StatutPret statut, HttpServletResponse response)
+            throws IOException {
         User bibliothecaire = userDAO.findByEmail(currentUser.getUsername())
                 .orElseThrow(() -> new IllegalArgumentException("Utilisateur non trouvé"));
         if (bibliothecaire.getBibliotheque() == null) {
@@ -105,37 +82,33 @@ public class PretController {
             error.put("message", "Aucune bibliothèque n'est associée à votre compte");
             error.put("items", List.of());
             error.put("total", 0);
-            return ResponseEntity.ok(error);
+            fluxJsonService.ecrire(response, error);
+            return;
         }
         Long bibliothequeId = bibliothecaire.getBibliotheque().getId();
-        List<Pret> prets = pretService.getBloquePourBibliotheque(bibliothequeId);
-        List<Map<String, Object>> items = prets.stream().map(this::toDto).collect(Collectors.toList());
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("items", items);
-        result.put("total", items.size());
-        return ResponseEntity.ok(result);
+        fluxJsonService.ecrireListe(response, "items", pretService.pagesPourBibliotheque(bibliothequeId, statut),
+                Pret::getId, PretResponse::of);
     }
 
     @PutMapping("/{id}/emprunte")
     @PreAuthorize("hasAnyRole('BIBLIOTHECAIRE','ADMIN')")
     public ResponseEntity<Map<String, Object>> marquerEmprunte(@PathVariable Long id) {
         Pret pret = pretService.marquerEmprunte(id);
-        return ResponseEntity.ok(Map.of("success", true, "pret", toDto(pret)));
+        return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(pret)));
     }
 
     @PutMapping("/{id}/en-cours")
     @PreAuthorize("hasAnyRole('BIBLIOTHECAIRE','ADMIN')")
     public ResponseEntity<Map<String, Object>> mettreEnCours(@PathVariable Long id) {
         Pret pret = pretService.mettreEnCours(id);
-        return ResponseEntity.ok(Map.of("success", true, "pret", toDto(pret)));
+        return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(pret)));
     }
 
     @PutMapping("/{id}/retour")
     @PreAuthorize("hasAnyRole('BIBLIOTHECAIRE','ADMIN')")
     public ResponseEntity<Map<String, Object>> retournerLivre(@PathVariable Long id) {
         Pret pret = pretService.retourner(id);
-        return ResponseEntity.ok(Map.of("success", true, "pret", toDto(pret)));
+        return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(pret)));
     }
 
     @PutMapping("/{id}/non-retourne")
@@ -155,10 +128,10 @@ public class PretController {
                 emailService.sendPretRetourReminderEmail(toEmail, nom, prenom, titre, joursRestants, dueDisplay);
             }
             Pret updated = pretService.mettreEnCours(id);
-            return ResponseEntity.ok(Map.of("success", true, "pret", toDto(updated)));
+            return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(updated)));
         } else {
             Pret updated = pretService.marquerNonRetourne(id);
-            return ResponseEntity.ok(Map.of("success", true, "pret", toDto(updated)));
+            return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(updated)));
         }
     }
 
@@ -166,7 +139,7 @@ public class PretController {
     @PreAuthorize("hasAnyRole('BIBLIOTHECAIRE','ADMIN')")
     public ResponseEntity<Map<String, Object>> cloturerPret(@PathVariable Long id) {
         Pret pret = pretService.cloturer(id);
-        return ResponseEntity.ok(Map.of("success", true, "pret", toDto(pret)));
+        return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(pret)));
     }
 
     @PutMapping("/{id}/feedback")
@@ -187,7 +160,7 @@ public class PretController {
             } catch (NumberFormatException ignored) {}
         }
         Pret updated = pretService.ajouterFeedbackUsager(id, feedback, note, currentUser.getUsername());
-        return ResponseEntity.ok(Map.of("success", true, "pret", toDto(updated)));
+        return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(updated)));
     }
 
     @PostMapping("/{id}/relancer")
@@ -221,43 +194,6 @@ public class PretController {
                 pret.getUtilisateur() != null ? pret.getUtilisateur().getId() : null,
                 pret.getRessource() != null ? pret.getRessource().getId() : null
         );
-        return ResponseEntity.ok(Map.of("success", true, "pret", toDto(updated)));
-    }
-
-    private Map<String, Object> toDto(Pret p) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", p.getId());
-        map.put("statut", p.getStatut() != null ? p.getStatut().name() : null);
-        map.put("dateReservation", p.getDateReservation());
-        map.put("dateEmprunt", p.getDateEmprunt());
-        map.put("dateRetourPrevu", p.getDateRetourPrevu());
-        map.put("dateRetourEffectif", p.getDateRetourEffectif());
-        map.put("dureeEmprunt", p.getDureeEmprunt());
-        map.put("prolongations", p.getProlongations());
-        map.put("penaliteRetard", p.getPenaliteRetard());
-        map.put("retardJours", p.getJoursRetard());
-        map.put("feedbackUsager", p.getFeedbackUsager());
-        map.put("noteUsager", p.getNoteUsager());
-        if (p.getRessource() != null) {
-            map.put("ressource", Map.of(
-                    "id", p.getRessource().getId(),
-                    "titre", p.getRessource().getTitre(),
-                    "auteur", p.getRessource().getAuteur(),
-                    "categorie", p.getRessource().getCategorie() != null ? p.getRessource().getCategorie().name() : null,
-                    "typeRessource", p.getRessource().getTypeRessource() != null ? p.getRessource().getTypeRessource().name() : null
-            ));
-        }
-        if (p.getUtilisateur() != null) {
-            map.put("utilisateur", Map.of(
-                    "id", p.getUtilisateur().getId(),
-                    "nom", p.getUtilisateur().getNom(),
-                    "prenom", p.getUtilisateur().getPrenom(),
-                    "email", p.getUtilisateur().getEmail()
-            ));
-        }
-        if (p.getBibliotheque() != null) {
-            map.put("bibliotheque", p.getBibliotheque().getNom());
-        }
-        return map;
+        return ResponseEntity.ok(Map.of("success", true, "pret", PretResponse.of(updated)));
     }
 }
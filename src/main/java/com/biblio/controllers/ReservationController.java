@@ -44,10 +44,7 @@ public class ReservationController {
     @PreAuthorize("hasRole('USAGER')")
     public ResponseEntity<Map<String, Object>> mesReservations(Authentication authentication) {
         try {
-            List<Map<String, Object>> data = reservationService.listerReservationsUsager(authentication.getName())
-                    .stream()
-                    .map(this::toDto)
-                    .collect(Collectors.toList());
+            List<Map<String, Object>> data = toDtos(reservationService.listerReservationsUsager(authentication.getName()));
             Map<String, Object> result = success("reservations", data);
             result.put("total", data.size());
             return ResponseEntity.ok(result);
@@ -71,10 +68,7 @@ public class ReservationController {
     @PreAuthorize("hasAnyRole('BIBLIOTHECAIRE','ADMIN','SUPER_ADMIN')")
     public ResponseEntity<Map<String, Object>> enAttente(Authentication authentication) {
         try {
-            List<Map<String, Object>> data = reservationService.listerEnAttentePourBibliotheque(authentication.getName())
-                    .stream()
-                    .map(this::toDto)
-                    .collect(Collectors.toList());
+            List<Map<String, Object>> data = toDtos(reservationService.listerEnAttentePourBibliotheque(authentication.getName()));
             Map<String, Object> result = success("reservations", data);
             result.put("total", data.size());
             return ResponseEntity.ok(result);
@@ -123,7 +117,18 @@ public class ReservationController {
         }
     }
 
+    private List<Map<String, Object>> toDtos(List<Reservation> reservations) {
+        Map<Long, Long> positions = reservationService.positionsDansFile(reservations);
+        return reservations.stream()
+                .map(r -> toDto(r, positions))
+                .collect(Collectors.toList());
+    }
+
     private Map<String, Object> toDto(Reservation r) {
+        return toDto(r, reservationService.positionsDansFile(List.of(r)));
+    }
+
+    private Map<String, Object> toDto(Reservation r, Map<Long, Long> positionsFile) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", r.getId());
         map.put("statut", r.getStatut() != null ? r.getStatut().name() : null);
@@ -132,6 +137,9 @@ public class ReservationController {
         map.put("dateExpiration", r.getDateExpiration());
         map.put("deadlineRetrait", r.getDeadlineRetrait());
         map.put("commentaire", r.getCommentaire());
+        if (r.getStatut() == StatutReservation.EN_FILE) {
+            map.put("positionFile", positionsFile.getOrDefault(r.getId(), 0L));
+        }
         if (r.getRessource() != null) {
             map.put("ressource", Map.of(
                     "id", r.getRessource().getId(),
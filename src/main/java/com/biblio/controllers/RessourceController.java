@@ -2,8 +2,13 @@ package com.biblio.controllers;
 
 import com.biblio.dao.UserDAO;
 import com.biblio.dto.CreateRessourceRequest;
+import com.biblio.dto.RessourceResponse;
 import com.biblio.entities.Ressource;
 import com.biblio.entities.User;
+import com.biblio.services.BibliothequeGeoIndex;
+import com.biblio.services.CacheCatalogue;
+import com.biblio.services.MiniatureService;
+import com.biblio.services.OeuvreIndex;
 import com.biblio.services.RessourceService;
 import jakarta.validation.Valid;
 import com.biblio.enums.Categorie;
@@ -14,10 +19,12 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -26,10 +33,20 @@ import java.util.stream.Collectors;
 public class RessourceController {
     private final RessourceService ressourceService;
     private final UserDAO userDAO;
+    private final BibliothequeGeoIndex geoIndex;
+    private final OeuvreIndex oeuvreIndex;
+    private final MiniatureService miniatureService;
+    private final CacheCatalogue cacheCatalogue;
 
-    public RessourceController(RessourceService ressourceService, UserDAO userDAO) {
+    public RessourceController(RessourceService ressourceService, UserDAO userDAO, BibliothequeGeoIndex geoIndex,
+                               OeuvreIndex oeuvreIndex, MiniatureService miniatureService,
+                               CacheCatalogue cacheCatalogue) {
         this.ressourceService = ressourceService;
         this.userDAO = userDAO;
+        this.geoIndex = geoIndex;
+        this.oeuvreIndex = oeuvreIndex;
+        this.miniatureService = miniatureService;
+        this.cacheCatalogue = cacheCatalogue;
     }
 
     /**
@@ -61,7 +78,7 @@ public class RessourceController {
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("message", "Ressource créée avec succès");
-            result.put("ressource", ressourceToMap(ressource));
+            result.put("ressource", toResponse(ressource));
             return ResponseEntity.status(HttpStatus.CREATED).body(result);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
@@ -80,68 +97,36 @@ public class RessourceController {
 
     /**
      * GET /api/ressources
-     * Liste toutes les ressources (filtrées par bibliothèque pour les bibliothécaires)
+     * Liste toutes les ressources (filtrées par bibliothèque pour les bibliothécaires).
+     * Réponse en cache par périmètre et filtres, avec ETag : 304 si le catalogue n'a pas changé.
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllRessources(
+    public ResponseEntity<?> getAllRessources(
             @AuthenticationPrincipal UserDetails currentUser,
             @RequestParam(value = "disponible", required = false) Boolean disponible,
             @RequestParam(value = "popularite", required = false) String popularite,
             @RequestParam(value = "categorie", required = false) String categorie,
             @RequestParam(value = "dateDebut", required = false) java.time.LocalDate dateDebut,
-            @RequestParam(value = "dateFin", required = false) java.time.LocalDate dateFin
+            @RequestParam(value = "dateFin", required = false) java.time.LocalDate dateFin,
+            WebRequest webRequest
     ) {
         try {
-            List<Ressource> ressourcesList;
-
+            Long bibliothequeId = null;
             if (currentUser != null) {
-                User user = userDAO.findByEmail(currentUser.getUsername()).orElse(null);
+                // Le principal posé par le filtre JWT est déjà l'utilisateur chargé (bibliothèque comprise)
+                User user = currentUser instanceof User principal ? principal
+                        : userDAO.findByEmail(currentUser.getUsername()).orElse(null);
                 if (user != null && user.isBibliothecaire() && user.getBibliotheque() != null) {
-                    ressourcesList = ressourceService.getRessourcesByBibliotheque(user.getBibliotheque().getId());
-                } else {
-                    ressourcesList = ressourceService.getAllRessources();
+                    bibliothequeId = user.getBibliotheque().getId();
                 }
-            } else {
-                // Pour les utilisateurs non authentifiés ou autres cas, on retourne tout ou rien selon la politique.
-                // Ici on retourne tout pour l'instant (comportement par défaut)
-                ressourcesList = ressourceService.getAllRessources();
             }
-
-            List<Ressource> filtered = ressourcesList.stream().filter(r -> {
-                boolean ok = true;
-                if (disponible != null) {
-                    boolean isDispo = r.getExemplairesDisponibles() != null && r.getExemplairesDisponibles() > 0;
-                    ok = ok && ((disponible && isDispo) || (!disponible && !isDispo));
-                }
-                if (popularite != null && !popularite.isBlank()) {
-                    int pop = r.getPopularite() != null ? r.getPopularite() : 0;
-                    String tier = pop < 2 ? "FAIBLE" : (pop < 10 ? "MOYENNE" : "ELEVEE");
-                    ok = ok && tier.equalsIgnoreCase(popularite);
-                }
-                if (categorie != null && !categorie.isBlank()) {
-                    ok = ok && r.getCategorie() != null && r.getCategorie().name().equalsIgnoreCase(categorie);
-                }
-                if (dateDebut != null || dateFin != null) {
-                    java.time.LocalDate dp = r.getDatePublication();
-                    if (dp == null) {
-                        ok = false;
-                    } else {
-                        if (dateDebut != null) ok = ok && (dp.isEqual(dateDebut) || dp.isAfter(dateDebut));
-                        if (dateFin != null) ok = ok && (dp.isEqual(dateFin) || dp.isBefore(dateFin));
-                    }
-                }
-                return ok;
-            }).toList();
-
-            List<Map<String, Object>> ressources = filtered.stream()
-                    .map(this::ressourceToMap)
-                    .collect(Collectors.toList());
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("ressources", ressources);
-            result.put("total", ressources.size());
-            return ResponseEntity.ok(result);
+            // Pour les utilisateurs non authentifiés ou autres cas, on retourne tout (comportement par défaut)
+            Long perimetre = bibliothequeId;
+            String populariteFiltre = popularite != null && !popularite.isBlank() ? popularite.toUpperCase(Locale.ROOT) : null;
+            String categorieFiltre = categorie != null && !categorie.isBlank() ? categorie.toUpperCase(Locale.ROOT) : null;
+            String cle = cleRessources(perimetre, disponible, populariteFiltre, categorieFiltre, dateDebut, dateFin);
+            return cacheCatalogue.repondre(webRequest, cle, () -> listeRessources(perimetre,
+                    disponible, populariteFiltre, categorieFiltre, dateDebut, dateFin));
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -151,6 +136,59 @@ public class RessourceController {
         }
     }
 
+    private Map<String, Object> listeRessources(Long bibliothequeId, Boolean disponible, String popularite,
+                                                String categorie, LocalDate dateDebut, LocalDate dateFin) {
+        List<Ressource> ressourcesList = bibliothequeId != null
+                ? ressourceService.getRessourcesByBibliotheque(bibliothequeId)
+                : ressourceService.getAllRessources();
+
+        List<Ressource> filtered = ressourcesList.stream().filter(r -> {
+            boolean ok = true;
+            if (disponible != null) {
+                boolean isDispo = r.getExemplairesDisponibles() != null && r.getExemplairesDisponibles() > 0;
+                ok = ok && ((disponible && isDispo) || (!disponible && !isDispo));
+            }
+            if (popularite != null) {
+                int pop = r.getPopularite() != null ? r.getPopularite() : 0;
+                String tier = pop < 2 ? "FAIBLE" : (pop < 10 ? "MOYENNE" : "ELEVEE");
+                ok = ok && tier.equals(popularite);
+            }
+            if (categorie != null) {
+                ok = ok && r.getCategorie() != null && r.getCategorie().name().equals(categorie);
+            }
+            if (dateDebut != null || dateFin != null) {
+                LocalDate dp = r.getDatePublication();
+                if (dp == null) {
+                    ok = false;
+                } else {
+                    if (dateDebut != null) ok = ok && (dp.isEqual(dateDebut) || dp.isAfter(dateDebut));
+                    if (dateFin != null) ok = ok && (dp.isEqual(dateFin) || dp.isBefore(dateFin));
+                }
+            }
+            return ok;
+        }).toList();
+
+        List<RessourceResponse> ressources = filtered.stream()
+                .map(this::toResponse)
+                .toList();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("ressources", ressources);
+        result.put("total", ressources.size());
+        return result;
+    }
+
+    /**
+     * Clé de cache : périmètre (bibliothèque ou tout le réseau) et filtres normalisés
+     */
+    private static String cleRessources(Long bibliothequeId, Boolean disponible, String popularite, String categorie,
+                                        LocalDate dateDebut, LocalDate dateFin) {
+        return "ressources:" + (bibliothequeId != null ? "bibliotheque=" + bibliothequeId : "tout")
+                + "?disponible=" + disponible + "&popularite=" + popularite + "&categorie=" + categorie
+                + "&dateDebut=" + dateDebut + "&dateFin=" + dateFin;
+    }
+
     /**
      * PUT /api/ressources/{id}
      * Met à jour une ressource (accessible aux bibliothécaires uniquement)
@@ -204,7 +242,7 @@ public class RessourceController {
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("message", "Ressource mise à jour avec succès");
-            result.put("ressource", ressourceToMap(updated));
+            result.put("ressource", toResponse(updated));
             return ResponseEntity.ok(result);
         } catch (IllegalArgumentException | IllegalStateException e) {
             Map<String, Object> error = new HashMap<>();
@@ -232,7 +270,7 @@ public class RessourceController {
             Ressource ressource = ressourceService.getById(id);
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("ressource", ressourceToMap(ressource));
+            result.put("ressource", toResponse(ressource));
             return ResponseEntity.ok(result);
         } catch (IllegalArgumentException e) {
             Map<String, Object> error = new HashMap<>();
@@ -245,52 +283,119 @@ public class RessourceController {
 
     /**
      * GET /api/ressources/bibliotheque/{bibliothequeId}
-     * Liste toutes les ressources d'une bibliothèque
+     * Liste toutes les ressources d'une bibliothèque (même entrée de cache que la liste d'un bibliothécaire)
      */
     @GetMapping("/bibliotheque/{bibliothequeId}")
     @PreAuthorize("hasAnyRole('BIBLIOTHECAIRE','ADMIN','SUPER_ADMIN')")
-    public ResponseEntity<Map<String, Object>> getRessourcesByBibliotheque(@PathVariable Long bibliothequeId) {
+    public ResponseEntity<?> getRessourcesByBibliotheque(@PathVariable Long bibliothequeId, WebRequest webRequest) {
         try {
-            List<Map<String, Object>> ressources = ressourceService.getRessourcesByBibliotheque(bibliothequeId).stream()
-                    .map(this::ressourceToMap)
+            return cacheCatalogue.repondre(webRequest, cleRessources(bibliothequeId, null, null, null, null, null),
+                    () -> listeRessources(bibliothequeId, null, null, null, null, null));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to fetch ressources");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    /**
+     * GET /api/ressources/{isbn}/nearest?lat=&lon=
+     * Bibliothèques les plus proches disposant d'un exemplaire disponible de l'œuvre, de la plus proche à la plus éloignée
+     */
+    @GetMapping("/{isbn}/nearest")
+    public ResponseEntity<Map<String, Object>> getBibliothequesProches(
+            @PathVariable String isbn,
+            @RequestParam("lat") double lat,
+            @RequestParam("lon") double lon,
+            @RequestParam(value = "limite", defaultValue = "5") int limite) {
+        try {
+            if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+                throw new IllegalArgumentException("Coordonnées invalides");
+            }
+            Map<Long, Integer> disponibilites = new HashMap<>();
+            for (OeuvreIndex.Disponibilite d : trouverOeuvre(isbn).bibliotheques()) {
+                if (d.disponibles() > 0) {
+                    disponibilites.put(d.bibliothequeId(), d.disponibles());
+                }
+            }
+            List<Map<String, Object>> bibliotheques = geoIndex.plusProches(lat, lon, disponibilites::containsKey, Math.min(Math.max(limite, 1), 50))
+                    .stream()
+                    .map(r -> {
+                        Map<String, Object> map = new HashMap<>();
+                        map.put("id", r.bibliothequeId());
+                        map.put("nom", r.nom());
+                        map.put("ville", r.ville());
+                        map.put("latitude", r.latitude());
+                        map.put("longitude", r.longitude());
+                        map.put("distanceKm", Math.round(r.distanceKm() * 100) / 100.0);
+                        map.put("exemplairesDisponibles", disponibilites.get(r.bibliothequeId()));
+                        return map;
+                    })
                     .collect(Collectors.toList());
-            
+
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("ressources", ressources);
-            result.put("total", ressources.size());
+            result.put("bibliotheques", bibliotheques);
+            result.put("total", bibliotheques.size());
             return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to search nearest bibliotheques");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
-            error.put("error", "Failed to fetch ressources");
+            error.put("error", "Failed to search nearest bibliotheques");
             error.put("message", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
 
-    private Map<String, Object> ressourceToMap(Ressource ressource) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", ressource.getId());
-        map.put("titre", ressource.getTitre());
-        map.put("auteur", ressource.getAuteur());
-        map.put("isbn", ressource.getIsbn());
-        map.put("categorie", ressource.getCategorie() != null ? ressource.getCategorie().name() : null);
-        map.put("typeRessource", ressource.getTypeRessource() != null ? ressource.getTypeRessource().name() : null);
-        map.put("description", ressource.getDescription());
-        map.put("editeur", ressource.getEditeur());
-        map.put("datePublication", ressource.getDatePublication());
-        map.put("nombreExemplaires", ressource.getNombreExemplaires());
-        map.put("exemplairesDisponibles", ressource.getExemplairesDisponibles());
-        map.put("imageCouverture", ressource.getImageCouverture());
-        map.put("popularite", ressource.getPopularite());
-        map.put("dateAjout", ressource.getDateAjout());
-        if (ressource.getBibliotheque() != null) {
-            map.put("bibliotheque", Map.of(
-                    "id", ressource.getBibliotheque().getId(),
-                    "nom", ressource.getBibliotheque().getNom()
-            ));
+    /**
+     * GET /api/ressources/{isbn}/disponibilites
+     * Disponibilité de l'œuvre sur tout le réseau : totaux et détail par bibliothèque
+     */
+    @GetMapping("/{isbn}/disponibilites")
+    public ResponseEntity<Map<String, Object>> getDisponibilitesOeuvre(@PathVariable String isbn) {
+        try {
+            OeuvreIndex.Synthese oeuvre = trouverOeuvre(isbn);
+            List<Map<String, Object>> bibliotheques = oeuvre.bibliotheques().stream()
+                    .map(d -> {
+                        Map<String, Object> map = new HashMap<>();
+                        map.put("bibliothequeId", d.bibliothequeId());
+                        map.put("exemplairesDisponibles", d.disponibles());
+                        map.put("nombreExemplaires", d.total());
+                        return map;
+                    })
+                    .collect(Collectors.toList());
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("titre", oeuvre.titre());
+            result.put("auteur", oeuvre.auteur());
+            result.put("exemplairesDisponibles", oeuvre.disponibles());
+            result.put("nombreExemplaires", oeuvre.total());
+            result.put("bibliotheques", bibliotheques);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Ressource not found");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
         }
-        return map;
+    }
+
+    private OeuvreIndex.Synthese trouverOeuvre(String isbn) {
+        return oeuvreIndex.parIsbn(isbn)
+                .orElseThrow(() -> new IllegalArgumentException("Aucune ressource avec l'ISBN: " + isbn));
+    }
+
+    private RessourceResponse toResponse(Ressource ressource) {
+        return RessourceResponse.of(ressource, miniatureService.urls(ressource.getImageCouverture()));
     }
 }
@@ -0,0 +1,28 @@
+package com.biblio.controllers;
+
+import com.biblio.services.DiffusionFichiersService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+
+@Controller
+public class UploadsController {
+
+    private final DiffusionFichiersService diffusionFichiersService;
+
+    public UploadsController(DiffusionFichiersService diffusionFichiersService) {
+        this.diffusionFichiersService = diffusionFichiersService;
+    }
+
+    @RequestMapping(value = "/uploads/{*chemin}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void servir(@PathVariable String chemin, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // {*chemin} capture le séparateur initial
+        diffusionFichiersService.servir(chemin.startsWith("/") ? chemin.substring(1) : chemin, request, response);
+    }
+}
@@ -16,4 +16,7 @@ public interface BibliothequeDAO extends JpaRepository<Bibliotheque, Long> {
     
     @Query("SELECT b FROM Bibliotheque b WHERE b.actif = true ORDER BY b.nom")
     List<Bibliotheque> findAllActives();
+
+    @Query("SELECT b.id FROM Bibliotheque b WHERE b.actif = false")
+    List<Long> findIdsInactives();
 }
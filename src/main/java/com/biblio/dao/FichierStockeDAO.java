@@ -0,0 +1,47 @@
+package com.biblio.dao;
+
+import com.biblio.entities.FichierStocke;
+import com.biblio.enums.EtatMiniatures;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FichierStockeDAO extends JpaRepository<FichierStocke, String> {
+
+    @Modifying
+    @Query("UPDATE FichierStocke f SET f.dateModification = :maintenant WHERE f.chemin = :chemin")
+    int toucher(@Param("chemin") String chemin, @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("UPDATE FichierStocke f SET f.nbReferences = f.nbReferences + :delta, f.dateModification = :maintenant " +
+            "WHERE f.chemin = :chemin")
+    int ajusterReferences(@Param("chemin") String chemin, @Param("delta") int delta,
+                          @Param("maintenant") LocalDateTime maintenant);
+
+    @Query("SELECT f.chemin FROM FichierStocke f WHERE f.nbReferences <= 0 AND f.dateModification < :limite")
+    List<String> findOrphelins(@Param("limite") LocalDateTime limite, Pageable pageable);
+
+    /**
+     * Supprime la ligne si le fichier est toujours orphelin ; le verrou pris sur la ligne bloque un envoi
+     * concurrent du même contenu jusqu'à la fin de la suppression du fichier.
+     */
+    @Modifying
+    @Query("DELETE FROM FichierStocke f WHERE f.chemin = :chemin AND f.nbReferences <= 0 AND f.dateModification < :limite")
+    int supprimerSiOrphelin(@Param("chemin") String chemin, @Param("limite") LocalDateTime limite);
+
+    @Query("SELECT f.chemin, f.miniatures FROM FichierStocke f WHERE f.miniatures IS NOT NULL")
+    List<Object[]> findEtatsMiniatures();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FichierStocke f SET f.miniatures = :etat WHERE f.chemin = :chemin")
+    int marquerMiniatures(@Param("chemin") String chemin, @Param("etat") EtatMiniatures etat);
+}
@@ -0,0 +1,46 @@
+package com.biblio.dao;
+
+import com.biblio.entities.JetonRafraichissement;
+import com.biblio.enums.StatutJeton;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface JetonRafraichissementDAO extends JpaRepository<JetonRafraichissement, String> {
+
+    /**
+     * Passe le jeton de {@code ACTIF} à {@code UTILISE} ; 0 si un autre renouvellement l'a déjà consommé.
+     * Le contexte de persistance est vidé pour que la relecture du statut voie la base.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE JetonRafraichissement j SET j.statut = :utilise WHERE j.idHash = :idHash AND j.statut = :actif")
+    int consommer(@Param("idHash") String idHash, @Param("actif") StatutJeton actif, @Param("utilise") StatutJeton utilise);
+
+    @Modifying
+    @Query("UPDATE JetonRafraichissement j SET j.statut = :revoque WHERE j.famille = :famille AND j.statut <> :revoque")
+    int revoquerFamille(@Param("famille") String famille, @Param("revoque") StatutJeton revoque);
+
+    @Query("SELECT DISTINCT j.famille FROM JetonRafraichissement j " +
+            "WHERE j.utilisateurId = :utilisateurId AND j.statut <> :revoque")
+    List<String> findFamillesNonRevoquees(@Param("utilisateurId") Long utilisateurId, @Param("revoque") StatutJeton revoque);
+
+    @Modifying
+    @Query("UPDATE JetonRafraichissement j SET j.statut = :revoque " +
+            "WHERE j.utilisateurId = :utilisateurId AND j.statut <> :revoque")
+    int revoquerUtilisateur(@Param("utilisateurId") Long utilisateurId, @Param("revoque") StatutJeton revoque);
+
+    boolean existsByFamilleAndStatut(String famille, StatutJeton statut);
+
+    @Query("SELECT DISTINCT j.famille FROM JetonRafraichissement j WHERE j.statut = :revoque AND j.expiration > :maintenant")
+    List<String> findFamillesRevoquees(@Param("revoque") StatutJeton revoque, @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("DELETE FROM JetonRafraichissement j WHERE j.expiration < :limite")
+    int supprimerExpires(@Param("limite") LocalDateTime limite);
+}
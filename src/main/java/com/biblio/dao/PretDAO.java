@@ -2,11 +2,13 @@ package com.biblio.dao;
 
 import com.biblio.entities.Pret;
 import com.biblio.enums.StatutPret;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,13 +34,51 @@ public interface PretDAO extends JpaRepository<Pret, Long> {
             @Param("statut") StatutPret statut
     );
 
+    /**
+     * Pages des listes de prêts écrites par FluxJsonService, parcourues par clé (id) sans OFFSET : ressource,
+     * usager et bibliothèque affichés, ainsi que les bibliothèques (EAGER) de la ressource et de l'usager,
+     * sont chargés par la même requête.
+     */
+    @Query("SELECT p FROM Pret p LEFT JOIN FETCH p.ressource r LEFT JOIN FETCH r.bibliotheque " +
+            "LEFT JOIN FETCH p.utilisateur u LEFT JOIN FETCH u.bibliotheque LEFT JOIN FETCH p.bibliotheque " +
+            "WHERE p.bibliotheque.id = :bibliothequeId AND p.statut = :statut AND p.id > :apresId ORDER BY p.id")
+    List<Pret> findPageByBibliothequeAndStatut(@Param("bibliothequeId") Long bibliothequeId,
+                                               @Param("statut") StatutPret statut,
+                                               @Param("apresId") long apresId,
+                                               Pageable pageable);
+
+    @Query("SELECT p FROM Pret p LEFT JOIN FETCH p.ressource r LEFT JOIN FETCH r.bibliotheque " +
+            "LEFT JOIN FETCH p.utilisateur u LEFT JOIN FETCH u.bibliotheque LEFT JOIN FETCH p.bibliotheque " +
+            "WHERE p.utilisateur.id = :utilisateurId AND p.id > :apresId ORDER BY p.id")
+    List<Pret> findPageByUtilisateurId(@Param("utilisateurId") Long utilisateurId,
+                                       @Param("apresId") long apresId,
+                                       Pageable pageable);
+
     @Query("SELECT COUNT(p) FROM Pret p WHERE p.utilisateur.id = :utilisateurId AND p.statut IN (:statuts)")
     long countActifsByUtilisateur(@Param("utilisateurId") Long utilisateurId,
                                   @Param("statuts") java.util.List<StatutPret> statuts);
 
+    /**
+     * Lot suivant de prêts échus, parcouru par clé (dateRetourPrevu, id) pour rester
+     * sur l'index idx_pret_date_retour sans OFFSET, même sur des millions de lignes.
+     */
+    @Query("SELECT p FROM Pret p JOIN FETCH p.utilisateur JOIN FETCH p.ressource " +
+            "WHERE p.statut IN (:statuts) AND p.dateRetourPrevu < :aujourdhui " +
+            "AND (p.dateRetourPrevu > :apresDate OR (p.dateRetourPrevu = :apresDate AND p.id > :apresId)) " +
+            "ORDER BY p.dateRetourPrevu, p.id")
+    List<Pret> findLotEnRetard(@Param("statuts") List<StatutPret> statuts,
+                               @Param("aujourdhui") LocalDate aujourdhui,
+                               @Param("apresDate") LocalDate apresDate,
+                               @Param("apresId") Long apresId,
+                               Pageable pageable);
+
     @Query("SELECT r.categorie, COUNT(p) FROM Pret p JOIN p.ressource r GROUP BY r.categorie")
     List<Object[]> countPretsByCategorie();
 
     @Query("SELECT p.bibliotheque.nom, COUNT(p) FROM Pret p GROUP BY p.bibliotheque.nom")
     List<Object[]> countPretsByBibliotheque();
+
+    @Query("SELECT p.bibliotheque.id, p.statut, COUNT(p) FROM Pret p WHERE p.statut IN (:statuts) " +
+            "GROUP BY p.bibliotheque.id, p.statut")
+    List<Object[]> countByStatutsParBibliotheque(@Param("statuts") List<StatutPret> statuts);
 }
@@ -1,7 +1,6 @@
 package com.biblio.dao;
 
 import com.biblio.entities.Reservation;
-import com.biblio.enums.Categorie;
 import com.biblio.enums.StatutReservation;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -16,9 +15,14 @@ import java.util.Optional;
 @Repository
 public interface ReservationDAO extends JpaRepository<Reservation, Long> {
 
-    List<Reservation> findByUsagerId(Long usagerId);
+    // Associations EAGER chargées dans la même requête : sans les jointures, une requête par ressource et usager
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.ressource res LEFT JOIN FETCH res.bibliotheque " +
+            "JOIN FETCH r.usager u LEFT JOIN FETCH u.bibliotheque JOIN FETCH r.bibliotheque WHERE r.usager.id = :usagerId")
+    List<Reservation> findByUsagerId(@Param("usagerId") Long usagerId);
 
-    @Query("SELECT r FROM Reservation r WHERE r.bibliotheque.id = :bibliothequeId AND r.statut = :statut")
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.ressource res LEFT JOIN FETCH res.bibliotheque " +
+            "JOIN FETCH r.usager u LEFT JOIN FETCH u.bibliotheque JOIN FETCH r.bibliotheque " +
+            "WHERE r.bibliotheque.id = :bibliothequeId AND r.statut = :statut")
     List<Reservation> findByBibliothequeAndStatut(@Param("bibliothequeId") Long bibliothequeId,
                                                   @Param("statut") StatutReservation statut);
 
@@ -26,6 +30,19 @@ public interface ReservationDAO extends JpaRepository<Reservation, Long> {
     List<Reservation> findExpired(@Param("statuts") List<StatutReservation> statuts,
                                   @Param("now") LocalDateTime now);
 
+    @Query("SELECT r.bibliotheque.id, COUNT(r) FROM Reservation r " +
+            "WHERE r.statut = :statut AND r.bibliotheque.id IN (:bibliothequeIds) GROUP BY r.bibliotheque.id")
+    List<Object[]> countByBibliothequesAndStatut(@Param("bibliothequeIds") java.util.Collection<Long> bibliothequeIds,
+                                                 @Param("statut") StatutReservation statut);
+
+    long countByStatut(StatutReservation statut);
+
+    @Query("SELECT r.bibliotheque.id, COUNT(r) FROM Reservation r WHERE r.statut = :statut GROUP BY r.bibliotheque.id")
+    List<Object[]> countByStatutParBibliotheque(@Param("statut") StatutReservation statut);
+
+    @Query("SELECT r.id, r.dateExpiration FROM Reservation r WHERE r.statut IN (:statuts) AND r.dateExpiration IS NOT NULL")
+    List<Object[]> findEcheances(@Param("statuts") List<StatutReservation> statuts);
+
     @Modifying
     @Query("UPDATE Reservation r SET r.statut = :statut WHERE r.id = :id")
     void updateStatut(@Param("id") Long id, @Param("statut") StatutReservation statut);
@@ -38,23 +55,22 @@ public interface ReservationDAO extends JpaRepository<Reservation, Long> {
     @Query("SELECT COUNT(r) FROM Reservation r WHERE r.usager.id = :usagerId AND r.statut IN (:statuts)")
     long countActivesByUsager(@Param("usagerId") Long usagerId, @Param("statuts") List<StatutReservation> statuts);
 
-    @Query("SELECT COUNT(r) FROM Reservation r " +
-            "WHERE r.usager.id = :usagerId " +
-            "AND r.statut IN (:statuts) " +
-            "AND LOWER(r.ressource.titre) = LOWER(:titre) " +
-            "AND r.ressource.categorie = :categorie")
-    long countDuplicateNomCategorie(@Param("usagerId") Long usagerId,
-                                    @Param("titre") String titre,
-                                    @Param("categorie") Categorie categorie,
-                                    @Param("statuts") List<StatutReservation> statuts);
-
-    @Query("SELECT COUNT(r) FROM Reservation r " +
-            "WHERE r.usager.id = :usagerId " +
-            "AND r.statut IN (:statuts) " +
-            "AND r.ressource.isbn = :isbn")
-    long countDuplicateIsbn(@Param("usagerId") Long usagerId,
-                            @Param("isbn") String isbn,
-                            @Param("statuts") List<StatutReservation> statuts);
+    @Query("SELECT COALESCE(MAX(r.rangFile), 0) FROM Reservation r WHERE r.ressource.id = :ressourceId AND r.statut = :statut")
+    long findMaxRangFile(@Param("ressourceId") Long ressourceId, @Param("statut") StatutReservation statut);
+
+    Optional<Reservation> findFirstByRessource_IdAndStatutOrderByRangFileAsc(Long ressourceId, StatutReservation statut);
+
+    /**
+     * Pour chaque réservation en file : identifiant et nombre de réservations placées devant elle sur la même ressource
+     */
+    @Query("SELECT r.id, (SELECT COUNT(a) FROM Reservation a WHERE a.ressource.id = r.ressource.id " +
+            "AND a.statut = :statut AND a.rangFile < r.rangFile) " +
+            "FROM Reservation r WHERE r.id IN (:ids) AND r.statut = :statut AND r.rangFile IS NOT NULL")
+    List<Object[]> findPositionsDansFile(@Param("ids") java.util.Collection<Long> ids,
+                                         @Param("statut") StatutReservation statut);
 
     boolean existsByUsagerIdAndRessourceIdAndStatutIn(Long usagerId, Long ressourceId, List<StatutReservation> statuts);
+
+    boolean existsByUsagerIdAndRessourceIdInAndStatutIn(Long usagerId, java.util.Collection<Long> ressourceIds,
+                                                        List<StatutReservation> statuts);
 }
@@ -10,10 +10,19 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 @Repository
-public interface RessourceDAO extends JpaRepository<Ressource, Long> {
+public interface RessourceDAO extends JpaRepository<Ressource, Long>, RessourceDAOCustom {
     boolean existsByIsbn(String isbn);
+
+    @Query("SELECT r.isbn FROM Ressource r WHERE r.isbn IS NOT NULL")
+    List<String> findAllIsbns();
     List<Ressource> findByBibliothequeId(Long bibliothequeId);
 
+    /**
+     * Projection légère (sans chargement des entités) pour initialiser l'index des œuvres.
+     */
+    @Query("SELECT r.id, r.isbn, r.titre, r.auteur, r.bibliotheque.id, r.exemplairesDisponibles, r.nombreExemplaires FROM Ressource r")
+    List<Object[]> findEtatsStock();
+
     @Query("SELECT COALESCE(SUM(r.nombreExemplaires), 0) FROM Ressource r WHERE r.bibliotheque.id = :bibliothequeId")
     Integer sumNombreExemplairesByBibliothequeId(@Param("bibliothequeId") Long bibliothequeId);
 
@@ -0,0 +1,15 @@
+package com.biblio.dao;
+
+import com.biblio.entities.Ressource;
+
+import java.util.Optional;
+
+public interface RessourceDAOCustom {
+
+    /**
+     * Charge la ressource en verrouillant sa ligne : sérialise les mouvements de stock
+     * (retours, confirmations, promotions de file d'attente) sur un même titre.
+     * Le stock renvoyé est toujours relu en base, même si l'entité était déjà dans le contexte de persistance.
+     */
+    Optional<Ressource> findByIdForUpdate(Long id);
+}
@@ -0,0 +1,31 @@
+package com.biblio.dao;
+
+import com.biblio.entities.Ressource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Optional;
+
+class RessourceDAOCustomImpl implements RessourceDAOCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Ressource> findByIdForUpdate(Long id) {
+        Ressource ressource = entityManager.find(Ressource.class, id);
+        if (ressource == null) {
+            return Optional.empty();
+        }
+        if (entityManager.getLockMode(ressource) == LockModeType.PESSIMISTIC_WRITE) {
+            // Déjà verrouillée dans cette transaction : l'état en mémoire fait foi (modifications non encore écrites)
+            return Optional.of(ressource);
+        }
+        // La ressource est souvent déjà chargée (association EAGER de la réservation ou du prêt) : un
+        // SELECT ... FOR UPDATE rendrait cette instance sans la relire. refresh relit la ligne sous verrou,
+        // après la validation de la transaction concurrente qui la détenait.
+        entityManager.refresh(ressource, LockModeType.PESSIMISTIC_WRITE);
+        return Optional.of(ressource);
+    }
+}
@@ -0,0 +1,15 @@
+package com.biblio.dto;
+
+import com.biblio.entities.Bibliotheque;
+
+/**
+ * Référence à une bibliothèque imbriquée dans les réponses (ressource, utilisateur)
+ */
+public record BibliothequeResume(
+        Long id,
+        String nom
+) {
+    public static BibliothequeResume of(Bibliotheque bibliotheque) {
+        return bibliotheque != null ? new BibliothequeResume(bibliotheque.getId(), bibliotheque.getNom()) : null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.biblio.dto;
+
+import com.biblio.entities.Pret;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public record PretResponse(
+        Long id,
+        String statut,
+        LocalDateTime dateReservation,
+        LocalDateTime dateEmprunt,
+        LocalDate dateRetourPrevu,
+        LocalDateTime dateRetourEffectif,
+        Integer dureeEmprunt,
+        Integer prolongations,
+        BigDecimal penaliteRetard,
+        long retardJours,
+        String feedbackUsager,
+        Integer noteUsager,
+        @JsonInclude(JsonInclude.Include.NON_NULL) RessourcePretee ressource,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Emprunteur utilisateur,
+        // Nom seul, contrairement aux ressources et utilisateurs
+        @JsonInclude(JsonInclude.Include.NON_NULL) String bibliotheque
+) {
+    public record RessourcePretee(Long id, String titre, String auteur, String categorie, String typeRessource) {
+        static RessourcePretee of(Ressource ressource) {
+            if (ressource == null) {
+                return null;
+            }
+            return new RessourcePretee(
+                    ressource.getId(),
+                    ressource.getTitre(),
+                    ressource.getAuteur(),
+                    ressource.getCategorie() != null ? ressource.getCategorie().name() : null,
+                    ressource.getTypeRessource() != null ? ressource.getTypeRessource().name() : null
+            );
+        }
+    }
+
+    public record Emprunteur(Long id, String nom, String prenom, String email) {
+        static Emprunteur of(User user) {
+            return user != null ? new Emprunteur(user.getId(), user.getNom(), user.getPrenom(), user.getEmail()) : null;
+        }
+    }
+
+    public static PretResponse of(Pret pret) {
+        return new PretResponse(
+                pret.getId(),
+                pret.getStatut() != null ? pret.getStatut().name() : null,
+                pret.getDateReservation(),
+                pret.getDateEmprunt(),
+                pret.getDateRetourPrevu(),
+                pret.getDateRetourEffectif(),
+                pret.getDureeEmprunt(),
+                pret.getProlongations(),
+                pret.getPenaliteRetard(),
+                pret.getJoursRetard(),
+                pret.getFeedbackUsager(),
+                pret.getNoteUsager(),
+                RessourcePretee.of(pret.getRessource()),
+                Emprunteur.of(pret.getUtilisateur()),
+                pret.getBibliotheque() != null ? pret.getBibliotheque().getNom() : null
+        );
+    }
+}
@@ -0,0 +1,49 @@
+package com.biblio.dto;
+
+import com.biblio.entities.Ressource;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public record RessourceResponse(
+        Long id,
+        String titre,
+        String auteur,
+        String isbn,
+        String categorie,
+        String typeRessource,
+        String description,
+        String editeur,
+        LocalDate datePublication,
+        Integer nombreExemplaires,
+        Integer exemplairesDisponibles,
+        String imageCouverture,
+        // Dérivés redimensionnés (liste, carte, detail) à utiliser à la place de l'original
+        Map<String, String> miniatures,
+        Integer popularite,
+        LocalDateTime dateAjout,
+        @JsonInclude(JsonInclude.Include.NON_NULL) BibliothequeResume bibliotheque
+) {
+    public static RessourceResponse of(Ressource ressource, Map<String, String> miniatures) {
+        return new RessourceResponse(
+                ressource.getId(),
+                ressource.getTitre(),
+                ressource.getAuteur(),
+                ressource.getIsbn(),
+                ressource.getCategorie() != null ? ressource.getCategorie().name() : null,
+                ressource.getTypeRessource() != null ? ressource.getTypeRessource().name() : null,
+                ressource.getDescription(),
+                ressource.getEditeur(),
+                ressource.getDatePublication(),
+                ressource.getNombreExemplaires(),
+                ressource.getExemplairesDisponibles(),
+                ressource.getImageCouverture(),
+                miniatures,
+                ressource.getPopularite(),
+                ressource.getDateAjout(),
+                BibliothequeResume.of(ressource.getBibliotheque())
+        );
+    }
+}
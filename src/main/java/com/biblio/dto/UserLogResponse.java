@@ -0,0 +1,37 @@
+package com.biblio.dto;
+
+import com.biblio.entities.User;
+import com.biblio.entities.UserLog;
+
+import java.time.LocalDateTime;
+
+public record UserLogResponse(
+        LocalDateTime timestamp,
+        String level,
+        String message,
+        String action,
+        String user,
+        Long userId,
+        String role,
+        String roleDisplay,
+        String bibliotheque
+) {
+    public static UserLogResponse of(UserLog log) {
+        User utilisateur = log.getUtilisateur();
+        if (utilisateur == null) {
+            return new UserLogResponse(log.getCreatedAt(), log.getLevel(), log.getMessage(), log.getAction(),
+                    null, null, null, null, null);
+        }
+        return new UserLogResponse(
+                log.getCreatedAt(),
+                log.getLevel(),
+                log.getMessage(),
+                log.getAction(),
+                utilisateur.getEmail(),
+                utilisateur.getId(),
+                utilisateur.getRole().name(),
+                utilisateur.getRole().getDisplayName(),
+                utilisateur.getBibliotheque() != null ? utilisateur.getBibliotheque().getNom() : null
+        );
+    }
+}
@@ -0,0 +1,34 @@
+package com.biblio.dto;
+
+import com.biblio.entities.User;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+public record UserResponse(
+        Long id,
+        String nom,
+        String prenom,
+        String email,
+        String role,
+        String roleDisplay,
+        Boolean actif,
+        Boolean emailVerifie,
+        LocalDateTime dateInscription,
+        @JsonInclude(JsonInclude.Include.NON_NULL) BibliothequeResume bibliotheque
+) {
+    public static UserResponse of(User user) {
+        return new UserResponse(
+                user.getId(),
+                user.getNom(),
+                user.getPrenom(),
+                user.getEmail(),
+                user.getRole().name(),
+                user.getRole().getDisplayName(),
+                user.getActif(),
+                user.getEmailVerifie(),
+                user.getDateInscription(),
+                BibliothequeResume.of(user.getBibliotheque())
+        );
+    }
+}
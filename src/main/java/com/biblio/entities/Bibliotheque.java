@@ -15,6 +15,7 @@ import jakarta.persistence.OneToMany;
 /*import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;*/
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
@@ -33,7 +34,10 @@ import lombok.Setter;
 @Builder
 public class Bibliotheque {
 	  @Id
-	  @GeneratedValue(strategy = GenerationType.IDENTITY)
+	  @GeneratedValue(strategy = GenerationType.TABLE, generator = "bibliotheques_id")
+	  @TableGenerator(name = "bibliotheques_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+	          valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "bibliotheques",
+	          allocationSize = Identifiants.ALLOCATION)
 	  private Long id;
 	  @NotBlank(message = "Le nom de la bibliothèque est obligatoire")
 	  @Column(nullable = false, unique = true, length = 100)
@@ -0,0 +1,44 @@
+package com.biblio.entities;
+
+import com.biblio.enums.EtatMiniatures;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fichier envoyé, stocké sous son empreinte SHA-256 ({@code ab/cd/<sha256>.ext} dans {@code uploads/}).
+ * Un même contenu n'est écrit qu'une fois ; {@code nbReferences} compte les ressources qui l'utilisent,
+ * le fichier est supprimé après un délai de grâce une fois ce compteur retombé à zéro.
+ */
+@Entity
+@Table(name = "fichiers_stockes", indexes = {
+        @Index(name = "idx_fichier_orphelin", columnList = "nb_references, date_modification")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FichierStocke {
+    @Id
+    @Column(length = 100)
+    private String chemin;
+
+    @Column(nullable = false)
+    private long taille;
+
+    @Column(name = "type_contenu", length = 100)
+    private String typeContenu;
+
+    @Column(name = "nb_references", nullable = false)
+    private int nbReferences;
+
+    @Column(name = "date_modification", nullable = false)
+    private LocalDateTime dateModification;
+
+    // Dérivés produits par MiniatureService, null tant qu'ils ne sont pas générés
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private EtatMiniatures miniatures;
+}
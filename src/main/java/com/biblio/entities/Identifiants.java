@@ -0,0 +1,18 @@
+package com.biblio.entities;
+
+/**
+ * Paramètres communs de génération des identifiants : une table de compteurs (compatible MySQL, qui n'a pas
+ * de séquences), une ligne par entité, réservée par blocs de {@link #ALLOCATION} valeurs (optimiseur pooled).
+ * Contrairement à IDENTITY, l'identifiant est connu avant l'INSERT, ce qui permet à Hibernate de regrouper
+ * les insertions en batch JDBC.
+ */
+public final class Identifiants {
+
+    public static final String TABLE = "id_generateurs";
+    public static final String COLONNE_ENTITE = "entite";
+    public static final String COLONNE_VALEUR = "prochaine_valeur";
+    public static final int ALLOCATION = 50;
+
+    private Identifiants() {
+    }
+}
@@ -0,0 +1,43 @@
+package com.biblio.entities;
+
+import com.biblio.enums.StatutJeton;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Refresh token émis, identifié par l'empreinte SHA-256 de son {@code jti} (le jeton lui-même n'est jamais stocké).
+ * Tous les jetons issus d'un même login partagent une {@code famille} : chaque renouvellement marque le jeton
+ * présenté {@code UTILISE} et en émet un nouveau dans la même famille ; présenter à nouveau un jeton déjà utilisé
+ * révoque toute la famille.
+ */
+@Entity
+@Table(name = "jetons_rafraichissement", indexes = {
+        @Index(name = "idx_jeton_famille", columnList = "famille"),
+        @Index(name = "idx_jeton_utilisateur_statut", columnList = "utilisateur_id, statut"),
+        @Index(name = "idx_jeton_statut_expiration", columnList = "statut, expiration")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JetonRafraichissement {
+    @Id
+    @Column(name = "id_hash", length = 43)
+    private String idHash;
+
+    @Column(nullable = false, length = 22)
+    private String famille;
+
+    @Column(name = "utilisateur_id", nullable = false)
+    private Long utilisateurId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private StatutJeton statut;
+
+    @Column(nullable = false)
+    private LocalDateTime expiration;
+}
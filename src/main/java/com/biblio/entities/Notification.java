@@ -21,7 +21,10 @@ import java.time.LocalDateTime;
 @Builder
 public class Notification {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notifications_id")
+    @TableGenerator(name = "notifications_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+            valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "notifications",
+            allocationSize = Identifiants.ALLOCATION)
     private Long id;
 
     @NotNull
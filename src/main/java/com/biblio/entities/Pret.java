@@ -26,6 +26,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -42,7 +43,9 @@ import lombok.Setter;
 @Entity
 @Table(name = "prets", indexes = {
     @Index(name = "idx_pret_statut", columnList = "statut"),
-    @Index(name = "idx_pret_date_retour", columnList = "dateRetourPrevu")
+    @Index(name = "idx_pret_date_retour", columnList = "dateRetourPrevu"),
+    @Index(name = "idx_pret_utilisateur_ressource_statut", columnList = "utilisateur_id, ressource_id, statut"),
+    @Index(name = "idx_pret_bibliotheque_statut", columnList = "bibliotheque_id, statut")
 })
 @Getter
 @Setter
@@ -51,8 +54,13 @@ import lombok.Setter;
 @Builder
 public class Pret {
 
+    public static final BigDecimal PENALITE_JOURNALIERE = new BigDecimal("0.50");
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "prets_id")
+    @TableGenerator(name = "prets_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+            valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "prets",
+            allocationSize = Identifiants.ALLOCATION)
     private Long id;
 
     private LocalDateTime dateReservation;
@@ -211,11 +219,23 @@ public class Pret {
             LocalDate dateRetour = dateRetourEffectif.toLocalDate();
             if (dateRetour.isAfter(dateRetourPrevu)) {
                 long joursRetard = ChronoUnit.DAYS.between(dateRetourPrevu, dateRetour);
-                this.penaliteRetard = BigDecimal.valueOf(joursRetard * 0.50);
+                this.penaliteRetard = PENALITE_JOURNALIERE.multiply(BigDecimal.valueOf(joursRetard));
             }
         }
     }
 
+    /**
+     * Recalcule la pénalité d'un prêt non rendu à la date donnée.
+     * Idempotent : relancer le traitement le même jour ne double pas la pénalité.
+     */
+    public void appliquerPenaliteRetard(LocalDate aujourdhui) {
+        if (dateRetourPrevu == null || dateRetourEffectif != null || !aujourdhui.isAfter(dateRetourPrevu)) {
+            return;
+        }
+        long joursRetard = ChronoUnit.DAYS.between(dateRetourPrevu, aujourdhui);
+        this.penaliteRetard = PENALITE_JOURNALIERE.multiply(BigDecimal.valueOf(joursRetard));
+    }
+
     public boolean isActif() {
         return statut.isActive();
     }
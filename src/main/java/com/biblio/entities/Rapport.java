@@ -20,7 +20,10 @@ import java.time.LocalDateTime;
 public class Rapport {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "rapports_id")
+    @TableGenerator(name = "rapports_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+            valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "rapports",
+            allocationSize = Identifiants.ALLOCATION)
     private Long id;
 
     @NotBlank(message = "Le titre du rapport est obligatoire")
@@ -8,10 +8,12 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,7 +24,12 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = {
+    @Index(name = "idx_reservation_file", columnList = "ressource_id, statut, rang_file"),
+    @Index(name = "idx_reservation_bibliotheque_statut", columnList = "bibliotheque_id, statut"),
+    @Index(name = "idx_reservation_statut_expiration", columnList = "statut, date_expiration"),
+    @Index(name = "idx_reservation_usager_statut", columnList = "usager_id, statut")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -31,7 +38,10 @@ import java.time.LocalDateTime;
 public class Reservation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "reservations_id")
+    @TableGenerator(name = "reservations_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+            valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "reservations",
+            allocationSize = Identifiants.ALLOCATION)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -66,6 +76,10 @@ public class Reservation {
     @Column(columnDefinition = "TEXT")
     private String commentaire;
 
+    // Rang dans la file d'attente de la ressource (statut EN_FILE), croissant par ordre d'arrivée
+    @Column(name = "rang_file")
+    private Long rangFile;
+
     @Builder.Default
     private boolean notifDemandeEnvoyee = false;
 
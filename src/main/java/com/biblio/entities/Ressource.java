@@ -25,6 +25,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -49,7 +50,10 @@ import lombok.Setter;
 public class Ressource {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ressources_id")
+    @TableGenerator(name = "ressources_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+            valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "ressources",
+            allocationSize = Identifiants.ALLOCATION)
     private Long id;
 
     @NotBlank(message = "Le titre est obligatoire")
@@ -14,6 +14,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
@@ -42,7 +43,10 @@ import java.util.Set;
 @Builder
 public class User  implements UserDetails {
 	 @Id
-	    @GeneratedValue(strategy = GenerationType.IDENTITY)
+	    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+	    @TableGenerator(name = "user_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+	            valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "user",
+	            allocationSize = Identifiants.ALLOCATION)
 	    private Long id;
 
 	    @NotBlank(message = "Le nom est obligatoire")
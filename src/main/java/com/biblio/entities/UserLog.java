@@ -18,7 +18,10 @@ import java.time.LocalDateTime;
 @Builder
 public class UserLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_logs_id")
+    @TableGenerator(name = "user_logs_id", table = Identifiants.TABLE, pkColumnName = Identifiants.COLONNE_ENTITE,
+            valueColumnName = Identifiants.COLONNE_VALEUR, pkColumnValue = "user_logs",
+            allocationSize = Identifiants.ALLOCATION)
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,9 @@
+package com.biblio.enums;
+
+/**
+ * Dérivés produits pour un fichier envoyé ; absent tant que la génération n'a pas eu lieu.
+ */
+public enum EtatMiniatures {
+    JPEG,
+    ILLISIBLE
+}
@@ -0,0 +1,7 @@
+package com.biblio.enums;
+
+public enum StatutJeton {
+    ACTIF,
+    UTILISE,
+    REVOQUE
+}
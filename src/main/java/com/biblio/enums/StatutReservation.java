@@ -2,6 +2,7 @@ package com.biblio.enums;
 
 public enum StatutReservation {
     EN_ATTENTE,
+    EN_FILE,
     CONFIRMEE,
     ANNULEE,
     EXPIREE,
@@ -1,5 +1,7 @@
 package com.biblio.exception;
 
+import com.biblio.security.HachageSatureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -68,6 +70,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
     }
 
+    /**
+     * Gère HachageSatureException (pool de hachage des mots de passe saturé)
+     */
+    @ExceptionHandler(HachageSatureException.class)
+    public ResponseEntity<Map<String, Object>> handleHachageSatureException(HachageSatureException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("error", "Service unavailable");
+        body.put("message", ex.getMessage());
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "2").body(body);
+    }
+
     /**
      * Gère toutes les autres exceptions
      */
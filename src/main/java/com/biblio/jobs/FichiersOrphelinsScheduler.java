@@ -0,0 +1,27 @@
+package com.biblio.jobs;
+
+import com.biblio.services.FileStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FichiersOrphelinsScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FichiersOrphelinsScheduler.class);
+    private final FileStorageService fileStorageService;
+
+    public FichiersOrphelinsScheduler(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    // Chaque nuit à 3h30 par défaut (configurable)
+    @Scheduled(cron = "${app.uploads.nettoyage-cron:0 30 3 * * *}")
+    public void supprimerOrphelins() {
+        int supprimes = fileStorageService.supprimerOrphelins();
+        if (supprimes > 0) {
+            logger.info("Fichiers envoyés sans référence supprimés: {}", supprimes);
+        }
+    }
+}
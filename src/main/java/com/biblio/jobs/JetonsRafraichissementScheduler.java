@@ -0,0 +1,34 @@
+package com.biblio.jobs;
+
+import com.biblio.security.JetonsRafraichissementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class JetonsRafraichissementScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(JetonsRafraichissementScheduler.class);
+    private final JetonsRafraichissementService jetonsService;
+
+    public JetonsRafraichissementScheduler(JetonsRafraichissementService jetonsService) {
+        this.jetonsService = jetonsService;
+    }
+
+    // Délai maximal avant qu'une révocation faite sur une autre instance ne soit vue par le filtre local
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.rechargement-ms:30000}",
+            initialDelayString = "${app.jwt.revocation.rechargement-ms:30000}")
+    public void rechargerFiltre() {
+        jetonsService.recharger();
+    }
+
+    // Chaque nuit à 4h par défaut (configurable)
+    @Scheduled(cron = "${app.jwt.purge-cron:0 0 4 * * *}")
+    public void purger() {
+        int supprimes = jetonsService.purgerExpires();
+        if (supprimes > 0) {
+            logger.info("Refresh tokens expirés supprimés: {}", supprimes);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.biblio.jobs;
+
+import com.biblio.services.PretRetardService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PretRetardScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PretRetardScheduler.class);
+    private final PretRetardService pretRetardService;
+
+    public PretRetardScheduler(PretRetardService pretRetardService) {
+        this.pretRetardService = pretRetardService;
+    }
+
+    // Traitement nocturne des prêts échus (configurable)
+    @Scheduled(cron = "${app.prets.retard.cron:0 30 1 * * *}")
+    public void runDetectionRetards() {
+        PretRetardService.Bilan bilan = pretRetardService.detecterRetards();
+        if (bilan.bloques() > 0) {
+            logger.info("Prêts bloqués pour retard: {}", bilan.bloques());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.biblio.jobs;
+
+import com.biblio.dao.ReservationDAO;
+import com.biblio.enums.StatutReservation;
+import com.biblio.services.ReservationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minuteur en mémoire par réservation : chaque réservation confirmée est expirée dès que sa
+ * date limite de retrait est atteinte, sans attendre le passage de {@link ReservationExpirationScheduler}.
+ * Les minuteurs sont armés après la validation de la transaction et reconstruits depuis la base au démarrage ;
+ * une annulation laisse simplement une entrée périmée dans la file, ignorée lorsqu'elle arrive à échéance.
+ */
+@Component
+public class ReservationEcheanceScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationEcheanceScheduler.class);
+    private static final List<StatutReservation> STATUTS_ARMES =
+            List.of(StatutReservation.EN_ATTENTE, StatutReservation.CONFIRMEE);
+
+    private final ReservationService reservationService;
+    private final ReservationDAO reservationDAO;
+    private final DelayQueue<Echeance> file = new DelayQueue<>();
+    private final Map<Long, Long> echeancesArmees = new ConcurrentHashMap<>();
+    private volatile Thread worker;
+
+    public ReservationEcheanceScheduler(@Lazy ReservationService reservationService, ReservationDAO reservationDAO) {
+        this.reservationService = reservationService;
+        this.reservationDAO = reservationDAO;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        int rehydratees = 0;
+        for (Object[] row : reservationDAO.findEcheances(STATUTS_ARMES)) {
+            armer((Long) row[0], (LocalDateTime) row[1]);
+            rehydratees++;
+        }
+        logger.info("Minuteurs de retrait réarmés: {}", rehydratees);
+        Thread thread = new Thread(this::boucle, "reservation-echeances");
+        thread.setDaemon(true);
+        thread.start();
+        this.worker = thread;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        Thread thread = this.worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Arme (ou réarme) le minuteur d'une réservation. Une échéance déjà passée expire immédiatement.
+     */
+    public void armer(Long reservationId, LocalDateTime echeance) {
+        if (reservationId == null || echeance == null) {
+            return;
+        }
+        long echeanceMs = versEpochMillis(echeance);
+        echeancesArmees.put(reservationId, echeanceMs);
+        file.put(new Echeance(reservationId, echeanceMs));
+    }
+
+    /**
+     * Arme le minuteur une fois la transaction en cours validée : une échéance annulée par un rollback n'est
+     * jamais armée, et le minuteur ne peut pas se déclencher avant que l'état qu'il vérifie soit visible.
+     */
+    public void armerApresCommit(Long reservationId, LocalDateTime echeance) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    armer(reservationId, echeance);
+                }
+            });
+        } else {
+            armer(reservationId, echeance);
+        }
+    }
+
+    public void desarmer(Long reservationId) {
+        if (reservationId != null) {
+            echeancesArmees.remove(reservationId);
+        }
+    }
+
+    public int getNombreArmees() {
+        return echeancesArmees.size();
+    }
+
+    void boucle() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                traiter(file.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    void traiter(Echeance echeance) {
+        // Entrée périmée : réservation désarmée ou réarmée depuis avec une autre échéance
+        if (!echeancesArmees.remove(echeance.reservationId(), echeance.echeanceMs())) {
+            return;
+        }
+        try {
+            if (reservationService.expirerReservation(echeance.reservationId())) {
+                logger.info("Réservation {} expirée à échéance", echeance.reservationId());
+            }
+        } catch (Exception e) {
+            logger.warn("Expiration de la réservation {} échouée: {}", echeance.reservationId(), e.getMessage());
+        }
+    }
+
+    Echeance prochaineEcheance() {
+        return file.poll();
+    }
+
+    private static long versEpochMillis(LocalDateTime dateTime) {
+        Instant instant = dateTime.atZone(ZoneId.systemDefault()).toInstant();
+        // Arrondi à la milliseconde supérieure pour ne jamais déclencher avant l'échéance réelle
+        return instant.toEpochMilli() + (instant.getNano() % 1_000_000 == 0 ? 0 : 1);
+    }
+
+    record Echeance(Long reservationId, long echeanceMs) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(echeanceMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof Echeance e) {
+                return Long.compare(echeanceMs, e.echeanceMs);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
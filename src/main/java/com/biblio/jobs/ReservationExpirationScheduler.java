@@ -16,8 +16,9 @@ public class ReservationExpirationScheduler {
         this.reservationService = reservationService;
     }
 
-    // Vérifie les expirations toutes les heures par défaut (configurable)
-    @Scheduled(fixedDelayString = "${app.reservations.expiration-check-ms:3600000}")
+    // Filet de sécurité : les expirations sont normalement déclenchées à l'échéance par
+    // ReservationEcheanceScheduler ; ce balayage rattrape les cas manqués (toutes les 6h par défaut, configurable)
+    @Scheduled(fixedDelayString = "${app.reservations.expiration-check-ms:21600000}")
     public void runExpirationCheck() {
         int expired = reservationService.expirerReservations();
         if (expired > 0) {
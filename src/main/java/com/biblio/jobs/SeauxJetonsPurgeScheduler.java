@@ -0,0 +1,27 @@
+package com.biblio.jobs;
+
+import com.biblio.security.SeauxJetons;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SeauxJetonsPurgeScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeauxJetonsPurgeScheduler.class);
+    private final SeauxJetons seauxJetons;
+
+    public SeauxJetonsPurgeScheduler(SeauxJetons seauxJetons) {
+        this.seauxJetons = seauxJetons;
+    }
+
+    // Une clé par adresse IP : sans purge, la table (ou la mémoire) grossirait avec chaque nouveau client
+    @Scheduled(fixedDelayString = "${app.limitation.purge-ms:60000}")
+    public void purger() {
+        int supprimes = seauxJetons.purger(System.currentTimeMillis());
+        if (supprimes > 0) {
+            logger.debug("Seaux de limitation de débit purgés: {}", supprimes);
+        }
+    }
+}
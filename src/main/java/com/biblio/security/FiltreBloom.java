@@ -0,0 +1,70 @@
+package com.biblio.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom sans verrou : {@link #peutContenir} ne renvoie jamais false pour une valeur ajoutée,
+ * et renvoie true à tort pour environ {@code tauxFauxPositifs} des autres tant que {@code capacite} n'est pas dépassée.
+ * Les k positions sont dérivées d'un seul hachage 64 bits (double hachage de Kirsch-Mitzenmacher).
+ */
+final class FiltreBloom {
+
+    private final AtomicLongArray mots;
+    private final int nbBits;
+    private final int nbHachages;
+
+    FiltreBloom(int capacite, double tauxFauxPositifs) {
+        int n = Math.max(1, capacite);
+        double bits = -n * Math.log(tauxFauxPositifs) / (Math.log(2) * Math.log(2));
+        this.nbBits = (int) Math.min(Math.max(64, Math.ceil(bits)), Integer.MAX_VALUE - 64);
+        this.nbHachages = Math.max(1, (int) Math.round((double) nbBits / n * Math.log(2)));
+        this.mots = new AtomicLongArray((nbBits + 63) >>> 6);
+    }
+
+    void ajouter(String valeur) {
+        long h = hacher(valeur);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < nbHachages; i++) {
+            int bit = Math.floorMod(h1 + (long) i * h2, nbBits);
+            long masque = 1L << bit;
+            mots.getAndAccumulate(bit >>> 6, masque, (mot, m) -> mot | m);
+        }
+    }
+
+    boolean peutContenir(String valeur) {
+        long h = hacher(valeur);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < nbHachages; i++) {
+            int bit = Math.floorMod(h1 + (long) i * h2, nbBits);
+            if ((mots.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getNbBits() {
+        return nbBits;
+    }
+
+    int getNbHachages() {
+        return nbHachages;
+    }
+
+    // FNV-1a 64 bits suivi du mélange final de MurmurHash3 (fmix64)
+    private static long hacher(String valeur) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < valeur.length(); i++) {
+            h ^= valeur.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,124 @@
+package com.biblio.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodeur BCrypt dont les calculs (login, inscription, création de compte) passent par un pool dédié et borné :
+ * au plus {@code threads} hachages en parallèle, quel que soit le nombre de requêtes, pour que les pics de
+ * connexion ne privent pas le reste de l'application de CPU. Au-delà de la file d'attente, ou après
+ * {@code attenteMax}, l'appel échoue avec {@link HachageSatureException} (503).
+ * <p>
+ * Le coût est configurable ; un hachage d'un autre coût est signalé par {@link #upgradeEncoding} et ré-haché
+ * au prochain login réussi (via UserDetailsPasswordService), dans les deux sens.
+ */
+public class HachageMotsDePasse implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final int cout;
+    private final ThreadPoolExecutor executor;
+    private final Duration attenteMax;
+    private final Timer verifications;
+    private final Timer encodages;
+
+    public HachageMotsDePasse(int cout, int threads, int file, Duration attenteMax, MeterRegistry meterRegistry) {
+        this.bcrypt = new BCryptPasswordEncoder(cout);
+        this.cout = cout;
+        this.attenteMax = attenteMax;
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(file), tache -> {
+                    Thread thread = new Thread(tache, "hachage-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        new ExecutorServiceMetrics(executor, "biblio.hachage", Tags.empty()).bindTo(meterRegistry);
+        this.verifications = Timer.builder("biblio.hachage.duree").tag("operation", "verifier")
+                .description("Hachage de mot de passe, attente dans la file comprise")
+                .register(meterRegistry);
+        this.encodages = Timer.builder("biblio.hachage.duree").tag("operation", "encoder")
+                .description("Hachage de mot de passe, attente dans la file comprise")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executer(() -> bcrypt.encode(rawPassword), encodages);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executer(() -> bcrypt.matches(rawPassword, encodedPassword), verifications);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        Integer coutActuel = cout(encodedPassword);
+        return coutActuel != null ? coutActuel != cout : bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Coût d'un hachage BCrypt ({@code $2a$10$...}), null si le format n'est pas reconnu.
+     */
+    static Integer cout(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return null;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private <T> T executer(Callable<T> calcul, Timer timer) {
+        long debut = System.nanoTime();
+        Future<T> resultat;
+        try {
+            resultat = executor.submit(calcul);
+        } catch (RejectedExecutionException e) {
+            throw new HachageSatureException("Trop de connexions en cours, réessayez dans quelques secondes");
+        }
+        try {
+            return resultat.get(attenteMax.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            resultat.cancel(true);
+            throw new HachageSatureException("Délai de vérification du mot de passe dépassé");
+        } catch (InterruptedException e) {
+            resultat.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HachageSatureException("Vérification du mot de passe interrompue");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            timer.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    int enAttente() {
+        return executor.getQueue().size();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+}
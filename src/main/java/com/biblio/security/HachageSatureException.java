@@ -0,0 +1,11 @@
+package com.biblio.security;
+
+/**
+ * Le pool de hachage des mots de passe est saturé : la requête peut être retentée plus tard (503).
+ */
+public class HachageSatureException extends IllegalStateException {
+
+    public HachageSatureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,277 @@
+package com.biblio.security;
+
+import com.biblio.dao.JetonRafraichissementDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.entities.JetonRafraichissement;
+import com.biblio.entities.User;
+import com.biblio.enums.StatutJeton;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Registre des refresh tokens : chaque login ouvre une famille, chaque renouvellement consomme le jeton présenté
+ * et en émet un nouveau dans la même famille. Un jeton déjà consommé présenté une seconde fois (vol probable)
+ * révoque toute la famille, access tokens compris.
+ * <p>
+ * Les familles révoquées sont aussi tenues dans un filtre de Bloom : le contrôle fait par {@link JwtAuthFilter}
+ * à chaque requête ne consulte la base que si le filtre répond « peut-être révoquée ». Le filtre est reconstruit
+ * périodiquement depuis la base, ce qui y fait entrer les révocations faites par les autres instances.
+ */
+@Service
+public class JetonsRafraichissementService {
+    private static final Logger logger = LoggerFactory.getLogger(JetonsRafraichissementService.class);
+
+    private final JetonRafraichissementDAO jetonDAO;
+    private final UserDAO userDAO;
+    private final JwtService jwtService;
+    private final int capacite;
+    private final double tauxFauxPositifs;
+    private final Counter reutilisations;
+    private final Counter consultationsBase;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Object verrou = new Object();
+    private volatile FiltreBloom revoquees;
+    // Filtre en cours de reconstruction : reçoit aussi les révocations faites pendant la lecture de la base
+    private FiltreBloom enReconstruction;
+
+    public JetonsRafraichissementService(
+            JetonRafraichissementDAO jetonDAO,
+            UserDAO userDAO,
+            JwtService jwtService,
+            @Value("${app.jwt.revocation.capacite:100000}") int capacite,
+            @Value("${app.jwt.revocation.faux-positifs:0.01}") double tauxFauxPositifs,
+            MeterRegistry meterRegistry) {
+        this.jetonDAO = jetonDAO;
+        this.userDAO = userDAO;
+        this.jwtService = jwtService;
+        this.capacite = capacite;
+        this.tauxFauxPositifs = tauxFauxPositifs;
+        this.revoquees = new FiltreBloom(capacite, tauxFauxPositifs);
+        this.reutilisations = Counter.builder("biblio.jetons.reutilisations")
+                .description("Refresh tokens déjà consommés présentés à nouveau (famille révoquée)")
+                .register(meterRegistry);
+        this.consultationsBase = Counter.builder("biblio.jetons.revocation.consultations")
+                .description("Contrôles de révocation non tranchés par le filtre de Bloom")
+                .register(meterRegistry);
+    }
+
+    public record Jetons(User utilisateur, String accessToken, String refreshToken) {
+    }
+
+    /**
+     * Ouvre une nouvelle famille (login, inscription, OAuth2) et retourne access + refresh tokens
+     */
+    @Transactional
+    public Jetons emettre(User user) {
+        return emettre(user, identifiant());
+    }
+
+    /**
+     * Rotation : consomme le refresh token présenté et en émet un nouveau dans la même famille.
+     * Les révocations restent acquises même si l'appel se termine en erreur.
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public Jetons renouveler(String refreshToken) {
+        Claims claims = lireRefreshToken(refreshToken);
+        if (claims == null) {
+            throw new IllegalArgumentException("Refresh token invalide ou expiré");
+        }
+        String famille = claims.get("fam", String.class);
+        if (claims.getId() == null || famille == null) {
+            throw new IllegalArgumentException("Refresh token non reconnu, veuillez vous reconnecter");
+        }
+
+        String idHash = empreinte(claims.getId());
+        if (jetonDAO.consommer(idHash, StatutJeton.ACTIF, StatutJeton.UTILISE) == 0) {
+            StatutJeton statut = jetonDAO.findById(idHash).map(JetonRafraichissement::getStatut).orElse(null);
+            if (statut == StatutJeton.UTILISE) {
+                reutilisations.increment();
+                logger.warn("Refresh token réutilisé pour {} : famille {} révoquée", claims.getSubject(), famille);
+                revoquerFamille(famille);
+                throw new IllegalArgumentException("Refresh token déjà utilisé, la session a été révoquée");
+            }
+            throw new IllegalArgumentException("Refresh token révoqué");
+        }
+
+        User user = userDAO.findByEmail(claims.getSubject())
+                .orElseThrow(() -> new IllegalArgumentException("Utilisateur introuvable"));
+        if (!Boolean.TRUE.equals(user.getActif())) {
+            revoquerFamille(famille);
+            throw new IllegalArgumentException("Votre compte est désactivé");
+        }
+        return emettre(user, famille);
+    }
+
+    /**
+     * Déconnexion : révoque la famille du jeton fourni (refresh token ou access token).
+     * Retourne false si le jeton n'est rattaché à aucune famille.
+     */
+    @Transactional
+    public boolean revoquerSession(String jeton) {
+        String famille = null;
+        Claims claims = lireRefreshToken(jeton);
+        if (claims != null) {
+            famille = claims.get("fam", String.class);
+        } else {
+            try {
+                famille = jwtService.extractClaim(jeton, "fam", String.class);
+            } catch (JwtException | IllegalArgumentException e) {
+                logger.debug("Jeton de déconnexion illisible: {}", e.getMessage());
+            }
+        }
+        if (famille == null) {
+            return false;
+        }
+        revoquerFamille(famille);
+        return true;
+    }
+
+    @Transactional
+    public void revoquerFamille(String famille) {
+        jetonDAO.revoquerFamille(famille, StatutJeton.REVOQUE);
+        marquerRevoquee(famille);
+    }
+
+    /**
+     * Révoque toutes les sessions d'un utilisateur (compte désactivé) ; retourne le nombre de familles révoquées
+     */
+    @Transactional
+    public int revoquerUtilisateur(Long utilisateurId) {
+        List<String> familles = jetonDAO.findFamillesNonRevoquees(utilisateurId, StatutJeton.REVOQUE);
+        if (familles.isEmpty()) {
+            return 0;
+        }
+        jetonDAO.revoquerUtilisateur(utilisateurId, StatutJeton.REVOQUE);
+        familles.forEach(this::marquerRevoquee);
+        return familles.size();
+    }
+
+    /**
+     * Chemin chaud (chaque requête authentifiée) : sans accès base tant que le filtre exclut la famille
+     */
+    public boolean estRevoquee(String famille) {
+        if (famille == null || !revoquees.peutContenir(famille)) {
+            return false;
+        }
+        consultationsBase.increment();
+        return jetonDAO.existsByFamilleAndStatut(famille, StatutJeton.REVOQUE);
+    }
+
+    /**
+     * Reconstruit le filtre depuis les familles révoquées non expirées (purge des familles expirées,
+     * prise en compte des révocations des autres instances)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recharger() {
+        FiltreBloom nouveau = new FiltreBloom(capacite, tauxFauxPositifs);
+        synchronized (verrou) {
+            enReconstruction = nouveau;
+        }
+        List<String> familles;
+        try {
+            familles = jetonDAO.findFamillesRevoquees(StatutJeton.REVOQUE, LocalDateTime.now());
+            familles.forEach(nouveau::ajouter);
+            synchronized (verrou) {
+                revoquees = nouveau;
+            }
+        } finally {
+            synchronized (verrou) {
+                enReconstruction = null;
+            }
+        }
+        if (familles.size() > capacite) {
+            logger.warn("{} familles révoquées pour une capacité de {} : taux de faux positifs dégradé",
+                    familles.size(), capacite);
+        }
+        logger.debug("Filtre des familles révoquées reconstruit: {}", familles.size());
+    }
+
+    @Transactional
+    public int purgerExpires() {
+        return jetonDAO.supprimerExpires(LocalDateTime.now());
+    }
+
+    private Jetons emettre(User user, String famille) {
+        String jti = identifiant();
+        String refreshToken = jwtService.generateRefreshToken(user, famille, jti);
+        jetonDAO.save(JetonRafraichissement.builder()
+                .idHash(empreinte(jti))
+                .famille(famille)
+                .utilisateurId(user.getId())
+                .statut(StatutJeton.ACTIF)
+                .expiration(LocalDateTime.now().plus(Duration.ofMillis(jwtService.getRefreshExpirationMs())))
+                .build());
+        return new Jetons(user, jwtService.generateAccessToken(user, famille), refreshToken);
+    }
+
+    /**
+     * Ajout immédiat, puis de nouveau après le commit : une reconstruction lancée entre-temps a pu lire la base
+     * avant que la révocation n'y soit visible
+     */
+    private void marquerRevoquee(String famille) {
+        ajouterAuFiltre(famille);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ajouterAuFiltre(famille);
+                }
+            });
+        }
+    }
+
+    private void ajouterAuFiltre(String famille) {
+        synchronized (verrou) {
+            revoquees.ajouter(famille);
+            if (enReconstruction != null) {
+                enReconstruction.ajouter(famille);
+            }
+        }
+    }
+
+    private Claims lireRefreshToken(String jeton) {
+        if (jeton == null || jeton.isBlank()) {
+            return null;
+        }
+        try {
+            return jwtService.extractRefreshClaims(jeton);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String identifiant() {
+        byte[] octets = new byte[16];
+        secureRandom.nextBytes(octets);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(octets);
+    }
+
+    static String empreinte(String jti) {
+        try {
+            byte[] hache = MessageDigest.getInstance("SHA-256").digest(jti.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hache);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
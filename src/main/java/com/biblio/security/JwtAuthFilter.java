@@ -1,6 +1,8 @@
 package com.biblio.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,14 +27,27 @@ import java.util.Map;
 public class JwtAuthFilter extends OncePerRequestFilter {
     private static final String BEARER_PREFIX = "Bearer ";
     private static final String AUTHORIZATION_HEADER = "Authorization";
+    /**
+     * Attribut de requête portant la famille de refresh tokens du jeton authentifié
+     */
+    public static final String ATTRIBUT_FAMILLE = "biblio.jwt.famille";
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final JetonsRafraichissementService jetonsService;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Timer dureeFiltre;
 
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService,
+                         JetonsRafraichissementService jetonsService, MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.jetonsService = jetonsService;
+        // Temps passé dans le filtre lui-même (lecture et validation du jeton, chargement de l'utilisateur), hors chaîne
+        this.dureeFiltre = Timer.builder("biblio.jwt.filtre")
+                .description("Durée de l'authentification JWT par requête")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
@@ -48,6 +63,23 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;
         }
 
+        Timer.Sample echantillon = Timer.start();
+        boolean continuer;
+        try {
+            continuer = authentifier(request, response);
+        } finally {
+            echantillon.stop(dureeFiltre);
+        }
+        if (continuer) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Authentifie la requête à partir du jeton (en-tête, cookie ou paramètre).
+     * Retourne false si une réponse d'erreur a déjà été écrite.
+     */
+    private boolean authentifier(HttpServletRequest request, HttpServletResponse response) throws IOException {
         String token = null;
         
         // 1. Essayer de lire depuis le header Authorization
@@ -84,8 +116,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         
         // Si aucun token trouvé, continuer sans authentification
         if (token == null || !StringUtils.hasText(token)) {
-            filterChain.doFilter(request, response);
-            return;
+            return true;
         }
 
         try {
@@ -94,7 +125,11 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
                 
-                if (jwtService.isTokenValid(token, userDetails)) {
+                // Jeton sans famille (impossible à révoquer) ou famille révoquée (déconnexion, réutilisation du refresh
+                // token, compte désactivé) : refusé. Le filtre de Bloom évite l'accès base dans le cas courant
+                String famille = jwtService.extractClaim(token, "fam", String.class);
+                if (famille != null && jwtService.isTokenValid(token, userDetails)
+                        && !jetonsService.estRevoquee(famille)) {
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -102,12 +137,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                     );
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authentication);
+                    request.setAttribute(ATTRIBUT_FAMILLE, famille);
                 } else {
                     // Token invalide - ne pas retourner d'erreur JSON pour les requêtes web
                     // Laisser Spring Security gérer la redirection
                     if (isApiRequest(request)) {
                         handleError(response, "Token invalide ou expiré", HttpServletResponse.SC_UNAUTHORIZED);
-                        return;
+                        return false;
                     }
                     // Pour les requêtes web, supprimer le cookie invalide et laisser passer
                     // Spring Security redirigera vers /login
@@ -118,26 +154,25 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             // Token expiré
             if (isApiRequest(request)) {
                 handleError(response, "Token expiré", HttpServletResponse.SC_UNAUTHORIZED);
-                return;
+                return false;
             }
             clearInvalidTokenCookie(response);
         } catch (io.jsonwebtoken.security.SignatureException | io.jsonwebtoken.MalformedJwtException e) {
             // Token invalide ou malformé
             if (isApiRequest(request)) {
                 handleError(response, "Token invalide ou malformé", HttpServletResponse.SC_UNAUTHORIZED);
-                return;
+                return false;
             }
             clearInvalidTokenCookie(response);
         } catch (Exception e) {
             logger.debug("JWT token validation failed", e);
             if (isApiRequest(request)) {
                 handleError(response, "Erreur lors de la validation du token", HttpServletResponse.SC_UNAUTHORIZED);
-                return;
+                return false;
             }
             clearInvalidTokenCookie(response);
         }
-
-        filterChain.doFilter(request, response);
+        return true;
     }
 
     private boolean isPublicEndpoint(String path) {
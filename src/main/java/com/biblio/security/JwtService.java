@@ -13,6 +13,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 
 @Service
@@ -34,9 +35,10 @@ public class JwtService {
     }
 
     /**
-     * Génère un access token avec les claims personnalisés : username, nom, prenom, role, userId
+     * Génère un access token avec les claims personnalisés : username, nom, prenom, role, userId.
+     * Il est rattaché à une famille de refresh tokens (claim "fam", obligatoire) et refusé dès qu'elle est révoquée
      */
-    public String generateAccessToken(UserDetails userDetails) {
+    public String generateAccessToken(UserDetails userDetails, String famille) {
         User user = (User) userDetails;
         Map<String, Object> claims = new HashMap<>();
         claims.put("type", "access");
@@ -48,7 +50,8 @@ public class JwtService {
         claims.put("role", user.getRole().name());
         claims.put("userId", user.getId());
         claims.put("roles", "ROLE_" + user.getRole().name());
-        
+        claims.put("fam", Objects.requireNonNull(famille, "famille"));
+
         return buildToken(claims, userDetails.getUsername(), accessExpirationMs, accessSecretKey);
     }
 
@@ -62,6 +65,22 @@ public class JwtService {
         return buildToken(claims, userDetails.getUsername(), refreshExpirationMs, refreshSecretKey);
     }
 
+    /**
+     * Refresh token enregistré : identifiant unique (jti) et famille de rotation (claim "fam")
+     */
+    public String generateRefreshToken(UserDetails userDetails, String famille, String jti) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("type", "refresh");
+        claims.put("fam", famille);
+        claims.put("jti", jti);
+
+        return buildToken(claims, userDetails.getUsername(), refreshExpirationMs, refreshSecretKey);
+    }
+
+    public long getRefreshExpirationMs() {
+        return refreshExpirationMs;
+    }
+
     private String buildToken(Map<String, Object> extraClaims, String subject, long expirationMs, SecretKey secretKey) {
         Date now = new Date();
         Date expiration = new Date(now.getTime() + expirationMs);
@@ -117,6 +136,17 @@ public class JwtService {
         }
     }
 
+    /**
+     * Claims d'un refresh token valide ; lève une JwtException si la signature, l'expiration ou le type ne conviennent pas
+     */
+    public Claims extractRefreshClaims(String token) {
+        Claims claims = extractAllClaims(token, refreshSecretKey);
+        if (!"refresh".equals(claims.get("type", String.class))) {
+            throw new io.jsonwebtoken.MalformedJwtException("Le jeton n'est pas un refresh token");
+        }
+        return claims;
+    }
+
     private <T> T extractClaim(String token, Function<Claims, T> claimsResolver, SecretKey secretKey) {
         final Claims claims = extractAllClaims(token, secretKey);
         return claimsResolver.apply(claims);
@@ -0,0 +1,167 @@
+package com.biblio.security;
+
+import com.biblio.security.SeauxJetons.Regle;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limitation de débit des endpoints coûteux, placée avant {@link JwtAuthFilter} :
+ * <ul>
+ *   <li>POST /api/auth/** et /auth/register-form (hachage BCrypt, envoi de mail) : par adresse IP ;</li>
+ *   <li>POST /api/reservations : par adresse IP et par utilisateur (sujet du JWT).</li>
+ * </ul>
+ * Une requête refusée reçoit 429 avec Retry-After (secondes) et est comptée dans biblio.limitation.rejets.
+ * L'adresse est celle vue par le conteneur : derrière un proxy, activer server.forward-headers-strategy.
+ * Le corps n'est pas lu : un login n'est donc pas limité par email, seulement par IP.
+ */
+@Component
+public class LimitationDebitFilter extends OncePerRequestFilter {
+    static final String CIBLE_AUTH = "auth";
+    static final String CIBLE_RESERVATIONS = "reservations";
+
+    private final SeauxJetons seauxJetons;
+    private final JwtService jwtService;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean active;
+    private final Regle regleAuth;
+    private final Regle regleReservationsIp;
+    private final Regle regleReservationsUtilisateur;
+
+    public LimitationDebitFilter(SeauxJetons seauxJetons, JwtService jwtService, MeterRegistry meterRegistry,
+                                 @Value("${app.limitation.enabled:true}") boolean active,
+                                 @Value("${app.limitation.auth.capacite:10}") int capaciteAuth,
+                                 @Value("${app.limitation.reservations.capacite-ip:30}") int capaciteReservationsIp,
+                                 @Value("${app.limitation.reservations.capacite-utilisateur:10}") int capaciteReservationsUtilisateur,
+                                 @Value("${app.limitation.periode:PT1M}") Duration periode) {
+        this.seauxJetons = seauxJetons;
+        this.jwtService = jwtService;
+        this.meterRegistry = meterRegistry;
+        this.active = active;
+        this.regleAuth = new Regle(capaciteAuth, periode);
+        this.regleReservationsIp = new Regle(capaciteReservationsIp, periode);
+        this.regleReservationsUtilisateur = new Regle(capaciteReservationsUtilisateur, periode);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String cible = active ? cible(request) : null;
+        if (cible == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long maintenant = System.currentTimeMillis();
+        String ip = request.getRemoteAddr();
+        if (CIBLE_AUTH.equals(cible)) {
+            if (accepter(cible, "ip", ip, regleAuth, maintenant, response)) {
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+        if (!accepter(cible, "ip", ip, regleReservationsIp, maintenant, response)) {
+            return;
+        }
+        String utilisateur = utilisateur(request);
+        if (utilisateur == null
+                || accepter(cible, "utilisateur", utilisateur, regleReservationsUtilisateur, maintenant, response)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    static String cible(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI();
+        if (path.startsWith("/api/auth/") || path.equals("/auth/register-form")) {
+            return CIBLE_AUTH;
+        }
+        if (path.equals("/api/reservations")) {
+            return CIBLE_RESERVATIONS;
+        }
+        return null;
+    }
+
+    /**
+     * Consomme un jeton ; en cas de refus, écrit la réponse 429 et retourne false.
+     */
+    private boolean accepter(String cible, String type, String valeur, Regle regle, long maintenant,
+                             HttpServletResponse response) throws IOException {
+        long attente = seauxJetons.consommer(cible + ":" + type + ":" + valeur, regle, maintenant);
+        if (attente == 0) {
+            return true;
+        }
+        Counter.builder("biblio.limitation.rejets")
+                .description("Requêtes refusées par la limitation de débit")
+                .tags("cible", cible, "cle", type)
+                .register(meterRegistry)
+                .increment();
+        long secondes = Math.max(1, (attente + 999) / 1000);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(secondes));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("error", "Too Many Requests");
+        body.put("message", "Trop de requêtes, réessayez dans " + secondes + " s");
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        objectMapper.writeValue(response.getOutputStream(), body);
+        return false;
+    }
+
+    /**
+     * Sujet du JWT (en-tête ou cookie), signature vérifiée ; null si absent ou invalide,
+     * la requête est alors limitée par IP seulement et {@link JwtAuthFilter} se charge du refus.
+     */
+    private String utilisateur(HttpServletRequest request) {
+        String token = null;
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (StringUtils.hasText(authHeader) && authHeader.startsWith("Bearer ")) {
+            token = authHeader.substring("Bearer ".length());
+        } else if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if ("jwt_token".equals(cookie.getName())) {
+                    token = cookie.getValue();
+                    break;
+                }
+            }
+        }
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        try {
+            // Le cookie peut être encodé
+            if (token.contains("%")) {
+                token = URLDecoder.decode(token, StandardCharsets.UTF_8);
+            }
+            return jwtService.extractUsername(token);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
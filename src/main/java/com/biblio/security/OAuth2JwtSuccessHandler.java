@@ -20,16 +20,16 @@ import java.util.Map;
 @Component
 public class OAuth2JwtSuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
 
-    private final JwtService jwtService;
+    private final JetonsRafraichissementService jetonsService;
     private final UserDetailsService userDetailsService;
     private final String frontendRedirectUri;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public OAuth2JwtSuccessHandler(
-            JwtService jwtService,
+            JetonsRafraichissementService jetonsService,
             UserDetailsService userDetailsService,
             @Value("${app.oauth2.redirect-uri:http://localhost:3000/auth/callback}") String frontendRedirectUri) {
-        this.jwtService = jwtService;
+        this.jetonsService = jetonsService;
         this.userDetailsService = userDetailsService;
         this.frontendRedirectUri = frontendRedirectUri;
     }
@@ -52,9 +52,10 @@ public class OAuth2JwtSuccessHandler extends SimpleUrlAuthenticationSuccessHandl
         UserDetails userDetails = userDetailsService.loadUserByUsername(email);
         User user = (User) userDetails;
 
-        // Générer access + refresh tokens JWT
-        String accessToken = jwtService.generateAccessToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        // Générer access + refresh tokens JWT (nouvelle famille de rotation)
+        JetonsRafraichissementService.Jetons jetons = jetonsService.emettre(user);
+        String accessToken = jetons.accessToken();
+        String refreshToken = jetons.refreshToken();
 
         // Vérifier si la requête accepte JSON (pour les apps mobiles)
         String acceptHeader = request.getHeader("Accept");
@@ -0,0 +1,49 @@
+package com.biblio.security;
+
+import java.time.Duration;
+
+/**
+ * Seaux à jetons de la limitation de débit, identifiés par une clé (ex. {@code auth:ip:203.0.113.7}).
+ * Implémentés selon l'algorithme GCRA : l'état d'un seau tient dans un seul instant, la date théorique
+ * d'arrivée (TAT) de la prochaine requête, ce qui permet une mise à jour atomique sans verrou, en mémoire
+ * comme dans un stockage partagé entre instances.
+ */
+public interface SeauxJetons {
+
+    /**
+     * Consomme un jeton du seau {@code cle} à l'instant {@code maintenant} (ms epoch).
+     * Retourne 0 si la requête est acceptée, sinon le délai en ms avant qu'un jeton soit disponible.
+     */
+    long consommer(String cle, Regle regle, long maintenant);
+
+    /**
+     * Supprime les seaux redevenus pleins (équivalents à un seau absent). Retourne le nombre de seaux supprimés.
+     */
+    int purger(long maintenant);
+
+    /**
+     * {@code capacite} requêtes en rafale, puis une requête toutes les {@code periode / capacite}.
+     */
+    record Regle(int capacite, Duration periode) {
+
+        public Regle {
+            if (capacite < 1 || periode.isNegative() || periode.isZero()) {
+                throw new IllegalArgumentException("Règle de débit invalide: " + capacite + " / " + periode);
+            }
+        }
+
+        /**
+         * Intervalle entre deux jetons, en ms.
+         */
+        long intervalle() {
+            return Math.max(1, periode.toMillis() / capacite);
+        }
+
+        /**
+         * Avance maximale de la TAT sur l'instant courant : la rafale autorisée au-delà du premier jeton.
+         */
+        long tolerance() {
+            return intervalle() * (capacite - 1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.biblio.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Seaux partagés par toutes les instances dans la table limitation_debit (migration V5).
+ * La consommation d'un jeton est un seul UPDATE conditionnel, sans transaction ni SELECT ... FOR UPDATE ;
+ * les instants viennent des horloges des instances, supposées synchronisées (NTP).
+ * Si la base est injoignable, la limitation ne doit pas faire échouer les requêtes : les seaux basculent sur
+ * des {@link SeauxJetonsMemoire} propres à l'instance jusqu'au retour de la base, avec un avertissement.
+ */
+public class SeauxJetonsJdbc implements SeauxJetons {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeauxJetonsJdbc.class);
+
+    private static final String UPDATE_SQL = "UPDATE limitation_debit SET tat = GREATEST(tat, ?) + ? " +
+            "WHERE cle = ? AND GREATEST(tat, ?) - ? <= ?";
+    private static final String SELECT_SQL = "SELECT tat FROM limitation_debit WHERE cle = ?";
+    private static final String INSERT_SQL = "INSERT INTO limitation_debit (cle, tat) VALUES (?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM limitation_debit WHERE tat <= ?";
+    private static final int TENTATIVES = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SeauxJetonsMemoire secours = new SeauxJetonsMemoire();
+    private final AtomicBoolean degrade = new AtomicBoolean();
+
+    public SeauxJetonsJdbc(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long consommer(String cle, Regle regle, long maintenant) {
+        try {
+            long attente = consommerEnBase(cle, regle, maintenant);
+            if (degrade.compareAndSet(true, false)) {
+                logger.info("Limitation de débit: base de nouveau disponible, seaux partagés rétablis");
+            }
+            return attente;
+        } catch (DataAccessException e) {
+            // Un seul avertissement par panne, pas un par requête
+            if (degrade.compareAndSet(false, true)) {
+                logger.warn("Limitation de débit: base indisponible, repli sur des seaux en mémoire par instance", e);
+            }
+            return secours.consommer(cle, regle, maintenant);
+        }
+    }
+
+    private long consommerEnBase(String cle, Regle regle, long maintenant) {
+        for (int i = 0; i < TENTATIVES; i++) {
+            if (jdbcTemplate.update(UPDATE_SQL, maintenant, regle.intervalle(), cle, maintenant, maintenant,
+                    regle.tolerance()) == 1) {
+                return 0;
+            }
+            // Seau absent, ou plein : on distingue en relisant la TAT
+            List<Long> tat = jdbcTemplate.queryForList(SELECT_SQL, Long.class, cle);
+            if (tat.isEmpty()) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, cle, maintenant + regle.intervalle());
+                    return 0;
+                } catch (DuplicateKeyException e) {
+                    // Créé entre-temps par une autre requête : nouvelle tentative
+                    continue;
+                }
+            }
+            long attente = Math.max(tat.get(0), maintenant) - maintenant - regle.tolerance();
+            if (attente > 0) {
+                return attente;
+            }
+        }
+        // Forte contention sur la même clé : on laisse passer plutôt que de bloquer sur une erreur
+        return 0;
+    }
+
+    @Override
+    public int purger(long maintenant) {
+        int supprimes = secours.purger(maintenant);
+        try {
+            return supprimes + jdbcTemplate.update(DELETE_SQL, maintenant);
+        } catch (DataAccessException e) {
+            logger.warn("Limitation de débit: purge de la table limitation_debit impossible: {}", e.getMessage());
+            return supprimes;
+        }
+    }
+
+    boolean isDegrade() {
+        return degrade.get();
+    }
+}
@@ -0,0 +1,46 @@
+package com.biblio.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seaux en mémoire, propres à l'instance : une TAT par clé, mise à jour par compareAndSet.
+ */
+public class SeauxJetonsMemoire implements SeauxJetons {
+
+    private final Map<String, AtomicLong> seaux = new ConcurrentHashMap<>();
+
+    @Override
+    public long consommer(String cle, Regle regle, long maintenant) {
+        AtomicLong tat = seaux.get(cle);
+        if (tat == null) {
+            tat = seaux.computeIfAbsent(cle, c -> new AtomicLong());
+        }
+        while (true) {
+            long courante = tat.get();
+            long debut = Math.max(courante, maintenant);
+            long attente = debut - maintenant - regle.tolerance();
+            if (attente > 0) {
+                return attente;
+            }
+            if (tat.compareAndSet(courante, debut + regle.intervalle())) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Un seau retiré pendant qu'une requête le consomme lui accorde au pire un jeton de trop.
+     */
+    @Override
+    public int purger(long maintenant) {
+        int avant = seaux.size();
+        seaux.values().removeIf(tat -> tat.get() <= maintenant);
+        return Math.max(0, avant - seaux.size());
+    }
+
+    int taille() {
+        return seaux.size();
+    }
+}
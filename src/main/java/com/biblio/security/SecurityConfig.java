@@ -1,5 +1,9 @@
 package com.biblio.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,14 +15,18 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.WebUtils;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 /**
  * Configuration Spring Security 100% STATELESS avec JWT
@@ -37,10 +45,13 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(
             HttpSecurity http,
             JwtAuthFilter jwtAuthFilter,
+            JetonsRafraichissementService jetonsService,
+            LimitationDebitFilter limitationDebitFilter,
             CustomOAuth2UserService oAuth2UserService,
             OAuth2JwtSuccessHandler oAuth2JwtSuccessHandler,
             JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint,
-            JwtAccessDeniedHandler jwtAccessDeniedHandler) throws Exception {
+            JwtAccessDeniedHandler jwtAccessDeniedHandler,
+            @Value("${management.server.port:-1}") int portGestion) throws Exception {
         http
                 .csrf(csrf -> csrf
                         .ignoringRequestMatchers("/api/**")
@@ -62,6 +73,7 @@ public class SecurityConfig {
                 .logout(logout -> logout
                         .logoutUrl("/logout")
                         .logoutSuccessUrl("/login?logout")
+                        .addLogoutHandler((request, response, authentication) -> revoquerSessionWeb(request, jetonsService))
                         .deleteCookies("jwt_token", "refresh_token")
                         .permitAll())
 
@@ -78,6 +90,12 @@ public class SecurityConfig {
                                 "/webjars/**",
                                 "/h2-console/**"
                         ).permitAll()
+                        // Sonde de santé publique ; collecte Prometheus ouverte seulement sur le port de gestion
+                        // (management.server.port, réseau interne), réservée aux administrateurs sinon
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers(request -> portGestion > 0 && request.getLocalPort() == portGestion
+                                && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                        .requestMatchers("/actuator/prometheus").hasAnyRole("SUPER_ADMIN", "ADMIN")
                         // Endpoints protégés par rôles
                         .requestMatchers("/api/admin/**").hasAnyRole("SUPER_ADMIN", "ADMIN")
                         .requestMatchers("/api/bibliotheque-admin/**").hasRole("ADMIN")
@@ -104,11 +122,24 @@ public class SecurityConfig {
                 // Pas besoin de créer explicitement DaoAuthenticationProvider, Spring le fera automatiquement
                 
                 // JWT Filter - Doit être avant UsernamePasswordAuthenticationFilter
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+
+                // Limitation de débit - avant le JWT, pour refuser au plus tôt (429)
+                .addFilterBefore(limitationDebitFilter, JwtAuthFilter.class);
 
         return http.build();
     }
 
+    /**
+     * Déconnexion web : révoque la famille de l'access token porté par le cookie jwt_token
+     */
+    private static void revoquerSessionWeb(HttpServletRequest request, JetonsRafraichissementService jetonsService) {
+        Cookie cookie = WebUtils.getCookie(request, "jwt_token");
+        if (cookie != null && StringUtils.hasText(cookie.getValue())) {
+            jetonsService.revoquerSession(URLDecoder.decode(cookie.getValue(), StandardCharsets.UTF_8));
+        }
+    }
+
     // Spring Security 7.0 configure automatiquement DaoAuthenticationProvider
     // à partir des beans UserDetailsService et PasswordEncoder disponibles
     // Pas besoin de créer explicitement le bean AuthenticationProvider
@@ -118,8 +149,19 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * BCrypt sur un pool dédié. Coût 10 par défaut (~50-100 ms par vérification et par cœur) ;
+     * un changement de coût est appliqué à chaque compte lors de son prochain login.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public HachageMotsDePasse passwordEncoder(
+            @Value("${app.securite.bcrypt.cout:10}") int cout,
+            @Value("${app.securite.hachage.threads:0}") int threads,
+            @Value("${app.securite.hachage.file:64}") int file,
+            @Value("${app.securite.hachage.attente-max:PT5S}") Duration attenteMax,
+            MeterRegistry meterRegistry) {
+        // 0 : un thread par cœur, le hachage étant purement CPU
+        int taille = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new HachageMotsDePasse(cout, taille, file, attenteMax, meterRegistry);
     }
 }
@@ -5,6 +5,8 @@ import com.biblio.dao.UserDAO;
 import com.biblio.entities.Bibliotheque;
 import com.biblio.entities.User;
 import com.biblio.enums.Role;
+import com.biblio.security.JetonsRafraichissementService;
+import io.micrometer.observation.annotation.Observed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,17 +20,21 @@ import java.util.List;
 import java.util.Map;
 
 @Service
+@Observed(name = "biblio.service")
 public class AdminService {
     private static final Logger logger = LoggerFactory.getLogger(AdminService.class);
     
     private final UserDAO userDAO;
     private final BibliothequeDAO bibliothequeDAO;
     private final PasswordEncoder passwordEncoder;
+    private final JetonsRafraichissementService jetonsService;
 
-    public AdminService(UserDAO userDAO, BibliothequeDAO bibliothequeDAO, PasswordEncoder passwordEncoder) {
+    public AdminService(UserDAO userDAO, BibliothequeDAO bibliothequeDAO, PasswordEncoder passwordEncoder,
+                        JetonsRafraichissementService jetonsService) {
         this.userDAO = userDAO;
         this.bibliothequeDAO = bibliothequeDAO;
         this.passwordEncoder = passwordEncoder;
+        this.jetonsService = jetonsService;
     }
 
     /**
@@ -142,6 +148,12 @@ public class AdminService {
         
         logger.info("Statut de l'utilisateur {} modifié: {}", updatedUser.getEmail(), 
                 updatedUser.getActif() ? "ACTIF" : "INACTIF");
+
+        // Compte désactivé : toutes ses sessions (refresh et access tokens) sont révoquées
+        if (!updatedUser.getActif()) {
+            int familles = jetonsService.revoquerUtilisateur(updatedUser.getId());
+            logger.info("Sessions révoquées pour {}: {}", updatedUser.getEmail(), familles);
+        }
         
         return updatedUser;
     }
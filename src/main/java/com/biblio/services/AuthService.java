@@ -4,7 +4,8 @@ import com.biblio.dao.UserDAO;
 import com.biblio.dto.AuthResponse;
 import com.biblio.entities.User;
 import com.biblio.enums.Role;
-import com.biblio.security.JwtService;
+import com.biblio.security.JetonsRafraichissementService;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -22,13 +23,13 @@ import java.util.HashMap;
 import java.util.Map;
 
 @Service
+@Observed(name = "biblio.service")
 public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
     
     private final UserDAO userDAO;
     private final PasswordEncoder passwordEncoder;
-    private final JwtService jwtService;
-    private final CustomUserDetailsService userDetailsService;
+    private final JetonsRafraichissementService jetonsService;
     private final AuthenticationManager authenticationManager;
     private final EmailService emailService;
     private final long accessExpirationSeconds;
@@ -38,16 +39,14 @@ public class AuthService {
     public AuthService(
             UserDAO userDAO,
             PasswordEncoder passwordEncoder,
-            JwtService jwtService,
-            CustomUserDetailsService userDetailsService,
+            JetonsRafraichissementService jetonsService,
             AuthenticationManager authenticationManager,
             EmailService emailService,
             @Value("${jwt.expiration}") long accessExpirationMs,
             UserLogService userLogService) {
         this.userDAO = userDAO;
         this.passwordEncoder = passwordEncoder;
-        this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.jetonsService = jetonsService;
         this.authenticationManager = authenticationManager;
         this.emailService = emailService;
         this.accessExpirationSeconds = accessExpirationMs / 1000; // Convertir en secondes
@@ -87,9 +86,8 @@ public class AuthService {
             throw new org.springframework.security.authentication.DisabledException("Votre compte est désactivé ou votre email n'est pas vérifié.");
         }
         
-        // Générer access + refresh tokens
-        String accessToken = jwtService.generateAccessToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        // Générer access + refresh tokens (nouvelle famille de rotation)
+        JetonsRafraichissementService.Jetons jetons = jetonsService.emettre(authenticatedUser);
         
         // Construire les infos utilisateur
         Map<String, Object> userInfo = getUserInfoMap(authenticatedUser);
@@ -99,7 +97,7 @@ public class AuthService {
         } catch (Exception ignored) {
         }
 
-        return AuthResponse.of(accessToken, refreshToken, accessExpirationSeconds, userInfo);
+        return AuthResponse.of(jetons.accessToken(), jetons.refreshToken(), accessExpirationSeconds, userInfo);
     }
 
     /**
@@ -132,8 +130,7 @@ public class AuthService {
 
         // Générer access + refresh tokens même si l'email n'est pas vérifié
         // (l'utilisateur pourra utiliser l'API mais certaines fonctionnalités peuvent être limitées)
-        String accessToken = jwtService.generateAccessToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
+        JetonsRafraichissementService.Jetons jetons = jetonsService.emettre(user);
         
         // Envoyer l'email de vérification (ne bloque pas si l'envoi échoue)
         try {
@@ -146,7 +143,7 @@ public class AuthService {
         
         Map<String, Object> userInfo = getUserInfoMap(user);
 
-        return AuthResponse.of(accessToken, refreshToken, accessExpirationSeconds, userInfo);
+        return AuthResponse.of(jetons.accessToken(), jetons.refreshToken(), accessExpirationSeconds, userInfo);
     }
     
     /**
@@ -187,27 +184,22 @@ public class AuthService {
 
     /**
      * Rafraîchit les tokens en utilisant un refresh token.
-     * Génère un nouveau access token ET un nouveau refresh token (rotation).
+     * Le refresh token présenté est consommé et remplacé par un nouveau de la même famille (rotation) ;
+     * un refresh token déjà consommé révoque toute la famille.
      */
     public AuthResponse refreshToken(String refreshToken) {
-        if (!jwtService.isRefreshTokenValid(refreshToken)) {
-            throw new IllegalArgumentException("Refresh token invalide ou expiré");
-        }
+        JetonsRafraichissementService.Jetons jetons = jetonsService.renouveler(refreshToken);
 
-        // Extraire le username depuis le refresh token
-        String username = jwtService.extractUsernameFromRefreshToken(refreshToken);
-        
-        // Charger UserDetails
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-        User user = (User) userDetails;
-        
-        // Générer NOUVEAU access token ET NOUVEAU refresh token (rotation)
-        String newAccessToken = jwtService.generateAccessToken(userDetails);
-        String newRefreshToken = jwtService.generateRefreshToken(userDetails);
-        
-        Map<String, Object> userInfo = getUserInfoMap(user);
+        Map<String, Object> userInfo = getUserInfoMap(jetons.utilisateur());
+
+        return AuthResponse.of(jetons.accessToken(), jetons.refreshToken(), accessExpirationSeconds, userInfo);
+    }
 
-        return AuthResponse.of(newAccessToken, newRefreshToken, accessExpirationSeconds, userInfo);
+    /**
+     * Révoque la session (famille de tokens) du refresh token ou de l'access token fourni
+     */
+    public boolean logout(String jeton) {
+        return jeton != null && jetonsService.revoquerSession(jeton);
     }
 
     /**
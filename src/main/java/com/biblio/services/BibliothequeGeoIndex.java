@@ -0,0 +1,163 @@
+package com.biblio.services;
+
+import com.biblio.dao.BibliothequeDAO;
+import com.biblio.entities.Bibliotheque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongPredicate;
+
+/**
+ * Index spatial en mémoire (k-d tree) des bibliothèques actives géolocalisées.
+ * Les points sont projetés sur la sphère unité (x, y, z) : la distance euclidienne y est monotone
+ * avec la distance orthodromique, ce qui rend l'élagage du k-d tree exact.
+ * L'arbre est immuable et remplacé en bloc à chaque modification d'une bibliothèque.
+ */
+@Service
+public class BibliothequeGeoIndex {
+    private static final Logger logger = LoggerFactory.getLogger(BibliothequeGeoIndex.class);
+    private static final double RAYON_TERRE_KM = 6371.0088;
+
+    private final BibliothequeDAO bibliothequeDAO;
+    private volatile Noeud racine;
+    private volatile int taille;
+
+    public BibliothequeGeoIndex(BibliothequeDAO bibliothequeDAO) {
+        this.bibliothequeDAO = bibliothequeDAO;
+    }
+
+    public record Resultat(Long bibliothequeId, String nom, String ville, double latitude, double longitude,
+                           double distanceKm) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rafraichir() {
+        List<Point> points = new ArrayList<>();
+        for (Bibliotheque b : bibliothequeDAO.findAllActives()) {
+            if (b.getLatitude() != null && b.getLongitude() != null) {
+                points.add(new Point(b.getId(), b.getNom(), b.getVille(), b.getLatitude(), b.getLongitude()));
+            }
+        }
+        this.racine = construire(points, 0);
+        this.taille = points.size();
+        logger.info("Index géographique reconstruit: {} bibliothèques", points.size());
+    }
+
+    /**
+     * Reconstruit l'index après le commit de la transaction courante (ou immédiatement hors transaction).
+     */
+    public void rafraichirApresCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rafraichir();
+                }
+            });
+        } else {
+            rafraichir();
+        }
+    }
+
+    public int getTaille() {
+        return taille;
+    }
+
+    /**
+     * Les {@code limite} bibliothèques les plus proches de (lat, lon) acceptées par le filtre, de la plus proche
+     * à la plus éloignée.
+     */
+    public List<Resultat> plusProches(double latitude, double longitude, LongPredicate filtre, int limite) {
+        Noeud arbre = this.racine;
+        if (arbre == null || limite <= 0) {
+            return List.of();
+        }
+        double[] cible = versCartesien(latitude, longitude);
+        // Tas max sur la distance : la tête est le candidat le plus éloigné retenu
+        PriorityQueue<Candidat> meilleurs = new PriorityQueue<>(Comparator.comparingDouble(Candidat::distance2).reversed());
+        rechercher(arbre, cible, filtre, limite, meilleurs);
+
+        List<Candidat> tries = new ArrayList<>(meilleurs);
+        tries.sort(Comparator.comparingDouble(Candidat::distance2));
+        List<Resultat> resultats = new ArrayList<>(tries.size());
+        for (Candidat c : tries) {
+            Point p = c.point();
+            resultats.add(new Resultat(p.id(), p.nom(), p.ville(), p.latitude(), p.longitude(),
+                    distanceKm(Math.sqrt(c.distance2()))));
+        }
+        return resultats;
+    }
+
+    private void rechercher(Noeud noeud, double[] cible, LongPredicate filtre, int limite, PriorityQueue<Candidat> meilleurs) {
+        if (noeud == null) {
+            return;
+        }
+        double d2 = distance2(noeud.point().xyz(), cible);
+        if (filtre.test(noeud.point().id())) {
+            if (meilleurs.size() < limite) {
+                meilleurs.add(new Candidat(noeud.point(), d2));
+            } else if (d2 < meilleurs.peek().distance2()) {
+                meilleurs.poll();
+                meilleurs.add(new Candidat(noeud.point(), d2));
+            }
+        }
+        double delta = cible[noeud.axe()] - noeud.point().xyz()[noeud.axe()];
+        Noeud proche = delta < 0 ? noeud.gauche() : noeud.droite();
+        Noeud loin = delta < 0 ? noeud.droite() : noeud.gauche();
+        rechercher(proche, cible, filtre, limite, meilleurs);
+        if (meilleurs.size() < limite || delta * delta < meilleurs.peek().distance2()) {
+            rechercher(loin, cible, filtre, limite, meilleurs);
+        }
+    }
+
+    private static Noeud construire(List<Point> points, int profondeur) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        int axe = profondeur % 3;
+        points.sort(Comparator.comparingDouble(p -> p.xyz()[axe]));
+        int median = points.size() / 2;
+        return new Noeud(points.get(median), axe,
+                construire(new ArrayList<>(points.subList(0, median)), profondeur + 1),
+                construire(new ArrayList<>(points.subList(median + 1, points.size())), profondeur + 1));
+    }
+
+    static double[] versCartesien(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        return new double[]{Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+    }
+
+    private static double distance2(double[] a, double[] b) {
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Corde sur la sphère unité -> distance orthodromique
+    private static double distanceKm(double corde) {
+        return 2 * Math.asin(Math.min(1.0, corde / 2)) * RAYON_TERRE_KM;
+    }
+
+    private record Point(Long id, String nom, String ville, double latitude, double longitude, double[] xyz) {
+        Point(Long id, String nom, String ville, double latitude, double longitude) {
+            this(id, nom, ville, latitude, longitude, versCartesien(latitude, longitude));
+        }
+    }
+
+    private record Noeud(Point point, int axe, Noeud gauche, Noeud droite) {
+    }
+
+    private record Candidat(Point point, double distance2) {
+    }
+}
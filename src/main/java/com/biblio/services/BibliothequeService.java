@@ -2,6 +2,9 @@ package com.biblio.services;
 
 import com.biblio.dao.BibliothequeDAO;
 import com.biblio.entities.Bibliotheque;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -18,13 +21,19 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
+@Observed(name = "biblio.service")
 public class BibliothequeService {
     private static final Logger logger = LoggerFactory.getLogger(BibliothequeService.class);
     
     private final BibliothequeDAO bibliothequeDAO;
+    private final BibliothequeGeoIndex geoIndex;
+    private final ObservationRegistry observationRegistry;
 
-    public BibliothequeService(BibliothequeDAO bibliothequeDAO) {
+    public BibliothequeService(BibliothequeDAO bibliothequeDAO, BibliothequeGeoIndex geoIndex,
+                               ObservationRegistry observationRegistry) {
         this.bibliothequeDAO = bibliothequeDAO;
+        this.geoIndex = geoIndex;
+        this.observationRegistry = observationRegistry;
     }
 
     /**
@@ -108,6 +117,7 @@ public class BibliothequeService {
 
         Bibliotheque saved = bibliothequeDAO.save(bibliotheque);
         logger.info("Bibliothèque créée: {} (ID: {})", nom, saved.getId());
+        geoIndex.rafraichirApresCommit();
         
         return saved;
     }
@@ -140,6 +150,7 @@ public class BibliothequeService {
 
         Bibliotheque updated = bibliothequeDAO.save(bibliotheque);
         logger.info("Bibliothèque mise à jour: {} (ID: {})", updated.getNom(), updated.getId());
+        geoIndex.rafraichirApresCommit();
         
         return updated;
     }
@@ -155,6 +166,7 @@ public class BibliothequeService {
         logger.info("Suppression de la bibliothèque: {} (ID: {})", bibliotheque.getNom(), bibliotheque.getId());
         
         bibliothequeDAO.delete(bibliotheque);
+        geoIndex.rafraichirApresCommit();
     }
 
     private Double[] geocodeAdresseVille(String adresse, String ville) {
@@ -167,7 +179,11 @@ public class BibliothequeService {
                     .header("User-Agent", "BiblioApp/1.0")
                     .GET()
                     .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            // Appel sortant tracé : span enfant de la création / mise à jour de la bibliothèque
+            HttpResponse<String> response = Observation.createNotStarted("biblio.geocodage", observationRegistry)
+                    .contextualName("GET " + request.uri().getHost())
+                    .lowCardinalityKeyValue("hote", request.uri().getHost())
+                    .observeChecked(() -> client.send(request, HttpResponse.BodyHandlers.ofString()));
             if (response.statusCode() == 200) {
                 ObjectMapper mapper = new ObjectMapper();
                 JsonNode root = mapper.readTree(response.body());
@@ -0,0 +1,286 @@
+package com.biblio.services;
+
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Ressource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Réponses JSON des listes du catalogue interrogées en boucle par les tableaux de bord (ressources, bibliothèques
+ * actives), sérialisées une fois par version du catalogue et par clé (périmètre + paramètres de la requête).
+ * <p>
+ * La version est incrémentée après chaque commit touchant une {@link Ressource} ou une {@link Bibliotheque}
+ * (événements Hibernate post-commit, comme {@link OeuvreIndex} : prêts, retours et réservations compris), par les
+ * écritures de {@link RessourceService}, par l'import JDBC et quand des miniatures deviennent disponibles.
+ * Une entrée d'une version antérieure n'est jamais servie ; la durée de vie borne l'écart avec les écritures
+ * faites par les autres instances.
+ * <p>
+ * L'ETag (fort) est l'empreinte SHA-256 du corps : un {@code If-None-Match} identique reçoit 304 sans
+ * reconstruction ni sérialisation.
+ * <p>
+ * Tomcat ne compresse pas une réponse portant un ETag fort : le corps est donc aussi compressé en gzip une fois
+ * par entrée, servi avec son propre ETag aux clients qui l'acceptent ({@code Vary: Accept-Encoding}).
+ */
+@Service
+public class CacheCatalogue {
+
+    private final JsonMapper jsonMapper;
+    private final EntityManagerFactory entityManagerFactory;
+    private final long dureeVieNanos;
+    private final int tailleMax;
+    private final long seuilGzip;
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Entree> entrees = new ConcurrentHashMap<>();
+    private final Counter trouves;
+    private final Counter manques;
+    private final Counter nonModifies;
+
+    public CacheCatalogue(JsonMapper jsonMapper,
+                          EntityManagerFactory entityManagerFactory,
+                          MiniatureService miniatureService,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.cache.catalogue.duree-vie:PT1M}") Duration dureeVie,
+                          @Value("${app.cache.catalogue.taille-max:256}") int tailleMax,
+                          @Value("${app.cache.catalogue.seuil-gzip:2KB}") DataSize seuilGzip) {
+        this.jsonMapper = jsonMapper;
+        this.entityManagerFactory = entityManagerFactory;
+        this.dureeVieNanos = dureeVie.toNanos();
+        this.tailleMax = tailleMax;
+        this.seuilGzip = seuilGzip.toBytes();
+        // Les URLs des miniatures passent de l'original aux dérivés une fois ceux-ci générés
+        miniatureService.surDerivesGeneres(this::invalider);
+        this.trouves = compteur(meterRegistry, "trouve");
+        this.manques = compteur(meterRegistry, "manque");
+        this.nonModifies = compteur(meterRegistry, "non-modifie");
+        Gauge.builder("biblio.cache.catalogue.entrees", entrees, Map::size)
+                .description("Réponses du catalogue en cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Corps JSON et son ETag, plus la variante gzip (nulle sous le seuil de compression)
+     */
+    public record Reponse(byte[] corps, String etag, byte[] corpsGzip, String etagGzip) {
+    }
+
+    private record Entree(long version, long creeLe, Reponse reponse) {
+    }
+
+    @PostConstruct
+    void enregistrerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        CatalogueCommitListener listener = new CatalogueCommitListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    /**
+     * Réponse en cache pour la clé, construite et sérialisée si absente, périmée ou d'une version antérieure
+     */
+    public Reponse obtenir(String cle, Supplier<?> construire) {
+        long versionLue = version.get();
+        long maintenant = System.nanoTime();
+        Entree entree = entrees.get(cle);
+        if (entree != null && entree.version() == versionLue && maintenant - entree.creeLe() < dureeVieNanos) {
+            trouves.increment();
+            return entree.reponse();
+        }
+        manques.increment();
+        byte[] corps = jsonMapper.writeValueAsBytes(construire.get());
+        String etag = etag(corps);
+        Reponse reponse = corps.length >= seuilGzip
+                ? new Reponse(corps, etag, gzip(corps), etag.substring(0, etag.length() - 1) + "-gzip\"")
+                : new Reponse(corps, etag, null, null);
+        // Une écriture validée pendant la construction : la réponse est servie mais pas conservée
+        if (version.get() == versionLue) {
+            if (entrees.size() >= tailleMax && !entrees.containsKey(cle)) {
+                entrees.clear();
+            }
+            entrees.put(cle, new Entree(versionLue, maintenant, reponse));
+        }
+        return reponse;
+    }
+
+    /**
+     * 304 si l'ETag correspond à {@code If-None-Match}, sinon le corps en cache ; le client doit revalider
+     * à chaque fois (no-cache), ce qui suffit à rendre les interrogations répétées quasi gratuites.
+     */
+    public ResponseEntity<byte[]> repondre(WebRequest webRequest, String cle, Supplier<?> construire) {
+        Reponse reponse = obtenir(cle, construire);
+        boolean gzip = reponse.corpsGzip() != null && accepteGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? reponse.etagGzip() : reponse.etag();
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        // checkNotModified pose déjà l'en-tête ETag sur la réponse 304
+        if (webRequest.checkNotModified(etag)) {
+            nonModifies.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? reponse.corpsGzip() : reponse.corps());
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public void invalider() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Invalide après le commit de la transaction courante (ou immédiatement hors transaction)
+     */
+    public void invaliderApresCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalider();
+                }
+            });
+        } else {
+            invalider();
+        }
+    }
+
+    private static String etag(byte[] corps) {
+        try {
+            byte[] empreinte = MessageDigest.getInstance("SHA-256").digest(corps);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(empreinte) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * gzip accepté par le client : cité sans {@code q=0}, ou couvert par {@code *}
+     */
+    static boolean accepteGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean etoile = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parties = element.split(";");
+            String codage = parties[0].trim();
+            boolean refuse = parties.length > 1 && parties[1].trim().matches("q=0(\\.0{0,3})?");
+            if (codage.equalsIgnoreCase("gzip")) {
+                return !refuse;
+            }
+            if (codage.equals("*")) {
+                etoile = !refuse;
+            }
+        }
+        return Boolean.TRUE.equals(etoile);
+    }
+
+    private static byte[] gzip(byte[] corps) {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(corps.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(sortie)) {
+            gzip.write(corps);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sortie.toByteArray();
+    }
+
+    private static Counter compteur(MeterRegistry meterRegistry, String resultat) {
+        return Counter.builder("biblio.cache.catalogue")
+                .tag("resultat", resultat)
+                .description("Requêtes sur les listes du catalogue par résultat du cache")
+                .register(meterRegistry);
+    }
+
+    private final class CatalogueCommitListener implements PostCommitInsertEventListener,
+            PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            Class<?> classe = persister.getMappedClass();
+            return Ressource.class.equals(classe) || Bibliotheque.class.equals(classe);
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Ressource || event.getEntity() instanceof Bibliotheque) {
+                invalider();
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof Ressource || event.getEntity() instanceof Bibliotheque) {
+                invalider();
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Ressource || event.getEntity() instanceof Bibliotheque) {
+                invalider();
+            }
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package com.biblio.services;
+
+import com.biblio.dao.RessourceDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.dto.CreateRessourceRequest;
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.enums.Categorie;
+import com.biblio.enums.TypeRessource;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Import en masse du catalogue d'une bibliothèque (CSV ou MARC 21).
+ * Le fichier est lu en flux par lots : validation des lignes en parallèle, unicité des ISBN contrôlée
+ * sur un ensemble préchargé, capacité de stock vérifiée en mémoire, puis écriture en batch JDBC,
+ * une transaction par lot.
+ */
+@Service
+public class CatalogueImportService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueImportService.class);
+    static final int MAX_ERREURS = 1000;
+    private static final String INSERT_SQL = "INSERT INTO ressources (titre, auteur, isbn, categorie, type_ressource, " +
+            "description, editeur, date_publication, nombre_exemplaires, exemplaires_disponibles, image_couverture, " +
+            "popularite, date_ajout, version, bibliotheque_id, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, 0, ?, ?)";
+
+    private final RessourceDAO ressourceDAO;
+    private final UserDAO userDAO;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final OeuvreIndex oeuvreIndex;
+    private final CacheCatalogue cacheCatalogue;
+    private final IdentifiantsService identifiantsService;
+    private final FileStorageService fileStorageService;
+    private final int tailleLot;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "catalogue-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CatalogueImportService(RessourceDAO ressourceDAO, UserDAO userDAO, JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager, Validator validator,
+                                  OeuvreIndex oeuvreIndex, CacheCatalogue cacheCatalogue,
+                                  IdentifiantsService identifiantsService,
+                                  FileStorageService fileStorageService,
+                                  @Value("${app.import.taille-lot:1000}") int tailleLot) {
+        this.ressourceDAO = ressourceDAO;
+        this.userDAO = userDAO;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.oeuvreIndex = oeuvreIndex;
+        this.cacheCatalogue = cacheCatalogue;
+        this.identifiantsService = identifiantsService;
+        this.fileStorageService = fileStorageService;
+        this.tailleLot = tailleLot;
+    }
+
+    public enum Format { CSV, MARC }
+
+    public enum StatutImport { EN_COURS, TERMINE, ECHEC }
+
+    public record ErreurLigne(int ligne, String message) {
+    }
+
+    /**
+     * Progression d'un import, consultable pendant son exécution.
+     */
+    public static final class ImportJob {
+        private final String id;
+        private final String bibliothecaireEmail;
+        private final Format format;
+        private final LocalDateTime debut = LocalDateTime.now();
+        private final AtomicInteger lignesLues = new AtomicInteger();
+        private final AtomicInteger importees = new AtomicInteger();
+        private final AtomicInteger rejetees = new AtomicInteger();
+        private final List<ErreurLigne> erreurs = Collections.synchronizedList(new ArrayList<>());
+        private volatile StatutImport statut = StatutImport.EN_COURS;
+        private volatile String message;
+        private volatile LocalDateTime fin;
+
+        ImportJob(String id, String bibliothecaireEmail, Format format) {
+            this.id = id;
+            this.bibliothecaireEmail = bibliothecaireEmail;
+            this.format = format;
+        }
+
+        void rejeter(int ligne, String motif) {
+            rejetees.incrementAndGet();
+            if (erreurs.size() < MAX_ERREURS) {
+                erreurs.add(new ErreurLigne(ligne, motif));
+            }
+        }
+
+        void terminer(StatutImport statut, String message) {
+            this.statut = statut;
+            this.message = message;
+            this.fin = LocalDateTime.now();
+        }
+
+        public String getId() { return id; }
+        public String getBibliothecaireEmail() { return bibliothecaireEmail; }
+        public Format getFormat() { return format; }
+        public LocalDateTime getDebut() { return debut; }
+        public LocalDateTime getFin() { return fin; }
+        public StatutImport getStatut() { return statut; }
+        public String getMessage() { return message; }
+        public int getLignesLues() { return lignesLues.get(); }
+        public int getImportees() { return importees.get(); }
+        public int getRejetees() { return rejetees.get(); }
+
+        public List<ErreurLigne> getErreurs() {
+            synchronized (erreurs) {
+                return List.copyOf(erreurs);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Démarre l'import en arrière-plan dans la bibliothèque du bibliothécaire. La catégorie et le type par défaut
+     * s'appliquent aux lignes qui n'en précisent pas (toujours le cas en MARC).
+     */
+    public ImportJob demarrerImport(MultipartFile fichier, Format format, Categorie categorieParDefaut,
+                                    TypeRessource typeParDefaut, String bibliothecaireEmail) throws IOException {
+        if (fichier == null || fichier.isEmpty()) {
+            throw new IllegalArgumentException("Le fichier d'import est vide");
+        }
+        Bibliotheque bibliotheque = bibliothequeDuBibliothecaire(bibliothecaireEmail);
+        Path temp = Files.createTempFile("catalogue-", format == Format.MARC ? ".mrc" : ".csv");
+        fichier.transferTo(temp);
+
+        // Les bilans d'import restent consultables une journée
+        jobs.values().removeIf(j -> j.getFin() != null && j.getFin().isBefore(LocalDateTime.now().minusDays(1)));
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), bibliothecaireEmail, format);
+        jobs.put(job.getId(), job);
+        executor.submit(() -> {
+            try (InputStream in = Files.newInputStream(temp)) {
+                importer(job, in, bibliotheque, categorieParDefaut, typeParDefaut);
+            } catch (Exception e) {
+                logger.error("Import {} échoué: {}", job.getId(), e.getMessage());
+                job.terminer(StatutImport.ECHEC, e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("Fichier temporaire non supprimé: {}", temp);
+                }
+            }
+        });
+        logger.info("Import {} ({}) démarré pour la bibliothèque {}", job.getId(), format, bibliotheque.getNom());
+        return job;
+    }
+
+    public ImportJob getJob(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Import introuvable: " + id);
+        }
+        return job;
+    }
+
+    private Bibliotheque bibliothequeDuBibliothecaire(String email) {
+        User bibliothecaire = userDAO.findByEmail(email)
+                .orElseThrow(() -> new IllegalArgumentException("Bibliothécaire non trouvé avec l'email: " + email));
+        if (!bibliothecaire.isBibliothecaire()) {
+            throw new IllegalArgumentException("Seuls les bibliothécaires peuvent importer des ressources");
+        }
+        if (bibliothecaire.getBibliotheque() == null) {
+            throw new IllegalArgumentException("Le bibliothécaire n'est associé à aucune bibliothèque");
+        }
+        return bibliothecaire.getBibliotheque();
+    }
+
+    void importer(ImportJob job, InputStream in, Bibliotheque bibliotheque,
+                  Categorie categorieParDefaut, TypeRessource typeParDefaut) throws IOException {
+        Contexte contexte = new Contexte(job, bibliotheque, categorieParDefaut, typeParDefaut);
+        for (String isbn : ressourceDAO.findAllIsbns()) {
+            contexte.isbns.add(cleIsbn(isbn));
+        }
+        contexte.stock = ressourceDAO.sumNombreExemplairesByBibliothequeId(bibliotheque.getId());
+
+        Iterator<LigneBrute> lignes = job.getFormat() == Format.MARC ? lireMarc(in) : lireCsv(in);
+        List<LigneBrute> lot = new ArrayList<>(tailleLot);
+        while (lignes.hasNext()) {
+            lot.add(lignes.next());
+            job.lignesLues.incrementAndGet();
+            if (lot.size() >= tailleLot) {
+                traiterLot(contexte, lot);
+                lot.clear();
+            }
+        }
+        if (!lot.isEmpty()) {
+            traiterLot(contexte, lot);
+        }
+        if (job.getImportees() > 0) {
+            // Les insertions JDBC échappent aux événements Hibernate
+            oeuvreIndex.charger();
+            cacheCatalogue.invalider();
+        }
+        job.terminer(StatutImport.TERMINE, null);
+        logger.info("Import {} terminé: {} importées, {} rejetées", job.getId(), job.getImportees(), job.getRejetees());
+    }
+
+    private void traiterLot(Contexte contexte, List<LigneBrute> lot) {
+        List<LigneValidee> validees = lot.parallelStream().map(l -> valider(l, contexte)).toList();
+
+        List<LigneValidee> acceptees = new ArrayList<>(validees.size());
+        int exemplairesLot = 0;
+        for (LigneValidee ligne : validees) {
+            if (ligne.erreur() != null) {
+                contexte.job.rejeter(ligne.numero(), ligne.erreur());
+                continue;
+            }
+            CreateRessourceRequest r = ligne.requete();
+            String cle = r.isbn() != null ? cleIsbn(r.isbn()) : null;
+            if (cle != null && contexte.isbns.contains(cle)) {
+                contexte.job.rejeter(ligne.numero(), "Une ressource avec cet ISBN existe déjà");
+                continue;
+            }
+            Integer capacite = contexte.bibliotheque.getCapaciteStock();
+            if (capacite != null && contexte.stock + exemplairesLot + r.nombreExemplaires() > capacite) {
+                contexte.job.rejeter(ligne.numero(), "Capacité de stockage de la bibliothèque dépassée (" + capacite + ")");
+                continue;
+            }
+            if (cle != null) {
+                contexte.isbns.add(cle);
+            }
+            exemplairesLot += r.nombreExemplaires();
+            acceptees.add(ligne);
+        }
+        if (acceptees.isEmpty()) {
+            return;
+        }
+
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        long premierId = identifiantsService.reserver(Ressource.class, acceptees.size());
+        List<Object[]> parametres = new ArrayList<>(acceptees.size());
+        for (int i = 0; i < acceptees.size(); i++) {
+            parametres.add(parametres(acceptees.get(i).requete(), contexte.bibliotheque.getId(), maintenant, premierId + i));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, parametres);
+                acceptees.forEach(l -> fileStorageService.ajouterReference(l.requete().imageCouverture()));
+            });
+            contexte.job.importees.addAndGet(acceptees.size());
+            contexte.stock += exemplairesLot;
+        } catch (DataAccessException e) {
+            // Lot refusé (conflit concurrent...) : ligne par ligne pour isoler les erreurs
+            logger.warn("Lot d'import refusé, reprise ligne par ligne: {}", e.getMessage());
+            for (int i = 0; i < acceptees.size(); i++) {
+                Object[] ligneParametres = parametres.get(i);
+                String imageCouverture = acceptees.get(i).requete().imageCouverture();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_SQL, ligneParametres);
+                        fileStorageService.ajouterReference(imageCouverture);
+                    });
+                    contexte.job.importees.incrementAndGet();
+                    contexte.stock += acceptees.get(i).requete().nombreExemplaires();
+                } catch (DataAccessException ex) {
+                    contexte.job.rejeter(acceptees.get(i).numero(), "Insertion refusée: " + ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private LigneValidee valider(LigneBrute ligne, Contexte contexte) {
+        if (ligne.erreur() != null) {
+            return new LigneValidee(ligne.numero(), null, ligne.erreur());
+        }
+        try {
+            Map<String, String> c = ligne.champs();
+            Integer nombreExemplaires = entier(c.get("nombreexemplaires"), "nombreExemplaires");
+            if (nombreExemplaires == null) {
+                nombreExemplaires = 1;
+            }
+            Integer disponibles = entier(c.get("exemplairesdisponibles"), "exemplairesDisponibles");
+            CreateRessourceRequest requete = new CreateRessourceRequest(
+                    c.get("titre"),
+                    c.get("auteur"),
+                    c.get("isbn"),
+                    valeurEnum(Categorie.class, c.get("categorie"), contexte.categorieParDefaut, Categorie::getDisplayName),
+                    valeurEnum(TypeRessource.class, c.get("typeressource"), contexte.typeParDefaut, TypeRessource::getDisplayName),
+                    c.get("description"),
+                    c.get("editeur"),
+                    date(c.get("datepublication")),
+                    nombreExemplaires,
+                    disponibles != null ? disponibles : nombreExemplaires,
+                    c.get("imagecouverture"));
+            Set<ConstraintViolation<CreateRessourceRequest>> violations = validator.validate(requete);
+            if (!violations.isEmpty()) {
+                return new LigneValidee(ligne.numero(), null, violations.iterator().next().getMessage());
+            }
+            if (requete.exemplairesDisponibles() > requete.nombreExemplaires()) {
+                return new LigneValidee(ligne.numero(), null, "Les exemplaires disponibles dépassent le nombre d'exemplaires");
+            }
+            return new LigneValidee(ligne.numero(), requete, null);
+        } catch (IllegalArgumentException e) {
+            return new LigneValidee(ligne.numero(), null, e.getMessage());
+        }
+    }
+
+    private static Object[] parametres(CreateRessourceRequest r, Long bibliothequeId, Timestamp dateAjout, long id) {
+        return new Object[]{
+                r.titre(), r.auteur(), r.isbn(), r.categorie().name(), r.typeRessource().name(),
+                r.description(), r.editeur(), r.datePublication() != null ? Date.valueOf(r.datePublication()) : null,
+                r.nombreExemplaires(), r.exemplairesDisponibles(), r.imageCouverture(), dateAjout, bibliothequeId, id
+        };
+    }
+
+    private Iterator<LigneBrute> lireCsv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        reader.mark(8192);
+        String entete = reader.readLine();
+        reader.reset();
+        char delimiteur = entete != null && entete.indexOf(';') >= 0 ? ';' : ',';
+
+        CSVParser parser = CSVFormat.DEFAULT.builder()
+                .setDelimiter(delimiteur)
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreEmptyLines(true)
+                .setTrim(true)
+                .build()
+                .parse(reader);
+        Iterator<CSVRecord> records = parser.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public LigneBrute next() {
+                CSVRecord record = records.next();
+                Map<String, String> champs = new HashMap<>();
+                record.toMap().forEach((colonne, valeur) -> {
+                    if (colonne != null && valeur != null && !valeur.isBlank()) {
+                        champs.put(colonne.trim().toLowerCase(Locale.ROOT), valeur);
+                    }
+                });
+                // +1 pour la ligne d'en-tête
+                return new LigneBrute((int) record.getRecordNumber() + 1, champs, null);
+            }
+        };
+    }
+
+    private Iterator<LigneBrute> lireMarc(InputStream in) {
+        MarcReader reader = new MarcReader(in);
+        AtomicInteger numero = new AtomicInteger();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return reader.hasNext();
+            }
+
+            @Override
+            public LigneBrute next() {
+                MarcReader.Notice notice = reader.next();
+                return new LigneBrute(numero.incrementAndGet(), notice.champs(), notice.erreur());
+            }
+        };
+    }
+
+    static String cleIsbn(String isbn) {
+        String normalise = OeuvreIndex.normaliserIsbn(isbn);
+        return normalise != null ? normalise : isbn.trim();
+    }
+
+    private static Integer entier(String valeur, String champ) {
+        if (valeur == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valeur.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valeur numérique invalide pour " + champ + ": " + valeur);
+        }
+    }
+
+    private static LocalDate date(String valeur) {
+        if (valeur == null) {
+            return null;
+        }
+        String v = valeur.trim();
+        try {
+            return v.matches("\\d{4}") ? LocalDate.of(Integer.parseInt(v), 1, 1) : LocalDate.parse(v);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Date de publication invalide: " + valeur);
+        }
+    }
+
+    private static <E extends Enum<E>> E valeurEnum(Class<E> type, String valeur, E parDefaut,
+                                                    java.util.function.Function<E, String> libelle) {
+        if (valeur == null) {
+            return parDefaut;
+        }
+        String cle = sansAccents(valeur);
+        for (E constante : type.getEnumConstants()) {
+            if (constante.name().equalsIgnoreCase(cle) || sansAccents(libelle.apply(constante)).equalsIgnoreCase(cle)) {
+                return constante;
+            }
+        }
+        throw new IllegalArgumentException("Valeur inconnue pour " + type.getSimpleName() + ": " + valeur);
+    }
+
+    private static String sansAccents(String valeur) {
+        return Normalizer.normalize(valeur.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    // erreur : ligne illisible (notice MARC mal formée), rejetée sans validation
+    private record LigneBrute(int numero, Map<String, String> champs, String erreur) {
+    }
+
+    private record LigneValidee(int numero, CreateRessourceRequest requete, String erreur) {
+    }
+
+    private static final class Contexte {
+        private final ImportJob job;
+        private final Bibliotheque bibliotheque;
+        private final Categorie categorieParDefaut;
+        private final TypeRessource typeParDefaut;
+        private final Set<String> isbns = new HashSet<>();
+        private int stock;
+
+        private Contexte(ImportJob job, Bibliotheque bibliotheque, Categorie categorieParDefaut, TypeRessource typeParDefaut) {
+            this.job = job;
+            this.bibliotheque = bibliotheque;
+            this.categorieParDefaut = categorieParDefaut;
+            this.typeParDefaut = typeParDefaut;
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.biblio.services;
 
 import com.biblio.dao.UserDAO;
+import com.biblio.entities.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+/**
+ * Chargement des comptes pour Spring Security, et ré-hachage du mot de passe après un login réussi
+ * lorsque le coût BCrypt configuré a changé (appelé par DaoAuthenticationProvider).
+ */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+    private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
     private final UserDAO userDAO;
 
     public CustomUserDetailsService(UserDAO userDAO) {
@@ -19,4 +28,12 @@ public class CustomUserDetailsService implements UserDetailsService {
         return userDAO.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur introuvable: " + username));
     }
+
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = (User) userDetails;
+        user.setMotDePasse(newPassword);
+        logger.info("Mot de passe de {} ré-haché avec le coût configuré", user.getEmail());
+        return userDAO.save(user);
+    }
 }
@@ -0,0 +1,223 @@
+package com.biblio.services;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Diffusion des fichiers envoyés ({@code /uploads/**}) : requêtes conditionnelles (ETag, Last-Modified),
+ * plages d'octets pour la lecture progressive des extraits audio et vidéo, cache client d'un an.
+ * Le corps est transmis sans copie en espace utilisateur : par sendfile lorsque le connecteur Tomcat le propose,
+ * sinon par {@link FileChannel#transferTo} vers le flux de la réponse.
+ * Avec un stockage distant, le client est redirigé vers une URL pré-signée et lit le fichier directement.
+ */
+@Service
+public class DiffusionFichiersService {
+
+    // Attributs de requête du connecteur Tomcat (NIO/NIO2) pour déléguer l'envoi du fichier à sendfile
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FICHIER = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_DEBUT = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private static final Pattern NOM_CONTENU = Pattern.compile("^[0-9a-f]{64}");
+    // Un fichier envoyé n'est jamais réécrit (nom = empreinte du contenu, ou UUID pour les anciens envois)
+    private static final String CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePublic().immutable().getHeaderValue();
+
+    private final StorageBackend storageBackend;
+    private final long seuilSendfile;
+    private final Duration validiteUrl;
+
+    @Autowired
+    public DiffusionFichiersService(StorageBackend storageBackend,
+                                    @Value("${app.uploads.sendfile-seuil:48KB}") DataSize seuilSendfile,
+                                    @Value("${app.stockage.validite-url:PT15M}") Duration validiteUrl) {
+        this(storageBackend, seuilSendfile.toBytes(), validiteUrl);
+    }
+
+    DiffusionFichiersService(StorageBackend storageBackend, long seuilSendfile, Duration validiteUrl) {
+        this.storageBackend = storageBackend;
+        this.seuilSendfile = seuilSendfile;
+        this.validiteUrl = validiteUrl;
+    }
+
+    /**
+     * Répond à un GET ou HEAD sur le fichier {@code chemin}, relatif à {@code uploads/}.
+     */
+    public void servir(String chemin, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!cheminValide(chemin)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Optional<URI> urlSignee = storageBackend.urlSignee(chemin, validiteUrl);
+        if (urlSignee.isPresent()) {
+            // L'URL change à chaque signature : la redirection n'est gardée que la moitié de sa validité
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(validiteUrl.dividedBy(2))
+                    .cachePrivate().getHeaderValue());
+            response.setStatus(HttpServletResponse.SC_FOUND);
+            response.setHeader(HttpHeaders.LOCATION, urlSignee.get().toString());
+            return;
+        }
+        Path fichier = storageBackend.fichierLocal(chemin).orElse(null);
+        BasicFileAttributes attributs = null;
+        if (fichier != null) {
+            try {
+                attributs = Files.readAttributes(fichier, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (NoSuchFileException e) {
+                // 404 ci-dessous
+            }
+        }
+        if (attributs == null || !attributs.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long longueur = attributs.size();
+        long derniereModification = attributs.lastModifiedTime().toMillis();
+        String etag = etag(fichier.getFileName().toString(), derniereModification, longueur);
+        // Positionne ETag et Last-Modified, et répond 304 (ou 412) si la copie du client est à jour
+        if (new ServletWebRequest(request, response).checkNotModified(etag, derniereModification)) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(fichier.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long debut = 0;
+        long fin = longueur - 1;
+        HttpRange plage = plage(request, etag, derniereModification);
+        if (plage != null) {
+            try {
+                debut = plage.getRangeStart(longueur);
+                fin = plage.getRangeEnd(longueur);
+            } catch (IllegalArgumentException e) {
+                debut = longueur;
+            }
+            if (debut >= longueur || debut > fin) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + longueur);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + debut + "-" + fin + "/" + longueur);
+        }
+        long taille = fin - debut + 1;
+        response.setContentLengthLong(taille);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || taille == 0) {
+            return;
+        }
+        if (taille >= seuilSendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Le connecteur écrit le fichier directement sur la socket une fois la méthode terminée
+            request.setAttribute(SENDFILE_FICHIER, fichier.toString());
+            request.setAttribute(SENDFILE_DEBUT, debut);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+        try (FileChannel source = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            WritableByteChannel destination = Channels.newChannel(response.getOutputStream());
+            long position = debut;
+            long restant = taille;
+            while (restant > 0) {
+                long transferes = source.transferTo(position, restant, destination);
+                if (transferes <= 0) {
+                    // Fichier tronqué depuis la lecture des attributs
+                    throw new IOException("Fin de fichier inattendue: " + chemin);
+                }
+                position += transferes;
+                restant -= transferes;
+            }
+        }
+    }
+
+    /**
+     * Plage demandée, ou {@code null} pour envoyer tout le fichier : pas d'en-tête Range, en-tête invalide,
+     * If-Range qui ne correspond plus au fichier, ou plusieurs plages (réponse multipart non proposée,
+     * les lecteurs multimédia ne demandent qu'une plage à la fois).
+     */
+    private static HttpRange plage(HttpServletRequest request, String etag, long derniereModification) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !HttpMethod.GET.matches(request.getMethod())) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals("\"" + etag + "\"")) {
+                    return null;
+                }
+            } else {
+                long date;
+                try {
+                    date = request.getDateHeader(HttpHeaders.IF_RANGE);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+                if (date / 1000 != derniereModification / 1000) {
+                    return null;
+                }
+            }
+        }
+        List<HttpRange> plages;
+        try {
+            plages = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return plages.size() == 1 ? plages.get(0) : null;
+    }
+
+    private static boolean cheminValide(String chemin) {
+        if (chemin == null || chemin.isEmpty() || chemin.contains("\\")) {
+            return false;
+        }
+        for (String segment : chemin.split("/")) {
+            // Fichiers cachés : temporaires des dépôts en cours ; exclut aussi ".."
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ETag d'un fichier envoyé : l'empreinte portée par son nom (dérivés compris, {@code <sha256>-carte}),
+     * à défaut date de modification et taille.
+     */
+    static String etag(String nom, long derniereModification, long taille) {
+        if (NOM_CONTENU.matcher(nom).find()) {
+            int point = nom.lastIndexOf('.');
+            return point > 0 ? nom.substring(0, point) : nom;
+        }
+        return Long.toHexString(derniereModification) + "-" + Long.toHexString(taille);
+    }
+}
@@ -1,5 +1,7 @@
 package com.biblio.services;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.observation.annotation.Observed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,8 +12,11 @@ import org.springframework.stereotype.Service;
 /**
  * Service pour l'envoi d'emails.
  * Gère l'envoi d'emails de vérification et autres notifications.
+ * Chaque envoi est chronométré (histogramme biblio.email.envoi, étiqueté par méthode) : l'envoi SMTP est synchrone.
  */
 @Service
+@Observed(name = "biblio.service")
+@Timed(value = "biblio.email.envoi", histogram = true)
 public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
     
@@ -146,6 +151,37 @@ public class EmailService {
         }
     }
 
+    public void sendPretRetardEmail(String toEmail, String nom, String prenom, java.util.List<String> titresRessources, String penaliteDisplay) {
+        try {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(fromEmail);
+            message.setTo(toEmail);
+            message.setSubject("Prêt en retard - Biblio");
+            StringBuilder titres = new StringBuilder();
+            for (String titre : titresRessources) {
+                titres.append("  - ").append(titre != null ? titre : "Ressource").append("\n");
+            }
+            String body = String.format(
+                "Bonjour %s %s,\n\n" +
+                "La date de retour prévue est dépassée pour :\n" +
+                "%s\n" +
+                "Ces prêts sont désormais bloqués et une pénalité de retard s'applique chaque jour (%s à ce jour).\n" +
+                "Aucune nouvelle réservation n'est possible tant que ces livres ne sont pas rendus.\n\n" +
+                "Cordialement,\n" +
+                "Votre bibliothèque",
+                prenom, nom,
+                titres,
+                penaliteDisplay != null ? penaliteDisplay : "0.00"
+            );
+            message.setText(body);
+            mailSender.send(message);
+            logger.info("Email de retard envoyé à : {}", toEmail);
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'envoi de l'email de retard à {} : {}", toEmail, e.getMessage(), e);
+            throw new RuntimeException("Impossible d'envoyer l'email de retard", e);
+        }
+    }
+
     public void sendReservationRejectedEmail(String toEmail, String nom, String prenom, String titreRessource, String bibliothequeNom) {
         try {
             SimpleMailMessage message = new SimpleMailMessage();
@@ -0,0 +1,514 @@
+package com.biblio.services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Envoi de fichiers en flux, sans bloquer les threads du serveur : le corps de la requête est lu en mode
+ * non bloquant ({@link ReadListener}) et écrit par {@link AsynchronousFileChannel}, un morceau à la fois.
+ * Le type est reconnu sur les premiers octets (signature), indépendamment du type annoncé par le client.
+ * Chaque utilisateur est limité en taille de fichier, en nombre d'envois simultanés et en volume envoyé par jour.
+ */
+@Service
+public class EnvoiFichierService {
+    private static final Logger logger = LoggerFactory.getLogger(EnvoiFichierService.class);
+
+    private static final int TAILLE_MORCEAU = 64 * 1024;
+    // Octets nécessaires pour reconnaître toutes les signatures ci-dessous
+    static final int TAILLE_SIGNATURE = 12;
+
+    public enum StatutEnvoi { EN_ATTENTE, EN_COURS, TERMINE, REJETE }
+
+    /**
+     * Types acceptés, reconnus par leur signature ; l'extension stockée est celle du type reconnu.
+     */
+    public enum TypeFichier {
+        JPEG("image/jpeg", ".jpg"),
+        PNG("image/png", ".png"),
+        GIF("image/gif", ".gif"),
+        WEBP("image/webp", ".webp"),
+        MP3("audio/mpeg", ".mp3"),
+        OGG("audio/ogg", ".ogg"),
+        FLAC("audio/flac", ".flac"),
+        WAV("audio/wav", ".wav"),
+        M4A("audio/mp4", ".m4a"),
+        MP4("video/mp4", ".mp4"),
+        PDF("application/pdf", ".pdf");
+
+        private final String typeContenu;
+        private final String extension;
+
+        TypeFichier(String typeContenu, String extension) {
+            this.typeContenu = typeContenu;
+            this.extension = extension;
+        }
+
+        public String getTypeContenu() { return typeContenu; }
+        public String getExtension() { return extension; }
+    }
+
+    /**
+     * Progression d'un envoi, consultable pendant son exécution.
+     */
+    public static final class Envoi {
+        private final String id;
+        private final String utilisateur;
+        private final long taille;
+        private final LocalDateTime debut = LocalDateTime.now();
+        private final AtomicLong recus = new AtomicLong();
+        private final AtomicReference<StatutEnvoi> statut = new AtomicReference<>(StatutEnvoi.EN_ATTENTE);
+        private volatile TypeFichier type;
+        private volatile String url;
+        private volatile String message;
+        private volatile LocalDateTime derniereActivite = LocalDateTime.now();
+        private volatile LocalDateTime fin;
+        private volatile Reception reception;
+
+        Envoi(String id, String utilisateur, long taille) {
+            this.id = id;
+            this.utilisateur = utilisateur;
+            this.taille = taille;
+        }
+
+        /**
+         * Passe de {@code attendu} à {@code statut} final ; sans effet (false) si l'envoi a déjà changé d'état,
+         * de sorte qu'un abandon et la fin de la réception ne s'écrasent pas.
+         */
+        private boolean terminer(StatutEnvoi attendu, StatutEnvoi statut, String message) {
+            if (!this.statut.compareAndSet(attendu, statut)) {
+                return false;
+            }
+            this.message = message;
+            this.fin = LocalDateTime.now();
+            return true;
+        }
+
+        private boolean rejeter(String message) {
+            return terminer(StatutEnvoi.EN_ATTENTE, StatutEnvoi.REJETE, message)
+                    || terminer(StatutEnvoi.EN_COURS, StatutEnvoi.REJETE, message);
+        }
+
+        boolean actif() {
+            StatutEnvoi courant = statut.get();
+            return courant == StatutEnvoi.EN_ATTENTE || courant == StatutEnvoi.EN_COURS;
+        }
+
+        public String getId() { return id; }
+        public String getUtilisateur() { return utilisateur; }
+        public long getTaille() { return taille; }
+        public long getRecus() { return recus.get(); }
+        public LocalDateTime getDebut() { return debut; }
+        public LocalDateTime getFin() { return fin; }
+        public StatutEnvoi getStatut() { return statut.get(); }
+        public TypeFichier getType() { return type; }
+        // Écrite avant le passage à TERMINE, visible seulement une fois l'envoi réussi
+        public String getUrl() { return statut.get() == StatutEnvoi.TERMINE ? url : null; }
+        public String getMessage() { return message; }
+
+        public int getPourcentage() {
+            return (int) (recus.get() * 100 / taille);
+        }
+    }
+
+    private final FileStorageService fileStorageService;
+    private final MiniatureService miniatureService;
+    private final long tailleMax;
+    private final long quotaJournalier;
+    private final int envoisSimultanes;
+    private final Duration delaiInactivite;
+    private final ExecutorService executor;
+    private final Map<String, Envoi> envois = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EnvoiFichierService(FileStorageService fileStorageService, MiniatureService miniatureService,
+                               @Value("${app.uploads.taille-max:50MB}") DataSize tailleMax,
+                               @Value("${app.uploads.quota-journalier:500MB}") DataSize quotaJournalier,
+                               @Value("${app.uploads.envois-simultanes:2}") int envoisSimultanes,
+                               @Value("${app.uploads.delai-inactivite:PT5M}") Duration delaiInactivite,
+                               @Value("${app.uploads.threads:4}") int threads) {
+        this(fileStorageService, miniatureService, tailleMax.toBytes(), quotaJournalier.toBytes(), envoisSimultanes,
+                delaiInactivite, Executors.newFixedThreadPool(threads, new ThreadFactoryEnvois()));
+    }
+
+    EnvoiFichierService(FileStorageService fileStorageService, MiniatureService miniatureService, long tailleMax,
+                        long quotaJournalier, int envoisSimultanes, Duration delaiInactivite, ExecutorService executor) {
+        this.fileStorageService = fileStorageService;
+        this.miniatureService = miniatureService;
+        this.tailleMax = tailleMax;
+        this.quotaJournalier = quotaJournalier;
+        this.envoisSimultanes = envoisSimultanes;
+        this.delaiInactivite = delaiInactivite;
+        this.executor = executor;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Réserve un envoi de {@code taille} octets pour l'utilisateur.
+     *
+     * @throws IllegalArgumentException taille nulle ou au-delà de la limite
+     * @throws IllegalStateException    trop d'envois en cours ou quota journalier atteint pour cet utilisateur
+     */
+    public Envoi ouvrir(String utilisateur, long taille) {
+        if (taille <= 0) {
+            throw new IllegalArgumentException("La taille du fichier est requise");
+        }
+        if (taille > tailleMax) {
+            throw new IllegalArgumentException("Fichier trop volumineux: " + DataSize.ofBytes(taille).toMegabytes()
+                    + " Mo (maximum " + DataSize.ofBytes(tailleMax).toMegabytes() + " Mo)");
+        }
+        purger();
+        synchronized (envois) {
+            long enCours = envois.values().stream()
+                    .filter(e -> e.actif() && e.getUtilisateur().equals(utilisateur))
+                    .count();
+            // Volume des envois réservés ou réussis sur les dernières 24 h (bilans gardés une journée)
+            long volume = envois.values().stream()
+                    .filter(e -> e.getUtilisateur().equals(utilisateur) && e.getStatut() != StatutEnvoi.REJETE)
+                    .mapToLong(Envoi::getTaille)
+                    .sum();
+            if (volume + taille > quotaJournalier) {
+                throw new IllegalStateException("Quota d'envoi journalier atteint (maximum "
+                        + DataSize.ofBytes(quotaJournalier).toMegabytes() + " Mo)");
+            }
+            if (enCours >= envoisSimultanes) {
+                throw new IllegalStateException("Trop d'envois simultanés (maximum " + envoisSimultanes + ")");
+            }
+            Envoi envoi = new Envoi(UUID.randomUUID().toString(), utilisateur, taille);
+            envois.put(envoi.getId(), envoi);
+            return envoi;
+        }
+    }
+
+    public Envoi getEnvoi(String id, String utilisateur) {
+        Envoi envoi = envois.get(id);
+        if (envoi == null || !envoi.getUtilisateur().equals(utilisateur)) {
+            throw new IllegalArgumentException("Envoi introuvable: " + id);
+        }
+        return envoi;
+    }
+
+    // Envois abandonnés (client parti sans finir) : libèrent leur place ; bilans gardés une journée
+    private void purger() {
+        LocalDateTime limite = LocalDateTime.now().minus(delaiInactivite);
+        envois.values().stream()
+                .filter(e -> e.actif() && e.derniereActivite.isBefore(limite))
+                .forEach(e -> abandonner(e, "Envoi abandonné"));
+        envois.values().removeIf(e -> e.getFin() != null && e.getFin().isBefore(LocalDateTime.now().minusDays(1)));
+    }
+
+    /**
+     * Abandonne un envoi en cours (délai dépassé, connexion perdue) : la réception s'arrête, le fichier temporaire
+     * est fermé et supprimé, et l'envoi ne peut plus aboutir.
+     */
+    public void abandonner(Envoi envoi, String motif) {
+        if (!envoi.rejeter(motif)) {
+            return;
+        }
+        Reception reception = envoi.reception;
+        if (reception != null) {
+            reception.annuler(motif);
+        }
+    }
+
+    /**
+     * Reçoit le contenu de l'envoi depuis le flux de la requête, en mode asynchrone ({@code startAsync} déjà appelé).
+     * Le résultat est l'envoi terminé, avec l'URL du fichier stocké ; il échoue avec une
+     * {@link IllegalArgumentException} si le contenu est refusé.
+     */
+    public CompletableFuture<Envoi> recevoir(Envoi envoi, ServletInputStream in) throws IOException {
+        if (!envoi.statut.compareAndSet(StatutEnvoi.EN_ATTENTE, StatutEnvoi.EN_COURS)) {
+            throw new IllegalStateException("Envoi déjà reçu: " + envoi.getId());
+        }
+        Path temporaire = fileStorageService.fichierTemporaire();
+        AsynchronousFileChannel canal;
+        try {
+            canal = AsynchronousFileChannel.open(temporaire, Set.of(StandardOpenOption.WRITE), executor);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaire);
+            envoi.rejeter(e.getMessage());
+            throw e;
+        }
+        Reception reception = new Reception(envoi, in, canal, temporaire);
+        envoi.reception = reception;
+        if (!envoi.actif()) {
+            // Abandonné pendant l'ouverture du fichier temporaire
+            reception.annuler(envoi.getMessage());
+            return reception.resultat;
+        }
+        in.setReadListener(reception);
+        return reception.resultat;
+    }
+
+    /**
+     * Type reconnu d'après les premiers octets du fichier, {@code null} si le type n'est pas accepté.
+     */
+    static TypeFichier detecter(byte[] debut, int longueur) {
+        if (commence(debut, longueur, 0, 0xFF, 0xD8, 0xFF)) return TypeFichier.JPEG;
+        if (commence(debut, longueur, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return TypeFichier.PNG;
+        if (commence(debut, longueur, 0, 'G', 'I', 'F', '8')) return TypeFichier.GIF;
+        if (commence(debut, longueur, 0, 'R', 'I', 'F', 'F')) {
+            if (commence(debut, longueur, 8, 'W', 'E', 'B', 'P')) return TypeFichier.WEBP;
+            if (commence(debut, longueur, 8, 'W', 'A', 'V', 'E')) return TypeFichier.WAV;
+            return null;
+        }
+        if (commence(debut, longueur, 0, 'I', 'D', '3')) return TypeFichier.MP3;
+        // Trame MPEG audio sans étiquette ID3 : 11 bits de synchronisation
+        if (longueur >= 2 && (debut[0] & 0xFF) == 0xFF && (debut[1] & 0xE0) == 0xE0) return TypeFichier.MP3;
+        if (commence(debut, longueur, 0, 'O', 'g', 'g', 'S')) return TypeFichier.OGG;
+        if (commence(debut, longueur, 0, 'f', 'L', 'a', 'C')) return TypeFichier.FLAC;
+        if (commence(debut, longueur, 4, 'f', 't', 'y', 'p')) {
+            return commence(debut, longueur, 8, 'M', '4', 'A') ? TypeFichier.M4A : TypeFichier.MP4;
+        }
+        if (commence(debut, longueur, 0, '%', 'P', 'D', 'F', '-')) return TypeFichier.PDF;
+        return null;
+    }
+
+    private static boolean commence(byte[] donnees, int longueur, int decalage, int... signature) {
+        if (longueur < decalage + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((donnees[decalage + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Transfert d'un envoi : une lecture non bloquante, puis l'écriture asynchrone du morceau lu,
+     * dont la fin relance la lecture. Une seule opération est en cours à la fois.
+     */
+    private final class Reception implements ReadListener, CompletionHandler<Integer, ByteBuffer> {
+        private final Envoi envoi;
+        private final ServletInputStream in;
+        private final AsynchronousFileChannel canal;
+        private final Path temporaire;
+        private final byte[] morceau = new byte[TAILLE_MORCEAU];
+        private final byte[] signature = new byte[TAILLE_SIGNATURE];
+        private final MessageDigest sha256;
+        private final CompletableFuture<Envoi> resultat = new CompletableFuture<>();
+        private long position;
+        private boolean ecritureEnCours;
+        private boolean finDuFlux;
+        private boolean termine;
+
+        Reception(Envoi envoi, ServletInputStream in, AsynchronousFileChannel canal, Path temporaire) {
+            this.envoi = envoi;
+            this.in = in;
+            this.canal = canal;
+            this.temporaire = temporaire;
+            try {
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void onDataAvailable() {
+            lire();
+        }
+
+        @Override
+        public void onAllDataRead() {
+            synchronized (this) {
+                finDuFlux = true;
+            }
+            lire();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            echouer(new IOException("Connexion interrompue", t));
+        }
+
+        private synchronized void lire() {
+            try {
+                while (!termine && !ecritureEnCours && !finDuFlux && in.isReady()) {
+                    int lus = in.read(morceau);
+                    if (lus == -1) {
+                        finDuFlux = true;
+                    } else if (lus > 0) {
+                        accepter(lus);
+                    }
+                }
+                if (!termine && !ecritureEnCours && finDuFlux) {
+                    termine = true;
+                    fermer();
+                    executor.execute(this::publier);
+                }
+            } catch (IOException | RuntimeException e) {
+                echouer(e);
+            }
+        }
+
+        private void accepter(int lus) throws IOException {
+            long avant = envoi.recus.get();
+            long recus = avant + lus;
+            if (recus > envoi.getTaille()) {
+                throw new IllegalArgumentException("Le fichier dépasse la taille annoncée (" + envoi.getTaille() + " octets)");
+            }
+            if (avant < TAILLE_SIGNATURE) {
+                int copie = (int) Math.min(lus, TAILLE_SIGNATURE - avant);
+                System.arraycopy(morceau, 0, signature, (int) avant, copie);
+                if (avant + copie == TAILLE_SIGNATURE || recus == envoi.getTaille()) {
+                    verifierType((int) (avant + copie));
+                }
+            }
+            envoi.recus.set(recus);
+            envoi.derniereActivite = LocalDateTime.now();
+            sha256.update(morceau, 0, lus);
+            ecritureEnCours = true;
+            ByteBuffer tampon = ByteBuffer.wrap(morceau, 0, lus);
+            canal.write(tampon, position, tampon, this);
+        }
+
+        private void verifierType(int longueur) {
+            TypeFichier type = detecter(signature, longueur);
+            if (type == null) {
+                throw new IllegalArgumentException("Type de fichier non autorisé");
+            }
+            envoi.type = type;
+        }
+
+        @Override
+        public void completed(Integer ecrits, ByteBuffer tampon) {
+            synchronized (this) {
+                position += ecrits;
+                if (tampon.hasRemaining()) {
+                    canal.write(tampon, position, tampon, this);
+                    return;
+                }
+                ecritureEnCours = false;
+            }
+            // Morceau écrit : le tampon est libre pour la lecture suivante
+            lire();
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer tampon) {
+            echouer(exc);
+        }
+
+        private void fermer() {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                logger.warn("Fermeture du fichier temporaire {} impossible: {}", temporaire, e.getMessage());
+            }
+        }
+
+        private void publier() {
+            try {
+                if (!envoi.actif()) {
+                    return;
+                }
+                if (envoi.getRecus() != envoi.getTaille()) {
+                    throw new IllegalArgumentException("Envoi incomplet: " + envoi.getRecus() + " octets reçus sur "
+                            + envoi.getTaille());
+                }
+                TypeFichier type = envoi.getType();
+                String hash = HexFormat.of().formatHex(sha256.digest());
+                String chemin = fileStorageService.publier(temporaire, hash, type.getExtension(), type.getTypeContenu());
+                if (type.getTypeContenu().startsWith("image/")) {
+                    miniatureService.genererDerives(chemin);
+                }
+                envoi.url = FileStorageService.PREFIXE_URL + chemin;
+                if (!envoi.terminer(StatutEnvoi.EN_COURS, StatutEnvoi.TERMINE, null)) {
+                    logger.debug("Envoi {} abandonné pendant sa publication", envoi.getId());
+                    return;
+                }
+                logger.debug("Envoi {} terminé: {} octets, {}", envoi.getId(), envoi.getTaille(), chemin);
+                resultat.complete(envoi);
+            } catch (Exception e) {
+                echouer(e);
+            } finally {
+                supprimerTemporaire();
+            }
+        }
+
+        private void echouer(Throwable erreur) {
+            synchronized (this) {
+                termine = true;
+            }
+            fermer();
+            supprimerTemporaire();
+            if (!envoi.rejeter(erreur.getMessage())) {
+                // Déjà abandonné : canal fermé sous une écriture en cours
+                return;
+            }
+            if (!(erreur instanceof IllegalArgumentException)) {
+                logger.warn("Envoi {} interrompu: {}", envoi.getId(), erreur.getMessage());
+            }
+            resultat.completeExceptionally(erreur);
+        }
+
+        /**
+         * Arrêt demandé de l'extérieur (envoi déjà passé à REJETE) : plus aucune lecture ni écriture
+         */
+        void annuler(String motif) {
+            synchronized (this) {
+                termine = true;
+            }
+            fermer();
+            supprimerTemporaire();
+            resultat.completeExceptionally(new CancellationException(motif));
+        }
+
+        private void supprimerTemporaire() {
+            try {
+                Files.deleteIfExists(temporaire);
+            } catch (IOException e) {
+                logger.warn("Fichier temporaire non supprimé: {}", temporaire);
+            }
+        }
+    }
+
+    private static final class ThreadFactoryEnvois implements ThreadFactory {
+        private final AtomicInteger compteur = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "envois-fichiers-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
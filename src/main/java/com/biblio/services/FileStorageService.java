@@ -1,27 +1,70 @@
 package com.biblio.services;
 
+import com.biblio.dao.FichierStockeDAO;
+import com.biblio.entities.FichierStocke;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
+/**
+ * Stockage des fichiers envoyés par contenu : le nom est l'empreinte SHA-256 des octets, répartie sur deux
+ * niveaux de répertoires ({@code uploads/ab/cd/abcd...ef.png}). Un contenu déjà présent n'est pas réécrit,
+ * et un fichier donné ne change jamais, ce qui permet de le mettre en cache sans limite côté client.
+ */
 @Service
 public class FileStorageService {
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
-    private final Path rootLocation = Paths.get("uploads");
+    static final String PREFIXE_URL = "/uploads/";
+    private static final Pattern CHEMIN_CONTENU = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+    private static final int TAILLE_TAMPON = 64 * 1024;
+    private static final int LOT_NETTOYAGE = 500;
 
-    public FileStorageService() {
-        try {
-            Files.createDirectories(rootLocation);
-        } catch (IOException e) {
-            throw new RuntimeException("Could not initialize storage", e);
-        }
+    private final StorageBackend storageBackend;
+    private final FichierStockeDAO fichierStockeDAO;
+    private final MiniatureService miniatureService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retentionOrphelins;
+
+    public FileStorageService(StorageBackend storageBackend, FichierStockeDAO fichierStockeDAO,
+                              MiniatureService miniatureService, PlatformTransactionManager transactionManager,
+                              @Value("${app.uploads.retention-orphelins:PT24H}") Duration retentionOrphelins) {
+        this.storageBackend = storageBackend;
+        this.fichierStockeDAO = fichierStockeDAO;
+        this.miniatureService = miniatureService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionOrphelins = retentionOrphelins;
     }
 
+    /**
+     * Stocke le fichier et retourne son chemin relatif à {@code uploads/}. L'empreinte est calculée pendant
+     * la copie vers un fichier temporaire, déposé ensuite dans le stockage s'il n'y existe pas déjà.
+     */
+    @Transactional
     public String store(MultipartFile file) {
         try {
             if (file.isEmpty()) {
@@ -39,24 +82,143 @@ public class FileStorageService {
 
             String extension = "";
             if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            
-            String filename = UUID.randomUUID().toString() + extension;
-            Path destinationFile = this.rootLocation.resolve(Paths.get(filename))
-                    .normalize().toAbsolutePath();
-            
-            if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
-                // This is a security check
-                throw new RuntimeException("Cannot store file outside current directory.");
+                extension = originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase(Locale.ROOT);
+                if (!EXTENSION.matcher(extension).matches()) {
+                    extension = "";
+                }
             }
-            
-            try (var inputStream = file.getInputStream()) {
-                Files.copy(inputStream, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+
+            Path temporaire = storageBackend.fichierTemporaire();
+            try {
+                String hash = copierEtHacher(file, temporaire);
+                return publier(temporaire, hash, extension, file.getContentType());
+            } finally {
+                Files.deleteIfExists(temporaire);
             }
-            return filename;
         } catch (IOException e) {
             throw new RuntimeException("Failed to store file.", e);
         }
     }
+
+    /**
+     * Fichier temporaire où écrire un contenu à publier par {@link #publier}.
+     */
+    public Path fichierTemporaire() throws IOException {
+        return storageBackend.fichierTemporaire();
+    }
+
+    /**
+     * Publie un contenu déjà écrit dans un fichier temporaire, d'empreinte SHA-256 {@code hash}, et retourne
+     * son chemin relatif à {@code uploads/}. Le fichier temporaire est consommé s'il est déposé.
+     */
+    @Transactional
+    public String publier(Path temporaire, String hash, String extension, String typeContenu) throws IOException {
+        String chemin = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+
+        // La ligne est écrite avant le fichier : son verrou sérialise cet envoi avec un nettoyage concurrent
+        enregistrer(chemin, Files.size(temporaire), typeContenu);
+        if (storageBackend.existe(chemin)) {
+            logger.debug("Contenu déjà stocké: {}", chemin);
+        } else {
+            storageBackend.deposer(chemin, temporaire, typeContenu);
+        }
+        return chemin;
+    }
+
+    private static String copierEtHacher(MultipartFile file, Path destination) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+        try (ReadableByteChannel in = Channels.newChannel(file.getInputStream());
+             FileChannel out = FileChannel.open(destination, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (in.read(tampon) != -1) {
+                tampon.flip();
+                sha256.update(tampon.duplicate());
+                while (tampon.hasRemaining()) {
+                    out.write(tampon);
+                }
+                tampon.clear();
+            }
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    private void enregistrer(String chemin, long taille, String typeContenu) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        if (fichierStockeDAO.toucher(chemin, maintenant) == 0) {
+            fichierStockeDAO.saveAndFlush(FichierStocke.builder()
+                    .chemin(chemin)
+                    .taille(taille)
+                    .typeContenu(typeContenu)
+                    .nbReferences(0)
+                    .dateModification(maintenant)
+                    .build());
+        }
+    }
+
+    /**
+     * Compte une référence de plus vers un fichier stocké (image de couverture d'une ressource).
+     * Sans effet pour une URL externe ou un fichier antérieur au stockage par contenu.
+     * À appeler dans la transaction qui enregistre la référence.
+     */
+    public void ajouterReference(String url) {
+        ajusterReferences(url, 1);
+    }
+
+    public void retirerReference(String url) {
+        ajusterReferences(url, -1);
+    }
+
+    private void ajusterReferences(String url, int delta) {
+        String chemin = cheminStocke(url);
+        if (chemin != null) {
+            fichierStockeDAO.ajusterReferences(chemin, delta, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Chemin relatif à {@code uploads/} d'une URL de fichier stocké par contenu, {@code null} sinon.
+     */
+    static String cheminStocke(String url) {
+        if (url == null || !url.startsWith(PREFIXE_URL)) {
+            return null;
+        }
+        String chemin = url.substring(PREFIXE_URL.length());
+        return CHEMIN_CONTENU.matcher(chemin).matches() ? chemin : null;
+    }
+
+    /**
+     * Supprime les fichiers sans référence depuis plus que le délai de grâce (envois jamais rattachés
+     * à une ressource, couvertures remplacées), avec leurs miniatures.
+     */
+    public int supprimerOrphelins() {
+        LocalDateTime limite = LocalDateTime.now().minus(retentionOrphelins);
+        int supprimes = 0;
+        List<String> orphelins;
+        do {
+            orphelins = fichierStockeDAO.findOrphelins(limite, PageRequest.of(0, LOT_NETTOYAGE));
+            for (String chemin : orphelins) {
+                Boolean supprime = transactionTemplate.execute(status -> {
+                    if (fichierStockeDAO.supprimerSiOrphelin(chemin, limite) == 0) {
+                        return false;
+                    }
+                    try {
+                        storageBackend.supprimer(chemin);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Suppression impossible de " + chemin, e);
+                    }
+                    return true;
+                });
+                if (Boolean.TRUE.equals(supprime)) {
+                    miniatureService.supprimerDerives(chemin);
+                    supprimes++;
+                }
+            }
+        } while (orphelins.size() == LOT_NETTOYAGE);
+        return supprimes;
+    }
 }
@@ -0,0 +1,150 @@
+package com.biblio.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Listes JSON écrites page par page : chaque page est lue par clé (sans OFFSET) et convertie dans sa propre
+ * transaction en lecture seule, puis sérialisée une fois la transaction terminée. Les premiers octets partent
+ * dès la première page, au lieu d'attendre la sérialisation de toute la liste, et la compression gzip du
+ * connecteur s'applique au fil de l'eau.
+ * <p>
+ * Aucun curseur, aucune connexion ni transaction n'est tenu pendant l'écriture : un client lent ne bloque que
+ * son thread, jamais le pool JDBC, et la mémoire reste bornée à une page ({@code lot} éléments). Sous
+ * open-in-view, l'EntityManager de la requête garderait sa connexion jusqu'à la fin de la réponse (mode
+ * DELAYED_ACQUISITION_AND_HOLD) : il est fermé pendant l'écriture, chaque page étant lue avec l'EntityManager
+ * de sa transaction, puis remplacé par un EntityManager neuf que l'intercepteur fermera. Les pages
+ * n'étant pas lues dans une même transaction, une ligne modifiée pendant le parcours apparaît dans l'état lu
+ * par sa page.
+ * <p>
+ * Le corps a la forme des listes construites en mémoire : {@code {"success":true,"<champ>":[...],"total":n}},
+ * le total étant écrit après les éléments.
+ */
+@Service
+public class FluxJsonService {
+
+    private final JsonMapper jsonMapper;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate lecture;
+    private final int lot;
+
+    public FluxJsonService(JsonMapper jsonMapper,
+                           EntityManagerFactory entityManagerFactory,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.flux-json.lot:500}") int lot) {
+        this.jsonMapper = jsonMapper;
+        this.entityManagerFactory = entityManagerFactory;
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+        this.lot = lot;
+    }
+
+    /**
+     * Source d'une liste : au plus {@code taille} éléments de clé strictement supérieure à {@code apresId}
+     * (0 pour la première page), triés par clé.
+     */
+    @FunctionalInterface
+    public interface Pages<T> {
+        List<T> lire(long apresId, int taille);
+    }
+
+    private record Page(List<Object> elements, long derniereCle) {
+    }
+
+    /**
+     * Écrit la liste lue depuis {@code pages} sous la clé {@code champ}. Une erreur levée par la première page
+     * survient avant tout envoi et suit le traitement habituel des exceptions.
+     */
+    public <T> void ecrireListe(HttpServletResponse response, String champ, Pages<T> pages,
+                                ToLongFunction<? super T> cle, Function<? super T, ?> conversion) throws IOException {
+        EntityManagerHolder openInView = suspendreOpenInView();
+        try {
+            ecrirePages(response, champ, pages, cle, conversion);
+        } finally {
+            if (openInView != null) {
+                TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                        new EntityManagerHolder(entityManagerFactory.createEntityManager()));
+            }
+        }
+    }
+
+    private EntityManagerHolder suspendreOpenInView() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        EntityManagerHolder holder = (EntityManagerHolder)
+                TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        if (holder != null) {
+            EntityManagerFactoryUtils.closeEntityManager(holder.getEntityManager());
+        }
+        return holder;
+    }
+
+    private <T> void ecrirePages(HttpServletResponse response, String champ, Pages<T> pages,
+                                 ToLongFunction<? super T> cle, Function<? super T, ?> conversion) throws IOException {
+        Page page = lire(pages, cle, conversion, 0);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generateur = jsonMapper.createGenerator(response.getOutputStream())) {
+            generateur.writeStartObject();
+            generateur.writeBooleanProperty("success", true);
+            generateur.writeArrayPropertyStart(champ);
+            long total = 0;
+            while (true) {
+                for (Object element : page.elements()) {
+                    generateur.writePOJO(element);
+                }
+                total += page.elements().size();
+                if (page.elements().size() < lot) {
+                    break;
+                }
+                page = lire(pages, cle, conversion, page.derniereCle());
+            }
+            generateur.writeEndArray();
+            generateur.writeNumberProperty("total", total);
+            generateur.writeEndObject();
+        }
+    }
+
+    private <T> Page lire(Pages<T> pages, ToLongFunction<? super T> cle, Function<? super T, ?> conversion,
+                          long apresId) {
+        return lecture.execute(statut -> {
+            List<T> lignes = pages.lire(apresId, lot);
+            List<Object> elements = new ArrayList<>(lignes.size());
+            for (T ligne : lignes) {
+                elements.add(conversion.apply(ligne));
+            }
+            // Dans une transaction englobante, le contexte de persistance survit à la page : les entités converties
+            // n'y restent pas
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            if (entityManager != null) {
+                entityManager.clear();
+            }
+            return new Page(elements, lignes.isEmpty() ? apresId : cle.applyAsLong(lignes.get(lignes.size() - 1)));
+        });
+    }
+
+    /**
+     * Corps JSON ordinaire (réponses d'erreur des points d'accès en flux)
+     */
+    public void ecrire(HttpServletResponse response, Object corps) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonMapper.writeValue(response.getOutputStream(), corps);
+    }
+}
@@ -0,0 +1,113 @@
+package com.biblio.services;
+
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Identifiants;
+import com.biblio.entities.Notification;
+import com.biblio.entities.Pret;
+import com.biblio.entities.Rapport;
+import com.biblio.entities.Reservation;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.entities.UserLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gestion de la table des compteurs d'identifiants ({@link Identifiants#TABLE}, créée par la migration V2).
+ * Au démarrage, chaque compteur est créé ou avancé au-delà du plus grand identifiant existant : lignes insérées
+ * par AUTO_INCREMENT après la migration (ancienne version encore en service pendant un déploiement), ou schéma
+ * généré par Hibernate. Sans effet lorsque les compteurs sont déjà en avance.
+ * Fournit aussi des plages d'identifiants aux insertions JDBC directes (import de catalogue).
+ */
+@Service
+public class IdentifiantsService {
+    private static final Logger logger = LoggerFactory.getLogger(IdentifiantsService.class);
+
+    static final Map<Class<?>, String> SEGMENTS = Map.of(
+            Bibliotheque.class, "bibliotheques",
+            Notification.class, "notifications",
+            Pret.class, "prets",
+            Rapport.class, "rapports",
+            Reservation.class, "reservations",
+            Ressource.class, "ressources",
+            User.class, "user",
+            UserLog.class, "user_logs");
+
+    private static final String SELECT_SQL = "SELECT " + Identifiants.COLONNE_VALEUR + " FROM " + Identifiants.TABLE +
+            " WHERE " + Identifiants.COLONNE_ENTITE + " = ?";
+    private static final String UPDATE_SQL = "UPDATE " + Identifiants.TABLE + " SET " + Identifiants.COLONNE_VALEUR +
+            " = ? WHERE " + Identifiants.COLONNE_ENTITE + " = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + Identifiants.TABLE + " (" + Identifiants.COLONNE_ENTITE +
+            ", " + Identifiants.COLONNE_VALEUR + ") VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+
+    public IdentifiantsService(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void aligner() {
+        try (EntityManager em = entityManagerFactory.createEntityManager()) {
+            SEGMENTS.forEach((entite, segment) -> {
+                Long max = em.createQuery("select max(e.id) from " + entite.getSimpleName() + " e", Long.class)
+                        .getSingleResult();
+                aligner(segment, max != null ? max : 0);
+            });
+        }
+    }
+
+    /**
+     * Une valeur v lue dans la table donne à Hibernate le bloc [v - ALLOCATION + 2, v + 1] (la colonne est
+     * lue comme la dernière valeur attribuée) : avec max(id) + ALLOCATION, le premier identifiant est max(id) + 2.
+     */
+    void aligner(String segment, long maxId) {
+        long minimum = maxId + Identifiants.ALLOCATION;
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> valeurs = jdbcTemplate.queryForList(SELECT_SQL + " FOR UPDATE", Long.class, segment);
+            if (valeurs.isEmpty()) {
+                jdbcTemplate.update(INSERT_SQL, segment, minimum);
+                logger.info("Compteur d'identifiants {} initialisé à {}", segment, minimum);
+            } else if (valeurs.get(0) == null || valeurs.get(0) < minimum) {
+                jdbcTemplate.update(UPDATE_SQL, minimum, segment);
+                logger.info("Compteur d'identifiants {} avancé à {}", segment, minimum);
+            }
+        });
+    }
+
+    /**
+     * Réserve {@code nombre} identifiants consécutifs pour des insertions JDBC hors Hibernate et retourne le premier.
+     * La plage est prise par blocs entiers, exactement comme le ferait l'optimiseur pooled, pour ne jamais
+     * chevaucher les blocs distribués aux instances Hibernate.
+     */
+    public long reserver(Class<?> entite, int nombre) {
+        String segment = SEGMENTS.get(entite);
+        if (segment == null) {
+            throw new IllegalArgumentException("Aucun compteur d'identifiants pour " + entite.getSimpleName());
+        }
+        long blocs = (nombre + Identifiants.ALLOCATION - 1) / Identifiants.ALLOCATION;
+        Long valeur = transactionTemplate.execute(status -> {
+            Long courante = jdbcTemplate.queryForObject(SELECT_SQL + " FOR UPDATE", Long.class, segment);
+            jdbcTemplate.update(UPDATE_SQL, courante + blocs * Identifiants.ALLOCATION, segment);
+            return courante;
+        });
+        return valeur - Identifiants.ALLOCATION + 2;
+    }
+}
@@ -0,0 +1,89 @@
+package com.biblio.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Stockage dans un répertoire local ({@code app.stockage.local.racine}), servi par {@link DiffusionFichiersService}.
+ * Les fichiers temporaires sont créés cachés à la racine : le dépôt est un simple renommage atomique.
+ */
+public class LocalStorageBackend implements StorageBackend {
+
+    private final Path racine;
+
+    public LocalStorageBackend(Path racine) {
+        this.racine = racine.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.racine);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize storage", e);
+        }
+    }
+
+    public Path getRacine() {
+        return racine;
+    }
+
+    @Override
+    public Path fichierTemporaire() throws IOException {
+        return Files.createTempFile(racine, ".depot-", ".tmp");
+    }
+
+    @Override
+    public void deposer(String chemin, Path source, String typeContenu) throws IOException {
+        Path destination = resoudre(chemin);
+        Files.createDirectories(destination.getParent());
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Source sur un autre volume : copie à côté de la destination, puis renommage
+            Path temporaire = Files.createTempFile(destination.getParent(), ".depot-", ".tmp");
+            try {
+                Files.move(source, temporaire, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporaire, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporaire);
+            }
+        }
+    }
+
+    @Override
+    public boolean existe(String chemin) {
+        return Files.exists(resoudre(chemin));
+    }
+
+    @Override
+    public InputStream ouvrir(String chemin) throws IOException {
+        return Files.newInputStream(resoudre(chemin));
+    }
+
+    @Override
+    public void supprimer(String chemin) throws IOException {
+        Files.deleteIfExists(resoudre(chemin));
+    }
+
+    @Override
+    public Optional<Path> fichierLocal(String chemin) {
+        return Optional.of(resoudre(chemin));
+    }
+
+    @Override
+    public Optional<URI> urlSignee(String chemin, Duration validite) {
+        return Optional.empty();
+    }
+
+    private Path resoudre(String chemin) {
+        Path fichier = racine.resolve(chemin).normalize();
+        if (!fichier.startsWith(racine) || fichier.equals(racine)) {
+            throw new IllegalArgumentException("Chemin hors du stockage: " + chemin);
+        }
+        return fichier;
+    }
+}
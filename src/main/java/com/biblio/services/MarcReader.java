@@ -0,0 +1,163 @@
+package com.biblio.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lecture en flux de notices MARC 21 (ISO 2709), une notice à la fois, converties dans les mêmes
+ * colonnes que l'import CSV : 020$a isbn, 100$a (ou 110$a) auteur, 245$a$b titre, 260/264$b éditeur,
+ * 260/264$c date de publication, 520$a description.
+ * <p>
+ * Une notice dont l'adresse de base ou le répertoire est illisible est renvoyée avec un motif d'erreur, sans champs :
+ * sa longueur, lue dans le leader, suffit à passer à la suivante.
+ */
+final class MarcReader implements Iterator<MarcReader.Notice> {
+
+    private static final byte FIN_CHAMP = 0x1E;
+    private static final byte SOUS_CHAMP = 0x1F;
+    private static final int TAILLE_LEADER = 24;
+    private static final int TAILLE_ENTREE_REPERTOIRE = 12;
+
+    private final InputStream in;
+    private Notice suivante;
+    private boolean termine;
+
+    MarcReader(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (suivante == null && !termine) {
+            try {
+                suivante = lireNotice();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            termine = suivante == null;
+        }
+        return suivante != null;
+    }
+
+    @Override
+    public Notice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Notice notice = suivante;
+        suivante = null;
+        return notice;
+    }
+
+    /**
+     * Champs d'une notice, ou motif de rejet (champs vides) si elle est mal formée.
+     */
+    record Notice(Map<String, String> champs, String erreur) {
+    }
+
+    private Notice lireNotice() throws IOException {
+        byte[] entete = in.readNBytes(5);
+        // Sauts de ligne éventuels entre les notices
+        while (entete.length > 0 && !Character.isDigit(entete[0])) {
+            byte[] suite = in.readNBytes(1);
+            if (suite.length == 0) {
+                return null;
+            }
+            System.arraycopy(entete, 1, entete, 0, entete.length - 1);
+            entete[entete.length - 1] = suite[0];
+        }
+        if (entete.length < 5) {
+            return null;
+        }
+        String longueurLue = new String(entete, StandardCharsets.US_ASCII);
+        int longueur;
+        try {
+            longueur = Integer.parseInt(longueurLue);
+        } catch (NumberFormatException e) {
+            // Sans longueur, impossible de retrouver le début de la notice suivante
+            throw new IllegalArgumentException("Longueur de notice MARC illisible: " + longueurLue);
+        }
+        if (longueur < TAILLE_LEADER) {
+            throw new IllegalArgumentException("Longueur de notice MARC invalide: " + longueur);
+        }
+        byte[] notice = new byte[longueur];
+        System.arraycopy(entete, 0, notice, 0, 5);
+        if (in.readNBytes(notice, 5, longueur - 5) != longueur - 5) {
+            throw new IllegalArgumentException("Notice MARC tronquée");
+        }
+        int baseDonnees;
+        try {
+            baseDonnees = Integer.parseInt(new String(notice, 12, 5, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return new Notice(Map.of(), "Notice MARC invalide: adresse de base illisible");
+        }
+
+        Map<String, String> champs = new HashMap<>();
+        for (int pos = TAILLE_LEADER; pos + TAILLE_ENTREE_REPERTOIRE <= Math.min(baseDonnees, longueur)
+                && notice[pos] != FIN_CHAMP; pos += TAILLE_ENTREE_REPERTOIRE) {
+            String etiquette = new String(notice, pos, 3, StandardCharsets.US_ASCII);
+            try {
+                int taille = Integer.parseInt(new String(notice, pos + 3, 4, StandardCharsets.US_ASCII));
+                int debut = Integer.parseInt(new String(notice, pos + 7, 5, StandardCharsets.US_ASCII));
+                mapper(champs, etiquette, new String(notice, baseDonnees + debut, Math.max(0, taille - 1), StandardCharsets.UTF_8));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                return new Notice(Map.of(), "Notice MARC invalide: entrée de répertoire " + etiquette + " illisible");
+            }
+        }
+        return new Notice(champs, null);
+    }
+
+    private static void mapper(Map<String, String> champs, String etiquette, String donnees) {
+        switch (etiquette) {
+            case "020" -> {
+                String isbn = sousChamp(donnees, 'a');
+                if (isbn != null) {
+                    champs.putIfAbsent("isbn", isbn.trim().split("\\s+")[0]);
+                }
+            }
+            case "100", "110" -> champs.putIfAbsent("auteur", nettoyer(sousChamp(donnees, 'a')));
+            case "245" -> {
+                String titre = nettoyer(sousChamp(donnees, 'a'));
+                String sousTitre = nettoyer(sousChamp(donnees, 'b'));
+                champs.put("titre", sousTitre != null && titre != null ? titre + " : " + sousTitre : titre);
+            }
+            case "260", "264" -> {
+                champs.putIfAbsent("editeur", nettoyer(sousChamp(donnees, 'b')));
+                String date = sousChamp(donnees, 'c');
+                if (date != null) {
+                    String annee = date.replaceAll("\\D", "");
+                    if (annee.length() >= 4) {
+                        champs.putIfAbsent("datepublication", annee.substring(0, 4));
+                    }
+                }
+            }
+            case "520" -> champs.putIfAbsent("description", nettoyer(sousChamp(donnees, 'a')));
+            default -> {
+            }
+        }
+    }
+
+    private static String sousChamp(String donnees, char code) {
+        for (String partie : donnees.split(String.valueOf((char) SOUS_CHAMP))) {
+            if (!partie.isEmpty() && partie.charAt(0) == code) {
+                return partie.substring(1);
+            }
+        }
+        return null;
+    }
+
+    // Retire la ponctuation ISBD finale (" /", " :", ",", ".")
+    private static String nettoyer(String valeur) {
+        if (valeur == null) {
+            return null;
+        }
+        String nettoyee = valeur.trim().replaceAll("\\s*[/:;,.]+$", "").trim();
+        return nettoyee.isEmpty() ? null : nettoyee;
+    }
+}
@@ -0,0 +1,66 @@
+package com.biblio.services;
+
+import com.biblio.dao.PretDAO;
+import com.biblio.dao.ReservationDAO;
+import com.biblio.enums.StatutPret;
+import com.biblio.enums.StatutReservation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Jauges par bibliothèque : réservations en attente et prêts par statut (actifs et bloqués).
+ * Recalculées périodiquement par deux requêtes groupées, et non à chaque collecte Prometheus.
+ */
+@Service
+public class MetriquesService {
+    private static final Logger logger = LoggerFactory.getLogger(MetriquesService.class);
+    static final List<StatutPret> STATUTS_SUIVIS =
+            List.of(StatutPret.RESERVE, StatutPret.EMPRUNTE, StatutPret.EN_COURS, StatutPret.BLOQUE);
+
+    private final ReservationDAO reservationDAO;
+    private final PretDAO pretDAO;
+    private final MultiGauge reservationsEnAttente;
+    private final MultiGauge prets;
+
+    public MetriquesService(ReservationDAO reservationDAO, PretDAO pretDAO, MeterRegistry meterRegistry) {
+        this.reservationDAO = reservationDAO;
+        this.pretDAO = pretDAO;
+        this.reservationsEnAttente = MultiGauge.builder("biblio.reservations.en_attente")
+                .description("Réservations en attente de confirmation, par bibliothèque")
+                .register(meterRegistry);
+        this.prets = MultiGauge.builder("biblio.prets")
+                .description("Prêts actifs et bloqués, par bibliothèque et statut")
+                .register(meterRegistry);
+    }
+
+    // Premier calcul au démarrage du planificateur, puis à intervalle fixe
+    @Scheduled(fixedDelayString = "${app.metriques.rafraichissement-ms:30000}")
+    public void rafraichir() {
+        try {
+            List<MultiGauge.Row<?>> lignesReservations = new ArrayList<>();
+            for (Object[] row : reservationDAO.countByStatutParBibliotheque(StatutReservation.EN_ATTENTE)) {
+                lignesReservations.add(MultiGauge.Row.of(Tags.of("bibliotheque", String.valueOf(row[0])),
+                        ((Number) row[1]).longValue()));
+            }
+            List<MultiGauge.Row<?>> lignesPrets = new ArrayList<>();
+            for (Object[] row : pretDAO.countByStatutsParBibliotheque(STATUTS_SUIVIS)) {
+                lignesPrets.add(MultiGauge.Row.of(Tags.of("bibliotheque", String.valueOf(row[0]),
+                        "statut", ((StatutPret) row[1]).name()), ((Number) row[2]).longValue()));
+            }
+            // Les bibliothèques qui n'ont plus de ligne disparaissent de la série
+            reservationsEnAttente.register(lignesReservations, true);
+            prets.register(lignesPrets, true);
+        } catch (Exception e) {
+            // Les jauges gardent leurs dernières valeurs
+            logger.warn("Rafraîchissement des métriques échoué: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.biblio.services;
+
+import com.biblio.dao.FichierStockeDAO;
+import com.biblio.enums.EtatMiniatures;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Miniatures des images de couverture : à chaque envoi, trois dérivés JPEG (liste, carte, détail) sont produits
+ * en arrière-plan et stockés à côté de l'original ({@code <nom>-carte.jpg}...). L'image source est décodée directement
+ * sous-échantillonnée, sans charger en mémoire la pleine résolution des photos de téléphone.
+ * La génération passe par un pool borné ({@code app.images.threads} threads, {@code app.images.file} tâches en
+ * attente) : au-delà, la tâche est abandonnée et sera replanifiée à la prochaine demande des URLs de l'image.
+ * <p>
+ * Les dérivés produits sont enregistrés avec le fichier ({@link EtatMiniatures}) et tenus en mémoire : les URLs
+ * des listes se construisent sans interroger le stockage. Un original sans état enregistré (envoi antérieur,
+ * fichier manquant) est vérifié en arrière-plan, au plus une fois par {@code app.images.reverification} ;
+ * les dates de vérification sont tenues dans un cache borné à {@code app.images.verifications-max} entrées.
+ */
+@Service
+public class MiniatureService {
+    private static final Logger logger = LoggerFactory.getLogger(MiniatureService.class);
+
+    static final String PREFIXE_URL = "/uploads/";
+
+    public enum Taille {
+        LISTE(96), CARTE(240), DETAIL(640);
+
+        private final int cote;
+
+        Taille(int cote) {
+            this.cote = cote;
+        }
+
+        public int getCote() {
+            return cote;
+        }
+
+        String suffixe() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final StorageBackend storageBackend;
+    private final FichierStockeDAO fichierStockeDAO;
+    private final Executor executor;
+    private final float qualiteJpeg;
+
+    // État des dérivés par original, chargé au démarrage puis tenu à jour à chaque génération
+    private final Map<String, EtatMiniatures> etats = new ConcurrentHashMap<>();
+    // Originaux dont les dérivés sont en cours de génération
+    private final Set<String> enCours = ConcurrentHashMap.newKeySet();
+    // Originaux sans état déjà vérifiés dans le stockage, avec la date de vérification ; le moins récemment
+    // consulté est évincé au-delà de la taille maximale
+    private final Map<String, Long> verifies;
+    private final long reverificationNanos;
+    private final List<Runnable> ecouteursDerives = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public MiniatureService(StorageBackend storageBackend, FichierStockeDAO fichierStockeDAO,
+                            @Value("${app.images.threads:2}") int threads,
+                            @Value("${app.images.file:500}") int file,
+                            @Value("${app.images.qualite-jpeg:0.8}") float qualiteJpeg,
+                            @Value("${app.images.verifications-max:10000}") int verificationsMax,
+                            @Value("${app.images.reverification:PT1H}") Duration reverification) {
+        this(storageBackend, fichierStockeDAO, new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(file), new ThreadFactoryMiniatures(), new ThreadPoolExecutor.AbortPolicy()),
+                qualiteJpeg, verificationsMax, reverification);
+    }
+
+    MiniatureService(StorageBackend storageBackend, FichierStockeDAO fichierStockeDAO, Executor executor,
+                     float qualiteJpeg, int verificationsMax, Duration reverification) {
+        this.storageBackend = storageBackend;
+        this.fichierStockeDAO = fichierStockeDAO;
+        this.executor = executor;
+        this.qualiteJpeg = qualiteJpeg;
+        this.reverificationNanos = reverification.toNanos();
+        this.verifies = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > verificationsMax;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        int charges = 0;
+        for (Object[] row : fichierStockeDAO.findEtatsMiniatures()) {
+            // Un état enregistré depuis le démarrage est au moins aussi récent
+            if (etats.putIfAbsent((String) row[0], (EtatMiniatures) row[1]) == null) {
+                charges++;
+            }
+        }
+        logger.info("État des miniatures chargé: {} fichiers", charges);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Planifie la génération des dérivés d'un fichier stocké dans {@code uploads/}.
+     */
+    public void genererDerives(String filename) {
+        // Contenu déjà envoyé (stockage dédupliqué) : les dérivés existent
+        if (etats.containsKey(filename) || !enCours.add(filename)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generer(filename);
+                } catch (Exception e) {
+                    logger.warn("Échec de génération des miniatures de {}: {}", filename, e.getMessage());
+                } finally {
+                    enCours.remove(filename);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // File pleine : l'original sera revérifié, puis ses dérivés générés, à la prochaine demande de ses URLs
+            enCours.remove(filename);
+            oublierVerification(filename);
+            logger.warn("File des miniatures pleine, génération de {} reportée", filename);
+        }
+    }
+
+    /**
+     * URLs des miniatures par taille ({@code liste}, {@code carte}, {@code detail}) pour une image de couverture.
+     * Tant que les dérivés ne sont pas prêts, ou pour une image externe, chaque taille pointe sur l'original ;
+     * la génération des couvertures envoyées avant la mise en place des miniatures est déclenchée au passage.
+     */
+    public Map<String, String> urls(String imageCouverture) {
+        if (imageCouverture == null || imageCouverture.isBlank()) {
+            return Map.of();
+        }
+        String filename = fichierLocal(imageCouverture);
+        boolean derives = filename != null && etat(filename) == EtatMiniatures.JPEG;
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Taille taille : Taille.values()) {
+            urls.put(taille.suffixe(), derives ? PREFIXE_URL + nomDerive(filename, taille) : imageCouverture);
+        }
+        return urls;
+    }
+
+    // Lecture en mémoire seulement ; un original inconnu est vérifié en arrière-plan
+    private EtatMiniatures etat(String filename) {
+        EtatMiniatures etat = etats.get(filename);
+        if (etat == null && !enCours.contains(filename) && aVerifier(filename)) {
+            try {
+                executor.execute(() -> verifier(filename));
+            } catch (RejectedExecutionException e) {
+                oublierVerification(filename);
+            }
+        }
+        return etat;
+    }
+
+    private void oublierVerification(String filename) {
+        synchronized (verifies) {
+            verifies.remove(filename);
+        }
+    }
+
+    // Vrai si l'original n'a pas été vérifié depuis le délai de revérification (ou a été évincé du cache)
+    private boolean aVerifier(String filename) {
+        long maintenant = System.nanoTime();
+        synchronized (verifies) {
+            Long derniere = verifies.get(filename);
+            if (derniere != null && maintenant - derniere < reverificationNanos) {
+                return false;
+            }
+            verifies.put(filename, maintenant);
+            return true;
+        }
+    }
+
+    private void verifier(String filename) {
+        // Le dérivé DETAIL est écrit en dernier : sa présence garantit celle des autres
+        if (existe(nomDerive(filename, Taille.DETAIL))) {
+            enregistrer(filename, EtatMiniatures.JPEG);
+            ecouteursDerives.forEach(Runnable::run);
+        } else if (existe(filename)) {
+            genererDerives(filename);
+        }
+    }
+
+    private void enregistrer(String filename, EtatMiniatures etat) {
+        etats.put(filename, etat);
+        try {
+            // Sans effet pour un envoi antérieur au stockage par contenu (pas de ligne) : l'état reste en mémoire
+            fichierStockeDAO.marquerMiniatures(filename, etat);
+        } catch (RuntimeException e) {
+            logger.warn("État des miniatures de {} non enregistré: {}", filename, e.getMessage());
+        }
+    }
+
+    private boolean existe(String chemin) {
+        try {
+            return storageBackend.existe(chemin);
+        } catch (IOException e) {
+            logger.warn("Stockage indisponible pour {}: {}", chemin, e.getMessage());
+            return false;
+        }
+    }
+
+    void generer(String filename) throws IOException {
+        BufferedImage image;
+        try (InputStream source = storageBackend.ouvrir(filename)) {
+            image = lire(source, Taille.DETAIL.getCote() * 2);
+        }
+        if (image == null) {
+            enregistrer(filename, EtatMiniatures.ILLISIBLE);
+            return;
+        }
+        for (Taille taille : Taille.values()) {
+            ecrire(redimensionner(image, taille.getCote()), nomDerive(filename, taille));
+        }
+        enregistrer(filename, EtatMiniatures.JPEG);
+        logger.debug("Miniatures générées pour {}", filename);
+        ecouteursDerives.forEach(Runnable::run);
+    }
+
+    /**
+     * Appelé après chaque génération de dérivés : les URLs renvoyées par {@link #urls(String)} ont changé.
+     */
+    public void surDerivesGeneres(Runnable ecouteur) {
+        ecouteursDerives.add(ecouteur);
+    }
+
+    /**
+     * Supprime les dérivés d'un fichier retiré du stockage.
+     */
+    public void supprimerDerives(String filename) {
+        etats.remove(filename);
+        oublierVerification(filename);
+        for (Taille taille : Taille.values()) {
+            try {
+                storageBackend.supprimer(nomDerive(filename, taille));
+            } catch (IOException e) {
+                logger.warn("Suppression impossible de la miniature {} de {}: {}", taille, filename, e.getMessage());
+            }
+        }
+    }
+
+    static String nomDerive(String filename, Taille taille) {
+        int point = filename.lastIndexOf('.');
+        String base = point > 0 ? filename.substring(0, point) : filename;
+        return base + "-" + taille.suffixe() + ".jpg";
+    }
+
+    private static String fichierLocal(String url) {
+        if (!url.startsWith(PREFIXE_URL)) {
+            return null;
+        }
+        // Nom seul (anciens envois) ou chemin réparti en sous-répertoires (stockage par contenu)
+        String filename = url.substring(PREFIXE_URL.length());
+        return filename.isEmpty() || filename.startsWith("/") || filename.contains("\\") || filename.contains("..")
+                ? null : filename;
+    }
+
+    /**
+     * Décode l'image en sautant des pixels sources (sous-échantillonnage entier) de sorte que le plus grand côté
+     * reste au moins égal à {@code coteMin} : seule cette version réduite est allouée.
+     */
+    private static BufferedImage lire(InputStream source, int coteMin) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int cote = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int pas = Math.max(1, cote / coteMin);
+                param.setSourceSubsampling(pas, pas, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Réduction dans un carré de {@code cote} pixels, sans agrandissement, par divisions successives par deux
+     * (interpolation bilinéaire à chaque étape) pour éviter le crénelage d'une réduction directe.
+     * Le résultat est opaque, sur fond blanc.
+     */
+    static BufferedImage redimensionner(BufferedImage image, int cote) {
+        double echelle = Math.min(1.0, (double) cote / Math.max(image.getWidth(), image.getHeight()));
+        int largeurCible = Math.max(1, (int) Math.round(image.getWidth() * echelle));
+        int hauteurCible = Math.max(1, (int) Math.round(image.getHeight() * echelle));
+
+        BufferedImage courante = image;
+        int largeur = image.getWidth();
+        int hauteur = image.getHeight();
+        do {
+            largeur = Math.max(largeurCible, largeur / 2);
+            hauteur = Math.max(hauteurCible, hauteur / 2);
+            BufferedImage etape = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = etape.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(courante, 0, 0, largeur, hauteur, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            courante = etape;
+        } while (largeur != largeurCible || hauteur != hauteurCible);
+        return courante;
+    }
+
+    // Écriture dans un fichier temporaire puis dépôt dans le stockage : un dérivé visible est toujours complet
+    private void ecrire(BufferedImage image, String chemin) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("Aucun encodeur jpeg");
+        }
+        ImageWriter writer = writers.next();
+        Path temporaire = storageBackend.fichierTemporaire();
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temporaire.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (param.canWriteCompressed()) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(qualiteJpeg);
+                }
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            storageBackend.deposer(chemin, temporaire, "image/jpeg");
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    private static final class ThreadFactoryMiniatures implements ThreadFactory {
+        private final AtomicInteger compteur = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "miniatures-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
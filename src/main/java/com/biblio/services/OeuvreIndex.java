@@ -0,0 +1,313 @@
+package com.biblio.services;
+
+import com.biblio.dao.BibliothequeDAO;
+import com.biblio.dao.RessourceDAO;
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Ressource;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Regroupement des ressources de toutes les bibliothèques par œuvre (ISBN normalisé, à défaut titre + auteur)
+ * avec les totaux réseau disponibles/possédés tenus à jour incrémentalement.
+ * Chargé une fois au démarrage, puis alimenté par les événements Hibernate post-commit sur {@link Ressource} :
+ * toute modification de stock validée (prêt, retour, réservation, édition) est reflétée sans requête.
+ * Les bibliothèques désactivées (suivies de la même façon sur {@link Bibliotheque}) sont exclues du détail
+ * par bibliothèque comme des totaux.
+ */
+@Service
+public class OeuvreIndex {
+    private static final Logger logger = LoggerFactory.getLogger(OeuvreIndex.class);
+
+    private final RessourceDAO ressourceDAO;
+    private final BibliothequeDAO bibliothequeDAO;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Map<String, Oeuvre> oeuvres = new HashMap<>();
+    private final Map<String, String> clesParIsbn = new HashMap<>();
+    private final Map<String, String> clesParTitreAuteur = new HashMap<>();
+    private final Map<Long, String> clesParRessource = new HashMap<>();
+    private final Map<Long, Boolean> activiteBibliotheques = new HashMap<>();
+
+    public OeuvreIndex(RessourceDAO ressourceDAO, BibliothequeDAO bibliothequeDAO,
+                       EntityManagerFactory entityManagerFactory) {
+        this.ressourceDAO = ressourceDAO;
+        this.bibliothequeDAO = bibliothequeDAO;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public record Disponibilite(Long bibliothequeId, int disponibles, int total) {
+    }
+
+    public record Synthese(String cle, String titre, String auteur, int disponibles, int total,
+                           List<Disponibilite> bibliotheques) {
+    }
+
+    @PostConstruct
+    void enregistrerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        CommitListener listener = new CommitListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        List<Long> inactives = bibliothequeDAO.findIdsInactives();
+        synchronized (this) {
+            // Comme pour les ressources, un événement post-commit déjà reçu l'emporte sur l'instantané
+            for (Long id : inactives) {
+                activiteBibliotheques.putIfAbsent(id, false);
+            }
+        }
+        int chargees = 0;
+        for (Object[] row : ressourceDAO.findEtatsStock()) {
+            Long id = (Long) row[0];
+            synchronized (this) {
+                // Un événement post-commit déjà reçu est plus récent que l'instantané chargé
+                if (clesParRessource.containsKey(id)) {
+                    continue;
+                }
+                enregistrer(id, (String) row[1], (String) row[2], (String) row[3], (Long) row[4],
+                        (Integer) row[5], (Integer) row[6]);
+            }
+            chargees++;
+        }
+        logger.info("Index des œuvres chargé: {} ressources, {} œuvres", chargees, getNombreOeuvres());
+    }
+
+    /**
+     * Ajoute ou remplace la contribution d'une ressource à son œuvre.
+     */
+    public synchronized void enregistrer(Long ressourceId, String isbn, String titre, String auteur,
+                                         Long bibliothequeId, Integer disponibles, Integer total) {
+        retirer(ressourceId);
+        String isbnNorm = normaliserIsbn(isbn);
+        String titreAuteur = normaliserTitreAuteur(titre, auteur);
+
+        String cle = isbnNorm != null ? clesParIsbn.get(isbnNorm) : null;
+        if (cle == null) {
+            cle = clesParTitreAuteur.get(titreAuteur);
+        }
+        if (cle == null) {
+            cle = isbnNorm != null ? isbnNorm : titreAuteur;
+        }
+        Oeuvre oeuvre = oeuvres.computeIfAbsent(cle, c -> new Oeuvre(c, titre, auteur));
+        oeuvre.exemplaires.put(ressourceId, new Exemplaire(bibliothequeId, disponibles != null ? disponibles : 0,
+                total != null ? total : 0, isbnNorm, titreAuteur));
+        if (isbnNorm != null) {
+            clesParIsbn.putIfAbsent(isbnNorm, cle);
+        }
+        clesParTitreAuteur.putIfAbsent(titreAuteur, cle);
+        clesParRessource.put(ressourceId, cle);
+    }
+
+    /**
+     * Retire la contribution d'une ressource, ainsi que les clés ISBN et titre + auteur de sa version indexée
+     * qu'aucun autre exemplaire de l'œuvre ne porte plus.
+     */
+    public synchronized void retirer(Long ressourceId) {
+        String cle = clesParRessource.remove(ressourceId);
+        if (cle == null) {
+            return;
+        }
+        Oeuvre oeuvre = oeuvres.get(cle);
+        Exemplaire ancien = oeuvre.exemplaires.remove(ressourceId);
+        if (oeuvre.exemplaires.isEmpty()) {
+            oeuvres.remove(cle);
+        }
+        if (ancien.isbn() != null && oeuvre.exemplaires.values().stream().noneMatch(e -> ancien.isbn().equals(e.isbn()))) {
+            clesParIsbn.remove(ancien.isbn(), cle);
+        }
+        if (oeuvre.exemplaires.values().stream().noneMatch(e -> ancien.titreAuteur().equals(e.titreAuteur()))) {
+            clesParTitreAuteur.remove(ancien.titreAuteur(), cle);
+        }
+    }
+
+    /**
+     * Activation ou désactivation d'une bibliothèque : ses exemplaires sortent (ou rentrent) des synthèses.
+     */
+    public synchronized void definirActivite(Long bibliothequeId, boolean actif) {
+        activiteBibliotheques.put(bibliothequeId, actif);
+    }
+
+    private boolean estActive(Long bibliothequeId) {
+        return bibliothequeId == null || !Boolean.FALSE.equals(activiteBibliotheques.get(bibliothequeId));
+    }
+
+    /**
+     * Où trouver cette œuvre : totaux réseau et détail par bibliothèque.
+     */
+    public synchronized Optional<Synthese> parIsbn(String isbn) {
+        String isbnNorm = normaliserIsbn(isbn);
+        String cle = isbnNorm != null ? clesParIsbn.get(isbnNorm) : null;
+        return Optional.ofNullable(cle).map(oeuvres::get).map(o -> o.synthese(this::estActive));
+    }
+
+    public synchronized Optional<Synthese> parRessource(Long ressourceId) {
+        return Optional.ofNullable(clesParRessource.get(ressourceId)).map(oeuvres::get)
+                .map(o -> o.synthese(this::estActive));
+    }
+
+    /**
+     * Identifiants des ressources représentant la même œuvre (la ressource elle-même incluse).
+     */
+    public synchronized Set<Long> ressourcesDeLOeuvre(Long ressourceId) {
+        String cle = clesParRessource.get(ressourceId);
+        if (cle == null) {
+            return Set.of(ressourceId);
+        }
+        return Set.copyOf(oeuvres.get(cle).exemplaires.keySet());
+    }
+
+    public synchronized int getNombreOeuvres() {
+        return oeuvres.size();
+    }
+
+    static String normaliserIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String brut = isbn.toUpperCase(Locale.ROOT).replaceAll("[^0-9X]", "");
+        if (brut.length() == 10) {
+            String base = "978" + brut.substring(0, 9);
+            int somme = 0;
+            for (int i = 0; i < 12; i++) {
+                somme += (base.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            return base + ((10 - somme % 10) % 10);
+        }
+        return brut.length() == 13 && brut.indexOf('X') < 0 ? brut : null;
+    }
+
+    static String normaliserTitreAuteur(String titre, String auteur) {
+        return normaliserTexte(titre) + "|" + normaliserTexte(auteur);
+    }
+
+    private static String normaliserTexte(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        return Normalizer.normalize(texte, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", " ")
+                .trim();
+    }
+
+    private static final class Oeuvre {
+        private final String cle;
+        private final String titre;
+        private final String auteur;
+        private final Map<Long, Exemplaire> exemplaires = new HashMap<>();
+
+        private Oeuvre(String cle, String titre, String auteur) {
+            this.cle = cle;
+            this.titre = titre;
+            this.auteur = auteur;
+        }
+
+        private Synthese synthese(Predicate<Long> active) {
+            Map<Long, int[]> parBibliotheque = new LinkedHashMap<>();
+            int disponibles = 0;
+            int total = 0;
+            for (Exemplaire e : exemplaires.values()) {
+                if (!active.test(e.bibliothequeId())) {
+                    continue;
+                }
+                int[] compteurs = parBibliotheque.computeIfAbsent(e.bibliothequeId(), id -> new int[2]);
+                compteurs[0] += e.disponibles();
+                compteurs[1] += e.total();
+                disponibles += e.disponibles();
+                total += e.total();
+            }
+            List<Disponibilite> bibliotheques = new ArrayList<>(parBibliotheque.size());
+            parBibliotheque.forEach((id, c) -> bibliotheques.add(new Disponibilite(id, c[0], c[1])));
+            return new Synthese(cle, titre, auteur, disponibles, total, bibliotheques);
+        }
+    }
+
+    /**
+     * Contribution d'une ressource, avec l'ISBN et le titre + auteur normalisés de la version indexée
+     */
+    private record Exemplaire(Long bibliothequeId, int disponibles, int total, String isbn, String titreAuteur) {
+    }
+
+    private final class CommitListener implements PostCommitInsertEventListener,
+            PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return Ressource.class.equals(persister.getMappedClass())
+                    || Bibliotheque.class.equals(persister.getMappedClass());
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            enregistrer(event.getEntity());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            enregistrer(event.getEntity());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Ressource) {
+                retirer((Long) event.getId());
+            }
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        private void enregistrer(Object entite) {
+            if (entite instanceof Ressource ressource) {
+                Long bibliothequeId = ressource.getBibliotheque() != null ? ressource.getBibliotheque().getId() : null;
+                OeuvreIndex.this.enregistrer(ressource.getId(), ressource.getIsbn(), ressource.getTitre(),
+                        ressource.getAuteur(), bibliothequeId, ressource.getExemplairesDisponibles(),
+                        ressource.getNombreExemplaires());
+            } else if (entite instanceof Bibliotheque bibliotheque) {
+                definirActivite(bibliotheque.getId(), !Boolean.FALSE.equals(bibliotheque.getActif()));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.biblio.services;
+
+import com.biblio.dao.PretDAO;
+import com.biblio.entities.Pret;
+import com.biblio.entities.User;
+import com.biblio.enums.StatutPret;
+import io.micrometer.observation.annotation.Observed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Détection automatique des prêts en retard.
+ * Parcourt les prêts échus par lots (une transaction par lot), bloque ceux qui ne l'étaient pas,
+ * recalcule la pénalité journalière et envoie un seul rappel par usager et par lot.
+ */
+@Service
+@Observed(name = "biblio.service")
+public class PretRetardService {
+    private static final Logger logger = LoggerFactory.getLogger(PretRetardService.class);
+    private static final List<StatutPret> STATUTS_SURVEILLES =
+            List.of(StatutPret.EMPRUNTE, StatutPret.EN_COURS, StatutPret.BLOQUE);
+    private static final LocalDate DEBUT_PARCOURS = LocalDate.of(1900, 1, 1);
+
+    private final PretDAO pretDAO;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final int tailleLot;
+
+    public PretRetardService(PretDAO pretDAO, EmailService emailService,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.prets.retard.taille-lot:500}") int tailleLot) {
+        this.pretDAO = pretDAO;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tailleLot = Math.max(tailleLot, 1);
+    }
+
+    /**
+     * Traite tous les prêts échus à la date du jour.
+     */
+    public Bilan detecterRetards() {
+        return detecterRetards(LocalDate.now());
+    }
+
+    public Bilan detecterRetards(LocalDate aujourdhui) {
+        LocalDate apresDate = DEBUT_PARCOURS;
+        long apresId = 0L;
+        int traites = 0;
+        int bloques = 0;
+        int rappels = 0;
+        while (true) {
+            final LocalDate curseurDate = apresDate;
+            final long curseurId = apresId;
+            Lot lot = transactionTemplate.execute(status -> traiterLot(aujourdhui, curseurDate, curseurId));
+            if (lot == null || lot.traites() == 0) {
+                break;
+            }
+            traites += lot.traites();
+            bloques += lot.nouveauxBloques().size();
+            // Les emails partent après le commit du lot : un échec SMTP n'annule pas les blocages
+            rappels += envoyerRappels(lot.nouveauxBloques());
+            if (lot.traites() < tailleLot) {
+                break;
+            }
+            apresDate = lot.derniereDate();
+            apresId = lot.dernierId();
+        }
+        if (traites > 0) {
+            logger.info("Détection des retards: {} prêts échus traités, {} bloqués, {} rappels envoyés", traites, bloques, rappels);
+        }
+        return new Bilan(traites, bloques, rappels);
+    }
+
+    private Lot traiterLot(LocalDate aujourdhui, LocalDate apresDate, long apresId) {
+        List<Pret> prets = pretDAO.findLotEnRetard(STATUTS_SURVEILLES, aujourdhui, apresDate, apresId,
+                PageRequest.of(0, tailleLot));
+        List<Pret> nouveauxBloques = new ArrayList<>();
+        for (Pret pret : prets) {
+            if (pret.getStatut() != StatutPret.BLOQUE) {
+                pret.bloquer();
+                nouveauxBloques.add(pret);
+            }
+            pret.appliquerPenaliteRetard(aujourdhui);
+        }
+        pretDAO.saveAll(prets);
+        if (prets.isEmpty()) {
+            return new Lot(0, null, 0L, List.of());
+        }
+        Pret dernier = prets.get(prets.size() - 1);
+        return new Lot(prets.size(), dernier.getDateRetourPrevu(), dernier.getId(), nouveauxBloques);
+    }
+
+    private int envoyerRappels(List<Pret> nouveauxBloques) {
+        Map<Long, List<Pret>> parUsager = new LinkedHashMap<>();
+        for (Pret pret : nouveauxBloques) {
+            if (pret.getUtilisateur() != null && pret.getUtilisateur().getEmail() != null) {
+                parUsager.computeIfAbsent(pret.getUtilisateur().getId(), id -> new ArrayList<>()).add(pret);
+            }
+        }
+        int envoyes = 0;
+        for (List<Pret> prets : parUsager.values()) {
+            User usager = prets.get(0).getUtilisateur();
+            List<String> titres = new ArrayList<>();
+            BigDecimal penalite = BigDecimal.ZERO;
+            for (Pret pret : prets) {
+                titres.add(pret.getRessource() != null ? pret.getRessource().getTitre() : null);
+                penalite = penalite.add(pret.getPenaliteRetard() != null ? pret.getPenaliteRetard() : BigDecimal.ZERO);
+            }
+            try {
+                emailService.sendPretRetardEmail(usager.getEmail(), usager.getNom(), usager.getPrenom(),
+                        titres, penalite.toPlainString());
+                envoyes++;
+            } catch (Exception e) {
+                logger.warn("Rappel de retard échoué pour {}", usager.getEmail(), e);
+            }
+        }
+        return envoyes;
+    }
+
+    private record Lot(int traites, LocalDate derniereDate, Long dernierId, List<Pret> nouveauxBloques) {
+    }
+
+    public record Bilan(int traites, int bloques, int rappels) {
+    }
+}
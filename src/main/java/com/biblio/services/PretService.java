@@ -6,6 +6,9 @@ import com.biblio.entities.Pret;
 import com.biblio.entities.Reservation;
 import com.biblio.entities.User;
 import com.biblio.enums.StatutPret;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +16,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
+@Observed(name = "biblio.service")
 public class PretService {
     private final PretDAO pretDAO;
     private final UserDAO userDAO;
@@ -88,22 +92,19 @@ public class PretService {
         }
     }
 
-    public List<Pret> getPretsForUser(String email) {
+    /**
+     * Prêts de l'usager, lus page par page par {@link FluxJsonService} ; l'usager est résolu dès l'appel,
+     * avant toute écriture de la réponse.
+     */
+    public FluxJsonService.Pages<Pret> pagesPretsForUser(String email) {
         User user = userDAO.findByEmail(email)
                 .orElseThrow(() -> new IllegalArgumentException("Utilisateur introuvable"));
-        return pretDAO.findByUtilisateurId(user.getId());
+        return (apresId, taille) -> pretDAO.findPageByUtilisateurId(user.getId(), apresId, PageRequest.of(0, taille));
     }
 
-    public List<Pret> getEmpruntePourBibliotheque(Long bibliothequeId) {
-        return pretDAO.findByBibliothequeAndStatut(bibliothequeId, StatutPret.EMPRUNTE);
-    }
-
-    public List<Pret> getEnCoursPourBibliotheque(Long bibliothequeId) {
-        return pretDAO.findByBibliothequeAndStatut(bibliothequeId, StatutPret.EN_COURS);
-    }
-    
-    public List<Pret> getBloquePourBibliotheque(Long bibliothequeId) {
-        return pretDAO.findByBibliothequeAndStatut(bibliothequeId, StatutPret.BLOQUE);
+    public FluxJsonService.Pages<Pret> pagesPourBibliotheque(Long bibliothequeId, StatutPret statut) {
+        return (apresId, taille) -> pretDAO.findPageByBibliothequeAndStatut(bibliothequeId, statut, apresId,
+                PageRequest.of(0, taille));
     }
 
     @Transactional
@@ -128,22 +129,27 @@ public class PretService {
     }
 
     @Transactional
+    @Timed(value = "biblio.prets.transitions", description = "Transitions d'état des prêts")
     public Pret retourner(Long pretId) {
         Pret pret = pretDAO.findById(pretId)
                 .orElseThrow(() -> new IllegalArgumentException("Pret introuvable"));
         pret.retourner();
         Pret saved = pretDAO.save(pret);
-        // Une fois le prêt retourné, l'exemplaire redevient disponible
+        // Une fois le prêt retourné, l'exemplaire redevient disponible puis part au premier de la file d'attente.
+        // La ligne de la ressource est verrouillée pour que deux retours simultanés ne perdent pas d'incrément.
         if (saved.getRessource() != null) {
-            var r = saved.getRessource();
+            var r = ressourceDAO.findByIdForUpdate(saved.getRessource().getId())
+                    .orElseThrow(() -> new IllegalArgumentException("Ressource introuvable"));
             Integer dispo = r.getExemplairesDisponibles();
             r.setExemplairesDisponibles((dispo == null ? 0 : dispo) + 1);
             ressourceDAO.save(r);
+            reservationService.promouvoirFileAttente(r.getId());
         }
         return saved;
     }
 
     @Transactional
+    @Timed(value = "biblio.prets.transitions", description = "Transitions d'état des prêts")
     public Pret marquerNonRetourne(Long pretId) {
         Pret pret = pretDAO.findById(pretId)
                 .orElseThrow(() -> new IllegalArgumentException("Pret introuvable"));
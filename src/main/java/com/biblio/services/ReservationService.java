@@ -10,7 +10,10 @@ import com.biblio.entities.Ressource;
 import com.biblio.entities.User;
 import com.biblio.enums.StatutReservation;
 import com.biblio.enums.StatutPret;
+import com.biblio.jobs.ReservationEcheanceScheduler;
 import com.biblio.services.PretService;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.observation.annotation.Observed;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,32 +22,41 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
 @Service
+@Observed(name = "biblio.service")
 public class ReservationService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReservationService.class);
     private static final int DEFAULT_RETRAIT_HEURES = 72;
+    private static final List<StatutReservation> STATUTS_EXPIRABLES =
+            List.of(StatutReservation.EN_ATTENTE, StatutReservation.CONFIRMEE);
 
     private final ReservationDAO reservationDAO;
     private final RessourceDAO ressourceDAO;
     private final UserDAO userDAO;
     private final EmailService emailService;
     private final PretService pretService;
-    private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private final ReservationsEnAttentePublisher enAttentePublisher;
     private final PretDAO pretDAO;
+    private final ReservationEcheanceScheduler echeanceScheduler;
+    private final OeuvreIndex oeuvreIndex;
 
     public ReservationService(ReservationDAO reservationDAO, RessourceDAO ressourceDAO, UserDAO userDAO, EmailService emailService,
-                              org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate,
-                              PretService pretService, PretDAO pretDAO) {
+                              ReservationsEnAttentePublisher enAttentePublisher,
+                              PretService pretService, PretDAO pretDAO, ReservationEcheanceScheduler echeanceScheduler,
+                              OeuvreIndex oeuvreIndex) {
         this.reservationDAO = reservationDAO;
         this.ressourceDAO = ressourceDAO;
         this.userDAO = userDAO;
         this.emailService = emailService;
-        this.messagingTemplate = messagingTemplate;
+        this.enAttentePublisher = enAttentePublisher;
         this.pretService = pretService;
         this.pretDAO = pretDAO;
+        this.echeanceScheduler = echeanceScheduler;
+        this.oeuvreIndex = oeuvreIndex;
     }
 
     @Transactional
+    @Timed(value = "biblio.reservations.transitions", description = "Transitions d'état des réservations")
     public Reservation creerReservation(Long ressourceId, String usagerEmail) {
         User usager = userDAO.findByEmail(usagerEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Usager introuvable"));
@@ -59,19 +71,15 @@ public class ReservationService {
         if (pretsBloques > 0) {
             throw new IllegalStateException("Vous avez un prêt bloqué. Impossible de faire une nouvelle réservation");
         }
-        List<StatutReservation> statutsActifsReservation = List.of(StatutReservation.EN_ATTENTE);
-        long dejaReserveMemeIsbn = (ressource.getIsbn() != null)
-                ? reservationDAO.countDuplicateIsbn(usager.getId(), ressource.getIsbn(), statutsActifsReservation)
-                : 0;
-
-        // Fallback si pas d'ISBN ou si la méthode retourne 0 mais qu'on veut être sûr par ID
-        if (dejaReserveMemeIsbn == 0) {
-             boolean exists = reservationDAO.existsByUsagerIdAndRessourceIdAndStatutIn(
-                usager.getId(), ressource.getId(), statutsActifsReservation);
-             if (exists) dejaReserveMemeIsbn = 1;
-        }
-
-        if (dejaReserveMemeIsbn > 0) {
+        // Une réservation en file d'attente compte comme active : elle sera servie au prochain retour
+        List<StatutReservation> statutsActifsReservation = List.of(StatutReservation.EN_ATTENTE, StatutReservation.EN_FILE);
+        // Même œuvre dans n'importe quelle bibliothèque : recherche par identifiants de ressource (indexée)
+        java.util.Set<Long> memeOeuvre = oeuvreIndex.ressourcesDeLOeuvre(ressource.getId());
+        boolean dejaReserveMemeIsbn = memeOeuvre.size() > 1
+                ? reservationDAO.existsByUsagerIdAndRessourceIdInAndStatutIn(usager.getId(), memeOeuvre, statutsActifsReservation)
+                : reservationDAO.existsByUsagerIdAndRessourceIdAndStatutIn(usager.getId(), ressource.getId(), statutsActifsReservation);
+
+        if (dejaReserveMemeIsbn) {
             throw new IllegalStateException("Une réservation en attente existe déjà pour cet ISBN");
         }
         long reservationsActives = reservationDAO.countActivesByUsager(usager.getId(), statutsActifsReservation);
@@ -127,18 +135,15 @@ public class ReservationService {
         }
         Reservation reservation = opt.get();
         reservation.setStatut(StatutReservation.ANNULEE);
-        if (reservation.isExemplaireVerrouille()) {
-            Ressource r = reservation.getRessource();
-            r.setExemplairesDisponibles((r.getExemplairesDisponibles() == null ? 0 : r.getExemplairesDisponibles()) + 1);
-            reservation.setExemplaireVerrouille(false);
-            ressourceDAO.save(r);
-        }
+        libererExemplaire(reservation);
         reservationDAO.save(reservation);
+        echeanceScheduler.desarmer(reservation.getId());
         pushReservationsEnAttente(reservation.getBibliotheque().getId());
         return true;
     }
 
     @Transactional
+    @Timed(value = "biblio.reservations.transitions", description = "Transitions d'état des réservations")
     public Reservation confirmerReservation(Long reservationId, String emailBibliothecaire, String commentaire) {
         Reservation reservation = chargerReservation(reservationId);
         User bibliothecaire = chargerBibliothecaire(emailBibliothecaire);
@@ -148,22 +153,25 @@ public class ReservationService {
             throw new IllegalStateException("Réservation non en attente");
         }
 
-        Ressource ressource = reservation.getRessource();
+        Ressource ressource = verrouillerRessource(reservation.getRessource().getId());
+        reservation.setCommentaire(commentaire);
         if (ressource.getExemplairesDisponibles() == null || ressource.getExemplairesDisponibles() <= 0) {
-            throw new IllegalStateException("Aucun exemplaire disponible pour confirmer la réservation");
+            // Aucun exemplaire : la réservation prend place en fin de file et sera promue au prochain retour
+            reservation.setStatut(StatutReservation.EN_FILE);
+            reservation.setRangFile(reservationDAO.findMaxRangFile(ressource.getId(), StatutReservation.EN_FILE) + 1);
+            reservationDAO.save(reservation);
+            logger.info("Réservation {} placée en file d'attente (rang {}) pour la ressource {}",
+                    reservation.getId(), reservation.getRangFile(), ressource.getId());
+            pushReservationsEnAttente(bibliothecaire.getBibliotheque().getId());
+            return reservation;
         }
 
-        ressource.setExemplairesDisponibles(ressource.getExemplairesDisponibles() - 1);
-        reservation.setStatut(StatutReservation.CONFIRMEE);
-        reservation.setDateConfirmation(LocalDateTime.now());
-        reservation.setDeadlineRetrait(LocalDateTime.now().plusHours(DEFAULT_RETRAIT_HEURES));
-        reservation.setDateExpiration(reservation.getDeadlineRetrait());
-        reservation.setExemplaireVerrouille(true);
-        reservation.setCommentaire(commentaire);
+        attribuerExemplaire(reservation, ressource);
 
         reservationDAO.save(reservation);
         ressourceDAO.save(ressource);
         pretService.mettreEnCoursDepuisReservation(reservation);
+        echeanceScheduler.armerApresCommit(reservation.getId(), reservation.getDateExpiration());
 
         notifierConfirmation(reservation);
         pushReservationsEnAttente(bibliothecaire.getBibliotheque().getId());
@@ -181,6 +189,7 @@ public class ReservationService {
         }
         reservation.setStatut(StatutReservation.EMPRUNT_EN_COURS);
         reservationDAO.save(reservation);
+        echeanceScheduler.desarmer(reservation.getId());
         pushReservationsEnAttente(reservation.getBibliotheque().getId());
         return reservation;
     }
@@ -193,15 +202,12 @@ public class ReservationService {
         if (!reservation.getUsager().getId().equals(usager.getId())) {
             throw new IllegalArgumentException("Vous ne pouvez annuler que vos propres réservations");
         }
-        if (reservation.getStatut() == StatutReservation.CONFIRMEE || reservation.getStatut() == StatutReservation.EN_ATTENTE) {
+        if (reservation.getStatut() == StatutReservation.CONFIRMEE || reservation.getStatut() == StatutReservation.EN_ATTENTE
+                || reservation.getStatut() == StatutReservation.EN_FILE) {
             reservation.setStatut(StatutReservation.ANNULEE);
-            if (reservation.isExemplaireVerrouille()) {
-                Ressource r = reservation.getRessource();
-                r.setExemplairesDisponibles((r.getExemplairesDisponibles() == null ? 0 : r.getExemplairesDisponibles()) + 1);
-                reservation.setExemplaireVerrouille(false);
-                ressourceDAO.save(r);
-            }
+            libererExemplaire(reservation);
             reservationDAO.save(reservation);
+            echeanceScheduler.desarmer(reservation.getId());
 
             // Annuler le prêt lié si existant
             pretService.annulerPretLie(usager.getId(), reservation.getRessource().getId());
@@ -214,6 +220,7 @@ public class ReservationService {
     }
 
     @Transactional
+    @Timed(value = "biblio.reservations.transitions", description = "Transitions d'état des réservations")
     public Reservation rejeterReservation(Long reservationId, String emailBibliothecaire, String raison) {
         Reservation reservation = chargerReservation(reservationId);
         User bibliothecaire = chargerBibliothecaire(emailBibliothecaire);
@@ -223,12 +230,7 @@ public class ReservationService {
         }
         reservation.setStatut(StatutReservation.ANNULEE);
         reservation.setCommentaire(raison);
-        if (reservation.isExemplaireVerrouille()) {
-            Ressource r = reservation.getRessource();
-            r.setExemplairesDisponibles((r.getExemplairesDisponibles() == null ? 0 : r.getExemplairesDisponibles()) + 1);
-            reservation.setExemplaireVerrouille(false);
-            ressourceDAO.save(r);
-        }
+        libererExemplaire(reservation);
         reservationDAO.save(reservation);
 
         // Annuler le prêt lié si existant (status RESERVE)
@@ -240,29 +242,123 @@ public class ReservationService {
     }
 
     @Transactional
+    @Timed(value = "biblio.reservations.transitions", description = "Transitions d'état des réservations")
     public int expirerReservations() {
-        List<Reservation> expirables = reservationDAO.findExpired(
-                List.of(StatutReservation.EN_ATTENTE, StatutReservation.CONFIRMEE),
-                LocalDateTime.now()
-        );
+        List<Reservation> expirables = reservationDAO.findExpired(STATUTS_EXPIRABLES, LocalDateTime.now());
         int count = 0;
         for (Reservation res : expirables) {
-            res.setStatut(StatutReservation.EXPIREE);
-            if (res.isExemplaireVerrouille()) {
-                Ressource r = res.getRessource();
-                r.setExemplairesDisponibles(r.getExemplairesDisponibles() + 1);
-                ressourceDAO.save(r);
-            }
-            reservationDAO.save(res);
-            notifierExpiration(res);
+            expirer(res);
+            echeanceScheduler.desarmer(res.getId());
+            pushReservationsEnAttente(res.getBibliotheque().getId());
             count++;
         }
-        if (count > 0 && !expirables.isEmpty()) {
-            pushReservationsEnAttente(expirables.get(0).getBibliotheque().getId());
-        }
         return count;
     }
 
+    /**
+     * Expire une réservation précise dès que son échéance est atteinte (appelé par le minuteur).
+     * Retourne false si la réservation a changé d'état ou si son échéance a été repoussée entre-temps.
+     */
+    @Transactional
+    public boolean expirerReservation(Long reservationId) {
+        Reservation res = reservationDAO.findById(reservationId).orElse(null);
+        if (res == null || !STATUTS_EXPIRABLES.contains(res.getStatut())
+                || res.getDateExpiration() == null || res.getDateExpiration().isAfter(LocalDateTime.now())) {
+            return false;
+        }
+        expirer(res);
+        pushReservationsEnAttente(res.getBibliotheque().getId());
+        return true;
+    }
+
+    private void expirer(Reservation res) {
+        res.setStatut(StatutReservation.EXPIREE);
+        libererExemplaire(res);
+        reservationDAO.save(res);
+        notifierExpiration(res);
+    }
+
+    /**
+     * Attribue les exemplaires disponibles d'une ressource aux réservations en file, dans l'ordre d'arrivée.
+     * Appelé après chaque libération d'exemplaire (retour de prêt, annulation, expiration).
+     */
+    @Transactional
+    public int promouvoirFileAttente(Long ressourceId) {
+        return promouvoir(verrouillerRessource(ressourceId));
+    }
+
+    /**
+     * Positions (1 = prochain servi) des réservations en file parmi {@code reservations}, par identifiant,
+     * calculées en une seule requête. Les réservations absentes de la map ne sont pas en file.
+     */
+    public java.util.Map<Long, Long> positionsDansFile(java.util.Collection<Reservation> reservations) {
+        List<Long> ids = reservations.stream()
+                .filter(r -> r.getStatut() == StatutReservation.EN_FILE && r.getRangFile() != null)
+                .map(Reservation::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return java.util.Map.of();
+        }
+        java.util.Map<Long, Long> positions = new java.util.HashMap<>();
+        for (Object[] row : reservationDAO.findPositionsDansFile(ids, StatutReservation.EN_FILE)) {
+            positions.put((Long) row[0], ((Number) row[1]).longValue() + 1);
+        }
+        return positions;
+    }
+
+    private int promouvoir(Ressource ressource) {
+        int promues = 0;
+        while (ressource.getExemplairesDisponibles() != null && ressource.getExemplairesDisponibles() > 0) {
+            java.util.Optional<Reservation> suivante = reservationDAO
+                    .findFirstByRessource_IdAndStatutOrderByRangFileAsc(ressource.getId(), StatutReservation.EN_FILE);
+            if (suivante.isEmpty()) {
+                break;
+            }
+            Reservation reservation = suivante.get();
+            attribuerExemplaire(reservation, ressource);
+            reservation.setRangFile(null);
+            reservationDAO.save(reservation);
+            ressourceDAO.save(ressource);
+            pretService.mettreEnCoursDepuisReservation(reservation);
+            echeanceScheduler.armerApresCommit(reservation.getId(), reservation.getDateExpiration());
+            notifierConfirmation(reservation);
+            logger.info("Réservation {} promue depuis la file d'attente de la ressource {}", reservation.getId(), ressource.getId());
+            promues++;
+        }
+        if (promues > 0 && ressource.getBibliotheque() != null) {
+            pushReservationsEnAttente(ressource.getBibliotheque().getId());
+        }
+        return promues;
+    }
+
+    private void attribuerExemplaire(Reservation reservation, Ressource ressource) {
+        ressource.setExemplairesDisponibles(ressource.getExemplairesDisponibles() - 1);
+        reservation.setStatut(StatutReservation.CONFIRMEE);
+        reservation.setDateConfirmation(LocalDateTime.now());
+        reservation.setDeadlineRetrait(LocalDateTime.now().plusHours(DEFAULT_RETRAIT_HEURES));
+        reservation.setDateExpiration(reservation.getDeadlineRetrait());
+        reservation.setExemplaireVerrouille(true);
+    }
+
+    /**
+     * Rend l'exemplaire bloqué par une réservation puis le réattribue au premier de la file d'attente.
+     */
+    private void libererExemplaire(Reservation reservation) {
+        if (!reservation.isExemplaireVerrouille()) {
+            return;
+        }
+        Ressource r = verrouillerRessource(reservation.getRessource().getId());
+        r.setExemplairesDisponibles((r.getExemplairesDisponibles() == null ? 0 : r.getExemplairesDisponibles()) + 1);
+        reservation.setExemplaireVerrouille(false);
+        ressourceDAO.save(r);
+        promouvoir(r);
+    }
+
+    private Ressource verrouillerRessource(Long ressourceId) {
+        return ressourceDAO.findByIdForUpdate(ressourceId)
+                .orElseThrow(() -> new IllegalArgumentException("Ressource introuvable"));
+    }
+
     private Reservation chargerReservation(Long id) {
         return reservationDAO.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Réservation introuvable"));
@@ -334,17 +430,8 @@ public class ReservationService {
         logger.info("Réservation {} expirée", reservation.getId());
     }
 
+    // Diffusion différée et regroupée par ReservationsEnAttentePublisher
     private void pushReservationsEnAttente(Long bibliothequeId) {
-        try {
-            int totalGlobal = 0;
-            if (bibliothequeId != null) {
-                totalGlobal = reservationDAO.findByBibliothequeAndStatut(bibliothequeId, StatutReservation.EN_ATTENTE).size();
-                messagingTemplate.convertAndSend("/topic/reservations/en-attente/" + bibliothequeId, totalGlobal);
-            }
-            // Topic global pour tous les bibliothécaires/admins
-            messagingTemplate.convertAndSend("/topic/reservations/en-attente", totalGlobal);
-        } catch (Exception e) {
-            logger.warn("pushReservationsEnAttente failed: {}", e.getMessage());
-        }
+        enAttentePublisher.marquer(bibliothequeId);
     }
 }
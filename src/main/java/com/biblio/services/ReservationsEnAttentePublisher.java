@@ -0,0 +1,96 @@
+package com.biblio.services;
+
+import com.biblio.dao.ReservationDAO;
+import com.biblio.enums.StatutReservation;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diffusion regroupée du nombre de réservations en attente.
+ * Chaque changement marque sa bibliothèque comme modifiée ; un flush périodique envoie au plus un message
+ * par bibliothèque et un total global, quel que soit le nombre de réservations traitées entre-temps.
+ */
+@Service
+public class ReservationsEnAttentePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationsEnAttentePublisher.class);
+    static final String TOPIC_BIBLIOTHEQUE = "/topic/reservations/en-attente/";
+    static final String TOPIC_GLOBAL = "/topic/reservations/en-attente";
+
+    private final ReservationDAO reservationDAO;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObservationRegistry observationRegistry;
+    private final Set<Long> bibliothequesModifiees = ConcurrentHashMap.newKeySet();
+
+    public ReservationsEnAttentePublisher(ReservationDAO reservationDAO, SimpMessagingTemplate messagingTemplate,
+                                          ObservationRegistry observationRegistry) {
+        this.reservationDAO = reservationDAO;
+        this.messagingTemplate = messagingTemplate;
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Signale un changement pour une bibliothèque. Dans une transaction, le marquage n'a lieu qu'au commit
+     * pour que le compteur diffusé reflète l'état validé.
+     */
+    public void marquer(Long bibliothequeId) {
+        if (bibliothequeId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bibliothequesModifiees.add(bibliothequeId);
+                }
+            });
+        } else {
+            bibliothequesModifiees.add(bibliothequeId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.reservations.push-interval-ms:1000}")
+    public void flush() {
+        if (bibliothequesModifiees.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(bibliothequesModifiees);
+        ids.forEach(bibliothequesModifiees::remove);
+        try {
+            // Un span par diffusion effective (les passages à vide ne sont pas tracés)
+            Observation.createNotStarted("biblio.stomp.diffusion", observationRegistry)
+                    .contextualName("diffusion reservations en attente")
+                    .highCardinalityKeyValue("bibliotheques", String.valueOf(ids.size()))
+                    .observe(() -> diffuser(ids));
+        } catch (Exception e) {
+            // Les bibliothèques restent à rediffuser au prochain passage
+            bibliothequesModifiees.addAll(ids);
+            logger.warn("Diffusion des réservations en attente échouée: {}", e.getMessage());
+        }
+    }
+
+    private void diffuser(List<Long> ids) {
+        Map<Long, Long> compteurs = new HashMap<>();
+        for (Object[] row : reservationDAO.countByBibliothequesAndStatut(ids, StatutReservation.EN_ATTENTE)) {
+            compteurs.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        for (Long id : ids) {
+            messagingTemplate.convertAndSend(TOPIC_BIBLIOTHEQUE + id, compteurs.getOrDefault(id, 0L));
+        }
+        // Topic global pour tous les bibliothécaires/admins : total réel sur l'ensemble du réseau
+        messagingTemplate.convertAndSend(TOPIC_GLOBAL, reservationDAO.countByStatut(StatutReservation.EN_ATTENTE));
+    }
+}
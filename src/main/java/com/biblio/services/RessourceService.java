@@ -6,6 +6,7 @@ import com.biblio.dao.UserDAO;
 import com.biblio.entities.Bibliotheque;
 import com.biblio.entities.Ressource;
 import com.biblio.entities.User;
+import io.micrometer.observation.annotation.Observed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -14,17 +15,23 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Service
+@Observed(name = "biblio.service")
 public class RessourceService {
     private static final Logger logger = LoggerFactory.getLogger(RessourceService.class);
     
     private final RessourceDAO ressourceDAO;
     private final BibliothequeDAO bibliothequeDAO;
     private final UserDAO userDAO;
+    private final FileStorageService fileStorageService;
+    private final CacheCatalogue cacheCatalogue;
 
-    public RessourceService(RessourceDAO ressourceDAO, BibliothequeDAO bibliothequeDAO, UserDAO userDAO) {
+    public RessourceService(RessourceDAO ressourceDAO, BibliothequeDAO bibliothequeDAO, UserDAO userDAO,
+                            FileStorageService fileStorageService, CacheCatalogue cacheCatalogue) {
         this.ressourceDAO = ressourceDAO;
         this.bibliothequeDAO = bibliothequeDAO;
         this.userDAO = userDAO;
+        this.fileStorageService = fileStorageService;
+        this.cacheCatalogue = cacheCatalogue;
     }
 
     /**
@@ -87,6 +94,8 @@ public class RessourceService {
                 .build();
         
         Ressource saved = ressourceDAO.save(ressource);
+        cacheCatalogue.invaliderApresCommit();
+        fileStorageService.ajouterReference(imageCouverture);
         logger.info("Ressource créée: {} (ID: {}) par bibliothécaire {} pour bibliothèque {}", 
                 titre, saved.getId(), bibliothecaireEmail, bibliotheque.getNom());
         
@@ -182,10 +191,15 @@ public class RessourceService {
         if (description != null) ressource.setDescription(description);
         if (editeur != null) ressource.setEditeur(editeur);
         if (datePublication != null) ressource.setDatePublication(datePublication);
-        if (imageCouverture != null) ressource.setImageCouverture(imageCouverture);
+        if (imageCouverture != null && !imageCouverture.equals(ressource.getImageCouverture())) {
+            fileStorageService.retirerReference(ressource.getImageCouverture());
+            fileStorageService.ajouterReference(imageCouverture);
+            ressource.setImageCouverture(imageCouverture);
+        }
         if (exemplairesDisponibles != null) ressource.setExemplairesDisponibles(exemplairesDisponibles);
 
         Ressource updated = ressourceDAO.save(ressource);
+        cacheCatalogue.invaliderApresCommit();
         logger.info("Ressource mise à jour: {} (ID: {}) par bibliothécaire {} pour bibliothèque {}",
                 updated.getTitre(), updated.getId(), bibliothecaireEmail,
                 updated.getBibliotheque() != null ? updated.getBibliotheque().getNom() : "N/A");
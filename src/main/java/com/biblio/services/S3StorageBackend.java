@@ -0,0 +1,163 @@
+package com.biblio.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stockage dans un bucket compatible S3 (AWS, MinIO...). Les fichiers au-delà d'une partie sont envoyés
+ * en multipart, une partie à la fois depuis le fichier temporaire : la mémoire utilisée est bornée
+ * par la taille d'une partie. Les clients lisent les fichiers par URL pré-signée.
+ */
+public class S3StorageBackend implements StorageBackend, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(S3StorageBackend.class);
+
+    // Taille minimale d'une partie imposée par S3 (sauf la dernière)
+    public static final int TAILLE_PARTIE_MIN = 5 * 1024 * 1024;
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final int taillePartie;
+
+    public S3StorageBackend(S3Client client, S3Presigner presigner, String bucket, int taillePartie) {
+        this.client = client;
+        this.presigner = presigner;
+        this.bucket = bucket;
+        this.taillePartie = taillePartie;
+    }
+
+    @Override
+    public Path fichierTemporaire() throws IOException {
+        return Files.createTempFile("biblio-depot-", ".tmp");
+    }
+
+    @Override
+    public void deposer(String chemin, Path source, String typeContenu) throws IOException {
+        try {
+            long taille = Files.size(source);
+            if (taille <= taillePartie) {
+                client.putObject(r -> r.bucket(bucket).key(chemin).contentType(typeContenu), RequestBody.fromFile(source));
+            } else {
+                deposerEnParties(chemin, source, typeContenu);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Envoi impossible de " + chemin + " vers S3", e);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private void deposerEnParties(String chemin, Path source, String typeContenu) throws IOException {
+        String uploadId = client.createMultipartUpload(r -> r.bucket(bucket).key(chemin).contentType(typeContenu))
+                .uploadId();
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<CompletedPart> parties = new ArrayList<>();
+            ByteBuffer tampon = ByteBuffer.allocate(taillePartie);
+            int numero = 1;
+            while (remplir(in, tampon) > 0) {
+                int partie = numero++;
+                String etag = client.uploadPart(r -> r.bucket(bucket).key(chemin).uploadId(uploadId)
+                                .partNumber(partie).contentLength((long) tampon.position()),
+                        RequestBody.fromInputStream(
+                                new ByteArrayInputStream(tampon.array(), 0, tampon.position()), tampon.position()))
+                        .eTag();
+                parties.add(CompletedPart.builder().partNumber(partie).eTag(etag).build());
+                tampon.clear();
+            }
+            client.completeMultipartUpload(r -> r.bucket(bucket).key(chemin).uploadId(uploadId)
+                    .multipartUpload(m -> m.parts(parties)));
+        } catch (IOException | RuntimeException e) {
+            try {
+                client.abortMultipartUpload(r -> r.bucket(bucket).key(chemin).uploadId(uploadId));
+            } catch (SdkException abandon) {
+                logger.warn("Abandon de l'envoi multipart {} impossible: {}", uploadId, abandon.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private static int remplir(FileChannel in, ByteBuffer tampon) throws IOException {
+        while (tampon.hasRemaining() && in.read(tampon) != -1) {
+            // lecture jusqu'à une partie complète ou la fin du fichier
+        }
+        return tampon.position();
+    }
+
+    @Override
+    public boolean existe(String chemin) throws IOException {
+        try {
+            client.headObject(r -> r.bucket(bucket).key(chemin));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Lecture impossible de " + chemin + " sur S3", e);
+        } catch (SdkException e) {
+            throw new IOException("Lecture impossible de " + chemin + " sur S3", e);
+        }
+    }
+
+    @Override
+    public InputStream ouvrir(String chemin) throws IOException {
+        try {
+            return client.getObject(r -> r.bucket(bucket).key(chemin));
+        } catch (SdkException e) {
+            throw new IOException("Lecture impossible de " + chemin + " sur S3", e);
+        }
+    }
+
+    @Override
+    public void supprimer(String chemin) throws IOException {
+        try {
+            client.deleteObject(r -> r.bucket(bucket).key(chemin));
+        } catch (SdkException e) {
+            throw new IOException("Suppression impossible de " + chemin + " sur S3", e);
+        }
+    }
+
+    @Override
+    public Optional<Path> fichierLocal(String chemin) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URI> urlSignee(String chemin, Duration validite) {
+        try {
+            return Optional.of(presigner.presignGetObject(r -> r.signatureDuration(validite)
+                    .getObjectRequest(g -> g.bucket(bucket).key(chemin))).url().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+}
@@ -3,6 +3,7 @@ package com.biblio.services;
 import com.biblio.dao.PretDAO;
 import com.biblio.dao.RessourceDAO;
 import com.biblio.dto.StatistiqueDTO;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -10,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Service
+@Observed(name = "biblio.service")
 public class StatistiquesService {
     private final PretDAO pretDAO;
     private final RessourceDAO ressourceDAO;
@@ -0,0 +1,44 @@
+package com.biblio.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Emplacement des fichiers envoyés et de leurs miniatures, désignés par un chemin relatif
+ * ({@code ab/cd/<sha256>.png}) identique quel que soit le support : répertoire local ou service compatible S3.
+ */
+public interface StorageBackend {
+
+    /**
+     * Fichier temporaire où préparer un contenu avant {@link #deposer}, choisi pour que le dépôt soit peu coûteux
+     * (même volume que le stockage local).
+     */
+    Path fichierTemporaire() throws IOException;
+
+    /**
+     * Publie le contenu de {@code source} sous {@code chemin}, en remplaçant un éventuel fichier existant.
+     * Le contenu n'est visible qu'une fois complet ; {@code source} est consommé.
+     */
+    void deposer(String chemin, Path source, String typeContenu) throws IOException;
+
+    boolean existe(String chemin) throws IOException;
+
+    InputStream ouvrir(String chemin) throws IOException;
+
+    void supprimer(String chemin) throws IOException;
+
+    /**
+     * Fichier sur le disque local, pour une diffusion sans copie ; vide pour un stockage distant.
+     */
+    Optional<Path> fichierLocal(String chemin);
+
+    /**
+     * URL pré-signée de lecture directe par le client, valable {@code validite} ; vide si le stockage
+     * n'en propose pas (les fichiers sont alors servis par l'application).
+     */
+    Optional<URI> urlSignee(String chemin, Duration validite);
+}
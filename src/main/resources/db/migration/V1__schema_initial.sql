@@ -0,0 +1,166 @@
+-- Schéma de référence, tel que généré jusqu'ici par Hibernate (ddl-auto) pour MySQL.
+-- Les bases existantes sont marquées à cette version (baseline) sans réexécuter ce script.
+
+create table bibliotheques (
+    id bigint not null auto_increment,
+    nom varchar(100) not null,
+    adresse varchar(255) not null,
+    ville varchar(100) not null,
+    telephone varchar(20),
+    capacite_stock integer,
+    latitude float(53),
+    longitude float(53),
+    actif bit not null,
+    primary key (id),
+    check ((capacite_stock>=0))
+) engine=InnoDB;
+
+create table `user` (
+    id bigint not null auto_increment,
+    nom varchar(50) not null,
+    prenom varchar(50) not null,
+    email varchar(100) not null,
+    mot_de_passe varchar(255) not null,
+    telephone varchar(20),
+    adresse varchar(200),
+    role enum ('ADMIN','BIBLIOTHECAIRE','SUPER_ADMIN','USAGER') not null,
+    actif bit not null,
+    email_verifie bit not null,
+    token_verification varchar(100),
+    date_inscription datetime(6) not null,
+    bibliotheque_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table ressources (
+    id bigint not null auto_increment,
+    titre varchar(200) not null,
+    auteur varchar(100) not null,
+    isbn varchar(20),
+    categorie enum ('ARTS','DROIT','ECONOMIE','HISTOIRE','JEUNESSE','LITTERATURE','MULTIMEDIA','PHILOSOPHIE','SCIENCES','TECHNOLOGIE') not null,
+    type_ressource enum ('AUDIOBOOK','CD','DVD','EBOOK','LIVRE','REVUE') not null,
+    description TEXT,
+    editeur varchar(100),
+    date_publication date,
+    nombre_exemplaires integer not null,
+    exemplaires_disponibles integer not null,
+    image_couverture varchar(500),
+    popularite integer not null,
+    date_ajout datetime(6) not null,
+    version bigint,
+    bibliotheque_id bigint not null,
+    primary key (id),
+    check ((exemplaires_disponibles>=0)),
+    check ((nombre_exemplaires>=1)),
+    check ((popularite>=0))
+) engine=InnoDB;
+
+create table prets (
+    id bigint not null auto_increment,
+    date_reservation datetime(6),
+    date_emprunt datetime(6),
+    date_retour_prevu date not null,
+    date_retour_effectif datetime(6),
+    statut enum ('ANNULE','BLOQUE','CLOTURE','EMPRUNTE','EN_COURS','RESERVE','RETOURNE') not null,
+    duree_emprunt integer not null,
+    prolongations integer not null,
+    penalite_retard decimal(10,2) not null,
+    feedback_usager TEXT,
+    note_usager integer,
+    utilisateur_id bigint not null,
+    ressource_id bigint not null,
+    bibliotheque_id bigint not null,
+    primary key (id),
+    check ((duree_emprunt<=90) and (duree_emprunt>=1)),
+    check ((note_usager>=1) and (note_usager<=5)),
+    check ((prolongations>=0) and (prolongations<=2))
+) engine=InnoDB;
+
+create table reservations (
+    id bigint not null auto_increment,
+    ressource_id bigint not null,
+    usager_id bigint not null,
+    bibliotheque_id bigint not null,
+    statut enum ('ANNULEE','CONFIRMEE','EMPRUNT_EN_COURS','EN_ATTENTE','EXPIREE','RETIREE') not null,
+    date_demande datetime(6) not null,
+    date_confirmation datetime(6),
+    date_expiration datetime(6),
+    deadline_retrait datetime(6),
+    commentaire TEXT,
+    notif_demande_envoyee bit not null,
+    notif_pret_pret_envoyee bit not null,
+    notif_expiration_avertie bit not null,
+    exemplaire_verrouille bit not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table notifications (
+    id bigint not null auto_increment,
+    message varchar(500) not null,
+    type enum ('DISPONIBILITE','RAPPEL_RETOUR','RESERVATION_CONFIRMEE','RETARD','SYSTEME') not null,
+    canal enum ('EMAIL','INTERNE','PUSH') not null,
+    date_envoi datetime(6) not null,
+    lu bit not null,
+    utilisateur_id bigint,
+    pret_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table rapports (
+    id bigint not null auto_increment,
+    titre varchar(200) not null,
+    type_rapport enum ('PRETS_PAR_BIBLIOTHEQUE','PRETS_PAR_CATEGORIE','RETARDS','ROTATION_STOCK','UTILISATEURS_ACTIFS') not null,
+    date_debut date not null,
+    date_fin date not null,
+    date_generation datetime(6) not null,
+    donnees_json TEXT not null,
+    format_export enum ('CSV','JSON','PDF'),
+    chemin_fichier varchar(500),
+    createur_id bigint not null,
+    bibliotheque_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table user_logs (
+    id bigint not null auto_increment,
+    utilisateur_id bigint,
+    action varchar(50) not null,
+    level varchar(10) not null,
+    message varchar(500) not null,
+    ip varchar(45),
+    user_agent varchar(255),
+    created_at datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table bibliotheques add constraint UKi8d4ica0jrpl6vc9dcwg3tkod unique (nom);
+alter table ressources add constraint idx_ressource_isbn unique (isbn);
+alter table `user` add constraint idx_user_email unique (email);
+
+create index idx_bibliotheque_ville on bibliotheques (ville);
+create index idx_notification_type on notifications (type);
+create index idx_notification_date on notifications (date_envoi);
+create index idx_pret_statut on prets (statut);
+create index idx_pret_date_retour on prets (date_retour_prevu);
+create index idx_rapport_type on rapports (type_rapport);
+create index idx_rapport_date on rapports (date_generation);
+create index idx_ressource_titre on ressources (titre);
+create index idx_ressource_auteur on ressources (auteur);
+create index idx_ressource_categorie on ressources (categorie);
+create index idx_userlog_created_at on user_logs (created_at);
+create index idx_userlog_action on user_logs (action);
+create index idx_userlog_user on user_logs (utilisateur_id);
+
+alter table `user` add constraint FKe0a0diqblaadrhk4e9i7e0aq0 foreign key (bibliotheque_id) references bibliotheques (id);
+alter table ressources add constraint FKhn32fu8edxi1y9fxe1qkm7fss foreign key (bibliotheque_id) references bibliotheques (id);
+alter table prets add constraint FKcgd8oun0ahlfjy2557bi0b0wo foreign key (bibliotheque_id) references bibliotheques (id);
+alter table prets add constraint FKiw6spxoq9k5im43qfy3jho4wd foreign key (ressource_id) references ressources (id);
+alter table prets add constraint FKrhoker0gm2ge8l4jqxsekx998 foreign key (utilisateur_id) references `user` (id);
+alter table reservations add constraint FK4uwt44eam18auxliu6ee72obn foreign key (bibliotheque_id) references bibliotheques (id);
+alter table reservations add constraint FKh9pa1qhy2e5v34mq0f1e39r0a foreign key (ressource_id) references ressources (id);
+alter table reservations add constraint FKre9nx63yd5o807w2bci66mhbe foreign key (usager_id) references `user` (id);
+alter table notifications add constraint FKg7muu72bx18a4ejqph89wnt19 foreign key (pret_id) references prets (id);
+alter table notifications add constraint FK2lfo1kslftd1kbje8h7ybn9s9 foreign key (utilisateur_id) references `user` (id);
+alter table rapports add constraint FKgkfcs7gb2ypsowyt8y5t80yww foreign key (bibliotheque_id) references bibliotheques (id);
+alter table rapports add constraint FKeix5wwesuagq1bhckvirxsab5 foreign key (createur_id) references `user` (id);
+alter table user_logs add constraint FK53wusguly272uovxgojmk0axs foreign key (utilisateur_id) references `user` (id);
@@ -0,0 +1,33 @@
+-- Compteurs d'identifiants des entités (générateur table pooled, blocs de 50).
+-- Chaque compteur démarre au-delà du plus grand identifiant attribué par AUTO_INCREMENT.
+
+create table if not exists id_generateurs (
+    entite varchar(255) not null,
+    prochaine_valeur bigint,
+    primary key (entite)
+) engine=InnoDB;
+
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'bibliotheques', coalesce((select max(id) from bibliotheques), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'bibliotheques');
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'notifications', coalesce((select max(id) from notifications), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'notifications');
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'prets', coalesce((select max(id) from prets), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'prets');
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'rapports', coalesce((select max(id) from rapports), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'rapports');
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'reservations', coalesce((select max(id) from reservations), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'reservations');
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'ressources', coalesce((select max(id) from ressources), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'ressources');
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'user', coalesce((select max(id) from `user`), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'user');
+insert into id_generateurs (entite, prochaine_valeur)
+    select 'user_logs', coalesce((select max(id) from user_logs), 0) + 50 from dual
+    where not exists (select 1 from id_generateurs where entite = 'user_logs');
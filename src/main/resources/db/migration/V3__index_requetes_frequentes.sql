@@ -0,0 +1,17 @@
+-- Index composites alignés sur les requêtes les plus fréquentes des DAO.
+
+-- ReservationDAO.findByBibliothequeAndStatut, countByBibliothequesAndStatut
+create index idx_reservation_bibliotheque_statut on reservations (bibliotheque_id, statut);
+
+-- ReservationDAO.findExpired, findEcheances : égalité/IN sur le statut puis intervalle sur l'échéance
+create index idx_reservation_statut_expiration on reservations (statut, date_expiration);
+
+-- ReservationDAO.countActivesByUsager, existsByUsagerIdAndRessourceIdInAndStatutIn
+create index idx_reservation_usager_statut on reservations (usager_id, statut);
+
+-- PretDAO.findFirstByUtilisateur_IdAndRessource_IdAndStatut ; le préfixe utilisateur_id sert aussi
+-- countActifsByUtilisateur
+create index idx_pret_utilisateur_ressource_statut on prets (utilisateur_id, ressource_id, statut);
+
+-- PretDAO.findByBibliothequeAndStatut, findByBibliotheque_IdAndStatut
+create index idx_pret_bibliotheque_statut on prets (bibliotheque_id, statut);
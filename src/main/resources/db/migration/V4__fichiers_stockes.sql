@@ -0,0 +1,12 @@
+-- Stockage des fichiers envoyés par empreinte de contenu, avec compteur de références.
+
+create table fichiers_stockes (
+    chemin varchar(100) not null,
+    taille bigint not null,
+    type_contenu varchar(100),
+    nb_references integer not null,
+    date_modification datetime(6) not null,
+    primary key (chemin)
+) engine=InnoDB;
+
+create index idx_fichier_orphelin on fichiers_stockes (nb_references, date_modification);
@@ -0,0 +1,10 @@
+-- Seaux à jetons partagés de la limitation de débit (app.limitation.stockage=jdbc).
+-- tat : date théorique d'arrivée de la prochaine requête (ms epoch), algorithme GCRA.
+
+create table limitation_debit (
+    cle varchar(191) not null,
+    tat bigint not null,
+    primary key (cle)
+) engine=InnoDB;
+
+create index idx_limitation_debit_tat on limitation_debit (tat);
@@ -0,0 +1,15 @@
+-- Refresh tokens émis (empreinte SHA-256 du jti), regroupés par famille de rotation.
+-- Une famille dont une ligne est REVOQUE est refusée, access tokens compris.
+
+create table jetons_rafraichissement (
+    id_hash varchar(43) not null,
+    famille varchar(22) not null,
+    utilisateur_id bigint not null,
+    statut enum ('ACTIF','REVOQUE','UTILISE') not null,
+    expiration datetime(6) not null,
+    primary key (id_hash)
+) engine=InnoDB;
+
+create index idx_jeton_famille on jetons_rafraichissement (famille);
+create index idx_jeton_utilisateur_statut on jetons_rafraichissement (utilisateur_id, statut);
+create index idx_jeton_statut_expiration on jetons_rafraichissement (statut, expiration);
@@ -0,0 +1,10 @@
+-- File d'attente par ressource : une réservation confirmée sans exemplaire disponible passe au statut EN_FILE
+-- avec un rang d'arrivée croissant.
+
+alter table reservations add column rang_file bigint;
+
+-- ReservationDAO.findFirstByRessource_IdAndStatutOrderByRangFileAsc, findMaxRangFile, findPositionsDansFile
+create index idx_reservation_file on reservations (ressource_id, statut, rang_file);
+
+alter table reservations modify column statut
+    enum ('ANNULEE','CONFIRMEE','EMPRUNT_EN_COURS','EN_ATTENTE','EN_FILE','EXPIREE','RETIREE') not null;
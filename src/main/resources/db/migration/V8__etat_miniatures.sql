@@ -0,0 +1,4 @@
+-- Dérivés générés pour chaque fichier (JPEG, JPEG_WEBP, ILLISIBLE ; null tant qu'ils ne sont pas produits) :
+-- les URLs des miniatures se construisent sans interroger le stockage.
+
+alter table fichiers_stockes add column miniatures varchar(20);
@@ -0,0 +1,170 @@
+package com.biblio.config;
+
+import com.biblio.dao.BibliothequeDAO;
+import com.biblio.dao.PretDAO;
+import com.biblio.dao.ReservationDAO;
+import com.biblio.dao.RessourceDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Pret;
+import com.biblio.entities.Reservation;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.enums.Categorie;
+import com.biblio.enums.Role;
+import com.biblio.enums.StatutPret;
+import com.biblio.enums.StatutReservation;
+import com.biblio.enums.TypeRessource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Budgets SQL du profil de test (app.sql.budgets, app.sql.budget-strict) appliqués aux endpoints de liste et de
+ * réservation, authentification JWT comprise : un dépassement fait échouer la requête.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BudgetsSqlEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JsonMapper jsonMapper;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private BibliothequeDAO bibliothequeDAO;
+    @Autowired
+    private RessourceDAO ressourceDAO;
+    @Autowired
+    private UserDAO userDAO;
+    @Autowired
+    private ReservationDAO reservationDAO;
+    @Autowired
+    private PretDAO pretDAO;
+
+    private Bibliotheque bibliotheque;
+    private List<Ressource> ressources;
+
+    @BeforeEach
+    void setUp() {
+        bibliotheque = bibliothequeDAO.save(Bibliotheque.builder()
+                .nom("Médiathèque Ouest " + System.nanoTime())
+                .adresse("4 rue des Livres")
+                .ville("Nantes")
+                .build());
+        List<Ressource> nouvelles = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            nouvelles.add(Ressource.builder()
+                    .titre("Titre " + i)
+                    .auteur("Auteur " + i)
+                    .categorie(Categorie.LITTERATURE)
+                    .typeRessource(TypeRessource.LIVRE)
+                    .nombreExemplaires(3)
+                    .exemplairesDisponibles(3)
+                    .dateAjout(LocalDateTime.now())
+                    .bibliotheque(bibliotheque)
+                    .build());
+        }
+        ressources = ressourceDAO.saveAll(nouvelles);
+    }
+
+    private User utilisateur(Role role) {
+        return userDAO.save(User.builder()
+                .nom("Bernard")
+                .prenom("Chloé")
+                .email("chloe" + System.nanoTime() + "@biblio.fr")
+                .motDePasse(passwordEncoder.encode("secret123"))
+                .emailVerifie(true)
+                .role(role)
+                .bibliotheque(role == Role.BIBLIOTHECAIRE ? bibliotheque : null)
+                .build());
+    }
+
+    /**
+     * Usager avec {@code nombre} réservations en attente et autant de prêts réservés
+     */
+    private User usagerAvec(int nombre) {
+        User usager = utilisateur(Role.USAGER);
+        for (Ressource ressource : ressources.subList(0, nombre)) {
+            reservationDAO.save(Reservation.builder()
+                    .ressource(ressource)
+                    .usager(usager)
+                    .bibliotheque(bibliotheque)
+                    .statut(StatutReservation.EN_ATTENTE)
+                    .dateDemande(LocalDateTime.now())
+                    .build());
+            pretDAO.save(Pret.builder()
+                    .utilisateur(usager)
+                    .ressource(ressource)
+                    .bibliotheque(bibliotheque)
+                    .statut(StatutPret.RESERVE)
+                    .dateEmprunt(LocalDateTime.now())
+                    .dateRetourPrevu(LocalDate.now().plusDays(15))
+                    .build());
+        }
+        return usager;
+    }
+
+    private String connecter(User user) throws Exception {
+        MvcResult connexion = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + user.getEmail() + "\",\"password\":\"secret123\"}"))
+                .andReturn();
+        assertEquals(200, connexion.getResponse().getStatus(), connexion.getResponse().getContentAsString());
+        return jsonMapper.readTree(connexion.getResponse().getContentAsByteArray()).get("accessToken").asString();
+    }
+
+    // Nombre de requêtes SQL de l'appel ; le filtre lève une exception si le budget de l'endpoint est dépassé
+    private int requetesSql(MockHttpServletRequestBuilder requete, String jeton) throws Exception {
+        MvcResult resultat = mockMvc.perform(requete.header("Authorization", "Bearer " + jeton)).andReturn();
+        assertEquals(200, resultat.getResponse().getStatus(), resultat.getResponse().getContentAsString());
+        return Integer.parseInt(resultat.getResponse().getHeader(ProfilageSqlFilter.ENTETE_NOMBRE_REQUETES));
+    }
+
+    @Test
+    void listingAndReservationEndpoints_shouldStayWithinSqlBudgets() throws Exception {
+        String usager = connecter(usagerAvec(1));
+        String bibliothecaire = connecter(utilisateur(Role.BIBLIOTHECAIRE));
+
+        requetesSql(get("/api/ressources"), usager);
+        requetesSql(get("/api/reservations/mes"), usager);
+        requetesSql(get("/api/prets/mes-prets"), usager);
+        requetesSql(get("/api/reservations/en-attente"), bibliothecaire);
+        requetesSql(post("/api/reservations").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ressourceId\":" + ressources.get(5).getId() + "}"), usager);
+    }
+
+    @Test
+    void userListings_shouldNotIssueOneQueryPerRow() throws Exception {
+        String unePage = connecter(usagerAvec(1));
+        String sixPages = connecter(usagerAvec(6));
+
+        assertEquals(requetesSql(get("/api/reservations/mes"), unePage),
+                requetesSql(get("/api/reservations/mes"), sixPages));
+        assertEquals(requetesSql(get("/api/prets/mes-prets"), unePage),
+                requetesSql(get("/api/prets/mes-prets"), sixPages));
+        assertEquals(requetesSql(get("/api/reservations/en-attente"), connecter(utilisateur(Role.BIBLIOTHECAIRE))),
+                requetesSql(get("/api/reservations/en-attente"), connecter(utilisateur(Role.BIBLIOTHECAIRE))));
+    }
+}
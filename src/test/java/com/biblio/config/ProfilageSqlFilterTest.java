@@ -0,0 +1,118 @@
+package com.biblio.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilageSqlFilterTest {
+
+    private static final String MOTIF = "/api/reservations/{id}";
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:profilage-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        DataSource dataSource = ProfilageSqlConfig.envelopper(h2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table livres (id int primary key, titre varchar(50))");
+        jdbcTemplate.batchUpdate("insert into livres values (?, ?)",
+                List.of(new Object[]{1, "a"}, new Object[]{2, "b"}, new Object[]{3, "c"}));
+        registry = new SimpleMeterRegistry();
+    }
+
+    private ProfilageSqlFilter filtre(String budgets, boolean enteteDebug, boolean strict) {
+        return new ProfilageSqlFilter(registry, budgets, enteteDebug, strict);
+    }
+
+    // Une lecture de 3 lignes puis, par ligne, une requête de plus (N+1)
+    private final FilterChain endpointNPlusUn = (req, resp) -> {
+        req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, MOTIF);
+        for (Integer id : jdbcTemplate.queryForList("select id from livres", Integer.class)) {
+            jdbcTemplate.queryForObject("select titre from livres where id = ?", String.class, id);
+        }
+        resp.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+        resp.flushBuffer();
+    };
+
+    @Test
+    void doFilter_shouldAttributeStatementsRowsAndTimeToEndpoint() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtre("", true, false).doFilter(new MockHttpServletRequest("GET", "/api/reservations/7"), response,
+                endpointNPlusUn);
+
+        assertEquals("4", response.getHeader(ProfilageSqlFilter.ENTETE_NOMBRE_REQUETES));
+        assertEquals(4, registry.get("biblio.sql.requetes").tags("methode", "GET", "endpoint", MOTIF)
+                .summary().totalAmount());
+        assertEquals(6, registry.get("biblio.sql.lignes").tags("endpoint", MOTIF).summary().totalAmount());
+        assertEquals(1, registry.get("biblio.sql.duree").tags("endpoint", MOTIF).timer().count());
+    }
+
+    @Test
+    void doFilter_withoutDebugHeader_shouldLeaveResponseUntouched() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtre("", false, false).doFilter(new MockHttpServletRequest("GET", "/api/reservations/7"), response,
+                endpointNPlusUn);
+
+        assertNull(response.getHeader(ProfilageSqlFilter.ENTETE_NOMBRE_REQUETES));
+    }
+
+    @Test
+    void doFilter_overBudget_strict_shouldFail() {
+        ProfilageSqlFilter filtre = filtre("GET " + MOTIF + "=2", false, true);
+
+        IllegalStateException erreur = assertThrows(IllegalStateException.class, () -> filtre.doFilter(
+                new MockHttpServletRequest("GET", "/api/reservations/7"), new MockHttpServletResponse(), endpointNPlusUn));
+
+        assertTrue(erreur.getMessage().contains("4 requêtes (budget 2)"), erreur.getMessage());
+        assertEquals(1, registry.get("biblio.sql.budget.depasse").counter().count());
+    }
+
+    @Test
+    void doFilter_overBudget_lenient_shouldOnlyCount() throws Exception {
+        filtre("GET " + MOTIF + "=2, POST /api/prets=1", false, false).doFilter(
+                new MockHttpServletRequest("GET", "/api/reservations/7"), new MockHttpServletResponse(), endpointNPlusUn);
+        filtre("GET " + MOTIF + "=4", false, true).doFilter(
+                new MockHttpServletRequest("GET", "/api/reservations/7"), new MockHttpServletResponse(), endpointNPlusUn);
+
+        assertEquals(1, registry.get("biblio.sql.budget.depasse").counter().count());
+    }
+
+    @Test
+    void statementsOutsideRequest_shouldNotBeAttributed() throws Exception {
+        jdbcTemplate.queryForList("select id from livres");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtre("", true, false).doFilter(new MockHttpServletRequest("GET", "/"), response, (req, resp) -> { });
+
+        assertEquals("0", response.getHeader(ProfilageSqlFilter.ENTETE_NOMBRE_REQUETES));
+        assertEquals(0, registry.get("biblio.sql.requetes").tags("endpoint", ProfilageSqlFilter.ENDPOINT_INCONNU)
+                .summary().totalAmount());
+    }
+
+    @Test
+    void lireBudgets_shouldParseMethodAndPattern() {
+        assertEquals(Map.of("POST /api/reservations", 12, "GET /api/prets/{id}", 3),
+                ProfilageSqlFilter.lireBudgets("POST /api/reservations=12, GET /api/prets/{id}=3"));
+        assertTrue(ProfilageSqlFilter.lireBudgets("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ProfilageSqlFilter.lireBudgets("GET /api/prets"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.biblio.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulingConfigTest {
+
+    private AnnotationConfigApplicationContext contexte;
+
+    @AfterEach
+    void tearDown() {
+        if (contexte != null) {
+            contexte.close();
+        }
+    }
+
+    static class JobTemoin {
+        final CountDownLatch execute = new CountDownLatch(1);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+
+        @Scheduled(fixedDelay = 10)
+        public void executer() {
+            thread.compareAndSet(null, Thread.currentThread());
+            execute.countDown();
+        }
+    }
+
+    private Thread demarrer(Map<String, Object> proprietes) throws InterruptedException {
+        contexte = new AnnotationConfigApplicationContext();
+        contexte.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", proprietes));
+        contexte.register(SchedulingConfig.class, JobTemoin.class);
+        contexte.refresh();
+        JobTemoin job = contexte.getBean(JobTemoin.class);
+        assertTrue(job.execute.await(5, TimeUnit.SECONDS));
+        return job.thread.get();
+    }
+
+    private static boolean estVirtuel(Thread thread) throws ReflectiveOperationException {
+        // Thread.isVirtual n'existe qu'à partir de Java 21
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    @Test
+    void scheduledJobs_shouldRunOnDedicatedPlatformPoolByDefault() throws InterruptedException {
+        Thread thread = demarrer(Map.of("app.scheduling.threads", "3"));
+
+        ThreadPoolTaskScheduler scheduler = assertInstanceOf(ThreadPoolTaskScheduler.class,
+                contexte.getBean("taskScheduler", TaskScheduler.class));
+        assertEquals(3, scheduler.getScheduledThreadPoolExecutor().getCorePoolSize());
+        assertTrue(thread.getName().startsWith("jobs-"), thread.getName());
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void virtualThreads_shouldBeIgnoredBeforeJava21() throws InterruptedException {
+        Thread thread = demarrer(Map.of("spring.threads.virtual.enabled", "true"));
+
+        assertInstanceOf(ThreadPoolTaskScheduler.class, contexte.getBean("taskScheduler", TaskScheduler.class));
+        assertTrue(thread.getName().startsWith("jobs-"), thread.getName());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreads_shouldRunEachScheduledJobOnVirtualThread() throws Exception {
+        Thread thread = demarrer(Map.of("spring.threads.virtual.enabled", "true"));
+
+        assertInstanceOf(SimpleAsyncTaskScheduler.class, contexte.getBean("taskScheduler", TaskScheduler.class));
+        assertTrue(estVirtuel(thread));
+    }
+}
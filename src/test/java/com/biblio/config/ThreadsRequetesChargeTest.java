@@ -0,0 +1,215 @@
+package com.biblio.config;
+
+import com.biblio.BiblioApplication;
+import com.biblio.dao.BibliothequeDAO;
+import com.biblio.dao.ReservationDAO;
+import com.biblio.dao.RessourceDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Reservation;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.enums.Categorie;
+import com.biblio.enums.StatutReservation;
+import com.biblio.enums.TypeRessource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Application complète (H2 en mode MySQL) sous au moins 1 000 utilisateurs simultanés, bien plus que le pool de
+ * threads Tomcat par défaut (200) : chacun enchaîne le catalogue ({@code GET /api/ressources}, en cache) et ses
+ * réservations ({@code GET /api/reservations/mes}, lecture en base), authentifié par JWT.
+ * <p>
+ * Mesuré en threads plateforme puis en threads virtuels (Java 21 requis), rapportés côte à côte : débit, p50, p99
+ * et latence moyenne attendue en boucle fermée (utilisateurs divisés par le débit, loi de Little).
+ * À lancer explicitement :
+ * {@code mvn test -Dtest=ThreadsRequetesChargeTest -Dbenchmark=true [-Dcharge.utilisateurs=2000]}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadsRequetesChargeTest {
+
+    private static final int UTILISATEURS = Integer.getInteger("charge.utilisateurs", 1000);
+    private static final long DUREE_MS = 10_000;
+
+    private record Mesure(long reponses, long erreurs, long p50, long p99) {
+        double debitParSeconde() {
+            return reponses * 1000.0 / DUREE_MS;
+        }
+
+        double latenceAttendueMs() {
+            return UTILISATEURS * 1000.0 / debitParSeconde();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%9.1f req/s  p50 %5d ms  p99 %5d ms  Little %7.1f ms  %d erreur(s)",
+                    debitParSeconde(), p50, p99, latenceAttendueMs(), erreurs);
+        }
+    }
+
+    @Test
+    void benchmark_platformAgainstVirtualThreads() throws Exception {
+        String plateforme = mesurer(false).toString();
+        String virtuels = Runtime.version().feature() >= 21 ? mesurer(true).toString() : "non disponible (Java 21 requis)";
+        System.out.printf("%d utilisateurs, %d s%n", UTILISATEURS, DUREE_MS / 1000);
+        System.out.printf("threads plateforme  %s%n", plateforme);
+        System.out.printf("threads virtuels    %s%n", virtuels);
+    }
+
+    private Mesure mesurer(boolean virtuels) throws Exception {
+        try (ConfigurableApplicationContext contexte = demarrer(virtuels)) {
+            String jeton = preparerDonnees(contexte);
+            int port = ((WebServerApplicationContext) contexte).getWebServer().getPort();
+            List<HttpRequest> requetes = List.of(
+                    requete(port, "/api/ressources", jeton),
+                    requete(port, "/api/reservations/mes", jeton));
+            HttpClient client = HttpClient.newHttpClient();
+            // Préchauffage (JIT, pool JDBC, cache du catalogue)
+            charge(client, requetes, 5_000, new ConcurrentLinkedQueue<>(), new AtomicLong());
+            ConcurrentLinkedQueue<Long> latences = new ConcurrentLinkedQueue<>();
+            AtomicLong erreurs = new AtomicLong();
+            charge(client, requetes, DUREE_MS, latences, erreurs);
+
+            List<Long> triees = new ArrayList<>(latences);
+            Collections.sort(triees);
+            assertFalse(triees.isEmpty());
+            return new Mesure(triees.size(), erreurs.get(), triees.get(triees.size() / 2),
+                    triees.get((int) (triees.size() * 0.99)));
+        }
+    }
+
+    private static ConfigurableApplicationContext demarrer(boolean virtuels) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        byte[] secret = new byte[64];
+        byte[] secretRafraichissement = new byte[64];
+        ThreadLocalRandom.current().nextBytes(secret);
+        ThreadLocalRandom.current().nextBytes(secretRafraichissement);
+        return new SpringApplicationBuilder(BiblioApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:charge" + System.nanoTime()
+                                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+                        "spring.mail.host=localhost",
+                        "spring.mail.username=test@example.com",
+                        "jwt.secret=" + base64.encodeToString(secret),
+                        "jwt.refresh-secret=" + base64.encodeToString(secretRafraichissement),
+                        "jwt.expiration=900000",
+                        "jwt.refresh-expiration=86400000",
+                        "spring.security.oauth2.client.registration.google.client-id=x",
+                        "spring.security.oauth2.client.registration.google.client-secret=y",
+                        "management.tracing.sampling.probability=0",
+                        "logging.level.root=WARN")
+                // En argument : l'emporte sur la propriété système posée par le profil java21
+                .run("--spring.threads.virtual.enabled=" + virtuels);
+    }
+
+    /**
+     * Catalogue de 300 ressources et usager avec deux réservations ; renvoie le jeton d'accès de l'usager
+     */
+    private static String preparerDonnees(ConfigurableApplicationContext contexte) throws Exception {
+        Bibliotheque bibliotheque = contexte.getBean(BibliothequeDAO.class).save(Bibliotheque.builder()
+                .nom("Médiathèque Est")
+                .adresse("3 rue des Livres")
+                .ville("Nancy")
+                .build());
+        List<Ressource> ressources = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ressources.add(Ressource.builder()
+                    .titre("Titre " + i)
+                    .auteur("Auteur " + i % 40)
+                    .categorie(Categorie.values()[i % Categorie.values().length])
+                    .typeRessource(TypeRessource.LIVRE)
+                    .nombreExemplaires(3)
+                    .exemplairesDisponibles(3)
+                    .dateAjout(LocalDateTime.now())
+                    .bibliotheque(bibliotheque)
+                    .build());
+        }
+        ressources = contexte.getBean(RessourceDAO.class).saveAll(ressources);
+        User usager = contexte.getBean(UserDAO.class).save(User.builder()
+                .nom("Petit")
+                .prenom("Léa")
+                .email("lea@biblio.fr")
+                .motDePasse(contexte.getBean(PasswordEncoder.class).encode("secret123"))
+                .emailVerifie(true)
+                .build());
+        ReservationDAO reservationDAO = contexte.getBean(ReservationDAO.class);
+        for (Ressource ressource : ressources.subList(0, 2)) {
+            reservationDAO.save(Reservation.builder()
+                    .ressource(ressource)
+                    .usager(usager)
+                    .bibliotheque(bibliotheque)
+                    .statut(StatutReservation.EN_ATTENTE)
+                    .dateDemande(LocalDateTime.now())
+                    .build());
+        }
+
+        int port = ((WebServerApplicationContext) contexte).getWebServer().getPort();
+        HttpResponse<String> connexion = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                                URI.create("http://127.0.0.1:" + port + "/api/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"email\":\"lea@biblio.fr\",\"password\":\"secret123\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, connexion.statusCode(), connexion.body());
+        return JsonMapper.builder().build().readTree(connexion.body()).get("accessToken").asString();
+    }
+
+    private static HttpRequest requete(int port, String chemin, String jeton) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + chemin))
+                .header("Authorization", "Bearer " + jeton)
+                .build();
+    }
+
+    // Chaque utilisateur enchaîne ses requêtes (boucle fermée) jusqu'à la fin de la durée
+    private static void charge(HttpClient client, List<HttpRequest> requetes, long dureeMs,
+                               ConcurrentLinkedQueue<Long> latences, AtomicLong erreurs) throws Exception {
+        long fin = System.currentTimeMillis() + dureeMs;
+        List<CompletableFuture<Void>> boucles = new ArrayList<>();
+        for (int i = 0; i < UTILISATEURS; i++) {
+            boucles.add(boucle(client, requetes, i, fin, latences, erreurs));
+        }
+        CompletableFuture.allOf(boucles.toArray(new CompletableFuture[0])).get(dureeMs + 60_000, TimeUnit.MILLISECONDS);
+    }
+
+    private static CompletableFuture<Void> boucle(HttpClient client, List<HttpRequest> requetes, int rang, long fin,
+                                                  ConcurrentLinkedQueue<Long> latences, AtomicLong erreurs) {
+        if (System.currentTimeMillis() >= fin) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long debut = System.nanoTime();
+        return client.sendAsync(requetes.get(rang % requetes.size()), HttpResponse.BodyHandlers.discarding())
+                .thenCompose(reponse -> {
+                    if (System.currentTimeMillis() < fin) {
+                        if (reponse.statusCode() != 200) {
+                            erreurs.incrementAndGet();
+                        }
+                        latences.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut));
+                    }
+                    return boucle(client, requetes, rang + 1, fin, latences, erreurs);
+                });
+    }
+}
@@ -0,0 +1,124 @@
+package com.biblio.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.ObservationView;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracingConfigTest {
+
+    interface LivreDAO {
+        String findTitre(int id);
+    }
+
+    private final List<Observation.Context> terminees = new CopyOnWriteArrayList<>();
+    private ObservationRegistry registry;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                terminees.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:tracing-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        DataSource dataSource = TracingConfig.observerJdbc(h2, () -> registry);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table livres (id int primary key, titre varchar(50))");
+        jdbcTemplate.update("insert into livres values (1, 'Germinal')");
+        terminees.clear();
+    }
+
+    private LivreDAO dao() {
+        ProxyFactory proxyFactory = new ProxyFactory(
+                (LivreDAO) id -> jdbcTemplate.queryForObject("select titre from livres where id = ?", String.class, id));
+        proxyFactory.addAdvice(TracingConfig.observerDao("LivreDAO", () -> registry));
+        return (LivreDAO) proxyFactory.getProxy();
+    }
+
+    private Observation.Context observation(String nom) {
+        return terminees.stream().filter(c -> nom.equals(c.getName())).findFirst()
+                .orElseThrow(() -> new AssertionError("Pas d'observation " + nom + " dans " + terminees));
+    }
+
+    private static List<Object> ancetres(Observation.Context context) {
+        List<Object> ancetres = new ArrayList<>();
+        for (ObservationView parent = context.getParentObservation(); parent != null;
+             parent = parent.getContextView().getParentObservation()) {
+            ancetres.add(parent.getContextView());
+        }
+        return ancetres;
+    }
+
+    @Test
+    void daoCall_shouldOpenSpanParentOfJdbcSpans() {
+        assertEquals("Germinal", dao().findTitre(1));
+
+        Observation.Context daoSpan = observation("biblio.dao");
+        assertEquals("LivreDAO.findTitre", daoSpan.getContextualName());
+        assertEquals("LivreDAO", daoSpan.getLowCardinalityKeyValue("dao").getValue());
+        Observation.Context requete = observation("jdbc.query");
+        // requête SQL → connexion → appel DAO
+        assertTrue(ancetres(requete).contains(daoSpan), ancetres(requete).toString());
+    }
+
+    @Test
+    void jdbcSpans_shouldNotCarryParameterValuesNorResultSets() {
+        dao().findTitre(1);
+
+        assertTrue(terminees.stream().noneMatch(c -> c.getName().equals("jdbc.result-set")));
+        Observation.Context requete = observation("jdbc.query");
+        assertTrue(requete.getHighCardinalityKeyValues().stream()
+                .noneMatch(kv -> kv.getKey().startsWith("jdbc.params")), requete.toString());
+    }
+
+    @Test
+    void tracingAndProfiling_shouldShareOneProxy() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:proxy-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        DataSource dataSource = ProxyJdbcConfig.envelopper(h2, List.of(
+                builder -> TracingConfig.observerJdbc(builder, () -> registry), ProfilageSqlConfig::compter));
+
+        // Une seule enveloppe, directement autour de la DataSource d'origine
+        assertSame(h2, assertInstanceOf(ProxyDataSource.class, dataSource).getDataSource());
+        ProfilageSqlConfig.Profil profil = ProfilageSqlConfig.ouvrir();
+        try {
+            assertEquals(1, new JdbcTemplate(dataSource).queryForObject("select 1", Integer.class));
+        } finally {
+            ProfilageSqlConfig.fermer(profil);
+        }
+        assertEquals(1, profil.getRequetes());
+        assertEquals(1, profil.getLignes());
+        assertNotNull(observation("jdbc.query"));
+    }
+
+    @Test
+    void daoFailure_shouldBeRecordedOnSpan() {
+        assertThrows(RuntimeException.class, () -> dao().findTitre(2));
+
+        assertNotNull(observation("biblio.dao").getError());
+    }
+}
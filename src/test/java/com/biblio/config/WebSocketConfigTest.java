@@ -0,0 +1,56 @@
+package com.biblio.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketConfigTest {
+
+    private AnnotationConfigWebApplicationContext contexte;
+
+    @AfterEach
+    void tearDown() {
+        if (contexte != null) {
+            contexte.close();
+        }
+    }
+
+    private ExecutorSubscribableChannel canal(String nom, Map<String, Object> proprietes) {
+        contexte = new AnnotationConfigWebApplicationContext();
+        contexte.setServletContext(new MockServletContext());
+        contexte.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", proprietes));
+        contexte.register(WebSocketConfig.class);
+        contexte.refresh();
+        return contexte.getBean(nom, ExecutorSubscribableChannel.class);
+    }
+
+    @Test
+    void outboundChannel_shouldKeepBoundedPoolByDefault() {
+        ExecutorSubscribableChannel sortant = canal("clientOutboundChannel", Map.of());
+
+        assertInstanceOf(ThreadPoolTaskExecutor.class, sortant.getExecutor());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreads_shouldCapConcurrentOutboundMessages() {
+        ExecutorSubscribableChannel sortant = canal("clientOutboundChannel", Map.of(
+                "spring.threads.virtual.enabled", "true",
+                "app.websocket.concurrence-max", "16"));
+
+        SimpleAsyncTaskExecutor executor = assertInstanceOf(SimpleAsyncTaskExecutor.class, sortant.getExecutor());
+        assertEquals(16, executor.getConcurrencyLimit());
+        assertTrue(executor.isThrottleActive());
+    }
+}
@@ -0,0 +1,124 @@
+package com.biblio.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deux nœuds applicatifs en mode relay sur un même Artemis embarqué : un message publié par
+ * le nœud A doit atteindre un client abonné sur le nœud B.
+ */
+class WebSocketRelayIntegrationTest {
+
+    private static final String TOPIC = "/topic/reservations/en-attente";
+
+    private EmbeddedActiveMQ artemis;
+    private AnnotationConfigWebApplicationContext noeudA;
+    private AnnotationConfigWebApplicationContext noeudB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        artemis = new EmbeddedActiveMQ();
+        artemis.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + port + "?protocols=STOMP"));
+        artemis.start();
+
+        noeudA = demarrerNoeud(port);
+        noeudB = demarrerNoeud(port);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (noeudA != null) noeudA.close();
+        if (noeudB != null) noeudB.close();
+        if (artemis != null) artemis.stop();
+    }
+
+    private AnnotationConfigWebApplicationContext demarrerNoeud(int port) throws InterruptedException {
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "app.websocket.broker", WebSocketConfig.BROKER_RELAY,
+                "app.websocket.relay.host", "127.0.0.1",
+                "app.websocket.relay.port", String.valueOf(port),
+                "app.websocket.heartbeat-ms", "2000")));
+        context.register(WebSocketConfig.class);
+        context.refresh();
+
+        StompBrokerRelayMessageHandler relay = context.getBean(StompBrokerRelayMessageHandler.class);
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+        }
+        assertTrue(relay.isBrokerAvailable(), "Relay non connecté au broker");
+        return context;
+    }
+
+    @Test
+    void messagePublieSurUnNoeud_shouldReachClientOfAnotherNode() throws Exception {
+        BlockingQueue<Message<?>> recus = new LinkedBlockingQueue<>();
+        noeudB.getBean("clientOutboundChannel", AbstractSubscribableChannel.class).subscribe(recus::add);
+        MessageChannel entreeB = noeudB.getBean("clientInboundChannel", MessageChannel.class);
+
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId("client-b");
+        connect.setAcceptVersion("1.2");
+        connect.setHeartbeat(0, 0);
+        entreeB.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+        attendre(recus, StompCommand.CONNECTED);
+
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setSessionId("client-b");
+        subscribe.setSubscriptionId("sub-1");
+        subscribe.setDestination(TOPIC);
+        subscribe.setReceipt("abonne");
+        entreeB.send(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        attendre(recus, StompCommand.RECEIPT);
+
+        noeudA.getBean(SimpMessagingTemplate.class).convertAndSend(TOPIC, 42L);
+
+        Message<?> message = attendre(recus, StompCommand.MESSAGE);
+        assertEquals(TOPIC, StompHeaderAccessor.wrap(message).getDestination());
+        assertEquals("42", new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+    }
+
+    private static Message<?> attendre(BlockingQueue<Message<?>> recus, StompCommand attendu) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < limite) {
+            Message<?> message = recus.poll(200, TimeUnit.MILLISECONDS);
+            if (message != null && StompHeaderAccessor.wrap(message).getCommand() == attendu) {
+                return message;
+            }
+        }
+        fail("Trame STOMP " + attendu + " non reçue");
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package com.biblio.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applique les migrations Flyway sur H2 en mode MySQL, vérifie que le schéma obtenu correspond aux entités
+ * (ddl-auto=validate) et que le plan d'exécution des requêtes fréquentes utilise l'index composite prévu.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MigrationsIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrations_shouldAllBeApplied() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"type\" = 'SQL' AND \"success\" ORDER BY \"installed_rank\"", String.class);
+        assertEquals(List.of("1", "2", "3", "4", "5", "6", "7", "8"), versions);
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM id_generateurs", Integer.class));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            // ReservationDAO.findByBibliothequeAndStatut
+            "idx_reservation_bibliotheque_statut | SELECT * FROM reservations WHERE bibliotheque_id = 1 AND statut = 'EN_ATTENTE'",
+            // ReservationDAO.countByBibliothequesAndStatut
+            "idx_reservation_bibliotheque_statut | SELECT bibliotheque_id, COUNT(*) FROM reservations WHERE statut = 'EN_ATTENTE' AND bibliotheque_id IN (1, 2, 3) GROUP BY bibliotheque_id",
+            // ReservationDAO.findExpired
+            "idx_reservation_statut_expiration | SELECT * FROM reservations WHERE statut IN ('EN_ATTENTE', 'CONFIRMEE') AND date_expiration IS NOT NULL AND date_expiration < CURRENT_TIMESTAMP",
+            // ReservationDAO.countActivesByUsager
+            "idx_reservation_usager_statut | SELECT COUNT(*) FROM reservations WHERE usager_id = 1 AND statut IN ('EN_ATTENTE', 'CONFIRMEE', 'EN_FILE')",
+            // ReservationDAO.findFirstByRessource_IdAndStatutOrderByRangFileAsc
+            "idx_reservation_file | SELECT * FROM reservations WHERE ressource_id = 1 AND statut = 'EN_FILE' ORDER BY rang_file LIMIT 1",
+            // PretDAO.findFirstByUtilisateur_IdAndRessource_IdAndStatut
+            "idx_pret_utilisateur_ressource_statut | SELECT * FROM prets WHERE utilisateur_id = 1 AND ressource_id = 2 AND statut = 'EMPRUNTE' LIMIT 1",
+            // PretDAO.countActifsByUtilisateur
+            "idx_pret_utilisateur_ressource_statut | SELECT COUNT(*) FROM prets WHERE utilisateur_id = 1 AND statut IN ('EMPRUNTE', 'EN_COURS')",
+            // PretDAO.findByBibliothequeAndStatut
+            "idx_pret_bibliotheque_statut | SELECT * FROM prets WHERE bibliotheque_id = 1 AND statut = 'EMPRUNTE'"
+    })
+    void explain_shouldUseCompositeIndex(String index, String requete) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + requete, String.class);
+        assertTrue(plan.contains(index), () -> "Index " + index + " non utilisé :\n" + plan);
+    }
+}
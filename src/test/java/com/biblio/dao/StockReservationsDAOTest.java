@@ -0,0 +1,155 @@
+package com.biblio.dao;
+
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Reservation;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.enums.Categorie;
+import com.biblio.enums.StatutReservation;
+import com.biblio.enums.TypeRessource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verrou de stock et positions en file d'attente, sur le schéma Flyway (H2 en mode MySQL).
+ * Chaque opération tourne dans sa propre transaction validée, comme en production.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationsDAOTest {
+
+    @Autowired
+    private RessourceDAO ressourceDAO;
+    @Autowired
+    private ReservationDAO reservationDAO;
+    @Autowired
+    private BibliothequeDAO bibliothequeDAO;
+    @Autowired
+    private UserDAO userDAO;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Bibliotheque bibliotheque() {
+        return bibliothequeDAO.save(Bibliotheque.builder()
+                .nom("Médiathèque Sud " + System.nanoTime())
+                .adresse("2 rue des Livres")
+                .ville("Lyon")
+                .build());
+    }
+
+    private Ressource ressource(Bibliotheque bibliotheque, int disponibles) {
+        return ressourceDAO.save(Ressource.builder()
+                .titre("Nana")
+                .auteur("Zola")
+                .categorie(Categorie.LITTERATURE)
+                .typeRessource(TypeRessource.LIVRE)
+                .nombreExemplaires(100)
+                .exemplairesDisponibles(disponibles)
+                .dateAjout(LocalDateTime.now())
+                .bibliotheque(bibliotheque)
+                .build());
+    }
+
+    private User usager() {
+        return userDAO.save(User.builder()
+                .nom("Durand")
+                .prenom("Paul")
+                .email("paul" + System.nanoTime() + "@biblio.fr")
+                .motDePasse("hash")
+                .build());
+    }
+
+    @Test
+    void findByIdForUpdate_withEntityAlreadyLoaded_shouldNotLoseConcurrentReturns() throws Exception {
+        Long id = ressource(bibliotheque(), 0).getId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CyclicBarrier barriere = new CyclicBarrier(2);
+        int tours = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> retours = List.of(pool.submit(() -> retourner(transaction, barriere, id, tours)),
+                    pool.submit(() -> retourner(transaction, barriere, id, tours)));
+            for (Future<?> retour : retours) {
+                retour.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(2 * tours, ressourceDAO.findById(id).orElseThrow().getExemplairesDisponibles());
+    }
+
+    /**
+     * Retours successifs d'un exemplaire : la ressource est d'abord chargée (comme par l'association EAGER
+     * du prêt), les deux transactions se synchronisent, puis chacune verrouille et incrémente le stock.
+     */
+    private Void retourner(TransactionTemplate transaction, CyclicBarrier barriere, Long id, int tours) {
+        for (int i = 0; i < tours; i++) {
+            transaction.executeWithoutResult(statut -> {
+                Ressource chargee = ressourceDAO.findById(id).orElseThrow();
+                try {
+                    barriere.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                Ressource verrouillee = ressourceDAO.findByIdForUpdate(id).orElseThrow();
+                assertSame(chargee, verrouillee);
+                verrouillee.setExemplairesDisponibles(verrouillee.getExemplairesDisponibles() + 1);
+            });
+        }
+        return null;
+    }
+
+    @Test
+    void findPositionsDansFile_shouldCountWaitersAheadOnSameResource() {
+        Bibliotheque bibliotheque = bibliotheque();
+        Ressource ressource = ressource(bibliotheque, 0);
+        Ressource autre = ressource(bibliotheque, 0);
+        User usager = usager();
+        Reservation premier = reservationDAO.save(enFile(ressource, usager, 3L));
+        Reservation second = reservationDAO.save(enFile(ressource, usager, 7L));
+        Reservation ailleurs = reservationDAO.save(enFile(autre, usager, 9L));
+        Reservation servie = enFile(ressource, usager, 1L);
+        servie.setStatut(StatutReservation.CONFIRMEE);
+        reservationDAO.save(servie);
+
+        Map<Long, Long> devant = reservationDAO.findPositionsDansFile(
+                        List.of(premier.getId(), second.getId(), ailleurs.getId(), servie.getId()), StatutReservation.EN_FILE)
+                .stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> ((Number) row[1]).longValue()));
+
+        assertEquals(Map.of(premier.getId(), 0L, second.getId(), 1L, ailleurs.getId(), 0L), devant);
+    }
+
+    private static Reservation enFile(Ressource ressource, User usager, long rang) {
+        return Reservation.builder()
+                .ressource(ressource)
+                .usager(usager)
+                .bibliotheque(ressource.getBibliotheque())
+                .statut(StatutReservation.EN_FILE)
+                .dateDemande(LocalDateTime.now())
+                .rangFile(rang)
+                .build();
+    }
+}
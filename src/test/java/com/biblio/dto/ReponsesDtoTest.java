@@ -0,0 +1,235 @@
+package com.biblio.dto;
+
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Pret;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.entities.UserLog;
+import com.biblio.enums.Categorie;
+import com.biblio.enums.Role;
+import com.biblio.enums.StatutPret;
+import com.biblio.enums.TypeRessource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.module.blackbird.BlackbirdModule;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReponsesDtoTest {
+
+    private static final Map<String, String> MINIATURES = Map.of("liste", "/uploads/miniatures/a-liste.jpg",
+            "carte", "/uploads/miniatures/a-carte.jpg", "detail", "/uploads/miniatures/a-detail.jpg");
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().addModule(new BlackbirdModule()).build();
+
+    private static Bibliotheque bibliotheque() {
+        Bibliotheque bibliotheque = new Bibliotheque();
+        bibliotheque.setId(3L);
+        bibliotheque.setNom("Bibliothèque Centrale");
+        return bibliotheque;
+    }
+
+    private static Ressource ressource(long id) {
+        return Ressource.builder()
+                .id(id)
+                .titre("Titre " + id)
+                .auteur("Auteur " + (id % 97))
+                .isbn("978" + (1_000_000_000L + id))
+                .categorie(Categorie.values()[(int) (id % Categorie.values().length)])
+                .typeRessource(TypeRessource.LIVRE)
+                .description("Description de la ressource " + id)
+                .editeur("Éditeur")
+                .datePublication(LocalDate.of(2000, 1, 1).plusDays(id))
+                .nombreExemplaires(3)
+                .exemplairesDisponibles((int) (id % 4))
+                .imageCouverture("/uploads/a.jpg")
+                .popularite((int) (id % 20))
+                .dateAjout(LocalDateTime.of(2024, 5, 1, 10, 0))
+                .bibliotheque(bibliotheque())
+                .build();
+    }
+
+    private static User user() {
+        return User.builder()
+                .id(10L)
+                .nom("Martin")
+                .prenom("Alice")
+                .email("alice@biblio.fr")
+                .role(Role.BIBLIOTHECAIRE)
+                .actif(true)
+                .emailVerifie(true)
+                .dateInscription(LocalDateTime.of(2024, 1, 1, 9, 0))
+                .bibliotheque(bibliotheque())
+                .build();
+    }
+
+    private Set<String> cles(Object valeur) {
+        JsonNode noeud = jsonMapper.readTree(jsonMapper.writeValueAsBytes(valeur));
+        return new TreeSet<>(noeud.propertyNames());
+    }
+
+    @Test
+    void ressourceResponse_shouldKeepPreviousMapKeys() {
+        Ressource ressource = ressource(1);
+
+        RessourceResponse reponse = RessourceResponse.of(ressource, MINIATURES);
+
+        assertEquals(cles(ancienneMap(ressource)), cles(reponse));
+    }
+
+    @Test
+    void missingReferences_shouldBeOmittedLikeBefore() {
+        Ressource ressource = ressource(2);
+        ressource.setBibliotheque(null);
+        User sansBibliotheque = user();
+        sansBibliotheque.setBibliotheque(null);
+
+        assertFalse(cles(RessourceResponse.of(ressource, MINIATURES)).contains("bibliotheque"));
+        assertFalse(cles(UserResponse.of(sansBibliotheque)).contains("bibliotheque"));
+        Set<String> pret = cles(PretResponse.of(new Pret()));
+        assertFalse(pret.contains("ressource") || pret.contains("utilisateur") || pret.contains("bibliotheque"));
+        assertTrue(pret.contains("retardJours"));
+    }
+
+    @Test
+    void pretResponse_withNullCategory_shouldSerialize() {
+        // Map.of refusait les valeurs nulles : un prêt sur une ressource sans catégorie faisait échouer la liste
+        Ressource ressource = ressource(3);
+        ressource.setCategorie(null);
+        Pret pret = Pret.builder().id(7L).statut(StatutPret.EN_COURS).ressource(ressource).utilisateur(user())
+                .bibliotheque(bibliotheque()).penaliteRetard(BigDecimal.ZERO).build();
+
+        JsonNode noeud = jsonMapper.readTree(jsonMapper.writeValueAsString(PretResponse.of(pret)));
+
+        assertEquals("EN_COURS", noeud.get("statut").asString());
+        assertTrue(noeud.get("ressource").get("categorie").isNull());
+        assertEquals("alice@biblio.fr", noeud.get("utilisateur").get("email").asString());
+        assertEquals("Bibliothèque Centrale", noeud.get("bibliotheque").asString());
+    }
+
+    @Test
+    void userLogResponse_withoutUser_shouldKeepNullFields() {
+        UserLog log = UserLog.builder().action("SYSTEME").message("Démarrage").level("INFO").build();
+
+        JsonNode noeud = jsonMapper.readTree(jsonMapper.writeValueAsString(UserLogResponse.of(log)));
+
+        assertTrue(noeud.has("user") && noeud.get("user").isNull());
+        assertTrue(noeud.get("bibliotheque").isNull());
+        assertEquals("Démarrage", noeud.get("message").asString());
+    }
+
+    /**
+     * Liste de 10 000 ressources sérialisée par le mapper de l'application (Blackbird) : corps identique à celui
+     * produit sans Blackbird, et au moins 20 % d'octets alloués en moins qu'avec les anciennes HashMap.
+     */
+    @Test
+    void records_shouldSerialize10kRowsIdenticallyAndWithLessGarbageThanMaps() {
+        List<Ressource> ressources = ressources(10_000);
+        Function<Ressource, ?> enRecord = r -> RessourceResponse.of(r, MINIATURES);
+
+        assertArrayEquals(JsonMapper.builder().build().writeValueAsBytes(ressources.stream().map(enRecord).toList()),
+                jsonMapper.writeValueAsBytes(ressources.stream().map(enRecord).toList()));
+        Mesure maps = mesurer(ressources, ReponsesDtoTest::ancienneMap);
+        Mesure records = mesurer(ressources, enRecord);
+
+        assertTrue(records.octetsAlloues() <= 0.8 * maps.octetsAlloues(), "HashMap " + maps + ", records " + records);
+    }
+
+    /**
+     * Durée et allocations de la sérialisation de 10 000 ressources, records contre anciennes HashMap.
+     * À lancer explicitement : {@code mvn test -Dtest=ReponsesDtoTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_recordsAgainstMaps() {
+        List<Ressource> ressources = ressources(10_000);
+        System.out.printf("HashMap  %s%n", mesurer(ressources, ReponsesDtoTest::ancienneMap));
+        System.out.printf("records  %s%n", mesurer(ressources, r -> RessourceResponse.of(r, MINIATURES)));
+    }
+
+    private static List<Ressource> ressources(int nombre) {
+        List<Ressource> ressources = new ArrayList<>();
+        for (long i = 0; i < nombre; i++) {
+            ressources.add(ressource(i));
+        }
+        return ressources;
+    }
+
+    /**
+     * Meilleure durée et octets alloués par liste sérialisée, sur le thread courant
+     */
+    private record Mesure(long nanos, long octetsAlloues) {
+        @Override
+        public String toString() {
+            return String.format("%.2f ms, %.1f Mo alloués par liste", nanos / 1e6, octetsAlloues / 1e6);
+        }
+    }
+
+    private Mesure mesurer(List<Ressource> ressources, Function<Ressource, ?> conversion) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 20; i++) {
+            serialiser(ressources, conversion);
+        }
+        long meilleure = Long.MAX_VALUE;
+        long alloues = Long.MAX_VALUE;
+        for (int lot = 0; lot < 5; lot++) {
+            long allouesAvant = threads.getThreadAllocatedBytes(thread);
+            long debut = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                serialiser(ressources, conversion);
+            }
+            meilleure = Math.min(meilleure, (System.nanoTime() - debut) / 10);
+            alloues = Math.min(alloues, (threads.getThreadAllocatedBytes(thread) - allouesAvant) / 10);
+        }
+        return new Mesure(meilleure, alloues);
+    }
+
+    private void serialiser(List<Ressource> ressources, Function<Ressource, ?> conversion) {
+        byte[] corps = jsonMapper.writeValueAsBytes(Map.of("ressources", ressources.stream().map(conversion).toList()));
+        assertTrue(corps.length > 0);
+    }
+
+    /**
+     * Forme produite par l'ancien {@code RessourceController.ressourceToMap}, référence des tests
+     */
+    private static Map<String, Object> ancienneMap(Ressource ressource) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", ressource.getId());
+        map.put("titre", ressource.getTitre());
+        map.put("auteur", ressource.getAuteur());
+        map.put("isbn", ressource.getIsbn());
+        map.put("categorie", ressource.getCategorie() != null ? ressource.getCategorie().name() : null);
+        map.put("typeRessource", ressource.getTypeRessource() != null ? ressource.getTypeRessource().name() : null);
+        map.put("description", ressource.getDescription());
+        map.put("editeur", ressource.getEditeur());
+        map.put("datePublication", ressource.getDatePublication());
+        map.put("nombreExemplaires", ressource.getNombreExemplaires());
+        map.put("exemplairesDisponibles", ressource.getExemplairesDisponibles());
+        map.put("imageCouverture", ressource.getImageCouverture());
+        map.put("miniatures", MINIATURES);
+        map.put("popularite", ressource.getPopularite());
+        map.put("dateAjout", ressource.getDateAjout());
+        if (ressource.getBibliotheque() != null) {
+            map.put("bibliotheque", Map.of(
+                    "id", ressource.getBibliotheque().getId(),
+                    "nom", ressource.getBibliotheque().getNom()
+            ));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,83 @@
+package com.biblio.jobs;
+
+import com.biblio.dao.ReservationDAO;
+import com.biblio.services.ReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReservationEcheanceSchedulerTest {
+
+    private ReservationService reservationService;
+    private ReservationEcheanceScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        reservationService = mock(ReservationService.class);
+        scheduler = new ReservationEcheanceScheduler(reservationService, mock(ReservationDAO.class));
+    }
+
+    @Test
+    void armer_pastDeadline_shouldBeDueImmediately() {
+        scheduler.armer(1L, LocalDateTime.now().minusMinutes(5));
+        scheduler.armer(2L, LocalDateTime.now().plusHours(2));
+
+        ReservationEcheanceScheduler.Echeance echue = scheduler.prochaineEcheance();
+        assertNotNull(echue);
+        assertEquals(1L, echue.reservationId());
+        assertNull(scheduler.prochaineEcheance());
+
+        when(reservationService.expirerReservation(1L)).thenReturn(true);
+        scheduler.traiter(echue);
+
+        verify(reservationService).expirerReservation(1L);
+        assertEquals(1, scheduler.getNombreArmees());
+    }
+
+    @Test
+    void desarmer_shouldSkipStaleEntry() {
+        scheduler.armer(3L, LocalDateTime.now().minusSeconds(1));
+        scheduler.desarmer(3L);
+
+        scheduler.traiter(scheduler.prochaineEcheance());
+
+        verifyNoInteractions(reservationService);
+        assertEquals(0, scheduler.getNombreArmees());
+    }
+
+    @Test
+    void armer_twice_shouldOnlyHonourLatestDeadline() {
+        scheduler.armer(4L, LocalDateTime.now().minusSeconds(2));
+        scheduler.armer(4L, LocalDateTime.now().minusSeconds(1));
+
+        scheduler.traiter(scheduler.prochaineEcheance());
+        scheduler.traiter(scheduler.prochaineEcheance());
+
+        verify(reservationService, times(1)).expirerReservation(4L);
+    }
+
+    @Test
+    void armerApresCommit_shouldWaitForCommitAndIgnoreRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            scheduler.armerApresCommit(5L, LocalDateTime.now().plusHours(1));
+            scheduler.armerApresCommit(6L, LocalDateTime.now().plusHours(1));
+            assertEquals(0, scheduler.getNombreArmees());
+
+            List<TransactionSynchronization> synchronisations = TransactionSynchronizationManager.getSynchronizations();
+            synchronisations.get(0).afterCommit();
+            synchronisations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, scheduler.getNombreArmees());
+    }
+}
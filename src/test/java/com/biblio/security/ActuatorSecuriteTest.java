@@ -0,0 +1,69 @@
+package com.biblio.security;
+
+import com.biblio.dao.UserDAO;
+import com.biblio.entities.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ActuatorSecuriteTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JsonMapper jsonMapper;
+    @Autowired
+    private UserDAO userDAO;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private String connecter(String email, String motDePasse) throws Exception {
+        MvcResult connexion = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"" + motDePasse + "\"}"))
+                .andReturn();
+        assertEquals(200, connexion.getResponse().getStatus(), connexion.getResponse().getContentAsString());
+        return jsonMapper.readTree(connexion.getResponse().getContentAsByteArray()).get("accessToken").asString();
+    }
+
+    private MockHttpServletResponse appeler(String chemin, String jeton) throws Exception {
+        return mockMvc.perform(jeton == null ? get(chemin) : get(chemin).header("Authorization", "Bearer " + jeton))
+                .andReturn().getResponse();
+    }
+
+    @Test
+    void prometheus_shouldBeReservedToAdministrators() throws Exception {
+        User usager = userDAO.save(User.builder()
+                .nom("Roux")
+                .prenom("Marc")
+                .email("marc" + System.nanoTime() + "@biblio.fr")
+                .motDePasse(passwordEncoder.encode("secret123"))
+                .emailVerifie(true)
+                .build());
+
+        assertEquals(200, appeler("/actuator/health", null).getStatus());
+        // Hors /api, les refus sont des redirections vers la page de connexion
+        assertEquals("/login?error=unauthorized", appeler("/actuator/prometheus", null).getRedirectedUrl());
+        assertEquals("/login?error=forbidden",
+                appeler("/actuator/prometheus", connecter(usager.getEmail(), "secret123")).getRedirectedUrl());
+        MockHttpServletResponse administrateur = appeler("/actuator/prometheus",
+                connecter("superadmin@biblio.com", "admin123"));
+        assertNull(administrateur.getRedirectedUrl());
+        assertEquals(200, administrateur.getStatus());
+    }
+}
@@ -0,0 +1,44 @@
+package com.biblio.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltreBloomTest {
+
+    @Test
+    void addedValues_shouldAlwaysBeFound() {
+        FiltreBloom filtre = new FiltreBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filtre.ajouter("famille-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filtre.peutContenir("famille-" + i));
+        }
+    }
+
+    @Test
+    void falsePositiveRate_shouldStayNearTarget() {
+        FiltreBloom filtre = new FiltreBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filtre.ajouter("revoquee-" + i);
+        }
+        int fauxPositifs = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filtre.peutContenir("active-" + i)) {
+                fauxPositifs++;
+            }
+        }
+        assertTrue(fauxPositifs < 2_000, "Faux positifs : " + fauxPositifs);
+    }
+
+    @Test
+    void sizing_shouldFollowCapacityAndRate() {
+        FiltreBloom filtre = new FiltreBloom(100_000, 0.01);
+
+        // m = -n ln p / (ln 2)^2 ≈ 9,6 bits par élément, k = m/n ln 2 ≈ 7
+        assertEquals(958_506, filtre.getNbBits());
+        assertEquals(7, filtre.getNbHachages());
+        assertFalse(new FiltreBloom(0, 0.01).peutContenir("x"));
+    }
+}
@@ -0,0 +1,148 @@
+package com.biblio.security;
+
+import com.biblio.entities.User;
+import com.biblio.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HachageMotsDePasseTest {
+
+    private final List<HachageMotsDePasse> encodeurs = new ArrayList<>();
+
+    private HachageMotsDePasse encodeur(int cout, int threads, int file, Duration attenteMax) {
+        HachageMotsDePasse encodeur = new HachageMotsDePasse(cout, threads, file, attenteMax, new SimpleMeterRegistry());
+        encodeurs.add(encodeur);
+        return encodeur;
+    }
+
+    @AfterEach
+    void tearDown() {
+        encodeurs.forEach(HachageMotsDePasse::close);
+    }
+
+    @Test
+    void encodeAndMatches_shouldUseConfiguredCost() {
+        HachageMotsDePasse encodeur = encodeur(5, 2, 8, Duration.ofSeconds(5));
+
+        String hache = encodeur.encode("secret");
+
+        assertEquals(5, HachageMotsDePasse.cout(hache));
+        assertTrue(encodeur.matches("secret", hache));
+        assertFalse(encodeur.matches("autre", hache));
+    }
+
+    @Test
+    void upgradeEncoding_shouldFlagAnyOtherCost() {
+        HachageMotsDePasse encodeur = encodeur(6, 1, 8, Duration.ofSeconds(5));
+
+        assertTrue(encodeur.upgradeEncoding(new BCryptPasswordEncoder(4).encode("x")));
+        assertTrue(encodeur.upgradeEncoding(new BCryptPasswordEncoder(8).encode("x")));
+        assertFalse(encodeur.upgradeEncoding(new BCryptPasswordEncoder(6).encode("x")));
+        assertNull(HachageMotsDePasse.cout("pas-un-hash"));
+    }
+
+    @Test
+    void login_withOldCost_shouldRehashThroughPasswordService() {
+        User user = new User();
+        user.setEmail("alice@biblio.fr");
+        user.setMotDePasse(new BCryptPasswordEncoder(4).encode("secret"));
+        user.setActif(true);
+        user.setEmailVerifie(true);
+        user.setRole(Role.USAGER);
+        UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+        when(passwordService.updatePassword(any(), anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(username -> user);
+        provider.setPasswordEncoder(encodeur(5, 1, 8, Duration.ofSeconds(5)));
+        provider.setUserDetailsPasswordService(passwordService);
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("alice@biblio.fr", "secret"));
+
+        verify(passwordService).updatePassword(eq(user), argThat(hache -> HachageMotsDePasse.cout(hache) == 5));
+    }
+
+    @Test
+    void fullQueue_shouldRejectImmediately() throws Exception {
+        HachageMotsDePasse encodeur = encodeur(14, 1, 1, Duration.ofSeconds(30));
+        // Un calcul en cours et un en file
+        CompletableFuture.runAsync(() -> encodeur.encode("a"));
+        CompletableFuture.runAsync(() -> encodeur.encode("b"));
+        for (int i = 0; i < 200 && encodeur.enAttente() < 1; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThrows(HachageSatureException.class, () -> encodeur.encode("c"));
+    }
+
+    @Test
+    void slowHash_shouldFailAfterMaxWait() {
+        HachageMotsDePasse encodeur = encodeur(12, 1, 8, Duration.ofMillis(1));
+
+        assertThrows(HachageSatureException.class, () -> encodeur.encode("secret"));
+    }
+
+    /**
+     * Débit de vérification par cœur selon le coût, puis débit du pool sous {@code 8 x threads} appelants
+     * concurrents. À lancer explicitement : {@code mvn test -Dtest=HachageMotsDePasseTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_loginThroughputPerCore() throws Exception {
+        int coeurs = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d cœur(s)%n", coeurs);
+        for (int cout = 8; cout <= 12; cout++) {
+            BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cout);
+            String hache = bcrypt.encode("secret");
+            bcrypt.matches("secret", hache);
+            int verifications = Math.max(4, 400 >> (cout - 8));
+            long debut = System.nanoTime();
+            for (int i = 0; i < verifications; i++) {
+                bcrypt.matches("secret", hache);
+            }
+            double secondes = (System.nanoTime() - debut) / 1e9;
+            System.out.printf("coût %2d  %6.1f ms/vérification  %7.1f logins/s/cœur%n", cout,
+                    secondes * 1000 / verifications, verifications / secondes);
+        }
+
+        HachageMotsDePasse encodeur = encodeur(10, coeurs, 1024, Duration.ofSeconds(60));
+        String hache = encodeur.encode("secret");
+        int appelants = 8 * coeurs;
+        int parAppelant = 25;
+        AtomicInteger reussis = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(appelants);
+        long debut = System.nanoTime();
+        for (int c = 0; c < appelants; c++) {
+            clients.execute(() -> {
+                for (int i = 0; i < parAppelant; i++) {
+                    if (encodeur.matches("secret", hache)) {
+                        reussis.incrementAndGet();
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(10, TimeUnit.MINUTES));
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        System.out.printf("pool coût 10, %d threads, %d appelants : %.1f logins/s (%.1f/s/cœur)%n", coeurs, appelants,
+                reussis.get() / secondes, reussis.get() / secondes / coeurs);
+        assertEquals(appelants * parAppelant, reussis.get());
+    }
+}
@@ -0,0 +1,170 @@
+package com.biblio.security;
+
+import com.biblio.dao.JetonRafraichissementDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.entities.User;
+import com.biblio.enums.StatutJeton;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rotation, détection de réutilisation et révocation sur le schéma Flyway (H2 en mode MySQL).
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:jetons;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(JetonsRafraichissementServiceTest.Config.class)
+class JetonsRafraichissementServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JwtService jwtService() {
+            return new JwtService("secret-access-de-test-32-octets-min", "secret-refresh-de-test-32-octets-min",
+                    60_000, 3_600_000);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JetonsRafraichissementService jetonsService(JetonRafraichissementDAO jetonDAO, UserDAO userDAO,
+                                                    JwtService jwtService, MeterRegistry meterRegistry) {
+            return new JetonsRafraichissementService(jetonDAO, userDAO, jwtService, 1000, 0.01, meterRegistry);
+        }
+    }
+
+    @Autowired
+    private JetonsRafraichissementService jetonsService;
+    @Autowired
+    private JetonRafraichissementDAO jetonDAO;
+    @Autowired
+    private UserDAO userDAO;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userDAO.save(User.builder()
+                .nom("Martin")
+                .prenom("Alice")
+                .email("alice" + System.nanoTime() + "@biblio.fr")
+                .motDePasse("hash")
+                .build());
+    }
+
+    private String famille(String jeton) {
+        return jwtService.extractRefreshClaims(jeton).get("fam", String.class);
+    }
+
+    @Test
+    void emettre_shouldStoreHashedIdOnly() {
+        JetonsRafraichissementService.Jetons jetons = jetonsService.emettre(user);
+
+        String jti = jwtService.extractRefreshClaims(jetons.refreshToken()).getId();
+        assertNotNull(jti);
+        assertTrue(jetonDAO.findById(jti).isEmpty());
+        assertEquals(StatutJeton.ACTIF, jetonDAO.findById(JetonsRafraichissementService.empreinte(jti)).orElseThrow().getStatut());
+        assertEquals(famille(jetons.refreshToken()), jwtService.extractClaim(jetons.accessToken(), "fam", String.class));
+    }
+
+    @Test
+    void renouveler_shouldRotateWithinFamily() {
+        JetonsRafraichissementService.Jetons premiers = jetonsService.emettre(user);
+
+        JetonsRafraichissementService.Jetons suivants = jetonsService.renouveler(premiers.refreshToken());
+
+        assertNotEquals(premiers.refreshToken(), suivants.refreshToken());
+        assertEquals(famille(premiers.refreshToken()), famille(suivants.refreshToken()));
+        assertEquals(user.getId(), suivants.utilisateur().getId());
+        assertFalse(jetonsService.estRevoquee(famille(suivants.refreshToken())));
+    }
+
+    @Test
+    void renouveler_withConsumedToken_shouldRevokeWholeFamily() {
+        JetonsRafraichissementService.Jetons premiers = jetonsService.emettre(user);
+        JetonsRafraichissementService.Jetons suivants = jetonsService.renouveler(premiers.refreshToken());
+
+        IllegalArgumentException erreur = assertThrows(IllegalArgumentException.class,
+                () -> jetonsService.renouveler(premiers.refreshToken()));
+
+        assertTrue(erreur.getMessage().contains("déjà utilisé"));
+        assertTrue(jetonsService.estRevoquee(famille(premiers.refreshToken())));
+        assertThrows(IllegalArgumentException.class, () -> jetonsService.renouveler(suivants.refreshToken()));
+        assertEquals(1.0, meterRegistry.get("biblio.jetons.reutilisations").counter().count());
+    }
+
+    @Test
+    void revoquerUtilisateur_shouldRevokeAllFamilies() {
+        JetonsRafraichissementService.Jetons web = jetonsService.emettre(user);
+        JetonsRafraichissementService.Jetons mobile = jetonsService.emettre(user);
+
+        assertEquals(2, jetonsService.revoquerUtilisateur(user.getId()));
+
+        assertTrue(jetonsService.estRevoquee(famille(web.refreshToken())));
+        assertTrue(jetonsService.estRevoquee(famille(mobile.refreshToken())));
+        assertThrows(IllegalArgumentException.class, () -> jetonsService.renouveler(mobile.refreshToken()));
+        assertEquals(0, jetonsService.revoquerUtilisateur(user.getId()));
+    }
+
+    @Test
+    void revoquerSession_shouldAcceptRefreshOrAccessToken() {
+        JetonsRafraichissementService.Jetons parRefresh = jetonsService.emettre(user);
+        JetonsRafraichissementService.Jetons parAccess = jetonsService.emettre(user);
+
+        assertTrue(jetonsService.revoquerSession(parRefresh.refreshToken()));
+        assertTrue(jetonsService.revoquerSession(parAccess.accessToken()));
+        assertFalse(jetonsService.revoquerSession("pas-un-jeton"));
+
+        assertTrue(jetonsService.estRevoquee(famille(parRefresh.refreshToken())));
+        assertTrue(jetonsService.estRevoquee(famille(parAccess.refreshToken())));
+    }
+
+    @Test
+    void estRevoquee_shouldSkipDatabaseWhenFilterExcludesFamily() {
+        for (int i = 0; i < 200; i++) {
+            assertFalse(jetonsService.estRevoquee("famille-" + i));
+        }
+        assertFalse(jetonsService.estRevoquee(null));
+
+        // Capacité 1000 à 1 % : aucune consultation de la base attendue pour des familles jamais révoquées
+        assertTrue(meterRegistry.get("biblio.jetons.revocation.consultations").counter().count() <= 10);
+    }
+
+    @Test
+    void recharger_shouldRebuildFilterFromDatabase() {
+        JetonsRafraichissementService.Jetons jetons = jetonsService.emettre(user);
+        String famille = famille(jetons.refreshToken());
+        // Révocation faite par une autre instance : la base seule est à jour
+        jetonDAO.revoquerFamille(famille, StatutJeton.REVOQUE);
+
+        jetonsService.recharger();
+
+        assertTrue(jetonsService.estRevoquee(famille));
+    }
+
+    @Test
+    void renouveler_withLegacyToken_shouldBeRejected() {
+        String ancien = jwtService.generateRefreshToken(user);
+
+        assertThrows(IllegalArgumentException.class, () -> jetonsService.renouveler(ancien));
+        assertThrows(IllegalArgumentException.class, () -> jetonsService.renouveler("invalide"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.biblio.security;
+
+import com.biblio.entities.User;
+import com.biblio.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthFilterTest {
+
+    private JwtService jwtService;
+    private JetonsRafraichissementService jetonsService;
+    private JwtAuthFilter filtre;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        jetonsService = mock(JetonsRafraichissementService.class);
+        UserDetailsService userDetailsService = mock(UserDetailsService.class);
+        User user = User.builder().email("alice@biblio.fr").motDePasse("hash").role(Role.USAGER).actif(true).build();
+        when(userDetailsService.loadUserByUsername("alice@biblio.fr")).thenReturn(user);
+        when(jwtService.extractUsername("jeton")).thenReturn("alice@biblio.fr");
+        when(jwtService.isTokenValid("jeton", user)).thenReturn(true);
+        filtre = new JwtAuthFilter(jwtService, userDetailsService, jetonsService, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletRequest requete() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reservations/mes");
+        request.addHeader("Authorization", "Bearer jeton");
+        return request;
+    }
+
+    @Test
+    void accessTokenWithoutFamily_shouldBeRejected() throws Exception {
+        when(jwtService.extractClaim("jeton", "fam", String.class)).thenReturn(null);
+        FilterChain chaine = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtre.doFilter(requete(), response, chaine);
+
+        assertEquals(401, response.getStatus());
+        verifyNoInteractions(chaine);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void accessTokenOfActiveFamily_shouldAuthenticateAndExposeFamily() throws Exception {
+        when(jwtService.extractClaim("jeton", "fam", String.class)).thenReturn("famille-1");
+        when(jetonsService.estRevoquee("famille-1")).thenReturn(false);
+        FilterChain chaine = mock(FilterChain.class);
+        MockHttpServletRequest request = requete();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtre.doFilter(request, response, chaine);
+
+        verify(chaine).doFilter(request, response);
+        assertEquals("famille-1", request.getAttribute(JwtAuthFilter.ATTRIBUT_FAMILLE));
+        assertEquals("alice@biblio.fr", SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+}
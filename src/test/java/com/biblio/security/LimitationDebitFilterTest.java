@@ -0,0 +1,96 @@
+package com.biblio.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LimitationDebitFilterTest {
+
+    private JwtService jwtService;
+    private SimpleMeterRegistry registry;
+    private LimitationDebitFilter filtre;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        registry = new SimpleMeterRegistry();
+        // 2 requêtes d'authentification par heure et par IP, 3 réservations par IP, 1 par utilisateur
+        filtre = new LimitationDebitFilter(new SeauxJetonsMemoire(), jwtService, registry, true, 2, 3, 1,
+                Duration.ofHours(1));
+    }
+
+    private MockHttpServletRequest requete(String methode, String uri, String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest(methode, uri);
+        request.setRemoteAddr(ip);
+        return request;
+    }
+
+    private MockHttpServletResponse executer(MockHttpServletRequest request, FilterChain chaine) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtre.doFilter(request, response, chaine);
+        return response;
+    }
+
+    @Test
+    void authEndpoint_overLimit_shouldReturn429WithRetryAfter() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, executer(requete("POST", "/api/auth/login", "10.0.0.1"), new MockFilterChain()).getStatus());
+        }
+        FilterChain chaine = mock(FilterChain.class);
+
+        MockHttpServletResponse response = executer(requete("POST", "/api/auth/register", "10.0.0.1"), chaine);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("1800", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("\"success\":false"));
+        verifyNoInteractions(chaine);
+        assertEquals(1, registry.get("biblio.limitation.rejets").tags("cible", "auth", "cle", "ip").counter().count());
+        // Une autre adresse a son propre seau
+        assertEquals(200, executer(requete("POST", "/api/auth/login", "10.0.0.2"), new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void reservations_shouldAlsoBeLimitedPerUserAcrossAddresses() throws Exception {
+        when(jwtService.extractUsername("jeton")).thenReturn("alice@biblio.fr");
+        MockHttpServletRequest premiere = requete("POST", "/api/reservations", "10.0.0.1");
+        premiere.addHeader("Authorization", "Bearer jeton");
+        MockHttpServletRequest seconde = requete("POST", "/api/reservations", "10.0.0.2");
+        seconde.addHeader("Authorization", "Bearer jeton");
+
+        assertEquals(200, executer(premiere, new MockFilterChain()).getStatus());
+        assertEquals(429, executer(seconde, new MockFilterChain()).getStatus());
+
+        assertEquals(1, registry.get("biblio.limitation.rejets").tags("cle", "utilisateur").counter().count());
+    }
+
+    @Test
+    void reservations_invalidToken_shouldFallBackToIpLimit() throws Exception {
+        when(jwtService.extractUsername(anyString())).thenThrow(new IllegalArgumentException("signature"));
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = requete("POST", "/api/reservations", "10.0.0.1");
+            request.addHeader("Authorization", "Bearer faux");
+            assertEquals(200, executer(request, new MockFilterChain()).getStatus());
+        }
+
+        assertEquals(429, executer(requete("POST", "/api/reservations", "10.0.0.1"), new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void otherEndpoints_shouldNotBeLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, executer(requete("GET", "/api/auth/me", "10.0.0.1"), new MockFilterChain()).getStatus());
+            assertEquals(200, executer(requete("POST", "/api/reservations/7/annuler", "10.0.0.1"), new MockFilterChain())
+                    .getStatus());
+        }
+        assertNull(registry.find("biblio.limitation.rejets").counter());
+    }
+}
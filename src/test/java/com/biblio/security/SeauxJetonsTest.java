@@ -0,0 +1,143 @@
+package com.biblio.security;
+
+import com.biblio.security.SeauxJetons.Regle;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeauxJetonsTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    // 3 requêtes en rafale, puis une par seconde
+    private static final Regle REGLE = new Regle(3, Duration.ofSeconds(3));
+
+    static Stream<Arguments> stockages() throws Exception {
+        return Stream.of(Arguments.of("memoire", new SeauxJetonsMemoire()), Arguments.of("jdbc", jdbc()));
+    }
+
+    private static SeauxJetonsJdbc jdbc() throws Exception {
+        JdbcTemplate jdbcTemplate = baseVide();
+        migrer(jdbcTemplate);
+        return new SeauxJetonsJdbc(jdbcTemplate);
+    }
+
+    private static JdbcTemplate baseVide() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:limitation-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        return new JdbcTemplate(h2);
+    }
+
+    private static void migrer(JdbcTemplate jdbcTemplate) throws Exception {
+        String migration = Files.readString(Path.of("src/main/resources/db/migration/V5__limitation_debit.sql"),
+                StandardCharsets.UTF_8);
+        for (String instruction : migration.replaceAll("--[^\n]*", "").split(";")) {
+            if (!instruction.isBlank()) {
+                jdbcTemplate.execute(instruction);
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("stockages")
+    void consommer_shouldAllowBurstThenOneTokenPerInterval(String nom, SeauxJetons seaux) {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, seaux.consommer("auth:ip:a", REGLE, T0));
+        }
+        assertEquals(1000, seaux.consommer("auth:ip:a", REGLE, T0));
+        assertEquals(400, seaux.consommer("auth:ip:a", REGLE, T0 + 600));
+        assertEquals(0, seaux.consommer("auth:ip:a", REGLE, T0 + 1000));
+        assertEquals(1000, seaux.consommer("auth:ip:a", REGLE, T0 + 1000));
+        // Autre clé, seau indépendant
+        assertEquals(0, seaux.consommer("auth:ip:b", REGLE, T0));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("stockages")
+    void purger_shouldDropOnlyFullBuckets(String nom, SeauxJetons seaux) {
+        seaux.consommer("auth:ip:a", REGLE, T0);
+        seaux.consommer("auth:ip:b", REGLE, T0 + 5000);
+
+        assertEquals(1, seaux.purger(T0 + 2000));
+
+        // Le seau purgé repart plein
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, seaux.consommer("auth:ip:a", REGLE, T0 + 2000));
+        }
+        assertEquals(0, seaux.consommer("auth:ip:b", REGLE, T0 + 5000));
+        assertEquals(0, seaux.consommer("auth:ip:b", REGLE, T0 + 5000));
+        assertTrue(seaux.consommer("auth:ip:b", REGLE, T0 + 5000) > 0);
+    }
+
+    @Test
+    void jdbc_databaseErrors_shouldFallBackToInstanceBuckets() throws Exception {
+        // Table absente : chaque requête SQL échoue
+        JdbcTemplate jdbcTemplate = baseVide();
+        SeauxJetonsJdbc seaux = new SeauxJetonsJdbc(jdbcTemplate);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, seaux.consommer("auth:ip:a", REGLE, T0));
+        }
+        assertEquals(1000, seaux.consommer("auth:ip:a", REGLE, T0));
+        assertTrue(seaux.isDegrade());
+        assertEquals(1, seaux.purger(T0 + 5000));
+
+        // Base rétablie : retour aux seaux partagés
+        migrer(jdbcTemplate);
+        assertEquals(0, seaux.consommer("auth:ip:a", REGLE, T0 + 5000));
+        assertFalse(seaux.isDegrade());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM limitation_debit", Integer.class));
+    }
+
+    @Test
+    void memoire_concurrentConsumers_shouldNeverExceedCapacity() throws Exception {
+        SeauxJetonsMemoire seaux = new SeauxJetonsMemoire();
+        Regle regle = new Regle(100, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> taches = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                taches.add(() -> {
+                    int acceptees = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (seaux.consommer("reservations:utilisateur:u", regle, T0) == 0) {
+                            acceptees++;
+                        }
+                    }
+                    return acceptees;
+                });
+            }
+            int total = 0;
+            for (Future<Integer> resultat : executor.invokeAll(taches)) {
+                total += resultat.get();
+            }
+            assertEquals(100, total);
+            assertEquals(1, seaux.taille());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void regle_invalid_shouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new Regle(0, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new Regle(5, Duration.ZERO));
+    }
+}
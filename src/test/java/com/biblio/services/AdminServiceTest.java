@@ -5,6 +5,7 @@ import com.biblio.dao.UserDAO;
 import com.biblio.entities.Bibliotheque;
 import com.biblio.entities.User;
 import com.biblio.enums.Role;
+import com.biblio.security.JetonsRafraichissementService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -33,6 +34,9 @@ class AdminServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private JetonsRafraichissementService jetonsService;
+
     // ===================== SERVICE =====================
     @InjectMocks
     private AdminService adminService;
@@ -139,6 +143,19 @@ class AdminServiceTest {
         User updated = adminService.toggleUserStatus(1L);
 
         assertFalse(updated.getActif());
+        verify(jetonsService).revoquerUtilisateur(updated.getId());
+    }
+
+    @Test
+    void toggleUserStatus_reactivation_shouldNotRevokeSessions() {
+        user.setActif(false);
+        when(userDAO.findById(1L)).thenReturn(Optional.of(user));
+        when(userDAO.save(any(User.class))).thenAnswer(i -> i.getArgument(0));
+
+        User updated = adminService.toggleUserStatus(1L);
+
+        assertTrue(updated.getActif());
+        verifyNoInteractions(jetonsService);
     }
 
     @Test
@@ -14,7 +14,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import com.biblio.security.JwtService;
+import com.biblio.security.JetonsRafraichissementService;
 
 import java.util.Optional;
 
@@ -25,8 +25,7 @@ class AuthServiceTest {
 
     private UserDAO userDAO;
     private PasswordEncoder passwordEncoder;
-    private JwtService jwtService;
-    private CustomUserDetailsService userDetailsService;
+    private JetonsRafraichissementService jetonsService;
     private AuthenticationManager authenticationManager;
     private EmailService emailService;
     private UserLogService userLogService;
@@ -37,13 +36,12 @@ class AuthServiceTest {
     void setUp() {
         userDAO = mock(UserDAO.class);
         passwordEncoder = mock(PasswordEncoder.class);
-        jwtService = mock(JwtService.class);
-        userDetailsService = mock(CustomUserDetailsService.class);
+        jetonsService = mock(JetonsRafraichissementService.class);
         authenticationManager = mock(AuthenticationManager.class);
         emailService = mock(EmailService.class);
         userLogService = mock(UserLogService.class);
 
-        authService = new AuthService(userDAO, passwordEncoder, jwtService, userDetailsService,
+        authService = new AuthService(userDAO, passwordEncoder, jetonsService,
                 authenticationManager, emailService, 3600000L, userLogService);
     }
 
@@ -59,8 +57,8 @@ class AuthServiceTest {
         when(authMock.getPrincipal()).thenReturn(user);
         when(userDAO.findByEmail("test@example.com")).thenReturn(Optional.of(user));
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenReturn(authMock);
-        when(jwtService.generateAccessToken(user)).thenReturn("accessToken");
-        when(jwtService.generateRefreshToken(user)).thenReturn("refreshToken");
+        when(jetonsService.emettre(user))
+                .thenReturn(new JetonsRafraichissementService.Jetons(user, "accessToken", "refreshToken"));
 
         AuthResponse response = authService.authenticate("test@example.com", "password");
 
@@ -95,8 +93,8 @@ class AuthServiceTest {
     void testRegister_success() {
         when(userDAO.existsByEmail("new@example.com")).thenReturn(false);
         when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
-        when(jwtService.generateAccessToken(any())).thenReturn("accessToken");
-        when(jwtService.generateRefreshToken(any())).thenReturn("refreshToken");
+        when(jetonsService.emettre(any()))
+                .thenAnswer(i -> new JetonsRafraichissementService.Jetons(i.getArgument(0), "accessToken", "refreshToken"));
 
         AuthResponse response = authService.register("Nom", "Prenom", "new@example.com", "password");
 
@@ -139,4 +137,28 @@ class AuthServiceTest {
 
         assertFalse(result);
     }
+
+    @Test
+    void testRefreshToken_shouldRotateThroughStore() {
+        User user = new User();
+        user.setEmail("test@example.com");
+        user.setRole(Role.USAGER);
+        when(jetonsService.renouveler("ancien"))
+                .thenReturn(new JetonsRafraichissementService.Jetons(user, "accessToken", "nouveau"));
+
+        AuthResponse response = authService.refreshToken("ancien");
+
+        assertEquals("accessToken", response.accessToken());
+        assertEquals("nouveau", response.refreshToken());
+        assertEquals("test@example.com", response.user().get("email"));
+    }
+
+    @Test
+    void testLogout_shouldRevokeSession() {
+        when(jetonsService.revoquerSession("refresh")).thenReturn(true);
+
+        assertTrue(authService.logout("refresh"));
+        assertFalse(authService.logout(null));
+        verify(jetonsService, times(1)).revoquerSession(anyString());
+    }
 }
@@ -0,0 +1,85 @@
+package com.biblio.services;
+
+import com.biblio.dao.BibliothequeDAO;
+import com.biblio.entities.Bibliotheque;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BibliothequeGeoIndexTest {
+
+    private BibliothequeDAO bibliothequeDAO;
+    private BibliothequeGeoIndex geoIndex;
+
+    @BeforeEach
+    void setUp() {
+        bibliothequeDAO = mock(BibliothequeDAO.class);
+        geoIndex = new BibliothequeGeoIndex(bibliothequeDAO);
+    }
+
+    private static Bibliotheque bibliotheque(long id, String nom, Double lat, Double lon) {
+        return Bibliotheque.builder().id(id).nom(nom).ville("Ville " + id).latitude(lat).longitude(lon).build();
+    }
+
+    @Test
+    void plusProches_shouldRankByDistanceAndApplyFilter() {
+        when(bibliothequeDAO.findAllActives()).thenReturn(List.of(
+                bibliotheque(1L, "Tunis", 36.8065, 10.1815),
+                bibliotheque(2L, "Sousse", 35.8256, 10.6084),
+                bibliotheque(3L, "Sfax", 34.7406, 10.7603),
+                bibliotheque(4L, "Bizerte", 37.2746, 9.8739),
+                bibliotheque(5L, "Sans coordonnées", null, null)));
+        geoIndex.rafraichir();
+
+        assertEquals(4, geoIndex.getTaille());
+
+        // Depuis l'Ariana, Bizerte exclue (aucun exemplaire)
+        List<BibliothequeGeoIndex.Resultat> resultats = geoIndex.plusProches(36.8625, 10.1956, id -> id != 4L, 2);
+
+        assertEquals(List.of(1L, 2L), resultats.stream().map(BibliothequeGeoIndex.Resultat::bibliothequeId).toList());
+        assertEquals(6.4, resultats.get(0).distanceKm(), 0.5);
+    }
+
+    @Test
+    void plusProches_shouldMatchBruteForce() {
+        Random random = new Random(42);
+        List<Bibliotheque> bibliotheques = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            bibliotheques.add(bibliotheque(id, "B" + id, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+        when(bibliothequeDAO.findAllActives()).thenReturn(bibliotheques);
+        geoIndex.rafraichir();
+
+        for (int i = 0; i < 50; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            double[] cible = BibliothequeGeoIndex.versCartesien(lat, lon);
+            List<Long> attendus = bibliotheques.stream()
+                    .filter(b -> b.getId() % 3 != 0)
+                    .sorted(Comparator.comparingDouble(b -> {
+                        double[] p = BibliothequeGeoIndex.versCartesien(b.getLatitude(), b.getLongitude());
+                        return Math.pow(p[0] - cible[0], 2) + Math.pow(p[1] - cible[1], 2) + Math.pow(p[2] - cible[2], 2);
+                    }))
+                    .limit(5)
+                    .map(Bibliotheque::getId)
+                    .toList();
+
+            List<Long> obtenus = geoIndex.plusProches(lat, lon, id -> id % 3 != 0, 5).stream()
+                    .map(BibliothequeGeoIndex.Resultat::bibliothequeId)
+                    .toList();
+            assertEquals(attendus, obtenus);
+        }
+    }
+
+    @Test
+    void plusProches_emptyIndex_shouldReturnEmpty() {
+        assertTrue(geoIndex.plusProches(36.8, 10.2, id -> true, 5).isEmpty());
+    }
+}
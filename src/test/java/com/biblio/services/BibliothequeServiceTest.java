@@ -23,6 +23,8 @@ class BibliothequeServiceTest {
 
     @Mock
     private BibliothequeDAO bibliothequeDAO;
+    @Mock
+    private BibliothequeGeoIndex geoIndex;
 
     @InjectMocks
     private BibliothequeService bibliothequeService;
@@ -0,0 +1,202 @@
+package com.biblio.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheCatalogueTest {
+
+    private MiniatureService miniatureService;
+    private SimpleMeterRegistry registry;
+    private CacheCatalogue cache;
+    private final AtomicInteger constructions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        miniatureService = mock(MiniatureService.class);
+        registry = new SimpleMeterRegistry();
+        cache = nouveauCache(Duration.ofMinutes(1), 256);
+    }
+
+    private CacheCatalogue nouveauCache(Duration dureeVie, int tailleMax) {
+        return nouveauCache(dureeVie, tailleMax, DataSize.ofKilobytes(2));
+    }
+
+    private CacheCatalogue nouveauCache(Duration dureeVie, int tailleMax, DataSize seuilGzip) {
+        return new CacheCatalogue(JsonMapper.builder().build(), mock(EntityManagerFactory.class), miniatureService,
+                registry, dureeVie, tailleMax, seuilGzip);
+    }
+
+    private Map<String, Object> payload() {
+        constructions.incrementAndGet();
+        return Map.of("success", true, "total", 2);
+    }
+
+    private static ServletWebRequest requete(String ifNoneMatch) {
+        return requete(ifNoneMatch, null);
+    }
+
+    private static ServletWebRequest requete(String ifNoneMatch, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ressources");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    @Test
+    void obtenir_sameVersion_shouldBuildOnce() {
+        CacheCatalogue.Reponse premiere = cache.obtenir("ressources:tout", this::payload);
+        CacheCatalogue.Reponse seconde = cache.obtenir("ressources:tout", this::payload);
+
+        assertEquals(1, constructions.get());
+        assertSame(premiere, seconde);
+        assertTrue(new String(premiere.corps(), StandardCharsets.UTF_8).contains("\"total\":2"));
+        assertTrue(premiere.etag().startsWith("\"") && premiere.etag().endsWith("\""));
+    }
+
+    @Test
+    void invalider_shouldRebuildButKeepEtagWhenContentUnchanged() {
+        CacheCatalogue.Reponse avant = cache.obtenir("ressources:tout", this::payload);
+
+        cache.invalider();
+        CacheCatalogue.Reponse apres = cache.obtenir("ressources:tout", this::payload);
+
+        assertEquals(2, constructions.get());
+        assertEquals(avant.etag(), apres.etag());
+        assertNotEquals(avant.etag(), cache.obtenir("autre", () -> Map.of("total", 3)).etag());
+    }
+
+    @Test
+    void repondre_withMatchingIfNoneMatch_shouldReturn304WithoutBody() {
+        ResponseEntity<byte[]> premiere = cache.repondre(requete(null), "bibliotheques:actives", this::payload);
+        String etag = premiere.getHeaders().getETag();
+
+        ServletWebRequest conditionnelle = requete(etag);
+        ResponseEntity<byte[]> seconde = cache.repondre(conditionnelle, "bibliotheques:actives", this::payload);
+
+        assertEquals(HttpStatus.OK, premiere.getStatusCode());
+        assertNotNull(premiere.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, seconde.getStatusCode());
+        assertNull(seconde.getBody());
+        assertEquals(etag, conditionnelle.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(1, constructions.get());
+        assertEquals(1.0, registry.get("biblio.cache.catalogue").tag("resultat", "non-modifie").counter().count());
+    }
+
+    @Test
+    void repondre_withStaleEtag_shouldReturnBody() {
+        ResponseEntity<byte[]> reponse = cache.repondre(requete("\"perime\""), "ressources:tout", this::payload);
+
+        assertEquals(HttpStatus.OK, reponse.getStatusCode());
+        assertTrue(reponse.getHeaders().getCacheControl().contains("no-cache"));
+    }
+
+    @Test
+    void writeDuringBuild_shouldNotBeCached() {
+        cache.obtenir("ressources:tout", () -> {
+            cache.invalider();
+            return payload();
+        });
+        cache.obtenir("ressources:tout", this::payload);
+
+        assertEquals(2, constructions.get());
+    }
+
+    @Test
+    void expiredEntry_shouldBeRebuilt() {
+        CacheCatalogue sansDuree = nouveauCache(Duration.ZERO, 256);
+
+        sansDuree.obtenir("ressources:tout", this::payload);
+        sansDuree.obtenir("ressources:tout", this::payload);
+
+        assertEquals(2, constructions.get());
+    }
+
+    @Test
+    void generatedThumbnails_shouldInvalidate() {
+        ArgumentCaptor<Runnable> ecouteur = ArgumentCaptor.forClass(Runnable.class);
+        verify(miniatureService).surDerivesGeneres(ecouteur.capture());
+        long version = cache.getVersion();
+
+        ecouteur.getValue().run();
+
+        assertEquals(version + 1, cache.getVersion());
+    }
+
+    @Test
+    void repondre_withGzipAccepted_shouldServePrecompressedVariant() throws Exception {
+        registry = new SimpleMeterRegistry();
+        CacheCatalogue compresse = nouveauCache(Duration.ofMinutes(1), 256, DataSize.ofBytes(0));
+
+        ResponseEntity<byte[]> brute = compresse.repondre(requete(null), "ressources:tout", this::payload);
+        ResponseEntity<byte[]> gzip = compresse.repondre(requete(null, "gzip, deflate, br"), "ressources:tout",
+                this::payload);
+
+        assertNull(brute.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(gzip.getHeaders().getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        assertNotEquals(brute.getHeaders().getETag(), gzip.getHeaders().getETag());
+        try (GZIPInputStream entree = new GZIPInputStream(new ByteArrayInputStream(gzip.getBody()))) {
+            assertArrayEquals(brute.getBody(), entree.readAllBytes());
+        }
+        assertEquals(1, constructions.get());
+
+        ServletWebRequest conditionnelle = requete(gzip.getHeaders().getETag(), "gzip");
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                compresse.repondre(conditionnelle, "ressources:tout", this::payload).getStatusCode());
+    }
+
+    @Test
+    void repondre_belowThreshold_shouldNotCompress() {
+        ResponseEntity<byte[]> reponse = cache.repondre(requete(null, "gzip"), "ressources:tout", this::payload);
+
+        assertNull(reponse.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNull(cache.obtenir("ressources:tout", this::payload).corpsGzip());
+    }
+
+    @Test
+    void accepteGzip_shouldHonourQualityValues() {
+        assertTrue(CacheCatalogue.accepteGzip("gzip"));
+        assertTrue(CacheCatalogue.accepteGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(CacheCatalogue.accepteGzip("*"));
+        assertFalse(CacheCatalogue.accepteGzip(null));
+        assertFalse(CacheCatalogue.accepteGzip("br, deflate"));
+        assertFalse(CacheCatalogue.accepteGzip("gzip;q=0"));
+        assertFalse(CacheCatalogue.accepteGzip("*, gzip;q=0.000"));
+    }
+
+    @Test
+    void fullCache_shouldStayBounded() {
+        registry = new SimpleMeterRegistry();
+        CacheCatalogue petit = nouveauCache(Duration.ofMinutes(1), 2);
+        for (int i = 0; i < 10; i++) {
+            petit.obtenir("cle-" + i, this::payload);
+        }
+
+        assertTrue(registry.get("biblio.cache.catalogue.entrees").gauge().value() <= 2);
+    }
+}
@@ -0,0 +1,166 @@
+package com.biblio.services;
+
+import com.biblio.dao.RessourceDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Ressource;
+import com.biblio.enums.Categorie;
+import com.biblio.enums.TypeRessource;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CatalogueImportServiceTest {
+
+    private RessourceDAO ressourceDAO;
+    private JdbcTemplate jdbcTemplate;
+    private OeuvreIndex oeuvreIndex;
+    private IdentifiantsService identifiantsService;
+    private CatalogueImportService importService;
+    private Bibliotheque bibliotheque;
+
+    @BeforeEach
+    void setUp() {
+        ressourceDAO = mock(RessourceDAO.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        oeuvreIndex = mock(OeuvreIndex.class);
+        identifiantsService = mock(IdentifiantsService.class);
+        importService = new CatalogueImportService(ressourceDAO, mock(UserDAO.class), jdbcTemplate,
+                mock(PlatformTransactionManager.class), Validation.buildDefaultValidatorFactory().getValidator(),
+                oeuvreIndex, mock(CacheCatalogue.class), identifiantsService, mock(FileStorageService.class), 2);
+
+        bibliotheque = Bibliotheque.builder().id(1L).nom("Centrale").capaciteStock(10).build();
+        when(ressourceDAO.findAllIsbns()).thenReturn(List.of("978-2-07-036002-4"));
+        when(ressourceDAO.sumNombreExemplairesByBibliothequeId(1L)).thenReturn(4);
+        when(identifiantsService.reserver(eq(Ressource.class), anyInt())).thenReturn(101L, 201L);
+    }
+
+    private CatalogueImportService.ImportJob job(CatalogueImportService.Format format) {
+        return new CatalogueImportService.ImportJob("job", "biblio@test.com", format);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> lignesInserees() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), captor.capture());
+        List<Object[]> lignes = new ArrayList<>();
+        captor.getAllValues().forEach(lignes::addAll);
+        return lignes;
+    }
+
+    @Test
+    void importerCsv_shouldBatchValidRowsAndReportErrors() throws Exception {
+        String csv = "titre;auteur;isbn;categorie;typeRessource;nombreExemplaires\n" +
+                "La Chute;Albert Camus;978-2-07-036023-9;Littérature;livre;2\n" +
+                // ISBN déjà présent en base sous une autre forme
+                "La Peste;Albert Camus;9782070360024;LITTERATURE;LIVRE;1\n" +
+                "Sans auteur;;;SCIENCES;LIVRE;1\n" +
+                "Doublon fichier;Albert Camus;9782070360239;LITTERATURE;LIVRE;1\n" +
+                "Noces;Albert Camus;;LITTERATURE;LIVRE;abc\n" +
+                "L'Exil;Albert Camus;;HISTOIRE;DVD;3\n" +
+                // 4 en stock + 2 + 3 = 9 : ces 2 exemplaires dépassent la capacité de 10
+                "Le Mythe;Albert Camus;;PHILOSOPHIE;LIVRE;2\n";
+
+        CatalogueImportService.ImportJob job = job(CatalogueImportService.Format.CSV);
+        importService.importer(job, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), bibliotheque, null, null);
+
+        assertEquals(CatalogueImportService.StatutImport.TERMINE, job.getStatut());
+        assertEquals(7, job.getLignesLues());
+        assertEquals(2, job.getImportees());
+        assertEquals(5, job.getRejetees());
+        assertEquals(List.of(3, 4, 5, 6, 8), job.getErreurs().stream().map(CatalogueImportService.ErreurLigne::ligne).toList());
+
+        List<Object[]> lignes = lignesInserees();
+        assertEquals(List.of("La Chute", "L'Exil"), lignes.stream().map(l -> (String) l[0]).toList());
+        assertEquals("DVD", lignes.get(1)[4]);
+        // Une plage d'identifiants réservée par lot
+        assertEquals(List.of(101L, 201L), lignes.stream().map(l -> l[l.length - 1]).toList());
+        verify(identifiantsService, times(2)).reserver(Ressource.class, 1);
+        verify(ressourceDAO, times(1)).sumNombreExemplairesByBibliothequeId(1L);
+        verify(oeuvreIndex).charger();
+    }
+
+    @Test
+    void importerMarc_shouldMapFieldsAndApplyDefaults() throws Exception {
+        ByteArrayOutputStream marc = new ByteArrayOutputStream();
+        marc.writeBytes(notice(new String[][]{
+                {"020", "  \u001Fa2070360245 (br.)"},
+                {"100", "1 \u001FaCamus, Albert,"},
+                {"245", "10\u001FaL'étranger /\u001Fbroman"},
+                {"264", " 1\u001FaParis :\u001FbGallimard,\u001Fc1972."}}));
+        marc.writeBytes(notice(new String[][]{{"245", "10\u001FaSans auteur"}}));
+
+        CatalogueImportService.ImportJob job = job(CatalogueImportService.Format.MARC);
+        importService.importer(job, new ByteArrayInputStream(marc.toByteArray()), bibliotheque,
+                Categorie.LITTERATURE, TypeRessource.LIVRE);
+
+        assertEquals(1, job.getImportees());
+        assertEquals(1, job.getRejetees());
+        Object[] ligne = lignesInserees().get(0);
+        assertEquals("L'étranger : roman", ligne[0]);
+        assertEquals("Camus, Albert", ligne[1]);
+        assertEquals("2070360245", ligne[2]);
+        assertEquals("LITTERATURE", ligne[3]);
+        assertEquals("Gallimard", ligne[6]);
+        assertEquals(java.sql.Date.valueOf("1972-01-01"), ligne[7]);
+        assertEquals(1, ligne[8]);
+    }
+
+    @Test
+    void importerMarc_malformedRecord_shouldRejectItAndContinue() throws Exception {
+        byte[] adresseIllisible = notice(new String[][]{{"245", "10\u001FaAdresse illisible"}});
+        System.arraycopy("00x3?".getBytes(StandardCharsets.US_ASCII), 0, adresseIllisible, 12, 5);
+        byte[] repertoireIllisible = notice(new String[][]{{"245", "10\u001FaRépertoire illisible"}});
+        // Longueur du champ 245 dans la première entrée du répertoire
+        System.arraycopy("0a1?".getBytes(StandardCharsets.US_ASCII), 0, repertoireIllisible, 27, 4);
+        ByteArrayOutputStream marc = new ByteArrayOutputStream();
+        marc.writeBytes(notice(new String[][]{{"100", "1 \u001FaHugo, Victor"}, {"245", "10\u001FaLes misérables"}}));
+        marc.writeBytes(adresseIllisible);
+        marc.writeBytes(repertoireIllisible);
+        marc.writeBytes(notice(new String[][]{{"100", "1 \u001FaZola, Émile"}, {"245", "10\u001FaGerminal"}}));
+
+        CatalogueImportService.ImportJob job = job(CatalogueImportService.Format.MARC);
+        importService.importer(job, new ByteArrayInputStream(marc.toByteArray()), bibliotheque,
+                Categorie.LITTERATURE, TypeRessource.LIVRE);
+
+        assertEquals(CatalogueImportService.StatutImport.TERMINE, job.getStatut());
+        assertEquals(4, job.getLignesLues());
+        assertEquals(2, job.getImportees());
+        assertEquals(List.of(2, 3), job.getErreurs().stream().map(CatalogueImportService.ErreurLigne::ligne).toList());
+        assertTrue(job.getErreurs().get(1).message().contains("245"), job.getErreurs().toString());
+        assertEquals(List.of("Les misérables", "Germinal"), lignesInserees().stream().map(l -> l[0]).toList());
+    }
+
+    private static byte[] notice(String[][] champs) {
+        StringBuilder repertoire = new StringBuilder();
+        ByteArrayOutputStream donnees = new ByteArrayOutputStream();
+        for (String[] champ : champs) {
+            byte[] contenu = (champ[1] + "\u001E").getBytes(StandardCharsets.UTF_8);
+            repertoire.append(champ[0]).append(String.format("%04d%05d", contenu.length, donnees.size()));
+            donnees.writeBytes(contenu);
+        }
+        repertoire.append('\u001E');
+        int base = 24 + repertoire.length();
+        int longueur = base + donnees.size() + 1;
+        String leader = String.format("%05dnam a22%05d   4500", longueur, base);
+        ByteArrayOutputStream notice = new ByteArrayOutputStream();
+        notice.writeBytes(leader.getBytes(StandardCharsets.US_ASCII));
+        notice.writeBytes(repertoire.toString().getBytes(StandardCharsets.US_ASCII));
+        notice.writeBytes(donnees.toByteArray());
+        notice.write(0x1D);
+        return notice.toByteArray();
+    }
+}
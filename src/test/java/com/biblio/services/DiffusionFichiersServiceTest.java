@@ -0,0 +1,268 @@
+package com.biblio.services;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DiffusionFichiersServiceTest {
+
+    private static final String HASH = "ab".repeat(32);
+    private static final String CHEMIN = "ab/ab/" + HASH + ".mp3";
+
+    @TempDir
+    Path racine;
+
+    private DiffusionFichiersService service;
+    private byte[] contenu;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new DiffusionFichiersService(new LocalStorageBackend(racine), 1024, Duration.ofMinutes(15));
+        contenu = new byte[4096];
+        new Random(7).nextBytes(contenu);
+        Path fichier = racine.resolve(CHEMIN);
+        Files.createDirectories(fichier.getParent());
+        Files.write(fichier, contenu);
+    }
+
+    private MockHttpServletResponse get(String chemin, String... entetes) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + chemin);
+        for (int i = 0; i < entetes.length; i += 2) {
+            request.addHeader(entetes[i], entetes[i + 1]);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.servir(chemin, request, response);
+        return response;
+    }
+
+    @Test
+    void servir_shouldSendWholeFileWithCacheHeaders() throws IOException {
+        MockHttpServletResponse response = get(CHEMIN);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(contenu, response.getContentAsByteArray());
+        assertEquals(4096, response.getContentLengthLong());
+        assertEquals("audio/mpeg", response.getContentType());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("\"" + HASH + "\"", response.getHeader("ETag"));
+        assertNotNull(response.getHeader("Last-Modified"));
+        assertTrue(response.getHeader("Cache-Control").contains("immutable"));
+    }
+
+    @Test
+    void servir_shouldHonourSingleRange() throws IOException {
+        MockHttpServletResponse response = get(CHEMIN, "Range", "bytes=100-199");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/4096", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(contenu, 100, 200), response.getContentAsByteArray());
+
+        MockHttpServletResponse suffixe = get(CHEMIN, "Range", "bytes=-10");
+        assertEquals("bytes 4086-4095/4096", suffixe.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(contenu, 4086, 4096), suffixe.getContentAsByteArray());
+    }
+
+    @Test
+    void servir_shouldRejectUnsatisfiableRange() throws IOException {
+        MockHttpServletResponse response = get(CHEMIN, "Range", "bytes=5000-");
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */4096", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void servir_shouldIgnoreRangeWhenIfRangeIsStale() throws IOException {
+        MockHttpServletResponse response = get(CHEMIN, "Range", "bytes=0-9", "If-Range", "\"autre\"");
+
+        assertEquals(200, response.getStatus());
+        assertEquals(4096, response.getContentAsByteArray().length);
+
+        MockHttpServletResponse valide = get(CHEMIN, "Range", "bytes=0-9", "If-Range", "\"" + HASH + "\"");
+        assertEquals(206, valide.getStatus());
+    }
+
+    @Test
+    void servir_shouldAnswerNotModified() throws IOException {
+        MockHttpServletResponse response = get(CHEMIN, "If-None-Match", "\"" + HASH + "\"");
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void servir_shouldDelegateLargeBodiesToSendfile() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + CHEMIN);
+        request.setAttribute(DiffusionFichiersService.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader("Range", "bytes=1000-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        service.servir(CHEMIN, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(racine.resolve(CHEMIN).toAbsolutePath().normalize().toString(),
+                request.getAttribute(DiffusionFichiersService.SENDFILE_FICHIER));
+        assertEquals(1000L, request.getAttribute(DiffusionFichiersService.SENDFILE_DEBUT));
+        assertEquals(4096L, request.getAttribute(DiffusionFichiersService.SENDFILE_FIN));
+    }
+
+    @Test
+    void servir_shouldNotServeOutsideUploadsOrHiddenFiles() throws IOException {
+        Files.writeString(racine.resolve(".depot-123.tmp"), "partiel");
+
+        assertEquals(404, get("../secret.txt").getStatus());
+        assertEquals(404, get(".depot-123.tmp").getStatus());
+        assertEquals(404, get("ab").getStatus());
+        assertEquals(404, get("absent.png").getStatus());
+    }
+
+    @Test
+    void servir_remoteStorage_shouldRedirectToPresignedUrl() throws IOException {
+        StorageBackend s3 = mock(StorageBackend.class);
+        when(s3.urlSignee(CHEMIN, Duration.ofMinutes(15)))
+                .thenReturn(Optional.of(URI.create("https://s3.example.com/biblio/" + CHEMIN + "?X-Amz-Signature=abc")));
+        service = new DiffusionFichiersService(s3, 1024, Duration.ofMinutes(15));
+
+        MockHttpServletResponse response = get(CHEMIN);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://s3.example.com/biblio/" + CHEMIN + "?X-Amz-Signature=abc", response.getHeader("Location"));
+        assertEquals("max-age=450, private", response.getHeader("Cache-Control"));
+        verify(s3, never()).fichierLocal(anyString());
+    }
+
+    @Test
+    void etag_shouldUseContentHashOrModificationAndSize() {
+        assertEquals(HASH + "-carte", DiffusionFichiersService.etag(HASH + "-carte.jpg", 1L, 2L));
+        assertEquals("ff-10", DiffusionFichiersService.etag("0b8e-uuid.png", 255L, 16L));
+    }
+
+    /**
+     * Comparaison avec le gestionnaire de ressources Spring utilisé jusqu'ici, sur un Tomcat embarqué et un
+     * fichier de 32 Mo, en téléchargement complet et sur une plage de 8 Mo (meilleure de trois passes alternées,
+     * après une passe de préchauffage).
+     * À lancer explicitement : {@code mvn test -Dtest=DiffusionFichiersServiceTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_againstResourceHttpRequestHandler() throws Exception {
+        Path gros = racine.resolve("extrait.mp4");
+        byte[] bloc = new byte[1 << 20];
+        new Random(1).nextBytes(bloc);
+        try (var out = Files.newOutputStream(gros)) {
+            for (int i = 0; i < 32; i++) {
+                out.write(bloc);
+            }
+        }
+
+        ResourceHttpRequestHandler ressources = new ResourceHttpRequestHandler();
+        ressources.setLocations(List.of(new FileSystemResource(racine.toString() + "/")));
+        ressources.afterPropertiesSet();
+        DiffusionFichiersService diffusion = new DiffusionFichiersService(new LocalStorageBackend(racine),
+                48 * 1024, Duration.ofMinutes(15));
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createDirectories(racine.resolve(".tomcat")).toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "ressources", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                req.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, req.getPathInfo().substring(1));
+                try {
+                    ressources.handleRequest(req, resp);
+                } catch (jakarta.servlet.ServletException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+        Tomcat.addServlet(context, "diffusion", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                diffusion.servir(req.getPathInfo().substring(1), req, resp);
+            }
+        });
+        context.addServletMappingDecoded("/ressources/*", "ressources");
+        context.addServletMappingDecoded("/diffusion/*", "diffusion");
+        tomcat.getConnector();
+        tomcat.start();
+        try {
+            String base = "http://127.0.0.1:" + tomcat.getConnector().getLocalPort();
+            HttpClient client = HttpClient.newHttpClient();
+            for (String range : Arrays.asList(null, "bytes=8388608-16777215")) {
+                double[] meilleurs = new double[2];
+                for (int passe = 0; passe < 4; passe++) {
+                    double gestionnaire = mesurer(client, base + "/ressources/extrait.mp4", range, 10);
+                    double sendfile = mesurer(client, base + "/diffusion/extrait.mp4", range, 10);
+                    // La première passe préchauffe le JIT et le cache de pages
+                    if (passe > 0) {
+                        meilleurs[0] = Math.max(meilleurs[0], gestionnaire);
+                        meilleurs[1] = Math.max(meilleurs[1], sendfile);
+                    }
+                }
+                System.out.printf("%-8s gestionnaire %8.1f Mo/s   diffusion %8.1f Mo/s%n",
+                        range == null ? "complet" : "plage", meilleurs[0], meilleurs[1]);
+            }
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    /**
+     * Débit en Mo/s de {@code iterations} téléchargements, chaque corps devant avoir la longueur attendue
+     */
+    private static double mesurer(HttpClient client, String url, String range, int iterations) throws Exception {
+        long attendus = range == null ? 32L << 20 : 8L << 20;
+        long octets = 0;
+        long debut = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            HttpRequest.Builder requete = HttpRequest.newBuilder(URI.create(url));
+            if (range != null) {
+                requete.header("Range", range);
+            }
+            HttpResponse<InputStream> reponse = client.send(requete.build(), HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(range == null ? 200 : 206, reponse.statusCode());
+            long recus = 0;
+            try (InputStream in = reponse.body()) {
+                byte[] tampon = new byte[256 * 1024];
+                int lus;
+                while ((lus = in.read(tampon)) != -1) {
+                    recus += lus;
+                }
+            }
+            assertEquals(attendus, recus, url);
+            octets += recus;
+        }
+        return octets / 1048576.0 / ((System.nanoTime() - debut) / 1e9);
+    }
+}
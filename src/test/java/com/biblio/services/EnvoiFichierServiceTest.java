@@ -0,0 +1,302 @@
+package com.biblio.services;
+
+import com.biblio.services.EnvoiFichierService.Envoi;
+import com.biblio.services.EnvoiFichierService.StatutEnvoi;
+import com.biblio.services.EnvoiFichierService.TypeFichier;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EnvoiFichierServiceTest {
+
+    private static final byte[] SIGNATURE_PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+
+    @TempDir
+    Path temporaires;
+
+    private FileStorageService fileStorageService;
+    private MiniatureService miniatureService;
+    private ExecutorService executor;
+    private ExecutorService conteneur;
+    private EnvoiFichierService envoiFichierService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileStorageService = mock(FileStorageService.class);
+        miniatureService = mock(MiniatureService.class);
+        when(fileStorageService.fichierTemporaire()).thenAnswer(i -> Files.createTempFile(temporaires, "envoi", ".tmp"));
+        executor = Executors.newFixedThreadPool(2);
+        // Thread qui joue le rôle du conteneur pour les notifications du ReadListener
+        conteneur = Executors.newSingleThreadExecutor();
+        // 1 Mo par fichier, 2 Mo par jour et par utilisateur
+        envoiFichierService = new EnvoiFichierService(fileStorageService, miniatureService, 1024 * 1024,
+                2 * 1024 * 1024, 2, Duration.ofMinutes(5), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        conteneur.shutdownNow();
+    }
+
+    private static byte[] contenu(byte[] signature, int taille) {
+        byte[] contenu = new byte[taille];
+        new Random(taille).nextBytes(contenu);
+        System.arraycopy(signature, 0, contenu, 0, signature.length);
+        return contenu;
+    }
+
+    @Test
+    void recevoir_shouldStreamToTempFileAndPublishWithSniffedType() throws Exception {
+        byte[] contenu = contenu(SIGNATURE_PNG, 300_000);
+        AtomicReference<byte[]> publie = new AtomicReference<>();
+        when(fileStorageService.publier(any(), anyString(), anyString(), anyString())).thenAnswer(i -> {
+            publie.set(Files.readAllBytes(i.getArgument(0)));
+            return "ab/cd/" + i.getArgument(1) + i.getArgument(2);
+        });
+        Envoi envoi = envoiFichierService.ouvrir("usager@test.com", contenu.length);
+
+        Envoi termine = envoiFichierService.recevoir(envoi, new FluxSimule(contenu, 7000))
+                .get(10, TimeUnit.SECONDS);
+
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenu));
+        assertEquals(StatutEnvoi.TERMINE, termine.getStatut());
+        assertEquals(100, termine.getPourcentage());
+        assertEquals("/uploads/ab/cd/" + hash + ".png", termine.getUrl());
+        assertArrayEquals(contenu, publie.get());
+        // Type déduit des octets, pas du nom ni de l'en-tête envoyés par le client
+        verify(fileStorageService).publier(any(), eq(hash), eq(".png"), eq("image/png"));
+        verify(miniatureService).genererDerives("ab/cd/" + hash + ".png");
+        try (var restants = Files.list(temporaires)) {
+            assertEquals(0, restants.count());
+        }
+    }
+
+    @Test
+    void recevoir_shouldRejectUnknownSignatureOnFirstChunk() throws Exception {
+        byte[] executable = contenu("MZ\u0090\u0000".getBytes(StandardCharsets.ISO_8859_1), 50_000);
+        Envoi envoi = envoiFichierService.ouvrir("usager@test.com", executable.length);
+        FluxSimule flux = new FluxSimule(executable, 4096);
+
+        ExecutionException erreur = assertThrows(ExecutionException.class,
+                () -> envoiFichierService.recevoir(envoi, flux).get(10, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalArgumentException.class, erreur.getCause());
+        assertEquals(StatutEnvoi.REJETE, envoi.getStatut());
+        // Arrêt dès le premier morceau
+        assertEquals(4096, flux.position);
+        verify(fileStorageService, never()).publier(any(), any(), any(), any());
+        try (var restants = Files.list(temporaires)) {
+            assertEquals(0, restants.count());
+        }
+    }
+
+    @Test
+    void recevoir_shouldRejectBodyLargerThanAnnounced() throws Exception {
+        byte[] contenu = contenu(SIGNATURE_PNG, 20_000);
+        Envoi envoi = envoiFichierService.ouvrir("usager@test.com", 10_000);
+
+        ExecutionException erreur = assertThrows(ExecutionException.class,
+                () -> envoiFichierService.recevoir(envoi, new FluxSimule(contenu, 4096)).get(10, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalArgumentException.class, erreur.getCause());
+        assertEquals(StatutEnvoi.REJETE, envoi.getStatut());
+    }
+
+    @Test
+    void ouvrir_shouldEnforceSizeAndConcurrencyQuotas() {
+        assertThrows(IllegalArgumentException.class, () -> envoiFichierService.ouvrir("usager@test.com", 2 * 1024 * 1024));
+
+        envoiFichierService.ouvrir("usager@test.com", 100);
+        Envoi deuxieme = envoiFichierService.ouvrir("usager@test.com", 100);
+        assertThrows(IllegalStateException.class, () -> envoiFichierService.ouvrir("usager@test.com", 100));
+        // Quota par utilisateur
+        assertNotNull(envoiFichierService.ouvrir("autre@test.com", 100));
+
+        envoiFichierService.abandonner(deuxieme, "test");
+        assertNotNull(envoiFichierService.ouvrir("usager@test.com", 100));
+        assertThrows(IllegalArgumentException.class, () -> envoiFichierService.getEnvoi(deuxieme.getId(), "autre@test.com"));
+    }
+
+    @Test
+    void ouvrir_shouldEnforceDailyVolumePerUser() {
+        Envoi premier = envoiFichierService.ouvrir("usager@test.com", 1024 * 1024);
+        envoiFichierService.ouvrir("usager@test.com", 512 * 1024);
+
+        IllegalStateException erreur = assertThrows(IllegalStateException.class,
+                () -> envoiFichierService.ouvrir("usager@test.com", 600 * 1024));
+        assertTrue(erreur.getMessage().contains("Quota"));
+
+        // Un envoi rejeté ne compte pas dans le volume
+        envoiFichierService.abandonner(premier, "test");
+        assertNotNull(envoiFichierService.ouvrir("usager@test.com", 600 * 1024));
+    }
+
+    @Test
+    void abandonner_duringReception_shouldStopReadingAndNeverPublish() throws Exception {
+        byte[] contenu = contenu(SIGNATURE_PNG, 100_000);
+        Envoi envoi = envoiFichierService.ouvrir("usager@test.com", contenu.length);
+        // Le client s'arrête après 8 Ko
+        FluxSimule flux = new FluxSimule(contenu, 4096, 8192);
+        var resultat = envoiFichierService.recevoir(envoi, flux);
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (envoi.getRecus() < 8192 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+
+        envoiFichierService.abandonner(envoi, "Délai d'envoi dépassé");
+        flux.reprendre();
+
+        assertThrows(CancellationException.class, () -> resultat.get(10, TimeUnit.SECONDS));
+        assertEquals(StatutEnvoi.REJETE, envoi.getStatut());
+        assertEquals("Délai d'envoi dépassé", envoi.getMessage());
+        assertNull(envoi.getUrl());
+        conteneur.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        assertEquals(8192, flux.position);
+        verify(fileStorageService, never()).publier(any(), any(), any(), any());
+        try (var restants = Files.list(temporaires)) {
+            assertEquals(0, restants.count());
+        }
+    }
+
+    @Test
+    void detecter_shouldRecognizeAcceptedSignatures() {
+        assertEquals(TypeFichier.JPEG, detecter(0xFF, 0xD8, 0xFF, 0xE0));
+        assertEquals(TypeFichier.MP3, detecter('I', 'D', '3', 4, 0));
+        assertEquals(TypeFichier.MP3, detecter(0xFF, 0xFB, 0x90, 0x64));
+        assertEquals(TypeFichier.WAV, detecter('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'A', 'V', 'E'));
+        assertEquals(TypeFichier.WEBP, detecter('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'));
+        assertEquals(TypeFichier.MP4, detecter(0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'));
+        assertEquals(TypeFichier.M4A, detecter(0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'M', '4', 'A', ' '));
+        assertEquals(TypeFichier.PDF, detecter('%', 'P', 'D', 'F', '-', '1', '.', '7'));
+        assertNull(detecter('R', 'I', 'F', 'F', 0, 0, 0, 0, 'A', 'V', 'I', ' '));
+        assertNull(detecter('<', 's', 'v', 'g'));
+        assertNull(detecter(0xFF));
+    }
+
+    private static TypeFichier detecter(int... octets) {
+        byte[] debut = new byte[octets.length];
+        for (int i = 0; i < octets.length; i++) {
+            debut[i] = (byte) octets[i];
+        }
+        return EnvoiFichierService.detecter(debut, debut.length);
+    }
+
+    /**
+     * Corps de requête lu en mode non bloquant : les données arrivent par paquets, chaque paquet étant signalé
+     * par onDataAvailable depuis le thread "conteneur" après un isReady() négatif, comme dans Tomcat.
+     */
+    private final class FluxSimule extends ServletInputStream {
+        private final byte[] donnees;
+        private final int paquet;
+        private volatile int arret;
+        private volatile ReadListener listener;
+        private volatile boolean disponible = true;
+        private volatile boolean finSignalee;
+        volatile int position;
+
+        FluxSimule(byte[] donnees, int paquet) {
+            this(donnees, paquet, donnees.length);
+        }
+
+        /**
+         * Les données cessent d'arriver à la position {@code arret}, jusqu'à {@link #reprendre()}
+         */
+        FluxSimule(byte[] donnees, int paquet, int arret) {
+            this.donnees = donnees;
+            this.paquet = paquet;
+            this.arret = arret;
+        }
+
+        void reprendre() {
+            arret = donnees.length;
+            conteneur.execute(this::signalerDonnees);
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            this.listener = readListener;
+            conteneur.execute(this::signalerDonnees);
+        }
+
+        private void signalerDonnees() {
+            try {
+                listener.onDataAvailable();
+            } catch (IOException e) {
+                listener.onError(e);
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            if (isFinished()) {
+                if (!finSignalee) {
+                    finSignalee = true;
+                    conteneur.execute(() -> {
+                        try {
+                            listener.onAllDataRead();
+                        } catch (IOException e) {
+                            listener.onError(e);
+                        }
+                    });
+                }
+                return false;
+            }
+            if (position >= arret) {
+                return false;
+            }
+            if (disponible) {
+                return true;
+            }
+            conteneur.execute(() -> {
+                disponible = true;
+                signalerDonnees();
+            });
+            return false;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position >= donnees.length;
+        }
+
+        @Override
+        public int read() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (isFinished()) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, paquet), donnees.length - position);
+            System.arraycopy(donnees, position, b, off, n);
+            position += n;
+            disponible = false;
+            return n;
+        }
+    }
+}
@@ -1,22 +1,34 @@
 package com.biblio.services;
 
+import com.biblio.dao.FichierStockeDAO;
+import com.biblio.entities.FichierStocke;
 import org.junit.jupiter.api.*;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.time.Duration;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 class FileStorageServiceTest {
 
     private FileStorageService fileStorageService;
+    private FichierStockeDAO fichierStockeDAO;
+    private MiniatureService miniatureService;
     private Path uploadDir;
 
     @BeforeEach
     void setUp() throws IOException {
-        fileStorageService = new FileStorageService();
+        fichierStockeDAO = mock(FichierStockeDAO.class);
+        miniatureService = mock(MiniatureService.class);
+        fileStorageService = new FileStorageService(new LocalStorageBackend(Paths.get("uploads")), fichierStockeDAO,
+                miniatureService, mock(PlatformTransactionManager.class), Duration.ofHours(24));
         uploadDir = Paths.get("uploads");
 
         // Nettoyer le dossier uploads avant chaque test
@@ -109,4 +121,48 @@ class FileStorageServiceTest {
 
         assertTrue(exception.getMessage().contains("Cannot store file outside"));
     }
+
+    // ===============================
+    // TEST : stockage par contenu et déduplication
+    // ===============================
+    @Test
+    void store_SameContent_ShouldBeStoredOnceUnderItsHash() throws IOException {
+        // SHA-256 de "test content"
+        String hash = "6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72";
+        when(fichierStockeDAO.toucher(anyString(), any())).thenReturn(0, 1);
+
+        String premier = fileStorageService.store(new MockMultipartFile("file", "a.PNG", "image/png", "test content".getBytes()));
+        String second = fileStorageService.store(new MockMultipartFile("file", "b.png", "image/png", "test content".getBytes()));
+
+        assertEquals("6a/e8/" + hash + ".png", premier);
+        assertEquals(premier, second);
+        assertEquals("test content", Files.readString(uploadDir.resolve(premier)));
+        // Ligne créée au premier envoi seulement
+        verify(fichierStockeDAO, times(1)).saveAndFlush(any(FichierStocke.class));
+    }
+
+    // ===============================
+    // TEST : nettoyage des fichiers sans référence
+    // ===============================
+    @Test
+    void supprimerOrphelins_ShouldDeleteUnreferencedFilesAndThumbnails() throws IOException {
+        String chemin = fileStorageService.store(new MockMultipartFile("file", "c.txt", "text/plain", "orphelin".getBytes()));
+        when(fichierStockeDAO.findOrphelins(any(), any())).thenReturn(List.of(chemin, "aa/bb/deja-repris.txt"));
+        when(fichierStockeDAO.supprimerSiOrphelin(eq(chemin), any())).thenReturn(1);
+
+        assertEquals(1, fileStorageService.supprimerOrphelins());
+
+        assertFalse(Files.exists(uploadDir.resolve(chemin)));
+        verify(miniatureService).supprimerDerives(chemin);
+        verify(miniatureService, never()).supprimerDerives("aa/bb/deja-repris.txt");
+    }
+
+    @Test
+    void cheminStocke_ShouldOnlyAcceptContentAddressedUploads() {
+        String chemin = "6a/e8/6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72.png";
+        assertEquals(chemin, FileStorageService.cheminStocke("/uploads/" + chemin));
+        assertNull(FileStorageService.cheminStocke("/uploads/3f2b8c1e-uuid.png"));
+        assertNull(FileStorageService.cheminStocke("https://covers.example.org/1.jpg"));
+        assertNull(FileStorageService.cheminStocke(null));
+    }
 }
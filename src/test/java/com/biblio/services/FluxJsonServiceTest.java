@@ -0,0 +1,418 @@
+package com.biblio.services;
+
+import com.biblio.config.ProfilageSqlConfig;
+import com.biblio.config.ProxyJdbcConfig;
+import com.biblio.dao.BibliothequeDAO;
+import com.biblio.dao.PretDAO;
+import com.biblio.dao.RessourceDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.dto.PretResponse;
+import com.biblio.entities.Bibliotheque;
+import com.biblio.entities.Pret;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.enums.Categorie;
+import com.biblio.enums.StatutPret;
+import com.biblio.enums.TypeRessource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Listes de prêts écrites page par page depuis PretDAO, sur le schéma Flyway (H2 en mode MySQL).
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:flux;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FluxJsonServiceTest.Config.class, ProxyJdbcConfig.class, ProfilageSqlConfig.class})
+class FluxJsonServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JsonMapper jsonMapper() {
+            return JsonMapper.builder().build();
+        }
+
+        @Bean
+        FluxJsonService fluxJsonService(JsonMapper jsonMapper, EntityManagerFactory entityManagerFactory,
+                                        PlatformTransactionManager transactionManager) {
+            // Lot de 2 : la liste est lue en plusieurs pages
+            return new FluxJsonService(jsonMapper, entityManagerFactory, transactionManager, 2);
+        }
+    }
+
+    @Autowired
+    private FluxJsonService fluxJsonService;
+    @Autowired
+    private JsonMapper jsonMapper;
+    @Autowired
+    private PretDAO pretDAO;
+    @Autowired
+    private BibliothequeDAO bibliothequeDAO;
+    @Autowired
+    private RessourceDAO ressourceDAO;
+    @Autowired
+    private UserDAO userDAO;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    private Bibliotheque bibliotheque;
+    private Ressource ressource;
+    private User usager;
+
+    @BeforeEach
+    void setUp() {
+        bibliotheque = bibliothequeDAO.save(Bibliotheque.builder()
+                .nom("Médiathèque Nord " + System.nanoTime())
+                .adresse("1 rue des Livres")
+                .ville("Lille")
+                .build());
+        // Ressource et usager rattachés chacun à une autre bibliothèque que le prêt
+        Bibliotheque annexe = bibliothequeDAO.save(Bibliotheque.builder()
+                .nom("Annexe Sud " + System.nanoTime())
+                .adresse("2 rue des Livres")
+                .ville("Lille")
+                .build());
+        Bibliotheque quartier = bibliothequeDAO.save(Bibliotheque.builder()
+                .nom("Bibliothèque Wazemmes " + System.nanoTime())
+                .adresse("3 rue des Livres")
+                .ville("Lille")
+                .build());
+        ressource = ressourceDAO.save(Ressource.builder()
+                .titre("Germinal")
+                .auteur("Zola")
+                .categorie(Categorie.LITTERATURE)
+                .typeRessource(TypeRessource.LIVRE)
+                .nombreExemplaires(10_000)
+                .exemplairesDisponibles(10_000)
+                .dateAjout(LocalDateTime.now())
+                .bibliotheque(annexe)
+                .build());
+        usager = userDAO.save(User.builder()
+                .nom("Martin")
+                .prenom("Alice")
+                .email("alice" + System.nanoTime() + "@biblio.fr")
+                .motDePasse("hash")
+                .bibliotheque(quartier)
+                .build());
+    }
+
+    private void creerPrets(int nombre, StatutPret statut) {
+        List<Pret> prets = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            prets.add(Pret.builder()
+                    .utilisateur(usager)
+                    .ressource(ressource)
+                    .bibliotheque(bibliotheque)
+                    .statut(statut)
+                    .dateEmprunt(LocalDateTime.now().minusDays(i % 30))
+                    .dateRetourPrevu(LocalDate.now().plusDays(14 - i % 30))
+                    .build());
+        }
+        pretDAO.saveAll(prets);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private FluxJsonService.Pages<Pret> pagesEnCours() {
+        return (apresId, taille) -> pretDAO.findPageByBibliothequeAndStatut(bibliotheque.getId(), StatutPret.EN_COURS,
+                apresId, PageRequest.of(0, taille));
+    }
+
+    @Test
+    void ecrireListe_shouldWriteAllPagesWithTotal() throws Exception {
+        creerPrets(5, StatutPret.EN_COURS);
+        creerPrets(2, StatutPret.BLOQUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ProfilageSqlConfig.Profil profil = ProfilageSqlConfig.ouvrir();
+        try {
+            fluxJsonService.ecrireListe(response, "items", pagesEnCours(), Pret::getId, PretResponse::of);
+        } finally {
+            ProfilageSqlConfig.fermer(profil);
+        }
+
+        // Une requête par page de 2 : bibliothèques de la ressource et de l'usager comprises dans la jointure
+        assertEquals(3, profil.getRequetes());
+        JsonNode corps = jsonMapper.readTree(response.getContentAsByteArray());
+        assertEquals("application/json", response.getContentType());
+        assertTrue(corps.get("success").asBoolean());
+        assertEquals(5, corps.get("total").asInt());
+        assertEquals(5, corps.get("items").size());
+        JsonNode premier = corps.get("items").get(0);
+        assertEquals("EN_COURS", premier.get("statut").asString());
+        assertEquals("Germinal", premier.get("ressource").get("titre").asString());
+        assertEquals("Martin", premier.get("utilisateur").get("nom").asString());
+        assertEquals(bibliotheque.getNom(), premier.get("bibliotheque").asString());
+        List<Long> ids = new ArrayList<>();
+        corps.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+    }
+
+    @Test
+    void ecrireListe_withEmptySource_shouldWriteEmptyList() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fluxJsonService.ecrireListe(response, "items", (apresId, taille) -> pretDAO.findPageByUtilisateurId(
+                usager.getId(), apresId, PageRequest.of(0, taille)), Pret::getId, PretResponse::of);
+
+        JsonNode corps = jsonMapper.readTree(response.getContentAsByteArray());
+        assertEquals(0, corps.get("total").asInt());
+        assertTrue(corps.get("items").isEmpty());
+    }
+
+    @Test
+    void ecrireListe_whenSourceFails_shouldThrowBeforeWriting() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThrows(IllegalArgumentException.class, () -> fluxJsonService.ecrireListe(response, "items",
+                (apresId, taille) -> {
+                    throw new IllegalArgumentException("Utilisateur introuvable");
+                }, Pret::getId, PretResponse::of));
+
+        assertFalse(response.isCommitted());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    /**
+     * Hors transaction de test, EntityManager lié au thread comme par open-in-view et ayant déjà lu en base :
+     * la connexion ne doit être tenue que pendant la lecture de chaque page, jamais pendant l'écriture vers un
+     * client éventuellement lent.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void ecrireListe_shouldHoldNoConnectionWhileWriting() throws Exception {
+        new TransactionTemplate(transactionManager).executeWithoutResult(statut -> creerPrets(40, StatutPret.EN_COURS));
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                new EntityManagerHolder(entityManagerFactory.createEntityManager()));
+        try {
+            userDAO.findById(usager.getId()).orElseThrow();
+            assertEquals(1, pool.getActiveConnections());
+            ecrireEtSurveiller(pool);
+            assertEquals(0, pool.getActiveConnections());
+        } finally {
+            EntityManagerHolder holder = (EntityManagerHolder)
+                    TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            holder.getEntityManager().close();
+        }
+    }
+
+    private void ecrireEtSurveiller(HikariPoolMXBean pool) throws IOException {
+        List<Boolean> transactionEnLecture = new ArrayList<>();
+        List<Integer> connexionsEnEcriture = new ArrayList<>();
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                ServletOutputStream sortie = super.getOutputStream();
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+                        connexionsEnEcriture.add(pool.getActiveConnections());
+                        sortie.write(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+                };
+            }
+        };
+
+        fluxJsonService.ecrireListe(response, "items", (apresId, taille) -> {
+            transactionEnLecture.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return pagesEnCours().lire(apresId, taille);
+        }, Pret::getId, PretResponse::of);
+
+        assertEquals(40, jsonMapper.readTree(response.getContentAsByteArray()).get("total").asInt());
+        // 20 pages pleines, puis une page vide qui termine la liste
+        assertEquals(21, transactionEnLecture.size());
+        assertFalse(transactionEnLecture.contains(false));
+        assertTrue(connexionsEnEcriture.size() > 1, "Corps écrit en une seule fois");
+        assertEquals(Set.of(0), Set.copyOf(connexionsEnEcriture));
+    }
+
+    /**
+     * Liste de 10 000 prêts, corps construit en mémoire contre écriture page par page (lots de 500), avec et sans
+     * gzip (niveau par défaut, comme le connecteur Tomcat) : délai du premier octet et octets émis, meilleur de
+     * trois mesures après préchauffage.
+     * À lancer explicitement : {@code mvn test -Dtest=FluxJsonServiceTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_firstByteAgainstInMemoryBody() throws Exception {
+        creerPrets(10_000, StatutPret.EN_COURS);
+        FluxJsonService flux500 = new FluxJsonService(jsonMapper, entityManagerFactory, transactionManager, 500);
+        for (int i = 0; i < 3; i++) {
+            enMemoire(new Mesure(false));
+            enFlux(flux500, new Mesure(false));
+        }
+        for (boolean gzip : new boolean[]{false, true}) {
+            Mesure memoire = null;
+            Mesure flux = null;
+            for (int i = 0; i < 3; i++) {
+                Mesure m = new Mesure(gzip);
+                enMemoire(m);
+                Mesure f = new Mesure(gzip);
+                enFlux(flux500, f);
+                memoire = memoire == null || m.premierOctetMs() < memoire.premierOctetMs() ? m : memoire;
+                flux = flux == null || f.premierOctetMs() < flux.premierOctetMs() ? f : flux;
+            }
+            System.out.printf("%-4s  en mémoire %s   en flux %s%n", gzip ? "gzip" : "brut", memoire, flux);
+        }
+    }
+
+    private void enMemoire(Mesure mesure) throws IOException {
+        entityManager.clear();
+        mesure.debut = System.nanoTime();
+        List<PretResponse> items = pretDAO.findByBibliothequeAndStatut(bibliotheque.getId(), StatutPret.EN_COURS)
+                .stream().map(PretResponse::of).toList();
+        byte[] corps = jsonMapper.writeValueAsBytes(Map.of("success", true, "items", items, "total", items.size()));
+        try (OutputStream sortie = mesure.getOutputStream()) {
+            sortie.write(corps);
+        }
+        mesure.fin = System.nanoTime();
+    }
+
+    private void enFlux(FluxJsonService service, Mesure mesure) throws IOException {
+        entityManager.clear();
+        mesure.debut = System.nanoTime();
+        service.ecrireListe(mesure, "items", pagesEnCours(), Pret::getId, PretResponse::of);
+        mesure.fin = System.nanoTime();
+    }
+
+    /**
+     * Réponse qui compte les octets émis (après gzip éventuel) et date le premier
+     */
+    private static final class Mesure extends MockHttpServletResponse {
+        private final boolean gzip;
+        private long debut;
+        private long premierOctet;
+        private long fin;
+        private long octets;
+
+        Mesure(boolean gzip) {
+            this.gzip = gzip;
+        }
+
+        double premierOctetMs() {
+            return (premierOctet - debut) / 1e6;
+        }
+
+        double totalMs() {
+            return (fin - debut) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("1er octet %.1f ms, total %.1f ms, %d octets", premierOctetMs(), totalMs(), octets);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            OutputStream reseau = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    if (octets == 0 && len > 0) {
+                        premierOctet = System.nanoTime();
+                    }
+                    octets += len;
+                }
+            };
+            return new ServletOutputStream() {
+                private OutputStream sortie;
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    // Flux gzip ouvert à la première écriture, comme le filtre de Tomcat ; syncFlush : chaque tampon
+                    // plein de Jackson part sur le réseau
+                    if (sortie == null) {
+                        sortie = gzip ? new GZIPOutputStream(reseau, 8192, true) : reseau;
+                    }
+                    sortie.write(b, off, len);
+                    sortie.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (sortie != null) {
+                        sortie.close();
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+        }
+    }
+}
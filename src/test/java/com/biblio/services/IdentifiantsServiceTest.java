@@ -0,0 +1,59 @@
+package com.biblio.services;
+
+import com.biblio.entities.Ressource;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdentifiantsServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private IdentifiantsService identifiantsService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        identifiantsService = new IdentifiantsService(jdbcTemplate, mock(EntityManagerFactory.class),
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void aligner_shouldCreateOrAdvanceCounterBeyondMaxId() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("prets"))).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("ressources"))).thenReturn(List.of(60L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("user"))).thenReturn(List.of(500L));
+
+        identifiantsService.aligner("prets", 0);
+        identifiantsService.aligner("ressources", 120);
+        identifiantsService.aligner("user", 12);
+
+        verify(jdbcTemplate).update(startsWith("INSERT"), eq("prets"), eq(50L));
+        verify(jdbcTemplate).update(startsWith("UPDATE"), eq(170L), eq("ressources"));
+        // Compteur déjà en avance : inchangé
+        verify(jdbcTemplate, never()).update(anyString(), any(), eq("user"));
+    }
+
+    @Test
+    void reserver_shouldTakeWholeBlocksAndReturnFirstId() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("ressources"))).thenReturn(150L);
+
+        long premier = identifiantsService.reserver(Ressource.class, 60);
+
+        // La valeur 150 correspond au bloc [102, 151] ; 60 identifiants demandent deux blocs : 102 à 201
+        assertEquals(102L, premier);
+        verify(jdbcTemplate).update(startsWith("UPDATE"), eq(250L), eq("ressources"));
+    }
+
+    @Test
+    void reserver_unknownEntity_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> identifiantsService.reserver(String.class, 1));
+    }
+}
@@ -0,0 +1,99 @@
+package com.biblio.services;
+
+import com.biblio.dao.PretDAO;
+import com.biblio.dao.ReservationDAO;
+import com.biblio.dao.RessourceDAO;
+import com.biblio.dao.UserDAO;
+import com.biblio.enums.StatutPret;
+import com.biblio.enums.StatutReservation;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MetriquesServiceTest {
+
+    private ReservationDAO reservationDAO;
+    private PretDAO pretDAO;
+    private SimpleMeterRegistry registry;
+    private MetriquesService metriquesService;
+
+    @BeforeEach
+    void setUp() {
+        reservationDAO = mock(ReservationDAO.class);
+        pretDAO = mock(PretDAO.class);
+        registry = new SimpleMeterRegistry();
+        metriquesService = new MetriquesService(reservationDAO, pretDAO, registry);
+    }
+
+    private double jauge(String nom, String... tags) {
+        return registry.get(nom).tags(tags).gauge().value();
+    }
+
+    @Test
+    void rafraichir_shouldPublishOneGaugePerBibliothequeAndStatut() {
+        when(reservationDAO.countByStatutParBibliotheque(StatutReservation.EN_ATTENTE))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 4L}, new Object[]{2L, 9L}));
+        when(pretDAO.countByStatutsParBibliotheque(MetriquesService.STATUTS_SUIVIS))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, StatutPret.EN_COURS, 12L},
+                        new Object[]{1L, StatutPret.BLOQUE, 2L}));
+
+        metriquesService.rafraichir();
+
+        assertEquals(4, jauge("biblio.reservations.en_attente", "bibliotheque", "1"));
+        assertEquals(9, jauge("biblio.reservations.en_attente", "bibliotheque", "2"));
+        assertEquals(12, jauge("biblio.prets", "bibliotheque", "1", "statut", "EN_COURS"));
+        assertEquals(2, jauge("biblio.prets", "bibliotheque", "1", "statut", "BLOQUE"));
+    }
+
+    @Test
+    void rafraichir_shouldDropBibliothequesWithoutRows() {
+        when(reservationDAO.countByStatutParBibliotheque(StatutReservation.EN_ATTENTE))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 4L}, new Object[]{2L, 9L}))
+                .thenReturn(List.<Object[]>of(new Object[]{2L, 8L}));
+        when(pretDAO.countByStatutsParBibliotheque(anyList())).thenReturn(List.of());
+
+        metriquesService.rafraichir();
+        metriquesService.rafraichir();
+
+        assertNull(registry.find("biblio.reservations.en_attente").tags("bibliotheque", "1").gauge());
+        assertEquals(8, jauge("biblio.reservations.en_attente", "bibliotheque", "2"));
+    }
+
+    @Test
+    void rafraichir_failure_shouldKeepLastValues() {
+        when(reservationDAO.countByStatutParBibliotheque(StatutReservation.EN_ATTENTE))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 4L}))
+                .thenThrow(new RuntimeException("DB down"));
+        when(pretDAO.countByStatutsParBibliotheque(anyList())).thenReturn(List.of());
+
+        metriquesService.rafraichir();
+        metriquesService.rafraichir();
+
+        assertEquals(4, jauge("biblio.reservations.en_attente", "bibliotheque", "1"));
+    }
+
+    @Test
+    void transitions_shouldBeTimedPerMethodAndOutcome() {
+        when(pretDAO.findById(42L)).thenReturn(Optional.empty());
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new PretService(pretDAO, mock(UserDAO.class),
+                mock(ReservationService.class), mock(RessourceDAO.class)));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new TimedAspect(registry));
+        PretService pretService = proxyFactory.getProxy();
+
+        assertThrows(IllegalArgumentException.class, () -> pretService.retourner(42L));
+
+        Timer timer = registry.get("biblio.prets.transitions")
+                .tags("method", "retourner", "exception", "IllegalArgumentException").timer();
+        assertEquals(1, timer.count());
+    }
+}
@@ -0,0 +1,187 @@
+package com.biblio.services;
+
+import com.biblio.dao.FichierStockeDAO;
+import com.biblio.enums.EtatMiniatures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class MiniatureServiceTest {
+
+    @TempDir
+    Path uploads;
+
+    private FichierStockeDAO fichierStockeDAO;
+    private MiniatureService miniatureService;
+
+    @BeforeEach
+    void setUp() {
+        fichierStockeDAO = mock(FichierStockeDAO.class);
+        // Exécution immédiate dans le thread appelant
+        miniatureService = new MiniatureService(new LocalStorageBackend(uploads), fichierStockeDAO, Runnable::run, 0.8f,
+                10, Duration.ofHours(1));
+    }
+
+    private void creerImage(String filename, int largeur, int hauteur) throws Exception {
+        BufferedImage image = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, largeur / 2, hauteur);
+        g.dispose();
+        ImageIO.write(image, "png", uploads.resolve(filename).toFile());
+    }
+
+    @Test
+    void genererDerives_shouldWriteBoundedJpegsNextToOriginal() throws Exception {
+        creerImage("photo.png", 3000, 1500);
+
+        miniatureService.genererDerives("photo.png");
+
+        BufferedImage liste = ImageIO.read(uploads.resolve("photo-liste.jpg").toFile());
+        BufferedImage carte = ImageIO.read(uploads.resolve("photo-carte.jpg").toFile());
+        BufferedImage detail = ImageIO.read(uploads.resolve("photo-detail.jpg").toFile());
+        assertEquals(96, liste.getWidth());
+        assertEquals(48, liste.getHeight());
+        assertEquals(240, carte.getWidth());
+        assertEquals(640, detail.getWidth());
+        assertEquals(320, detail.getHeight());
+
+        Map<String, String> urls = miniatureService.urls("/uploads/photo.png");
+        assertEquals("/uploads/photo-liste.jpg", urls.get("liste"));
+        assertEquals("/uploads/photo-carte.jpg", urls.get("carte"));
+        assertEquals("/uploads/photo-detail.jpg", urls.get("detail"));
+        verify(fichierStockeDAO).marquerMiniatures("photo.png", EtatMiniatures.JPEG);
+    }
+
+    @Test
+    void urls_withRecordedState_shouldNotQueryStorage() throws Exception {
+        StorageBackend stockage = mock(StorageBackend.class);
+        when(fichierStockeDAO.findEtatsMiniatures()).thenReturn(List.of(
+                new Object[]{"ab/cd/abcd.png", EtatMiniatures.JPEG},
+                new Object[]{"ab/ef/abef.png", EtatMiniatures.ILLISIBLE}));
+        MiniatureService service = new MiniatureService(stockage, fichierStockeDAO, Runnable::run, 0.8f,
+                10, Duration.ofHours(1));
+        service.charger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("/uploads/ab/cd/abcd-carte.jpg", service.urls("/uploads/ab/cd/abcd.png").get("carte"));
+            assertEquals("/uploads/ab/ef/abef.png", service.urls("/uploads/ab/ef/abef.png").get("detail"));
+        }
+        verifyNoInteractions(stockage);
+    }
+
+    @Test
+    void urls_missingOriginal_shouldBeCheckedOnce() throws Exception {
+        StorageBackend stockage = mock(StorageBackend.class);
+        MiniatureService service = new MiniatureService(stockage, fichierStockeDAO, Runnable::run, 0.8f,
+                10, Duration.ofHours(1));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("/uploads/absente.png", service.urls("/uploads/absente.png").get("carte"));
+        }
+
+        // Dérivé DETAIL puis original, une seule fois
+        verify(stockage, times(2)).existe(anyString());
+    }
+
+    @Test
+    void urls_missingOriginals_shouldStayBoundedAndBeRecheckedOnceEvicted() throws Exception {
+        StorageBackend stockage = mock(StorageBackend.class);
+        MiniatureService service = new MiniatureService(stockage, fichierStockeDAO, Runnable::run, 0.8f,
+                2, Duration.ofHours(1));
+
+        service.urls("/uploads/a.png");
+        service.urls("/uploads/b.png");
+        service.urls("/uploads/a.png");
+        verify(stockage, times(4)).existe(anyString());
+
+        // Troisième original : b, le moins récemment consulté, est évincé puis vérifié de nouveau
+        service.urls("/uploads/c.png");
+        service.urls("/uploads/a.png");
+        service.urls("/uploads/b.png");
+        verify(stockage, times(8)).existe(anyString());
+    }
+
+    @Test
+    void urls_missingOriginal_shouldBeRecheckedAfterDelay() throws Exception {
+        StorageBackend stockage = mock(StorageBackend.class);
+        MiniatureService service = new MiniatureService(stockage, fichierStockeDAO, Runnable::run, 0.8f,
+                10, Duration.ZERO);
+
+        service.urls("/uploads/absente.png");
+        service.urls("/uploads/absente.png");
+
+        verify(stockage, times(4)).existe(anyString());
+    }
+
+    @Test
+    void fullQueue_shouldDropTaskAndRetryOnNextRequest() throws Exception {
+        creerImage("photo.png", 800, 400);
+        AtomicInteger refus = new AtomicInteger(2);
+        Executor fileSaturee = tache -> {
+            if (refus.getAndDecrement() > 0) {
+                throw new RejectedExecutionException("file pleine");
+            }
+            tache.run();
+        };
+        MiniatureService service = new MiniatureService(new LocalStorageBackend(uploads), fichierStockeDAO,
+                fileSaturee, 0.8f, 10, Duration.ofHours(1));
+
+        // Génération puis vérification refusées : rien n'est marqué en cours ni vérifié
+        service.genererDerives("photo.png");
+        assertEquals("/uploads/photo.png", service.urls("/uploads/photo.png").get("carte"));
+        assertFalse(Files.exists(uploads.resolve("photo-carte.jpg")));
+
+        assertEquals("/uploads/photo.png", service.urls("/uploads/photo.png").get("carte"));
+        assertEquals("/uploads/photo-carte.jpg", service.urls("/uploads/photo.png").get("carte"));
+    }
+
+    @Test
+    void redimensionner_shouldNotEnlargeSmallImages() {
+        BufferedImage petite = new BufferedImage(50, 80, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage resultat = MiniatureService.redimensionner(petite, MiniatureService.Taille.CARTE.getCote());
+
+        assertEquals(50, resultat.getWidth());
+        assertEquals(80, resultat.getHeight());
+    }
+
+    @Test
+    void urls_legacyUpload_shouldFallBackToOriginalAndBackfill() throws Exception {
+        creerImage("ancienne.png", 800, 1200);
+
+        // Premier appel : pas encore de dérivés, génération déclenchée
+        assertEquals("/uploads/ancienne.png", miniatureService.urls("/uploads/ancienne.png").get("carte"));
+        assertTrue(Files.exists(uploads.resolve("ancienne-carte.jpg")));
+        assertEquals("/uploads/ancienne-carte.jpg", miniatureService.urls("/uploads/ancienne.png").get("carte"));
+    }
+
+    @Test
+    void urls_externalOrUnreadableImage_shouldReturnOriginal() throws Exception {
+        Files.writeString(uploads.resolve("notes.png"), "pas une image");
+
+        assertEquals("https://covers.example.org/1.jpg",
+                miniatureService.urls("https://covers.example.org/1.jpg").get("detail"));
+        assertEquals("/uploads/notes.png", miniatureService.urls("/uploads/notes.png").get("liste"));
+        assertEquals("/uploads/notes.png", miniatureService.urls("/uploads/notes.png").get("liste"));
+        assertFalse(Files.exists(uploads.resolve("notes-liste.jpg")));
+        assertTrue(miniatureService.urls(null).isEmpty());
+    }
+}
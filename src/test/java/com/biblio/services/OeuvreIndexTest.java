@@ -0,0 +1,105 @@
+package com.biblio.services;
+
+import com.biblio.dao.BibliothequeDAO;
+import com.biblio.dao.RessourceDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OeuvreIndexTest {
+
+    private RessourceDAO ressourceDAO;
+    private BibliothequeDAO bibliothequeDAO;
+    private OeuvreIndex oeuvreIndex;
+
+    @BeforeEach
+    void setUp() {
+        ressourceDAO = mock(RessourceDAO.class);
+        bibliothequeDAO = mock(BibliothequeDAO.class);
+        oeuvreIndex = new OeuvreIndex(ressourceDAO, bibliothequeDAO, mock(EntityManagerFactory.class));
+    }
+
+    @Test
+    void charger_shouldGroupByNormalizedIsbnAndTitleAuthor() {
+        when(ressourceDAO.findEtatsStock()).thenReturn(List.of(
+                new Object[]{1L, "978-2-07-036822-8", "L'Étranger", "Albert Camus", 10L, 2, 3},
+                // ISBN-10 de la même édition
+                new Object[]{2L, "2-07-036822-X", "L'etranger", "Albert Camus", 20L, 0, 1},
+                // Sans ISBN : rattachée par titre + auteur normalisés
+                new Object[]{3L, null, "l’étranger ", "ALBERT CAMUS", 30L, 1, 1},
+                new Object[]{4L, "9782070360024", "La Peste", "Albert Camus", 10L, 4, 4}));
+
+        oeuvreIndex.charger();
+
+        assertEquals(2, oeuvreIndex.getNombreOeuvres());
+        OeuvreIndex.Synthese etranger = oeuvreIndex.parIsbn("2070368228").orElseThrow();
+        assertEquals(3, etranger.disponibles());
+        assertEquals(5, etranger.total());
+        assertEquals(3, etranger.bibliotheques().size());
+        assertEquals(Set.of(1L, 2L, 3L), oeuvreIndex.ressourcesDeLOeuvre(3L));
+    }
+
+    @Test
+    void enregistrer_shouldUpdateTotalsIncrementally() {
+        oeuvreIndex.enregistrer(1L, "9782070360024", "La Peste", "Albert Camus", 10L, 2, 2);
+        oeuvreIndex.enregistrer(2L, "978-2-07-036002-4", "La Peste", "Albert Camus", 20L, 1, 1);
+
+        // Emprunt dans la bibliothèque 10
+        oeuvreIndex.enregistrer(1L, "9782070360024", "La Peste", "Albert Camus", 10L, 1, 2);
+        OeuvreIndex.Synthese peste = oeuvreIndex.parIsbn("9782070360024").orElseThrow();
+        assertEquals(2, peste.disponibles());
+        assertEquals(3, peste.total());
+
+        oeuvreIndex.retirer(1L);
+        oeuvreIndex.retirer(2L);
+        assertTrue(oeuvreIndex.parIsbn("9782070360024").isEmpty());
+        assertEquals(0, oeuvreIndex.getNombreOeuvres());
+    }
+
+    @Test
+    void enregistrer_editedRessource_shouldDropAliasesOfPreviousVersion() {
+        oeuvreIndex.enregistrer(1L, "9782070360024", "La Peste", "Albert Camus", 10L, 2, 2);
+        oeuvreIndex.enregistrer(2L, null, "La Peste", "Albert Camus", 20L, 1, 1);
+
+        // ISBN et titre corrigés : l'ancienne version ne doit plus rattacher personne à l'œuvre
+        oeuvreIndex.enregistrer(1L, "9782070368228", "L'Étranger", "Albert Camus", 10L, 2, 2);
+
+        assertTrue(oeuvreIndex.parIsbn("9782070360024").isEmpty());
+        assertEquals(Set.of(1L), oeuvreIndex.ressourcesDeLOeuvre(1L));
+        assertEquals(Set.of(2L), oeuvreIndex.ressourcesDeLOeuvre(2L));
+        oeuvreIndex.enregistrer(3L, "9782070360024", "La Peste", "Albert Camus", 30L, 1, 1);
+        assertEquals(Set.of(2L, 3L), oeuvreIndex.ressourcesDeLOeuvre(3L));
+        assertEquals(Set.of(1L), oeuvreIndex.ressourcesDeLOeuvre(1L));
+    }
+
+    @Test
+    void synthese_shouldExcludeInactiveLibraries() {
+        when(bibliothequeDAO.findIdsInactives()).thenReturn(List.of(20L));
+        when(ressourceDAO.findEtatsStock()).thenReturn(List.of(
+                new Object[]{1L, "9782070360024", "La Peste", "Albert Camus", 10L, 2, 2},
+                new Object[]{2L, "9782070360024", "La Peste", "Albert Camus", 20L, 1, 1}));
+        oeuvreIndex.charger();
+
+        OeuvreIndex.Synthese peste = oeuvreIndex.parIsbn("9782070360024").orElseThrow();
+        assertEquals(List.of(new OeuvreIndex.Disponibilite(10L, 2, 2)), peste.bibliotheques());
+        assertEquals(2, peste.disponibles());
+        assertEquals(2, peste.total());
+
+        oeuvreIndex.definirActivite(20L, true);
+        oeuvreIndex.definirActivite(10L, false);
+        peste = oeuvreIndex.parRessource(1L).orElseThrow();
+        assertEquals(List.of(new OeuvreIndex.Disponibilite(20L, 1, 1)), peste.bibliotheques());
+        assertEquals(1, peste.total());
+    }
+
+    @Test
+    void ressourcesDeLOeuvre_unknownRessource_shouldReturnItself() {
+        assertEquals(Set.of(42L), oeuvreIndex.ressourcesDeLOeuvre(42L));
+    }
+}
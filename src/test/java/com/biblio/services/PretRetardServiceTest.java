@@ -0,0 +1,108 @@
+package com.biblio.services;
+
+import com.biblio.dao.PretDAO;
+import com.biblio.entities.Pret;
+import com.biblio.entities.Ressource;
+import com.biblio.entities.User;
+import com.biblio.enums.StatutPret;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PretRetardServiceTest {
+
+    private static final LocalDate AUJOURDHUI = LocalDate.of(2025, 3, 10);
+
+    private PretDAO pretDAO;
+    private EmailService emailService;
+    private PretRetardService pretRetardService;
+
+    private User usager;
+
+    @BeforeEach
+    void setUp() {
+        pretDAO = mock(PretDAO.class);
+        emailService = mock(EmailService.class);
+        pretRetardService = new PretRetardService(pretDAO, emailService, mock(PlatformTransactionManager.class), 2);
+
+        usager = new User();
+        usager.setId(1L);
+        usager.setEmail("user@test.com");
+        usager.setNom("Test");
+        usager.setPrenom("User");
+    }
+
+    private Pret pret(long id, StatutPret statut, LocalDate dateRetourPrevu) {
+        Ressource ressource = new Ressource();
+        ressource.setId(id);
+        ressource.setTitre("Livre " + id);
+        return Pret.builder()
+                .id(id)
+                .utilisateur(usager)
+                .ressource(ressource)
+                .statut(statut)
+                .dateRetourPrevu(dateRetourPrevu)
+                .build();
+    }
+
+    @Test
+    void detecterRetards_shouldBlockAccruePenaltyAndGroupReminders() {
+        Pret enCours = pret(1L, StatutPret.EN_COURS, AUJOURDHUI.minusDays(4));
+        Pret emprunte = pret(2L, StatutPret.EMPRUNTE, AUJOURDHUI.minusDays(2));
+        Pret dejaBloque = pret(3L, StatutPret.BLOQUE, AUJOURDHUI.minusDays(1));
+
+        when(pretDAO.findLotEnRetard(anyList(), eq(AUJOURDHUI), any(LocalDate.class), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(enCours, emprunte))
+                .thenReturn(List.of(dejaBloque));
+
+        PretRetardService.Bilan bilan = pretRetardService.detecterRetards(AUJOURDHUI);
+
+        assertEquals(3, bilan.traites());
+        assertEquals(2, bilan.bloques());
+        assertEquals(1, bilan.rappels());
+        assertEquals(StatutPret.BLOQUE, enCours.getStatut());
+        assertEquals(StatutPret.BLOQUE, emprunte.getStatut());
+        assertEquals(0, new BigDecimal("2.00").compareTo(enCours.getPenaliteRetard()));
+        assertEquals(0, new BigDecimal("0.50").compareTo(dejaBloque.getPenaliteRetard()));
+
+        // Le second lot reprend après la dernière clé (date, id) du premier
+        verify(pretDAO).findLotEnRetard(anyList(), eq(AUJOURDHUI), eq(emprunte.getDateRetourPrevu()), eq(2L), any(Pageable.class));
+        verify(emailService, times(1)).sendPretRetardEmail(eq("user@test.com"), eq("Test"), eq("User"),
+                eq(List.of("Livre 1", "Livre 2")), eq("3.00"));
+    }
+
+    @Test
+    void detecterRetards_noOverdueLoan_shouldDoNothing() {
+        when(pretDAO.findLotEnRetard(anyList(), any(LocalDate.class), any(LocalDate.class), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        PretRetardService.Bilan bilan = pretRetardService.detecterRetards(AUJOURDHUI);
+
+        assertEquals(0, bilan.traites());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void detecterRetards_emailFailure_shouldNotStopProcessing() {
+        Pret enCours = pret(1L, StatutPret.EN_COURS, AUJOURDHUI.minusDays(1));
+        when(pretDAO.findLotEnRetard(anyList(), any(LocalDate.class), any(LocalDate.class), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(enCours));
+        doThrow(new RuntimeException("SMTP error")).when(emailService)
+                .sendPretRetardEmail(anyString(), anyString(), anyString(), anyList(), anyString());
+
+        PretRetardService.Bilan bilan = pretRetardService.detecterRetards(AUJOURDHUI);
+
+        assertEquals(1, bilan.bloques());
+        assertEquals(0, bilan.rappels());
+        assertEquals(StatutPret.BLOQUE, enCours.getStatut());
+    }
+}
@@ -123,6 +123,7 @@ class PretServiceTest {
 
         when(pretDAO.findById(pret.getId())).thenReturn(Optional.of(pret));
         when(pretDAO.save(any(Pret.class))).thenAnswer(i -> i.getArgument(0));
+        when(ressourceDAO.findByIdForUpdate(ressource.getId())).thenReturn(Optional.of(ressource));
         when(ressourceDAO.save(any(Ressource.class))).thenAnswer(i -> i.getArgument(0));
         ressource.setExemplairesDisponibles(2);
         pret.setRessource(ressource);
@@ -131,5 +132,6 @@ class PretServiceTest {
 
         assertEquals(3, result.getRessource().getExemplairesDisponibles());
         verify(ressourceDAO).save(ressource);
+        verify(reservationService).promouvoirFileAttente(ressource.getId());
     }
 }
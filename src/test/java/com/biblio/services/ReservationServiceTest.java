@@ -4,12 +4,13 @@ import com.biblio.dao.*;
 import com.biblio.entities.*;
 import com.biblio.enums.StatutPret;
 import com.biblio.enums.StatutReservation;
+import com.biblio.jobs.ReservationEcheanceScheduler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,7 +33,11 @@ class ReservationServiceTest {
     @Mock
     private PretDAO pretDAO;
     @Mock
-    private SimpMessagingTemplate messagingTemplate;
+    private ReservationsEnAttentePublisher enAttentePublisher;
+    @Mock
+    private ReservationEcheanceScheduler echeanceScheduler;
+    @Mock
+    private OeuvreIndex oeuvreIndex;
 
     @InjectMocks
     private ReservationService reservationService;
@@ -72,21 +77,15 @@ class ReservationServiceTest {
         when(pretDAO.countActifsByUtilisateur(usager.getId(), List.of(StatutPret.BLOQUE)))
                 .thenReturn(0L);
 
-        when(reservationDAO.countDuplicateIsbn(
-                usager.getId(),
-                ressource.getIsbn(),
-                List.of(StatutReservation.EN_ATTENTE)))
-                .thenReturn(0L);
-
         when(reservationDAO.existsByUsagerIdAndRessourceIdAndStatutIn(
                 usager.getId(),
                 ressource.getId(),
-                List.of(StatutReservation.EN_ATTENTE)))
+                List.of(StatutReservation.EN_ATTENTE, StatutReservation.EN_FILE)))
                 .thenReturn(false);
 
         when(reservationDAO.countActivesByUsager(
                 usager.getId(),
-                List.of(StatutReservation.EN_ATTENTE)))
+                List.of(StatutReservation.EN_ATTENTE, StatutReservation.EN_FILE)))
                 .thenReturn(0L);
 
         when(reservationDAO.save(any(Reservation.class)))
@@ -105,7 +104,100 @@ class ReservationServiceTest {
         assertEquals(ressource, reservation.getRessource());
 
         verify(reservationDAO, times(1)).save(any(Reservation.class));
+        verify(echeanceScheduler, never()).armerApresCommit(any(), any());
         verify(pretService, times(1)).createFromReservation(any(Reservation.class));
-        verify(messagingTemplate, atLeastOnce()).convertAndSend(anyString(), ArgumentMatchers.<Object>any());
+        verify(enAttentePublisher).marquer(bibliotheque.getId());
+    }
+
+    @Test
+    void expirerReservation_deadlinePassed_shouldFreeLockedCopy() {
+        ressource.setNombreExemplaires(3);
+        ressource.setExemplairesDisponibles(0);
+        Reservation reservation = Reservation.builder()
+                .id(7L)
+                .ressource(ressource)
+                .usager(usager)
+                .bibliotheque(bibliotheque)
+                .statut(StatutReservation.CONFIRMEE)
+                .dateExpiration(LocalDateTime.now().minusSeconds(1))
+                .exemplaireVerrouille(true)
+                .build();
+        when(reservationDAO.findById(7L)).thenReturn(Optional.of(reservation));
+        when(ressourceDAO.findByIdForUpdate(5L)).thenReturn(Optional.of(ressource));
+
+        assertTrue(reservationService.expirerReservation(7L));
+
+        assertEquals(StatutReservation.EXPIREE, reservation.getStatut());
+        assertFalse(reservation.isExemplaireVerrouille());
+        assertEquals(1, ressource.getExemplairesDisponibles());
+        verify(ressourceDAO).save(ressource);
+    }
+
+    @Test
+    void expirerReservation_deadlineNotReached_shouldDoNothing() {
+        Reservation reservation = Reservation.builder()
+                .id(8L)
+                .ressource(ressource)
+                .bibliotheque(bibliotheque)
+                .statut(StatutReservation.CONFIRMEE)
+                .dateExpiration(LocalDateTime.now().plusHours(1))
+                .build();
+        when(reservationDAO.findById(8L)).thenReturn(Optional.of(reservation));
+
+        assertFalse(reservationService.expirerReservation(8L));
+
+        assertEquals(StatutReservation.CONFIRMEE, reservation.getStatut());
+        verify(reservationDAO, never()).save(any(Reservation.class));
+    }
+
+    @Test
+    void confirmerReservation_noCopyAvailable_shouldJoinWaitlist() {
+        User bibliothecaire = new User();
+        bibliothecaire.setEmail("biblio@test.com");
+        bibliothecaire.setRole(com.biblio.enums.Role.BIBLIOTHECAIRE);
+        bibliothecaire.setBibliotheque(bibliotheque);
+        ressource.setExemplairesDisponibles(0);
+        Reservation reservation = Reservation.builder()
+                .id(9L)
+                .ressource(ressource)
+                .usager(usager)
+                .bibliotheque(bibliotheque)
+                .statut(StatutReservation.EN_ATTENTE)
+                .build();
+        when(reservationDAO.findById(9L)).thenReturn(Optional.of(reservation));
+        when(userDAO.findByEmail("biblio@test.com")).thenReturn(Optional.of(bibliothecaire));
+        when(ressourceDAO.findByIdForUpdate(5L)).thenReturn(Optional.of(ressource));
+        when(reservationDAO.findMaxRangFile(5L, StatutReservation.EN_FILE)).thenReturn(41L);
+
+        Reservation result = reservationService.confirmerReservation(9L, "biblio@test.com", null);
+
+        assertEquals(StatutReservation.EN_FILE, result.getStatut());
+        assertEquals(42L, result.getRangFile());
+        assertFalse(result.isExemplaireVerrouille());
+        verify(pretService, never()).mettreEnCoursDepuisReservation(any());
+        verify(echeanceScheduler, never()).armerApresCommit(any(), any());
+    }
+
+    @Test
+    void promouvoirFileAttente_shouldServeWaitersInOrderWhileCopiesRemain() {
+        ressource.setNombreExemplaires(5);
+        ressource.setExemplairesDisponibles(1);
+        Reservation premier = Reservation.builder()
+                .id(20L).ressource(ressource).usager(usager).bibliotheque(bibliotheque)
+                .statut(StatutReservation.EN_FILE).rangFile(1L).build();
+        when(ressourceDAO.findByIdForUpdate(5L)).thenReturn(Optional.of(ressource));
+        when(reservationDAO.findFirstByRessource_IdAndStatutOrderByRangFileAsc(5L, StatutReservation.EN_FILE))
+                .thenReturn(Optional.of(premier));
+
+        int promues = reservationService.promouvoirFileAttente(5L);
+
+        assertEquals(1, promues);
+        assertEquals(StatutReservation.CONFIRMEE, premier.getStatut());
+        assertTrue(premier.isExemplaireVerrouille());
+        assertNull(premier.getRangFile());
+        assertEquals(0, ressource.getExemplairesDisponibles());
+        verify(pretService).mettreEnCoursDepuisReservation(premier);
+        verify(echeanceScheduler).armerApresCommit(eq(20L), any(LocalDateTime.class));
+        verify(emailService).sendReservationConfirmationEmail(eq("user@test.com"), any(), any(), any(), any());
     }
 }
@@ -0,0 +1,66 @@
+package com.biblio.services;
+
+import com.biblio.dao.ReservationDAO;
+import com.biblio.enums.StatutReservation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReservationsEnAttentePublisherTest {
+
+    private ReservationDAO reservationDAO;
+    private SimpMessagingTemplate messagingTemplate;
+    private ReservationsEnAttentePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        reservationDAO = mock(ReservationDAO.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        publisher = new ReservationsEnAttentePublisher(reservationDAO, messagingTemplate, ObservationRegistry.NOOP);
+    }
+
+    @Test
+    void flush_burst_shouldSendOneMessagePerBibliothequeAndRealGlobalTotal() {
+        for (int i = 0; i < 50; i++) {
+            publisher.marquer(1L);
+            publisher.marquer(2L);
+        }
+        when(reservationDAO.countByBibliothequesAndStatut(anyCollection(), eq(StatutReservation.EN_ATTENTE)))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 7L}));
+        when(reservationDAO.countByStatut(StatutReservation.EN_ATTENTE)).thenReturn(19L);
+
+        publisher.flush();
+
+        verify(reservationDAO, times(1)).countByBibliothequesAndStatut(anyCollection(), eq(StatutReservation.EN_ATTENTE));
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/reservations/en-attente/1", (Object) 7L);
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/reservations/en-attente/2", (Object) 0L);
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/reservations/en-attente", (Object) 19L);
+        verifyNoMoreInteractions(messagingTemplate);
+    }
+
+    @Test
+    void flush_nothingMarked_shouldNotQuery() {
+        publisher.flush();
+
+        verifyNoInteractions(reservationDAO, messagingTemplate);
+    }
+
+    @Test
+    void flush_failure_shouldRetryOnNextPass() {
+        publisher.marquer(3L);
+        when(reservationDAO.countByBibliothequesAndStatut(anyCollection(), any()))
+                .thenThrow(new RuntimeException("DB down"))
+                .thenReturn(List.of());
+
+        publisher.flush();
+        publisher.flush();
+
+        verify(messagingTemplate).convertAndSend("/topic/reservations/en-attente/3", (Object) 0L);
+    }
+}
@@ -31,12 +31,16 @@ class RessourceServiceTest {
     private BibliothequeDAO bibliothequeDAO;
     @Mock
     private UserDAO userDAO;
+    @Mock
+    private FileStorageService fileStorageService;
+    @Mock
+    private CacheCatalogue cacheCatalogue;
 
     private RessourceService ressourceService;
 
     @BeforeEach
     void setUp() {
-        ressourceService = new RessourceService(ressourceDAO, bibliothequeDAO, userDAO);
+        ressourceService = new RessourceService(ressourceDAO, bibliothequeDAO, userDAO, fileStorageService, cacheCatalogue);
     }
 
     @Test
@@ -104,6 +108,7 @@ class RessourceServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(3, result.getNombreExemplaires());
+        verify(cacheCatalogue).invaliderApresCommit();
     }
 
     @Test
@@ -222,4 +227,31 @@ class RessourceServiceTest {
         );
         assertEquals(5, updated.getNombreExemplaires());
     }
+
+    @Test
+    void updateRessource_ShouldMoveFileReference_WhenCoverChanges() {
+        String email = "biblio@test.com";
+        Bibliotheque lib = Bibliotheque.builder().id(1L).nom("Lib").build();
+        User user = User.builder().email(email).role(Role.BIBLIOTHECAIRE).bibliotheque(lib).build();
+        Ressource ressource = Ressource.builder()
+                .id(10L)
+                .titre("Titre")
+                .imageCouverture("/uploads/aa/bb/ancienne.png")
+                .bibliotheque(lib)
+                .build();
+
+        when(userDAO.findByEmail(email)).thenReturn(Optional.of(user));
+        when(ressourceDAO.findById(10L)).thenReturn(Optional.of(ressource));
+        when(ressourceDAO.save(any(Ressource.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ressourceService.updateRessource(10L, null, null, null, null, null,
+                null, null, null, null, null, "/uploads/cc/dd/nouvelle.png", email);
+        // Même image renvoyée : les compteurs ne bougent pas
+        ressourceService.updateRessource(10L, null, null, null, null, null,
+                null, null, null, null, null, "/uploads/cc/dd/nouvelle.png", email);
+
+        verify(fileStorageService).retirerReference("/uploads/aa/bb/ancienne.png");
+        verify(fileStorageService).ajouterReference("/uploads/cc/dd/nouvelle.png");
+        verifyNoMoreInteractions(fileStorageService);
+    }
 }
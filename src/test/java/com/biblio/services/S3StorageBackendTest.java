@@ -0,0 +1,268 @@
+package com.biblio.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contre un service S3 minimal en mémoire (objets, envois multipart), à la place d'un MinIO.
+ */
+class S3StorageBackendTest {
+
+    private static final String BUCKET = "biblio";
+    private static final String CHEMIN = "ab/cd/" + "ab".repeat(32) + ".mp3";
+
+    @TempDir
+    Path temporaire;
+
+    private HttpServer serveur;
+    private final Map<String, byte[]> objets = new ConcurrentHashMap<>();
+    private final Map<String, TreeMap<Integer, byte[]>> envois = new ConcurrentHashMap<>();
+    private final List<String> requetes = new CopyOnWriteArrayList<>();
+    private S3StorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serveur = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serveur.createContext("/", this::repondre);
+        serveur.start();
+
+        URI endpoint = URI.create("http://127.0.0.1:" + serveur.getAddress().getPort());
+        StaticCredentialsProvider identifiants = StaticCredentialsProvider.create(
+                AwsBasicCredentials.create("minio", "minio-secret"));
+        S3Configuration configuration = S3Configuration.builder().pathStyleAccessEnabled(true).build();
+        S3Client client = S3Client.builder().endpointOverride(endpoint).region(Region.US_EAST_1)
+                .credentialsProvider(identifiants).serviceConfiguration(configuration).build();
+        S3Presigner presigner = S3Presigner.builder().endpointOverride(endpoint).region(Region.US_EAST_1)
+                .credentialsProvider(identifiants).serviceConfiguration(configuration).build();
+        backend = new S3StorageBackend(client, presigner, BUCKET, 1024);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+        serveur.stop(0);
+    }
+
+    private Path fichier(int taille) throws IOException {
+        byte[] contenu = new byte[taille];
+        new Random(taille).nextBytes(contenu);
+        Path fichier = Files.createTempFile(temporaire, "depot", ".tmp");
+        Files.write(fichier, contenu);
+        return fichier;
+    }
+
+    @Test
+    void deposer_smallFile_shouldPutObjectAndConsumeSource() throws IOException {
+        Path source = fichier(600);
+        byte[] contenu = Files.readAllBytes(source);
+
+        backend.deposer(CHEMIN, source, "audio/mpeg");
+
+        assertArrayEquals(contenu, objets.get(CHEMIN));
+        assertFalse(Files.exists(source));
+        assertTrue(backend.existe(CHEMIN));
+        assertFalse(backend.existe("ab/cd/absent.mp3"));
+        try (InputStream in = backend.ouvrir(CHEMIN)) {
+            assertArrayEquals(contenu, in.readAllBytes());
+        }
+        assertEquals(List.of("PUT", "HEAD", "HEAD", "GET"), requetes.stream().map(r -> r.split(" ")[0]).toList());
+    }
+
+    @Test
+    void deposer_largeFile_shouldUploadOnePartAtATime() throws IOException {
+        Path source = fichier(2500);
+        byte[] contenu = Files.readAllBytes(source);
+
+        backend.deposer(CHEMIN, source, "audio/mpeg");
+
+        assertArrayEquals(contenu, objets.get(CHEMIN));
+        assertEquals(List.of("POST uploads", "PUT partNumber=1", "PUT partNumber=2", "PUT partNumber=3",
+                "POST uploadId"), requetes);
+        assertTrue(envois.isEmpty());
+    }
+
+    @Test
+    void supprimer_shouldDeleteObject() throws IOException {
+        objets.put(CHEMIN, new byte[]{1});
+
+        backend.supprimer(CHEMIN);
+
+        assertFalse(objets.containsKey(CHEMIN));
+    }
+
+    @Test
+    void urlSignee_shouldGrantDirectReadWithoutProxying() throws Exception {
+        objets.put(CHEMIN, "extrait".getBytes(StandardCharsets.UTF_8));
+
+        URI url = backend.urlSignee(CHEMIN, Duration.ofMinutes(15)).orElseThrow();
+
+        assertTrue(url.getQuery().contains("X-Amz-Expires=900"), url.toString());
+        assertTrue(url.getQuery().contains("X-Amz-Signature="), url.toString());
+        assertTrue(backend.fichierLocal(CHEMIN).isEmpty());
+        HttpResponse<String> reponse = HttpClient.newHttpClient().send(HttpRequest.newBuilder(url).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals("extrait", reponse.body());
+    }
+
+    // --- Service S3 en mémoire (adressage par chemin : /bucket/cle) ---
+
+    private void repondre(HttpExchange echange) throws IOException {
+        String methode = echange.getRequestMethod();
+        String cle = echange.getRequestURI().getPath().substring(BUCKET.length() + 2);
+        Map<String, String> parametres = parametres(echange.getRequestURI().getRawQuery());
+        if (!echange.getRequestURI().getPath().startsWith("/" + BUCKET + "/")) {
+            envoyer(echange, 400, null);
+            return;
+        }
+        if (!parametres.containsKey("X-Amz-Signature")) {
+            String detail = parametres.containsKey("uploads") ? " uploads"
+                    : parametres.containsKey("partNumber") ? " partNumber=" + parametres.get("partNumber")
+                    : parametres.containsKey("uploadId") ? " uploadId" : "";
+            requetes.add(methode + detail);
+        }
+        switch (methode) {
+            case "PUT" -> {
+                byte[] corps = corps(echange);
+                if (parametres.containsKey("partNumber")) {
+                    envois.get(parametres.get("uploadId")).put(Integer.parseInt(parametres.get("partNumber")), corps);
+                } else {
+                    objets.put(cle, corps);
+                }
+                // Comme S3 : MD5 du contenu, vérifié par le SDK
+                echange.getResponseHeaders().add("ETag", "\"" + md5(corps) + "\"");
+                envoyer(echange, 200, null);
+            }
+            case "POST" -> {
+                corps(echange);
+                if (parametres.containsKey("uploads")) {
+                    String uploadId = "envoi-" + (envois.size() + 1);
+                    envois.put(uploadId, new TreeMap<>());
+                    envoyer(echange, 200, "<InitiateMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>" + cle
+                            + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+                } else {
+                    ByteArrayOutputStream assemblage = new ByteArrayOutputStream();
+                    envois.remove(parametres.get("uploadId")).values().forEach(assemblage::writeBytes);
+                    objets.put(cle, assemblage.toByteArray());
+                    envoyer(echange, 200, "<CompleteMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>" + cle
+                            + "</Key><ETag>\"final\"</ETag></CompleteMultipartUploadResult>");
+                }
+            }
+            case "HEAD" -> {
+                byte[] objet = objets.get(cle);
+                if (objet != null) {
+                    echange.getResponseHeaders().add("Content-Length", String.valueOf(objet.length));
+                }
+                echange.sendResponseHeaders(objet == null ? 404 : 200, -1);
+                echange.close();
+            }
+            case "GET" -> {
+                byte[] objet = objets.get(cle);
+                if (objet == null) {
+                    envoyer(echange, 404, "<Error><Code>NoSuchKey</Code><Message>absent</Message></Error>");
+                } else {
+                    echange.sendResponseHeaders(200, objet.length);
+                    echange.getResponseBody().write(objet);
+                    echange.close();
+                }
+            }
+            case "DELETE" -> {
+                if (parametres.containsKey("uploadId")) {
+                    envois.remove(parametres.get("uploadId"));
+                } else {
+                    objets.remove(cle);
+                }
+                echange.sendResponseHeaders(204, -1);
+                echange.close();
+            }
+            default -> envoyer(echange, 405, null);
+        }
+    }
+
+    private static String md5(byte[] corps) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(corps));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> parametres(String query) {
+        Map<String, String> parametres = new TreeMap<>();
+        if (query != null) {
+            for (String paire : query.split("&")) {
+                int egal = paire.indexOf('=');
+                parametres.put(egal < 0 ? paire : paire.substring(0, egal), egal < 0 ? "" : paire.substring(egal + 1));
+            }
+        }
+        return parametres;
+    }
+
+    // Corps brut, ou décodé s'il est envoyé en morceaux signés (Content-Encoding: aws-chunked)
+    private static byte[] corps(HttpExchange echange) throws IOException {
+        byte[] brut = echange.getRequestBody().readAllBytes();
+        String sha = echange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (sha == null || !sha.startsWith("STREAMING-")) {
+            return brut;
+        }
+        ByteArrayOutputStream decode = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < brut.length) {
+            int finLigne = position;
+            while (brut[finLigne] != '\r') {
+                finLigne++;
+            }
+            String entete = new String(brut, position, finLigne - position, StandardCharsets.US_ASCII);
+            int taille = Integer.parseInt(entete.split(";")[0], 16);
+            if (taille == 0) {
+                break;
+            }
+            decode.write(brut, finLigne + 2, taille);
+            position = finLigne + 2 + taille + 2;
+        }
+        return decode.toByteArray();
+    }
+
+    private static void envoyer(HttpExchange echange, int statut, String xml) throws IOException {
+        byte[] corps = xml == null ? new byte[0] : xml.getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().add("Content-Type", "application/xml");
+        echange.sendResponseHeaders(statut, corps.length == 0 ? -1 : corps.length);
+        if (corps.length > 0) {
+            echange.getResponseBody().write(corps);
+        }
+        echange.close();
+    }
+}
@@ -1,6 +1,7 @@
 package com.biblio.services;
 
 import com.biblio.dao.UserLogDAO;
+import com.biblio.dto.UserLogResponse;
 import com.biblio.entities.Bibliotheque;
 import com.biblio.entities.User;
 import com.biblio.entities.UserLog;
@@ -17,7 +18,6 @@ import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -81,11 +81,11 @@ class UserLogServiceTest {
         when(userLogDAO.findAllByOrderByCreatedAtDesc(any(Pageable.class)))
                 .thenReturn(page);
 
-        List<Map<String, Object>> result = userLogService.getRecentLogs(10, null);
+        List<UserLogResponse> result = userLogService.getRecentLogs(10, null);
 
         assertEquals(1, result.size());
-        assertEquals("Connexion réussie", result.get(0).get("message"));
-        assertEquals("user@test.com", result.get(0).get("user"));
+        assertEquals("Connexion réussie", result.get(0).message());
+        assertEquals("user@test.com", result.get(0).user());
     }
 
     @Test
@@ -94,12 +94,12 @@ class UserLogServiceTest {
         when(userLogDAO.findByUtilisateur_IdOrderByCreatedAtDesc(eq(10L), any(Pageable.class)))
                 .thenReturn(page);
 
-        List<Map<String, Object>> result = userLogService.getRecentLogs(5, 10L);
+        List<UserLogResponse> result = userLogService.getRecentLogs(5, 10L);
 
         assertEquals(1, result.size());
-        assertEquals("LOGIN", result.get(0).get("action"));
-        assertEquals("ADMIN", result.get(0).get("role"));
-        assertEquals("Bibliothèque Centrale", result.get(0).get("bibliotheque"));
+        assertEquals("LOGIN", result.get(0).action());
+        assertEquals("ADMIN", result.get(0).role());
+        assertEquals("Bibliothèque Centrale", result.get(0).bibliotheque());
     }
 
     @Test
@@ -108,7 +108,7 @@ class UserLogServiceTest {
         when(userLogDAO.findAllByOrderByCreatedAtDesc(any(Pageable.class)))
                 .thenReturn(page);
 
-        List<Map<String, Object>> result = userLogService.getRecentLogs(1000, null);
+        List<UserLogResponse> result = userLogService.getRecentLogs(1000, null);
 
         assertEquals(1, result.size());
         verify(userLogDAO).findAllByOrderByCreatedAtDesc(any(Pageable.class));